@@ -0,0 +1,50 @@
+/*
+ *  The MIT License
+ *
+ *  Copyright 2026 Sony Mobile Communications Inc. All rights reserved.
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+package com.sonymobile.tools.gerrit.gerritevents;
+
+import com.sonymobile.tools.gerrit.gerritevents.dto.GerritEvent;
+
+import java.util.List;
+
+/**
+ * Listener interface for those that want Gerrit events in batches, for example to write them to a database
+ * in one transaction.
+ * <p>
+ * Events are gathered per worker lane of the {@link GerritHandler}, so events about the same change or ref
+ * always end up in the same sequence of batches, in the order they were notified. A batch is delivered when it
+ * has grown to its max size or when its oldest event has waited for the max delay, whichever comes first.
+ * Batches are delivered on the worker threads of the handler or on the flushing thread of the listener,
+ * one batch of a lane at a time.
+ *
+ * @see GerritHandler#addBatchListener(BatchGerritEventListener, int, long, java.util.concurrent.TimeUnit)
+ * @see EventBatcher
+ */
+public interface BatchGerritEventListener {
+    /**
+     * Called with a batch of events.
+     *
+     * @param events the events, in the order they were received. Not to be modified or kept.
+     */
+    void gerritEvents(List<GerritEvent> events);
+}
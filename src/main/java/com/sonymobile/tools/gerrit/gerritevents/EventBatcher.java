@@ -0,0 +1,264 @@
+/*
+ *  The MIT License
+ *
+ *  Copyright 2026 Sony Mobile Communications Inc. All rights reserved.
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+package com.sonymobile.tools.gerrit.gerritevents;
+
+import com.sonymobile.tools.gerrit.gerritevents.dto.GerritEvent;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Gathers events into batches for one {@link BatchGerritEventListener}.
+ * <p>
+ * There is one batch per lane, an event goes into the lane of its ordering key, the change or ref it is about.
+ * A batch is handed to the listener when it reaches the max size, on the thread that added the last event,
+ * or when its first event has waited for the max delay, on the flushing thread of the batcher.
+ * A lane is locked while its batch is delivered, so the batches of a lane arrive one at a time and in order,
+ * and a slow listener holds up the worker threads adding events to that lane.
+ *
+ * @see GerritHandler#addBatchListener(BatchGerritEventListener, int, long, TimeUnit)
+ */
+public final class EventBatcher {
+
+    private static final Logger logger = LoggerFactory.getLogger(EventBatcher.class);
+    private static final String THREAD_PREFIX = "Gerrit Batch Flusher_";
+
+    private final BatchGerritEventListener listener;
+    private final int maxBatchSize;
+    private final long maxDelayNanos;
+    private final Lane[] lanes;
+    private final ScheduledThreadPoolExecutor flusher;
+    private final AtomicLong batches = new AtomicLong();
+    private final AtomicLong events = new AtomicLong();
+    private volatile boolean closed = false;
+
+    /**
+     * Standard constructor.
+     *
+     * @param listener the listener.
+     * @param maxBatchSize the most events in a batch.
+     * @param maxDelay the longest time the first event of a batch waits for the batch to be delivered.
+     * @param unit the unit of the max delay.
+     * @param laneCount the number of lanes.
+     */
+    EventBatcher(final BatchGerritEventListener listener, int maxBatchSize, long maxDelay, TimeUnit unit,
+                 int laneCount) {
+        if (maxBatchSize < 1) {
+            throw new IllegalArgumentException("The max batch size must be at least 1: " + maxBatchSize);
+        }
+        if (maxDelay <= 0) {
+            throw new IllegalArgumentException("The max delay must be positive: " + maxDelay);
+        }
+        this.listener = listener;
+        this.maxBatchSize = maxBatchSize;
+        this.maxDelayNanos = unit.toNanos(maxDelay);
+        this.lanes = new Lane[Math.max(1, laneCount)];
+        for (int i = 0; i < lanes.length; i++) {
+            lanes[i] = new Lane();
+        }
+        this.flusher = new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+            private final ThreadFactory parent = Executors.defaultThreadFactory();
+
+            @Override
+            public Thread newThread(Runnable task) {
+                Thread thread = parent.newThread(task);
+                thread.setName(THREAD_PREFIX + listener);
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        flusher.setRemoveOnCancelPolicy(true);
+    }
+
+    /**
+     * Adds an event to the batch of its lane, and delivers the batch if it is full.
+     *
+     * @param orderingKey the change or ref the event is about, null if not known.
+     * @param event the event.
+     */
+    void add(String orderingKey, GerritEvent event) {
+        int lane = 0;
+        if (orderingKey != null) {
+            lane = Math.floorMod(orderingKey.hashCode(), lanes.length);
+        }
+        lanes[lane].add(event);
+    }
+
+    /**
+     * Delivers the events in all the batches right away.
+     */
+    public void flush() {
+        for (Lane lane : lanes) {
+            lane.flush();
+        }
+    }
+
+    /**
+     * Stops the flushing thread and delivers what is left.
+     * Events added after this are delivered one at a time.
+     */
+    void close() {
+        closed = true;
+        flusher.shutdownNow();
+        flush();
+    }
+
+    /**
+     * The listener the batches are delivered to.
+     *
+     * @return the listener.
+     */
+    public BatchGerritEventListener getListener() {
+        return listener;
+    }
+
+    /**
+     * The most events in a batch.
+     *
+     * @return the max batch size.
+     */
+    public int getMaxBatchSize() {
+        return maxBatchSize;
+    }
+
+    /**
+     * The longest time the first event of a batch waits for the batch to be delivered.
+     *
+     * @return the max delay in nanoseconds.
+     */
+    public long getMaxDelayNanos() {
+        return maxDelayNanos;
+    }
+
+    /**
+     * The number of batches delivered.
+     *
+     * @return the count.
+     */
+    public long getBatches() {
+        return batches.get();
+    }
+
+    /**
+     * The number of events delivered.
+     *
+     * @return the count.
+     */
+    public long getEvents() {
+        return events.get();
+    }
+
+    /**
+     * The number of events waiting in the batches.
+     *
+     * @return the count.
+     */
+    public int getPending() {
+        int pending = 0;
+        for (Lane lane : lanes) {
+            pending += lane.size();
+        }
+        return pending;
+    }
+
+    @Override
+    public String toString() {
+        return "EventBatcher for " + listener + ": " + batches.get() + " batches of " + events.get() + " events";
+    }
+
+    /**
+     * The batch of one lane.
+     */
+    private final class Lane implements Runnable {
+        private List<GerritEvent> batch = new ArrayList<GerritEvent>();
+        private ScheduledFuture<?> timer;
+
+        /**
+         * Adds the event to the batch, and delivers it if it is full.
+         * Starts the timer of the batch on the first event.
+         *
+         * @param event the event.
+         */
+        synchronized void add(GerritEvent event) {
+            batch.add(event);
+            if (batch.size() >= maxBatchSize || closed) {
+                flush();
+            } else if (timer == null) {
+                try {
+                    timer = flusher.schedule(this, maxDelayNanos, TimeUnit.NANOSECONDS);
+                } catch (RejectedExecutionException e) {
+                    flush();
+                }
+            }
+        }
+
+        /**
+         * Delivers the batch if it has any events.
+         */
+        synchronized void flush() {
+            if (timer != null) {
+                timer.cancel(false);
+                timer = null;
+            }
+            if (batch.isEmpty()) {
+                return;
+            }
+            List<GerritEvent> delivery = batch;
+            batch = new ArrayList<GerritEvent>();
+            batches.incrementAndGet();
+            events.addAndGet(delivery.size());
+            try {
+                listener.gerritEvents(Collections.unmodifiableList(delivery));
+            } catch (Exception ex) {
+                logger.error("When notifying batch listener: {} about {} events", listener, delivery.size());
+                logger.error("Notify-error: ", ex);
+            }
+        }
+
+        /**
+         * The number of events in the batch.
+         *
+         * @return the size.
+         */
+        synchronized int size() {
+            return batch.size();
+        }
+
+        @Override
+        public void run() {
+            flush();
+        }
+    }
+}
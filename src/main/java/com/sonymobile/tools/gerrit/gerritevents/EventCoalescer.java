@@ -0,0 +1,397 @@
+/*
+ *  The MIT License
+ *
+ *  Copyright 2026 Sony Mobile Communications Inc. All rights reserved.
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+package com.sonymobile.tools.gerrit.gerritevents;
+
+import com.sonymobile.tools.gerrit.gerritevents.dto.GerritEvent;
+import com.sonymobile.tools.gerrit.gerritevents.dto.GerritEventType;
+import com.sonymobile.tools.gerrit.gerritevents.dto.events.ChangeBasedEvent;
+import com.sonymobile.tools.gerrit.gerritevents.dto.events.GerritTriggeredEvent;
+import com.sonymobile.tools.gerrit.gerritevents.dto.events.RefReplicated;
+import com.sonymobile.tools.gerrit.gerritevents.dto.events.RefReplicationDone;
+import com.sonymobile.tools.gerrit.gerritevents.dto.events.RefUpdated;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiFunction;
+import java.util.function.BinaryOperator;
+import java.util.function.Consumer;
+
+/**
+ * Holds back bursts of related events for a while and delivers one event in their place.
+ * <p>
+ * Coalescing is set up for a group of event types, with a window and a merge rule.
+ * The first event of the group about a change, or about a ref for ref events, is held for the window.
+ * Every event of the group about the same change or ref that comes within the window is merged with the held one
+ * by the merge rule, and when the window is over the result is delivered. The window is counted from the first
+ * event, so a steady stream of events is still delivered once per window.
+ * <p>
+ * For example {@link #LATEST} for {@code patchset-created} delivers only the last patch set uploaded while a
+ * stack is rebased, and for {@code ref-replicated} and {@code ref-replication-done} together only the
+ * {@code ref-replication-done} that follows the replication to each node.
+ * Events of other types, and events that are neither about a change nor a ref, are not held.
+ * So a held event is delivered after the events of other types about the same change that came later within the
+ * window, e.g. a coalesced {@code patchset-created} after a {@code comment-added} on the new patch set.
+ * Listeners that need those in order should not coalesce the types apart.
+ *
+ * @see GerritHandler#setCoalescing(Set, long, TimeUnit, BinaryOperator)
+ */
+public final class EventCoalescer {
+
+    /**
+     * Keeps the latest event.
+     */
+    public static final BinaryOperator<GerritEvent> LATEST = new BinaryOperator<GerritEvent>() {
+        @Override
+        public GerritEvent apply(GerritEvent current, GerritEvent next) {
+            return next;
+        }
+
+        @Override
+        public String toString() {
+            return "LATEST";
+        }
+    };
+
+    /**
+     * Keeps the first event.
+     */
+    public static final BinaryOperator<GerritEvent> FIRST = new BinaryOperator<GerritEvent>() {
+        @Override
+        public GerritEvent apply(GerritEvent current, GerritEvent next) {
+            return current;
+        }
+
+        @Override
+        public String toString() {
+            return "FIRST";
+        }
+    };
+
+    private static final Logger logger = LoggerFactory.getLogger(EventCoalescer.class);
+    private static final String THREAD_NAME = "Gerrit Event Coalescer";
+
+    private final Consumer<GerritEvent> delivery;
+    private final ScheduledThreadPoolExecutor flusher;
+    private final ConcurrentMap<String, Slot> slots = new ConcurrentHashMap<String, Slot>();
+    private volatile Map<GerritEventType, Rule> rules = new EnumMap<GerritEventType, Rule>(GerritEventType.class);
+    private final AtomicLong held = new AtomicLong();
+    private final AtomicLong merged = new AtomicLong();
+    private final AtomicLong delivered = new AtomicLong();
+    private volatile boolean closed = false;
+
+    /**
+     * Standard constructor.
+     *
+     * @param delivery where the events are delivered when their window is over.
+     */
+    EventCoalescer(Consumer<GerritEvent> delivery) {
+        this.delivery = delivery;
+        this.flusher = new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+            private final ThreadFactory parent = Executors.defaultThreadFactory();
+
+            @Override
+            public Thread newThread(Runnable task) {
+                Thread thread = parent.newThread(task);
+                thread.setName(THREAD_NAME);
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        flusher.setRemoveOnCancelPolicy(true);
+    }
+
+    /**
+     * Sets up coalescing for a group of event types, replacing what was set up for them before.
+     * Events of different types in the group about the same change or ref are merged with each other.
+     *
+     * @param types the event types.
+     * @param window how long the first event is held, zero or less to stop coalescing the types.
+     * @param unit the unit of the window.
+     * @param merge picks or makes the event to hold from the held event and the next one, like {@link #LATEST}.
+     */
+    synchronized void setRule(Set<GerritEventType> types, long window, TimeUnit unit,
+                              BinaryOperator<GerritEvent> merge) {
+        Map<GerritEventType, Rule> copy = new EnumMap<GerritEventType, Rule>(GerritEventType.class);
+        copy.putAll(rules);
+        if (window <= 0) {
+            copy.keySet().removeAll(types);
+        } else {
+            Rule rule = new Rule(types.toString(), unit.toNanos(window), merge);
+            for (GerritEventType type : types) {
+                copy.put(type, rule);
+            }
+        }
+        rules = copy;
+    }
+
+    /**
+     * Holds the event if it is coalesced, merging it with the event held for the same change or ref.
+     *
+     * @param event the event.
+     * @return true if the event was taken and will be delivered, or merged away, when the window is over.
+     */
+    boolean hold(final GerritEvent event) {
+        if (closed) {
+            return false;
+        }
+        final Rule rule = rules.get(event.getEventType());
+        if (rule == null) {
+            return false;
+        }
+        String key = getKey(event);
+        if (key == null) {
+            return false;
+        }
+        held.incrementAndGet();
+        slots.compute(rule.group + " " + key, new BiFunction<String, Slot, Slot>() {
+            @Override
+            public Slot apply(String slotKey, Slot slot) {
+                if (slot == null) {
+                    Slot created = new Slot(slotKey, event);
+                    created.schedule(rule.windowNanos);
+                    return created;
+                }
+                slot.event = rule.merge.apply(slot.event, event);
+                merged.incrementAndGet();
+                return slot;
+            }
+        });
+        if (closed) {
+            //Closed while the event was put in, the flush of close() may have missed it.
+            flush();
+        }
+        return true;
+    }
+
+    /**
+     * The change or ref an event is about, on the server it came from.
+     *
+     * @param event the event.
+     * @return the key, or null if the event is not about a change or a ref.
+     */
+    static String getKey(GerritEvent event) {
+        String key = null;
+        if (event instanceof ChangeBasedEvent && ((ChangeBasedEvent)event).getChange() != null) {
+            key = "change " + ((ChangeBasedEvent)event).getChange().getNumber();
+        } else if (event instanceof RefUpdated && ((RefUpdated)event).getRefUpdate() != null) {
+            RefUpdated refUpdated = (RefUpdated)event;
+            key = getRefKey(refUpdated.getRefUpdate().getProject(), refUpdated.getRefUpdate().getRefName());
+        } else if (event instanceof RefReplicated) {
+            key = getRefKey(((RefReplicated)event).getProject(), ((RefReplicated)event).getRef());
+        } else if (event instanceof RefReplicationDone) {
+            key = getRefKey(((RefReplicationDone)event).getProject(), ((RefReplicationDone)event).getRef());
+        }
+        if (key != null && event instanceof GerritTriggeredEvent) {
+            GerritTriggeredEvent triggeredEvent = (GerritTriggeredEvent)event;
+            if (triggeredEvent.getProvider() != null && triggeredEvent.getProvider().getName() != null) {
+                key = triggeredEvent.getProvider().getName() + " " + key;
+            }
+        }
+        return key;
+    }
+
+    /**
+     * The key of the events about a ref.
+     *
+     * @param project the project.
+     * @param ref the ref, with or without {@code refs/heads/}.
+     * @return the key, or null if either is not known.
+     */
+    private static String getRefKey(String project, String ref) {
+        if (project == null || ref == null) {
+            return null;
+        }
+        String refName = ref;
+        if (!refName.startsWith("refs/")) {
+            //Ref updates give the short name of branches.
+            refName = "refs/heads/" + refName;
+        }
+        return "ref " + project + " " + refName;
+    }
+
+    /**
+     * Delivers all the held events right away.
+     */
+    public void flush() {
+        for (Slot slot : slots.values()) {
+            slot.run();
+        }
+    }
+
+    /**
+     * Stops holding events and delivers the held ones.
+     * An event that {@link #hold(GerritEvent)} puts in while the coalescer closes is delivered by that call instead.
+     */
+    void close() {
+        closed = true;
+        flusher.shutdownNow();
+        flush();
+    }
+
+    /**
+     * The event types that are coalesced.
+     *
+     * @return the types.
+     */
+    public Set<GerritEventType> getTypes() {
+        return Collections.unmodifiableSet(rules.keySet());
+    }
+
+    /**
+     * The window of an event type.
+     *
+     * @param type the event type.
+     * @return the window in nanoseconds, 0 if the type is not coalesced.
+     */
+    public long getWindowNanos(GerritEventType type) {
+        Rule rule = rules.get(type);
+        if (rule == null) {
+            return 0;
+        }
+        return rule.windowNanos;
+    }
+
+    /**
+     * The number of events that were held.
+     *
+     * @return the count.
+     */
+    public long getHeld() {
+        return held.get();
+    }
+
+    /**
+     * The number of held events that were merged with another one and not delivered on their own.
+     *
+     * @return the count.
+     */
+    public long getMerged() {
+        return merged.get();
+    }
+
+    /**
+     * The number of events delivered when their window was over.
+     *
+     * @return the count.
+     */
+    public long getDelivered() {
+        return delivered.get();
+    }
+
+    /**
+     * The number of events held right now.
+     *
+     * @return the count.
+     */
+    public int getPending() {
+        return slots.size();
+    }
+
+    @Override
+    public String toString() {
+        return "EventCoalescer " + rules.keySet() + ": " + held.get() + " held, " + merged.get() + " merged";
+    }
+
+    /**
+     * How a group of event types is coalesced.
+     */
+    private static final class Rule {
+        private final String group;
+        private final long windowNanos;
+        private final BinaryOperator<GerritEvent> merge;
+
+        /**
+         * Standard constructor.
+         *
+         * @param group the name of the group of event types.
+         * @param windowNanos the window.
+         * @param merge the merge rule.
+         */
+        Rule(String group, long windowNanos, BinaryOperator<GerritEvent> merge) {
+            this.group = group;
+            this.windowNanos = windowNanos;
+            this.merge = merge;
+        }
+    }
+
+    /**
+     * The event held for a change or ref.
+     */
+    private final class Slot implements Runnable {
+        private final String key;
+        private GerritEvent event;
+
+        /**
+         * Standard constructor.
+         *
+         * @param key the key of the slot.
+         * @param event the first event.
+         */
+        Slot(String key, GerritEvent event) {
+            this.key = key;
+            this.event = event;
+        }
+
+        /**
+         * Delivers the slot when the window is over.
+         *
+         * @param windowNanos the window.
+         */
+        void schedule(long windowNanos) {
+            try {
+                flusher.schedule(this, windowNanos, TimeUnit.NANOSECONDS);
+            } catch (RejectedExecutionException e) {
+                //Closed, hold() sees that and delivers the slot when it is put in.
+                logger.debug("Not scheduled, the coalescer is closed: {}", key);
+            }
+        }
+
+        @Override
+        public void run() {
+            //Once removed, no more events are merged into the slot.
+            if (!slots.remove(key, this)) {
+                return;
+            }
+            delivered.incrementAndGet();
+            try {
+                delivery.accept(event);
+            } catch (RuntimeException ex) {
+                logger.error("When delivering coalesced event: {}", event, ex);
+            }
+        }
+    }
+}
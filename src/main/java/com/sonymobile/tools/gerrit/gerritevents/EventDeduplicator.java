@@ -0,0 +1,434 @@
+/*
+ *  The MIT License
+ *
+ *  Copyright 2026 Sony Mobile Communications Inc. All rights reserved.
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+package com.sonymobile.tools.gerrit.gerritevents;
+
+import com.sonymobile.tools.gerrit.gerritevents.dto.GerritEvent;
+import com.sonymobile.tools.gerrit.gerritevents.dto.events.ChangeBasedEvent;
+import com.sonymobile.tools.gerrit.gerritevents.dto.events.CommentAdded;
+import com.sonymobile.tools.gerrit.gerritevents.dto.events.GerritTriggeredEvent;
+import com.sonymobile.tools.gerrit.gerritevents.dto.events.RefReplicated;
+import com.sonymobile.tools.gerrit.gerritevents.dto.events.RefReplicationDone;
+import com.sonymobile.tools.gerrit.gerritevents.dto.events.RefUpdated;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Recognizes events that have been seen before, like the ones replayed after a reconnect or sent by more than
+ * one replica of a Gerrit server.
+ * <p>
+ * An event is identified by a 64 bit hash of its type, the time Gerrit created it and what it is about:
+ * the change and patch set, the ref and new revision, the account, and the comment of {@code comment-added}.
+ * The server it came from is left out, so the same event from two replicas is a duplicate.
+ * Events without a creation time are never counted as duplicates.
+ * <p>
+ * The most recent hashes are kept exactly in a LRU map with the time they were seen, and only an event found there
+ * within the window is a duplicate.
+ * <p>
+ * The hashes are also remembered for up to the window in two Bloom filters, a current one that is added to and the
+ * one before it. The current one is rotated out when it is half a window old or holds the expected number of events,
+ * so the memory and the false positive rate stay bounded however many events arrive. A hash that only the Bloom
+ * filters know, because the map has already forgotten it, is a probable duplicate, wrong about one time in
+ * {@value #FALSE_POSITIVE_ODDS} at the expected number of events. Probable duplicates are counted, which tells if
+ * the map is too small for the window, but they are only dropped after {@link #setDropProbableDuplicates(boolean)}.
+ *
+ * @see GerritHandler#setEventDeduplicator(EventDeduplicator)
+ */
+public final class EventDeduplicator {
+
+    /**
+     * The default number of events a Bloom filter is sized for.
+     */
+    public static final int DEFAULT_EXPECTED_EVENTS = 100000;
+    /**
+     * The default number of hashes kept exactly.
+     */
+    public static final int DEFAULT_EXACT_ENTRIES = 10000;
+    private static final int FALSE_POSITIVE_ODDS = 10000;
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+    private static final long MIX_1 = 0xff51afd7ed558ccdL;
+    private static final long MIX_2 = 0xc4ceb9fe1a85ec53L;
+    private static final int MIX_SHIFT = 33;
+    private static final int WORD_SHIFT = 6;
+    private static final int INT_BITS = 32;
+    private static final float LOAD_FACTOR = 0.75f;
+
+    private final long windowNanos;
+    private final int expectedEvents;
+    private final int exactEntries;
+    private final int bitCount;
+    private final int hashCount;
+    private final Map<Long, Long> exact;
+    private BloomFilter current;
+    private BloomFilter previous;
+    private long currentStart;
+    private long previousStart;
+    private boolean dropProbableDuplicates = false;
+    private long checked = 0;
+    private long duplicates = 0;
+    private long probableDuplicates = 0;
+    private long rotations = 0;
+
+    /**
+     * Creates a de-duplicator sized for {@link #DEFAULT_EXPECTED_EVENTS}, that remembers
+     * {@link #DEFAULT_EXACT_ENTRIES} exactly.
+     *
+     * @param window how long an event is remembered.
+     * @param unit the unit of the window.
+     */
+    public EventDeduplicator(long window, TimeUnit unit) {
+        this(window, unit, DEFAULT_EXPECTED_EVENTS, DEFAULT_EXACT_ENTRIES);
+    }
+
+    /**
+     * Standard constructor.
+     *
+     * @param window how long an event is remembered.
+     * @param unit the unit of the window.
+     * @param expectedEvents the most events to remember in half a window before the oldest are forgotten early,
+     *                       this decides the memory used.
+     * @param exactEntries the number of the most recent events that are remembered exactly.
+     * @throws IllegalArgumentException if the window is not positive or the sizes are negative.
+     */
+    public EventDeduplicator(long window, TimeUnit unit, int expectedEvents, final int exactEntries) {
+        if (window <= 0) {
+            throw new IllegalArgumentException("The window must be positive: " + window);
+        }
+        if (expectedEvents < 1 || exactEntries < 0) {
+            throw new IllegalArgumentException("Bad sizes: " + expectedEvents + " events, " + exactEntries + " exact");
+        }
+        this.windowNanos = unit.toNanos(window);
+        this.expectedEvents = expectedEvents;
+        this.exactEntries = exactEntries;
+        //The optimal size and number of hash functions for the false positive rate.
+        double ln2 = Math.log(2);
+        this.bitCount = (int)Math.min(Integer.MAX_VALUE,
+                Math.ceil(expectedEvents * Math.log(FALSE_POSITIVE_ODDS) / (ln2 * ln2)));
+        this.hashCount = Math.max(1, (int)Math.round((double)bitCount / expectedEvents * ln2));
+        this.exact = new LinkedHashMap<Long, Long>(Math.min(exactEntries, expectedEvents), LOAD_FACTOR, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Long> eldest) {
+                return size() > exactEntries;
+            }
+        };
+        this.current = new BloomFilter(bitCount);
+        this.previous = new BloomFilter(bitCount);
+        this.currentStart = System.nanoTime();
+        this.previousStart = currentStart - windowNanos;
+    }
+
+    /**
+     * Also drops the events that only the Bloom filters know, that are most likely duplicates the exact map has
+     * forgotten, but now and then an event that was never seen before.
+     *
+     * @param drop true to drop probable duplicates too.
+     */
+    public synchronized void setDropProbableDuplicates(boolean drop) {
+        this.dropProbableDuplicates = drop;
+    }
+
+    /**
+     * If the events that only the Bloom filters know are dropped too.
+     *
+     * @return true if so.
+     */
+    public synchronized boolean isDropProbableDuplicates() {
+        return dropProbableDuplicates;
+    }
+
+    /**
+     * Checks if the event has been seen within the window, and remembers it if not.
+     *
+     * @param event the event.
+     * @return true if it is a duplicate.
+     */
+    boolean isDuplicate(GerritEvent event) {
+        return isDuplicate(event, System.nanoTime());
+    }
+
+    /**
+     * Checks if the event has been seen within the window, and remembers it if not.
+     *
+     * @param event the event.
+     * @param now the current time in nanoseconds, like {@link System#nanoTime()}.
+     * @return true if it is a duplicate.
+     */
+    synchronized boolean isDuplicate(GerritEvent event, long now) {
+        Long key = getKey(event);
+        if (key == null) {
+            return false;
+        }
+        checked++;
+        if (now - currentStart >= windowNanos / 2 || current.getCount() >= expectedEvents) {
+            rotate(now);
+        }
+        Long seen = exact.get(key);
+        if (seen != null) {
+            if (now - seen < windowNanos) {
+                duplicates++;
+                return true;
+            }
+            //Known exactly, and too old to count.
+        } else if (current.mightContain(key, hashCount)
+                || (now - previousStart < windowNanos && previous.mightContain(key, hashCount))) {
+            probableDuplicates++;
+            if (dropProbableDuplicates) {
+                duplicates++;
+                return true;
+            }
+        }
+        if (exactEntries > 0) {
+            exact.put(key, now);
+        }
+        current.add(key, hashCount);
+        return false;
+    }
+
+    /**
+     * Forgets the older Bloom filter and starts a new current one.
+     * Starts over if it has been more than a window since the last time.
+     * The older one is only checked until a window after it was started, so no hash is remembered for longer than
+     * the window.
+     *
+     * @param now the current time.
+     */
+    private void rotate(long now) {
+        if (now - currentStart >= windowNanos) {
+            //Nothing in the current one is recent enough to keep.
+            previous = new BloomFilter(bitCount);
+        } else {
+            previous = current;
+        }
+        previousStart = currentStart;
+        current = new BloomFilter(bitCount);
+        currentStart = now;
+        rotations++;
+    }
+
+    /**
+     * The hash that identifies an event.
+     *
+     * @param event the event.
+     * @return the hash, or null if the event has no creation time.
+     */
+    static Long getKey(GerritEvent event) {
+        if (!(event instanceof GerritTriggeredEvent) || ((GerritTriggeredEvent)event).getEventCreatedOn() == null) {
+            return null;
+        }
+        GerritTriggeredEvent triggeredEvent = (GerritTriggeredEvent)event;
+        long hash = FNV_OFFSET;
+        hash = hash(hash, String.valueOf(event.getEventType()));
+        hash = hash(hash, String.valueOf(triggeredEvent.getEventCreatedOn().getTime()));
+        if (triggeredEvent.getAccount() != null) {
+            hash = hash(hash, triggeredEvent.getAccount().getEmail());
+        }
+        if (event instanceof ChangeBasedEvent) {
+            ChangeBasedEvent changeEvent = (ChangeBasedEvent)event;
+            if (changeEvent.getChange() != null) {
+                hash = hash(hash, changeEvent.getChange().getProject());
+                hash = hash(hash, changeEvent.getChange().getNumber());
+            }
+            if (changeEvent.getPatchSet() != null) {
+                hash = hash(hash, changeEvent.getPatchSet().getNumber());
+            }
+        }
+        if (event instanceof CommentAdded) {
+            hash = hash(hash, ((CommentAdded)event).getComment());
+        } else if (event instanceof RefUpdated && ((RefUpdated)event).getRefUpdate() != null) {
+            RefUpdated refUpdated = (RefUpdated)event;
+            hash = hash(hash, refUpdated.getRefUpdate().getProject());
+            hash = hash(hash, refUpdated.getRefUpdate().getRefName());
+            hash = hash(hash, refUpdated.getRefUpdate().getNewRev());
+        } else if (event instanceof RefReplicated) {
+            RefReplicated refReplicated = (RefReplicated)event;
+            hash = hash(hash, refReplicated.getProject());
+            hash = hash(hash, refReplicated.getRef());
+            hash = hash(hash, refReplicated.getTargetNode());
+            hash = hash(hash, refReplicated.getStatus());
+        } else if (event instanceof RefReplicationDone) {
+            hash = hash(hash, ((RefReplicationDone)event).getProject());
+            hash = hash(hash, ((RefReplicationDone)event).getRef());
+        }
+        return mix(hash);
+    }
+
+    /**
+     * Adds a value to a FNV-1a hash, with a separator so that neighbouring values do not run together.
+     *
+     * @param hash the hash so far.
+     * @param value the value, null is hashed like an empty value.
+     * @return the new hash.
+     */
+    private static long hash(long hash, String value) {
+        long h = hash;
+        if (value != null) {
+            for (int i = 0; i < value.length(); i++) {
+                h = (h ^ value.charAt(i)) * FNV_PRIME;
+            }
+        }
+        return (h ^ '\0') * FNV_PRIME;
+    }
+
+    /**
+     * Spreads the bits of a hash, so that both halves can index the Bloom filters.
+     *
+     * @param hash the hash.
+     * @return the mixed hash.
+     */
+    private static long mix(long hash) {
+        long h = hash;
+        h = (h ^ (h >>> MIX_SHIFT)) * MIX_1;
+        h = (h ^ (h >>> MIX_SHIFT)) * MIX_2;
+        return h ^ (h >>> MIX_SHIFT);
+    }
+
+    /**
+     * The number of events checked, that had a creation time.
+     *
+     * @return the count.
+     */
+    public synchronized long getChecked() {
+        return checked;
+    }
+
+    /**
+     * The number of duplicates found.
+     *
+     * @return the count.
+     */
+    public synchronized long getDuplicates() {
+        return duplicates;
+    }
+
+    /**
+     * The number of events found by the Bloom filters alone, that could be false positives.
+     * They are only dropped, and counted as duplicates, after {@link #setDropProbableDuplicates(boolean)}.
+     *
+     * @return the count.
+     */
+    public synchronized long getProbableDuplicates() {
+        return probableDuplicates;
+    }
+
+    /**
+     * The share of the checked events that were duplicates.
+     *
+     * @return the rate, between 0 and 1.
+     */
+    public synchronized double getDuplicateRate() {
+        if (checked == 0) {
+            return 0;
+        }
+        return (double)duplicates / checked;
+    }
+
+    /**
+     * The number of times the Bloom filters have been rotated.
+     *
+     * @return the count.
+     */
+    public synchronized long getRotations() {
+        return rotations;
+    }
+
+    /**
+     * How long an event is remembered.
+     *
+     * @return the window in nanoseconds.
+     */
+    public long getWindowNanos() {
+        return windowNanos;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "EventDeduplicator: " + duplicates + " duplicates of " + checked + " events, "
+                + probableDuplicates + " probable by the Bloom filters";
+    }
+
+    /**
+     * A Bloom filter of event hashes.
+     */
+    private static final class BloomFilter {
+        private final long[] words;
+        private final int bits;
+        private int count = 0;
+
+        /**
+         * Standard constructor.
+         *
+         * @param bits the number of bits.
+         */
+        BloomFilter(int bits) {
+            this.bits = bits;
+            this.words = new long[(bits >>> WORD_SHIFT) + 1];
+        }
+
+        /**
+         * Adds a hash.
+         *
+         * @param key the hash.
+         * @param hashCount the number of bits to set.
+         */
+        void add(long key, int hashCount) {
+            int h1 = (int)key;
+            int h2 = (int)(key >>> INT_BITS);
+            for (int i = 0; i < hashCount; i++) {
+                int bit = Math.floorMod(h1 + i * h2, bits);
+                words[bit >>> WORD_SHIFT] |= 1L << bit;
+            }
+            count++;
+        }
+
+        /**
+         * Checks if a hash might have been added.
+         *
+         * @param key the hash.
+         * @param hashCount the number of bits to check.
+         * @return false if it was surely not added.
+         */
+        boolean mightContain(long key, int hashCount) {
+            int h1 = (int)key;
+            int h2 = (int)(key >>> INT_BITS);
+            for (int i = 0; i < hashCount; i++) {
+                int bit = Math.floorMod(h1 + i * h2, bits);
+                if ((words[bit >>> WORD_SHIFT] & (1L << bit)) == 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * The number of hashes added.
+         *
+         * @return the count.
+         */
+        int getCount() {
+            return count;
+        }
+    }
+}
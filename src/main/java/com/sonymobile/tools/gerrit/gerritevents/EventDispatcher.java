@@ -0,0 +1,72 @@
+/*
+ *  The MIT License
+ *
+ *  Copyright 2026 Sony Mobile Communications Inc. All rights reserved.
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+
+package com.sonymobile.tools.gerrit.gerritevents;
+
+import com.sonymobile.tools.gerrit.gerritevents.workers.Work;
+
+import java.util.Collection;
+
+/**
+ * How a {@link GerritHandler} hands the events it has let into its receive queue to the threads that work on them.
+ * <ul>
+ *     <li>{@link WorkerPoolDispatcher}, straight to the worker threads, the default,</li>
+ *     <li>{@link ShardedDispatcher}, through lanes that keep the events of a change in order,
+ *     see {@link GerritHandler#setShardedDispatch(boolean)},</li>
+ *     <li>{@link IngestPipeline}, filters and parses the events in stages before handing them to one of the above,
+ *     see {@link GerritHandler#setIngestPipeline(int, IngestPipeline.WaitStrategy)}.</li>
+ * </ul>
+ */
+interface EventDispatcher {
+
+    /**
+     * Hands an event over.
+     *
+     * @param worker the event.
+     * @throws java.util.concurrent.RejectedExecutionException if the handler is shut down.
+     */
+    void dispatch(GerritHandler.EventWorker worker);
+
+    /**
+     * The number of events handed over that are not worked on yet.
+     *
+     * @param queuedTasks the number of tasks waiting for the worker threads.
+     * @return the number of events.
+     */
+    int getBacklog(int queuedTasks);
+
+    /**
+     * Adds the work of the events the dispatcher holds on to itself to the collection.
+     *
+     * @param works the collection.
+     */
+    void addPendingWork(Collection<Work> works);
+
+    /**
+     * Stops taking events, the events handed over after this go straight to the worker threads.
+     *
+     * @param join if the method should wait for the events already handed over to be passed on.
+     */
+    void close(boolean join);
+}
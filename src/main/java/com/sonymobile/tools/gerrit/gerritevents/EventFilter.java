@@ -0,0 +1,839 @@
+/*
+ *  The MIT License
+ *
+ *  Copyright 2026 Sony Mobile Communications Inc. All rights reserved.
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+package com.sonymobile.tools.gerrit.gerritevents;
+
+import com.sonymobile.tools.gerrit.gerritevents.dto.attr.Provider;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Drops events by rules written in a small expression language,
+ * checked against the {@link EventHeader} of the raw line before anything is parsed.
+ * <p>
+ * One rule per line, blank lines and lines starting with {@code #} are ignored. A rule can be named with
+ * {@code name:} in front of it, else it is named by its line. An event that matches any rule is dropped,
+ * and counted for the first rule it matches, see {@link #getDropCounts()}. For example:
+ * <pre>
+ * drafts: ref ^= refs/changes/ and type = ref-updated
+ * bots: email in (ci@example.com, "bot@example.com") or provider = mirror
+ * sandbox: branch ~ "sandbox/**" and not project = tools/sandbox
+ * </pre>
+ * <ul>
+ *     <li>Fields: {@code type}, {@code project}, {@code branch}, {@code ref}, {@code change}, {@code author},
+ *     {@code uploader}, {@code owner}, {@code email} for any of the three e-mail addresses,
+ *     and {@code provider} for the name of the Gerrit server.</li>
+ *     <li>Operators: {@code =}, {@code !=}, {@code ^=} starts with, {@code ~} glob where {@code *} matches anything
+ *     but {@code /}, {@code **} anything and {@code ?} one character but {@code /}, and {@code in (a, b)}.</li>
+ *     <li>{@code and} binds harder than {@code or}, {@code not} negates and parentheses group.</li>
+ *     <li>Values are words, or quoted with {@code "} when they contain spaces, parentheses or commas.</li>
+ * </ul>
+ * A field that is not in the event matches nothing, so {@code !=} matches it.
+ * <p>
+ * All the rules are compiled into one decision diagram, each node tests one comparison and goes on to the next
+ * node depending on the outcome. {@code and}, {@code or} and {@code not} become the edges between the nodes, so an
+ * event is dropped or let through after only the comparisons needed to tell, without evaluating any expressions.
+ * The same comparison is only compiled once, however many rules it is in.
+ *
+ * @see GerritHandler#setEventFilter(EventFilter)
+ */
+public final class EventFilter {
+
+    private static final String COMMENT_PREFIX = "#";
+    private static final Pattern RULE_NAME = Pattern.compile("^([\\w.\\-]+)\\s*:\\s*(.*)$");
+    private static final String SPECIALS = "()=!^~,\"";
+
+    private final List<String> names = new ArrayList<String>();
+    private final List<String> rules = new ArrayList<String>();
+    private final AtomicLongArray dropped;
+    private final LongAdder evaluated = new LongAdder();
+    private final Node root;
+
+    /**
+     * Standard constructor.
+     *
+     * @param lines the rule lines.
+     * @throws IllegalArgumentException if a rule can not be parsed.
+     */
+    private EventFilter(List<String> lines) {
+        List<Expression> expressions = new ArrayList<Expression>();
+        Map<String, Comparison> comparisons = new HashMap<String, Comparison>();
+        int lineNumber = 0;
+        for (String line : lines) {
+            lineNumber++;
+            if (line == null) {
+                continue;
+            }
+            String rule = line.trim();
+            if (rule.isEmpty() || rule.startsWith(COMMENT_PREFIX)) {
+                continue;
+            }
+            String name = "line " + lineNumber;
+            Matcher named = RULE_NAME.matcher(rule);
+            if (named.matches()) {
+                name = named.group(1);
+                rule = named.group(2);
+            }
+            try {
+                expressions.add(new Parser(rule, comparisons).parse());
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Bad event filter rule " + name + ": " + e.getMessage(), e);
+            }
+            names.add(name);
+            rules.add(rule);
+        }
+        dropped = new AtomicLongArray(expressions.size());
+        //Built from the last rule to the first, an event that does not match a rule goes on to the next one.
+        Node next = Node.KEEP;
+        for (int i = expressions.size() - 1; i >= 0; i--) {
+            next = expressions.get(i).compile(Node.drop(i), next);
+        }
+        root = next;
+    }
+
+    /**
+     * Compiles the rules, one per line.
+     *
+     * @param rules the rules.
+     * @return the filter.
+     * @throws IllegalArgumentException if a rule can not be parsed.
+     */
+    public static EventFilter compile(String rules) {
+        if (rules == null) {
+            return new EventFilter(Collections.<String>emptyList());
+        }
+        return new EventFilter(Arrays.asList(rules.split("\\r?\\n")));
+    }
+
+    /**
+     * Compiles the rules.
+     *
+     * @param rules the rules.
+     * @return the filter.
+     * @throws IllegalArgumentException if a rule can not be parsed.
+     */
+    public static EventFilter compile(List<String> rules) {
+        return new EventFilter(rules);
+    }
+
+    /**
+     * Reads the rules from a UTF-8 encoded file, one per line, and compiles them.
+     *
+     * @param file the file.
+     * @return the filter.
+     * @throws IOException if the file could not be read.
+     * @throws IllegalArgumentException if a rule can not be parsed.
+     */
+    public static EventFilter read(Path file) throws IOException {
+        return new EventFilter(Files.readAllLines(file, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Checks if an event should be dropped, and counts it for the rule that drops it.
+     *
+     * @param header the properties of the event.
+     * @param provider the Gerrit server info, null if not known.
+     * @return the index of the rule that drops the event, or -1 if it should be kept.
+     */
+    int evaluate(EventHeader header, Provider provider) {
+        evaluated.increment();
+        Node node = root;
+        while (node.comparison != null) {
+            if (node.comparison.test(header, provider)) {
+                node = node.onTrue;
+            } else {
+                node = node.onFalse;
+            }
+        }
+        if (node.rule >= 0) {
+            dropped.incrementAndGet(node.rule);
+        }
+        return node.rule;
+    }
+
+    /**
+     * Checks if an event should be dropped, and counts it for the rule that drops it.
+     *
+     * @param header the properties of the event.
+     * @param provider the Gerrit server info, null if not known.
+     * @return true if a rule matches.
+     */
+    public boolean drops(EventHeader header, Provider provider) {
+        return evaluate(header, provider) >= 0;
+    }
+
+    /**
+     * The names of the rules.
+     *
+     * @return the names, in the order of the rules.
+     */
+    public List<String> getNames() {
+        return Collections.unmodifiableList(names);
+    }
+
+    /**
+     * The rules, without their names.
+     *
+     * @return the rules.
+     */
+    public List<String> getRules() {
+        return Collections.unmodifiableList(rules);
+    }
+
+    /**
+     * The number of events dropped by each rule.
+     *
+     * @return the counts by the names of the rules, in the order of the rules.
+     */
+    public Map<String, Long> getDropCounts() {
+        Map<String, Long> counts = new LinkedHashMap<String, Long>();
+        for (int i = 0; i < names.size(); i++) {
+            counts.put(names.get(i), dropped.get(i));
+        }
+        return counts;
+    }
+
+    /**
+     * The number of events dropped by all the rules.
+     *
+     * @return the count.
+     */
+    public long getDropped() {
+        long total = 0;
+        for (int i = 0; i < dropped.length(); i++) {
+            total += dropped.get(i);
+        }
+        return total;
+    }
+
+    /**
+     * The number of events checked.
+     *
+     * @return the count.
+     */
+    public long getEvaluated() {
+        return evaluated.sum();
+    }
+
+    @Override
+    public String toString() {
+        return "EventFilter " + getDropCounts() + " of " + getEvaluated();
+    }
+
+    /**
+     * A field of an event that can be compared.
+     */
+    private enum Field {
+        /**
+         * The type of event.
+         */
+        TYPE,
+        /**
+         * The project.
+         */
+        PROJECT,
+        /**
+         * The branch of the change.
+         */
+        BRANCH,
+        /**
+         * The ref of a ref event.
+         */
+        REF,
+        /**
+         * The change number.
+         */
+        CHANGE,
+        /**
+         * The e-mail address of the author.
+         */
+        AUTHOR,
+        /**
+         * The e-mail address of the uploader.
+         */
+        UPLOADER,
+        /**
+         * The e-mail address of the owner of the change.
+         */
+        OWNER,
+        /**
+         * Any of the e-mail addresses.
+         */
+        EMAIL,
+        /**
+         * The name of the Gerrit server.
+         */
+        PROVIDER;
+
+        /**
+         * The value of the field in an event, the author of EMAIL.
+         *
+         * @param header the properties of the event.
+         * @param provider the Gerrit server info, null if not known.
+         * @return the value, or null if not known.
+         */
+        String value(EventHeader header, Provider provider) {
+            switch (this) {
+                case TYPE:
+                    return header.getType();
+                case PROJECT:
+                    return header.getProject();
+                case BRANCH:
+                    return header.getBranch();
+                case REF:
+                    return header.getRefName();
+                case CHANGE:
+                    return header.getChangeNumber();
+                case UPLOADER:
+                    return header.getUploaderEmail();
+                case OWNER:
+                    return header.getOwnerEmail();
+                case PROVIDER:
+                    if (provider == null) {
+                        return null;
+                    }
+                    return provider.getName();
+                default:
+                    return header.getAuthorEmail();
+            }
+        }
+    }
+
+    /**
+     * A comparison operator.
+     */
+    private enum Operator {
+        /**
+         * Equal to the value.
+         */
+        EQUALS,
+        /**
+         * Not equal to the value, only while parsing.
+         */
+        NOT_EQUALS,
+        /**
+         * Starts with the value.
+         */
+        STARTS_WITH,
+        /**
+         * Matches the glob.
+         */
+        GLOB,
+        /**
+         * Equal to any of the values.
+         */
+        IN
+    }
+
+    /**
+     * One comparison of a field with a value.
+     */
+    private static final class Comparison {
+        private final Field field;
+        private final Operator operator;
+        private final Set<String> values;
+        private final String value;
+        private final GlobTrie<String> glob;
+
+        /**
+         * Standard constructor.
+         *
+         * @param field the field.
+         * @param operator the operator, never NOT_EQUALS, that is compiled as not EQUALS.
+         * @param values the values to compare with, one unless IN.
+         */
+        Comparison(Field field, Operator operator, List<String> values) {
+            this.field = field;
+            this.operator = operator;
+            this.values = new HashSet<String>(values);
+            this.value = values.get(0);
+            if (operator == Operator.GLOB) {
+                this.glob = new GlobTrie<String>();
+                glob.add(value, value);
+            } else {
+                this.glob = null;
+            }
+        }
+
+        /**
+         * Compares the field of the event.
+         *
+         * @param header the properties of the event.
+         * @param provider the Gerrit server info, null if not known.
+         * @return true if any value of the field matches.
+         */
+        boolean test(EventHeader header, Provider provider) {
+            if (field == Field.EMAIL) {
+                return matches(header.getAuthorEmail()) || matches(header.getUploaderEmail())
+                        || matches(header.getOwnerEmail());
+            }
+            return matches(field.value(header, provider));
+        }
+
+        /**
+         * Compares a value.
+         *
+         * @param actual the value of the field, null if not known.
+         * @return true if it matches.
+         */
+        private boolean matches(String actual) {
+            if (actual == null) {
+                return false;
+            }
+            switch (operator) {
+                case EQUALS:
+                    return value.equals(actual);
+                case STARTS_WITH:
+                    return actual.startsWith(value);
+                case GLOB:
+                    return glob.matches(actual);
+                default:
+                    return values.contains(actual);
+            }
+        }
+    }
+
+    /**
+     * A node in the decision diagram, a comparison or an outcome.
+     */
+    private static final class Node {
+        static final Node KEEP = new Node(null, null, null, -1);
+
+        private final Comparison comparison;
+        private final Node onTrue;
+        private final Node onFalse;
+        private final int rule;
+
+        /**
+         * Standard constructor.
+         *
+         * @param comparison the comparison, null for an outcome.
+         * @param onTrue where to go if it matches.
+         * @param onFalse where to go if not.
+         * @param rule the rule that drops the event, -1 to keep it.
+         */
+        private Node(Comparison comparison, Node onTrue, Node onFalse, int rule) {
+            this.comparison = comparison;
+            this.onTrue = onTrue;
+            this.onFalse = onFalse;
+            this.rule = rule;
+        }
+
+        /**
+         * The outcome of a rule matching.
+         *
+         * @param rule the index of the rule.
+         * @return the node.
+         */
+        static Node drop(int rule) {
+            return new Node(null, null, null, rule);
+        }
+
+        /**
+         * A comparison node.
+         *
+         * @param comparison the comparison.
+         * @param onTrue where to go if it matches.
+         * @param onFalse where to go if not.
+         * @return the node.
+         */
+        static Node test(Comparison comparison, Node onTrue, Node onFalse) {
+            return new Node(comparison, onTrue, onFalse, -1);
+        }
+    }
+
+    /**
+     * A parsed rule, compiled into the decision diagram.
+     */
+    private abstract static class Expression {
+        /**
+         * Compiles the expression into nodes.
+         *
+         * @param onTrue where to go when the expression is true.
+         * @param onFalse where to go when it is false.
+         * @return the first node.
+         */
+        abstract Node compile(Node onTrue, Node onFalse);
+    }
+
+    /**
+     * A comparison, or its negation.
+     */
+    private static final class ComparisonExpression extends Expression {
+        private final Comparison comparison;
+
+        /**
+         * Standard constructor.
+         *
+         * @param comparison the comparison.
+         */
+        ComparisonExpression(Comparison comparison) {
+            this.comparison = comparison;
+        }
+
+        @Override
+        Node compile(Node onTrue, Node onFalse) {
+            return Node.test(comparison, onTrue, onFalse);
+        }
+    }
+
+    /**
+     * Both sides, the right side is only compared when the left side is true.
+     */
+    private static final class And extends Expression {
+        private final Expression left;
+        private final Expression right;
+
+        /**
+         * Standard constructor.
+         *
+         * @param left the left side.
+         * @param right the right side.
+         */
+        And(Expression left, Expression right) {
+            this.left = left;
+            this.right = right;
+        }
+
+        @Override
+        Node compile(Node onTrue, Node onFalse) {
+            return left.compile(right.compile(onTrue, onFalse), onFalse);
+        }
+    }
+
+    /**
+     * Either side, the right side is only compared when the left side is false.
+     */
+    private static final class Or extends Expression {
+        private final Expression left;
+        private final Expression right;
+
+        /**
+         * Standard constructor.
+         *
+         * @param left the left side.
+         * @param right the right side.
+         */
+        Or(Expression left, Expression right) {
+            this.left = left;
+            this.right = right;
+        }
+
+        @Override
+        Node compile(Node onTrue, Node onFalse) {
+            return left.compile(onTrue, right.compile(onTrue, onFalse));
+        }
+    }
+
+    /**
+     * The negation, compiled by swapping the outcomes.
+     */
+    private static final class Not extends Expression {
+        private final Expression expression;
+
+        /**
+         * Standard constructor.
+         *
+         * @param expression the negated expression.
+         */
+        Not(Expression expression) {
+            this.expression = expression;
+        }
+
+        @Override
+        Node compile(Node onTrue, Node onFalse) {
+            return expression.compile(onFalse, onTrue);
+        }
+    }
+
+    /**
+     * Parses one rule by recursive descent.
+     */
+    private static final class Parser {
+        private final String text;
+        private final Map<String, Comparison> comparisons;
+        private final List<String> tokens = new ArrayList<String>();
+        private final List<Boolean> quoted = new ArrayList<Boolean>();
+        private int position = 0;
+
+        /**
+         * Standard constructor.
+         *
+         * @param text the rule.
+         * @param comparisons the comparisons compiled so far, to share the same ones.
+         */
+        Parser(String text, Map<String, Comparison> comparisons) {
+            this.text = text;
+            this.comparisons = comparisons;
+            tokenize();
+        }
+
+        /**
+         * Splits the rule into words, quoted values and operators.
+         */
+        private void tokenize() {
+            int i = 0;
+            while (i < text.length()) {
+                char c = text.charAt(i);
+                if (Character.isWhitespace(c)) {
+                    i++;
+                } else if (c == '"') {
+                    int end = text.indexOf('"', i + 1);
+                    if (end < 0) {
+                        throw new IllegalArgumentException("Unterminated quote at " + i);
+                    }
+                    add(text.substring(i + 1, end), true);
+                    i = end + 1;
+                } else if ((c == '!' || c == '^') && i + 1 < text.length() && text.charAt(i + 1) == '=') {
+                    add(text.substring(i, i + 2), false);
+                    i += 2;
+                } else if (SPECIALS.indexOf(c) >= 0) {
+                    add(String.valueOf(c), false);
+                    i++;
+                } else {
+                    int end = i;
+                    while (end < text.length() && !Character.isWhitespace(text.charAt(end))
+                            && SPECIALS.indexOf(text.charAt(end)) < 0) {
+                        end++;
+                    }
+                    add(text.substring(i, end), false);
+                    i = end;
+                }
+            }
+        }
+
+        /**
+         * Adds a token.
+         *
+         * @param token the token.
+         * @param isQuoted if it was quoted, and so can not be a keyword or operator.
+         */
+        private void add(String token, boolean isQuoted) {
+            tokens.add(token);
+            quoted.add(isQuoted);
+        }
+
+        /**
+         * Parses the whole rule.
+         *
+         * @return the expression.
+         */
+        Expression parse() {
+            if (tokens.isEmpty()) {
+                throw new IllegalArgumentException("Empty rule");
+            }
+            Expression expression = parseOr();
+            if (position < tokens.size()) {
+                throw new IllegalArgumentException("Unexpected " + tokens.get(position));
+            }
+            return expression;
+        }
+
+        /**
+         * Parses expressions joined by {@code or}.
+         *
+         * @return the expression.
+         */
+        private Expression parseOr() {
+            Expression expression = parseAnd();
+            while (acceptKeyword("or")) {
+                expression = new Or(expression, parseAnd());
+            }
+            return expression;
+        }
+
+        /**
+         * Parses expressions joined by {@code and}.
+         *
+         * @return the expression.
+         */
+        private Expression parseAnd() {
+            Expression expression = parseNot();
+            while (acceptKeyword("and")) {
+                expression = new And(expression, parseNot());
+            }
+            return expression;
+        }
+
+        /**
+         * Parses a negation, a group in parentheses or a comparison.
+         *
+         * @return the expression.
+         */
+        private Expression parseNot() {
+            if (acceptKeyword("not")) {
+                return new Not(parseNot());
+            }
+            if (accept("(")) {
+                Expression expression = parseOr();
+                expect(")");
+                return expression;
+            }
+            return parseComparison();
+        }
+
+        /**
+         * Parses a comparison of a field with a value.
+         *
+         * @return the expression.
+         */
+        private Expression parseComparison() {
+            String fieldName = next("a field");
+            Field field;
+            try {
+                field = Field.valueOf(fieldName.toUpperCase(Locale.ENGLISH));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Unknown field " + fieldName, e);
+            }
+            String operatorName = next("an operator");
+            List<String> values = new ArrayList<String>();
+            Operator operator;
+            if ("=".equals(operatorName)) {
+                operator = Operator.EQUALS;
+            } else if ("!=".equals(operatorName)) {
+                operator = Operator.NOT_EQUALS;
+            } else if ("^=".equals(operatorName)) {
+                operator = Operator.STARTS_WITH;
+            } else if ("~".equals(operatorName)) {
+                operator = Operator.GLOB;
+            } else if ("in".equalsIgnoreCase(operatorName)) {
+                operator = Operator.IN;
+                expect("(");
+                values.add(nextValue());
+                while (accept(",")) {
+                    values.add(nextValue());
+                }
+                expect(")");
+            } else {
+                throw new IllegalArgumentException("Unknown operator " + operatorName);
+            }
+            if (values.isEmpty()) {
+                values.add(nextValue());
+            }
+            if (operator == Operator.NOT_EQUALS) {
+                return new Not(comparison(field, Operator.EQUALS, values));
+            }
+            return comparison(field, operator, values);
+        }
+
+        /**
+         * The comparison, the same one as before if it has been seen in this or an earlier rule.
+         *
+         * @param field the field.
+         * @param operator the operator.
+         * @param values the values.
+         * @return the expression.
+         */
+        private Expression comparison(Field field, Operator operator, List<String> values) {
+            String key = field + " " + operator + " " + values;
+            Comparison comparison = comparisons.get(key);
+            if (comparison == null) {
+                comparison = new Comparison(field, operator, values);
+                comparisons.put(key, comparison);
+            }
+            return new ComparisonExpression(comparison);
+        }
+
+        /**
+         * Takes the next token if it is the keyword.
+         *
+         * @param keyword the keyword.
+         * @return true if taken.
+         */
+        private boolean acceptKeyword(String keyword) {
+            if (position < tokens.size() && !quoted.get(position) && keyword.equalsIgnoreCase(tokens.get(position))) {
+                position++;
+                return true;
+            }
+            return false;
+        }
+
+        /**
+         * Takes the next token if it is the symbol.
+         *
+         * @param symbol the symbol.
+         * @return true if taken.
+         */
+        private boolean accept(String symbol) {
+            if (position < tokens.size() && !quoted.get(position) && symbol.equals(tokens.get(position))) {
+                position++;
+                return true;
+            }
+            return false;
+        }
+
+        /**
+         * Takes the next token, that must be the symbol.
+         *
+         * @param symbol the symbol.
+         */
+        private void expect(String symbol) {
+            if (!accept(symbol)) {
+                throw new IllegalArgumentException("Expected " + symbol + " at token " + (position + 1));
+            }
+        }
+
+        /**
+         * Takes the next token.
+         *
+         * @param what what is expected, for the error message.
+         * @return the token.
+         */
+        private String next(String what) {
+            if (position >= tokens.size()) {
+                throw new IllegalArgumentException("Expected " + what + " at the end");
+            }
+            return tokens.get(position++);
+        }
+
+        /**
+         * Takes the next token as a value, that must be a word or quoted.
+         *
+         * @return the value.
+         */
+        private String nextValue() {
+            String token = next("a value");
+            if (!quoted.get(position - 1) && token.length() == 1 && SPECIALS.indexOf(token.charAt(0)) >= 0) {
+                throw new IllegalArgumentException("Expected a value at token " + position + " but got " + token);
+            }
+            return token;
+        }
+    }
+}
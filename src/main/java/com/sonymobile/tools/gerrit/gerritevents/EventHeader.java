@@ -0,0 +1,549 @@
+/*
+ *  The MIT License
+ *
+ *  Copyright 2026 Sony Mobile Communications Inc. All rights reserved.
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+package com.sonymobile.tools.gerrit.gerritevents;
+
+import com.sonymobile.tools.gerrit.gerritevents.dto.GerritEventType;
+
+import net.sf.json.JSONObject;
+
+import java.nio.charset.StandardCharsets;
+
+import static com.sonymobile.tools.gerrit.gerritevents.GerritJsonEventFactory.getString;
+import static com.sonymobile.tools.gerrit.gerritevents.dto.GerritEventKeys.AUTHOR;
+import static com.sonymobile.tools.gerrit.gerritevents.dto.GerritEventKeys.BRANCH;
+import static com.sonymobile.tools.gerrit.gerritevents.dto.GerritEventKeys.CHANGE;
+import static com.sonymobile.tools.gerrit.gerritevents.dto.GerritEventKeys.EMAIL;
+import static com.sonymobile.tools.gerrit.gerritevents.dto.GerritEventKeys.NUMBER;
+import static com.sonymobile.tools.gerrit.gerritevents.dto.GerritEventKeys.OWNER;
+import static com.sonymobile.tools.gerrit.gerritevents.dto.GerritEventKeys.PROJECT;
+import static com.sonymobile.tools.gerrit.gerritevents.dto.GerritEventKeys.PROJECT_NAME;
+import static com.sonymobile.tools.gerrit.gerritevents.dto.GerritEventKeys.REF;
+import static com.sonymobile.tools.gerrit.gerritevents.dto.GerritEventKeys.REFNAME;
+import static com.sonymobile.tools.gerrit.gerritevents.dto.GerritEventKeys.REFUPDATE;
+import static com.sonymobile.tools.gerrit.gerritevents.dto.GerritEventKeys.TYPE;
+import static com.sonymobile.tools.gerrit.gerritevents.dto.GerritEventKeys.UPLOADER;
+
+/**
+ * The few properties of a stream-events line that are needed to decide if the event should be handled at all.
+ * <p>
+ * {@link #scan(byte[])} finds them in one pass over the raw line without building a JSON tree, so that events
+ * that are filtered out by project, type or e-mail never get parsed. The first {@code project} property in the
+ * line, at any depth, is taken as the project, and {@code projectName} when there is none, like project-created
+ * events have. The e-mail addresses are the ones of the top level {@code author} and {@code uploader} objects,
+ * and of the {@code owner} of the top level {@code change} object.
+ * The change number is the one of the top level {@code change} object, and the ref name the one of the
+ * {@code refUpdate} object, or else the top level {@code ref} or {@code refName}.
+ * <p>
+ * The scanner is lenient, anything it does not understand just leaves the properties it has not found yet null.
+ */
+public final class EventHeader {
+
+    private static final int MAX_DEPTH = 32;
+    private static final int KEY_OTHER = 0;
+    private static final int KEY_TYPE = 1;
+    private static final int KEY_PROJECT = 2;
+    private static final int KEY_PROJECT_NAME = 3;
+    private static final int KEY_BRANCH = 4;
+    private static final int KEY_EMAIL = 5;
+    private static final int KEY_AUTHOR = 6;
+    private static final int KEY_UPLOADER = 7;
+    private static final int KEY_CHANGE = 8;
+    private static final int KEY_NUMBER = 9;
+    private static final int KEY_REF_UPDATE = 10;
+    private static final int KEY_REF_NAME = 11;
+    private static final int KEY_REF = 12;
+    private static final int KEY_OWNER = 13;
+    private static final int OWNER_DEPTH = 3;
+    private static final byte[][] KEYS = {
+        null,
+        TYPE.getBytes(StandardCharsets.UTF_8),
+        PROJECT.getBytes(StandardCharsets.UTF_8),
+        PROJECT_NAME.getBytes(StandardCharsets.UTF_8),
+        BRANCH.getBytes(StandardCharsets.UTF_8),
+        EMAIL.getBytes(StandardCharsets.UTF_8),
+        AUTHOR.getBytes(StandardCharsets.UTF_8),
+        UPLOADER.getBytes(StandardCharsets.UTF_8),
+        CHANGE.getBytes(StandardCharsets.UTF_8),
+        NUMBER.getBytes(StandardCharsets.UTF_8),
+        REFUPDATE.getBytes(StandardCharsets.UTF_8),
+        REFNAME.getBytes(StandardCharsets.UTF_8),
+        REF.getBytes(StandardCharsets.UTF_8),
+        OWNER.getBytes(StandardCharsets.UTF_8),
+    };
+    private static final int HEX_DIGITS = 4;
+    private static final int HEX_RADIX = 16;
+
+    private String type;
+    private String project;
+    private String branch;
+    private String authorEmail;
+    private String uploaderEmail;
+    private String ownerEmail;
+    private String changeNumber;
+    private String refName;
+
+    /**
+     * Use one of the static factory methods.
+     */
+    private EventHeader() {
+    }
+
+    /**
+     * Finds the properties in a UTF-8 encoded stream-events line.
+     *
+     * @param data the line.
+     * @return the properties found.
+     */
+    public static EventHeader scan(byte[] data) {
+        EventHeader header = new EventHeader();
+        header.scanLine(data);
+        return header;
+    }
+
+    /**
+     * Finds the properties in a stream-events line.
+     *
+     * @param line the line.
+     * @return the properties found.
+     */
+    public static EventHeader scan(String line) {
+        if (line == null) {
+            return new EventHeader();
+        }
+        return scan(line.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Takes the properties from an already parsed event.
+     *
+     * @param json the event.
+     * @return the properties found.
+     */
+    public static EventHeader of(JSONObject json) {
+        EventHeader header = new EventHeader();
+        if (json == null) {
+            return header;
+        }
+        header.type = getString(json, TYPE);
+        JSONObject change = getObject(json, CHANGE);
+        JSONObject refUpdate = getObject(json, REFUPDATE);
+        if (change != null) {
+            header.project = getString(change, PROJECT);
+            header.branch = getString(change, BRANCH);
+            header.changeNumber = getString(change, NUMBER);
+            JSONObject owner = getObject(change, OWNER);
+            if (owner != null) {
+                header.ownerEmail = getString(owner, EMAIL);
+            }
+        }
+        if (refUpdate != null) {
+            if (header.project == null) {
+                header.project = getString(refUpdate, PROJECT);
+            }
+            header.refName = getString(refUpdate, REFNAME);
+        }
+        if (header.refName == null) {
+            header.refName = getString(json, REF, getString(json, REFNAME));
+        }
+        if (header.project == null) {
+            header.project = getString(json, PROJECT, getString(json, PROJECT_NAME));
+        }
+        JSONObject author = getObject(json, AUTHOR);
+        if (author != null) {
+            header.authorEmail = getString(author, EMAIL);
+        }
+        JSONObject uploader = getObject(json, UPLOADER);
+        if (uploader != null) {
+            header.uploaderEmail = getString(uploader, EMAIL);
+        }
+        return header;
+    }
+
+    /**
+     * The value of the type property.
+     *
+     * @return the type, or null if not found.
+     */
+    public String getType() {
+        return type;
+    }
+
+    /**
+     * The event type of the type property.
+     *
+     * @return the event type, or null if not found or unknown.
+     */
+    public GerritEventType getEventType() {
+        if (type == null) {
+            return null;
+        }
+        return GerritEventType.findByTypeValue(type);
+    }
+
+    /**
+     * The name of the project the event is about.
+     *
+     * @return the project name, or null if not found.
+     */
+    public String getProject() {
+        return project;
+    }
+
+    /**
+     * The name of the branch the event is about.
+     *
+     * @return the branch name, or null if not found.
+     */
+    public String getBranch() {
+        return branch;
+    }
+
+    /**
+     * The e-mail address of the author of the event, the account of comment-added events.
+     *
+     * @return the e-mail address, or null if not found.
+     */
+    public String getAuthorEmail() {
+        return authorEmail;
+    }
+
+    /**
+     * The e-mail address of the uploader of the event.
+     *
+     * @return the e-mail address, or null if not found.
+     */
+    public String getUploaderEmail() {
+        return uploaderEmail;
+    }
+
+    /**
+     * The e-mail address of the owner of the change the event is about.
+     *
+     * @return the e-mail address, or null if not found.
+     */
+    public String getOwnerEmail() {
+        return ownerEmail;
+    }
+
+    /**
+     * The number of the change the event is about.
+     *
+     * @return the change number, or null if not found.
+     */
+    public String getChangeNumber() {
+        return changeNumber;
+    }
+
+    /**
+     * The name of the ref the event is about, for events like ref-updated that are not about a change.
+     *
+     * @return the ref name, or null if not found.
+     */
+    public String getRefName() {
+        return refName;
+    }
+
+    /**
+     * Walks through the line once and picks up the properties.
+     *
+     * @param data the line.
+     */
+    private void scanLine(byte[] data) {
+        //The key each open object or array is the value of, or KEY_OTHER, and if it is an object.
+        int[] parents = new int[MAX_DEPTH];
+        boolean[] objects = new boolean[MAX_DEPTH];
+        int depth = 0;
+        int key = KEY_OTHER;
+        boolean expectKey = false;
+        String projectName = null;
+        String topRefName = null;
+        int i = 0;
+        while (i < data.length && !isComplete()) {
+            byte b = data[i];
+            if (b == '{' || b == '[') {
+                if (depth >= 0 && depth < MAX_DEPTH) {
+                    parents[depth] = key;
+                    objects[depth] = b == '{';
+                }
+                depth++;
+                key = KEY_OTHER;
+                expectKey = b == '{';
+                i++;
+            } else if (b == '}' || b == ']') {
+                if (depth > 0) {
+                    depth--;
+                }
+                key = KEY_OTHER;
+                expectKey = false;
+                i++;
+            } else if (b == ',') {
+                expectKey = depth > 0 && depth <= MAX_DEPTH && objects[depth - 1];
+                key = KEY_OTHER;
+                i++;
+            } else if (b == '"') {
+                int end = findStringEnd(data, i + 1);
+                if (end < 0) {
+                    break;
+                }
+                if (expectKey) {
+                    key = matchKey(data, i + 1, end);
+                    expectKey = false;
+                } else if (key != KEY_OTHER) {
+                    int parent = getParent(parents, depth);
+                    switch (key) {
+                        case KEY_TYPE:
+                            if (depth == 1 && type == null) {
+                                type = decode(data, i + 1, end);
+                            }
+                            break;
+                        case KEY_PROJECT:
+                            if (project == null) {
+                                project = decode(data, i + 1, end);
+                            }
+                            break;
+                        case KEY_PROJECT_NAME:
+                            if (projectName == null) {
+                                projectName = decode(data, i + 1, end);
+                            }
+                            break;
+                        case KEY_BRANCH:
+                            if (branch == null) {
+                                branch = decode(data, i + 1, end);
+                            }
+                            break;
+                        case KEY_EMAIL:
+                            if (depth == 2 && parent == KEY_AUTHOR && authorEmail == null) {
+                                authorEmail = decode(data, i + 1, end);
+                            } else if (depth == 2 && parent == KEY_UPLOADER && uploaderEmail == null) {
+                                uploaderEmail = decode(data, i + 1, end);
+                            } else if (depth == OWNER_DEPTH && parent == KEY_OWNER && parents[1] == KEY_CHANGE
+                                    && ownerEmail == null) {
+                                ownerEmail = decode(data, i + 1, end);
+                            }
+                            break;
+                        case KEY_NUMBER:
+                            if (depth == 2 && parent == KEY_CHANGE && changeNumber == null) {
+                                changeNumber = decode(data, i + 1, end);
+                            }
+                            break;
+                        case KEY_REF_NAME:
+                        case KEY_REF:
+                            if (depth == 2 && parent == KEY_REF_UPDATE && key == KEY_REF_NAME && refName == null) {
+                                refName = decode(data, i + 1, end);
+                            } else if (depth == 1 && topRefName == null) {
+                                topRefName = decode(data, i + 1, end);
+                            }
+                            break;
+                        default:
+                            break;
+                    }
+                    key = KEY_OTHER;
+                }
+                i = end + 1;
+            } else if (key == KEY_NUMBER && b >= '0' && b <= '9') {
+                //Gerrit writes the change number as a JSON number.
+                int end = i;
+                while (end < data.length && data[end] >= '0' && data[end] <= '9') {
+                    end++;
+                }
+                if (depth == 2 && getParent(parents, depth) == KEY_CHANGE && changeNumber == null) {
+                    changeNumber = decode(data, i, end);
+                }
+                key = KEY_OTHER;
+                i = end;
+            } else {
+                i++;
+            }
+        }
+        if (project == null) {
+            project = projectName;
+        }
+        if (refName == null) {
+            refName = topRefName;
+        }
+    }
+
+    /**
+     * The key of the object the scanner is in.
+     *
+     * @param parents the keys each open object or array is the value of.
+     * @param depth the current depth.
+     * @return the key, or KEY_OTHER for the top level object.
+     */
+    private static int getParent(int[] parents, int depth) {
+        if (depth >= 2 && depth <= MAX_DEPTH) {
+            return parents[depth - 1];
+        }
+        return KEY_OTHER;
+    }
+
+    /**
+     * If all properties have been found and the rest of the line can be skipped.
+     *
+     * @return true if so.
+     */
+    private boolean isComplete() {
+        return type != null && project != null && branch != null && authorEmail != null && uploaderEmail != null
+                && ownerEmail != null && changeNumber != null;
+    }
+
+    /**
+     * Finds the closing quote of a string.
+     *
+     * @param data the line.
+     * @param from the index right after the opening quote.
+     * @return the index of the closing quote, or -1 if the string does not end.
+     */
+    private static int findStringEnd(byte[] data, int from) {
+        int i = from;
+        while (i < data.length) {
+            if (data[i] == '\\') {
+                i += 2;
+            } else if (data[i] == '"') {
+                return i;
+            } else {
+                i++;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Matches a key against the keys of interest without decoding it.
+     *
+     * @param data the line.
+     * @param from the index of the first character of the key.
+     * @param to the index of the closing quote.
+     * @return the key constant, KEY_OTHER if it is not of interest.
+     */
+    private static int matchKey(byte[] data, int from, int to) {
+        int length = to - from;
+        for (int k = KEY_TYPE; k < KEYS.length; k++) {
+            byte[] candidate = KEYS[k];
+            if (candidate.length == length && regionMatches(data, from, candidate)) {
+                return k;
+            }
+        }
+        return KEY_OTHER;
+    }
+
+    /**
+     * Compares a region of the line with a key.
+     *
+     * @param data the line.
+     * @param from where the region starts.
+     * @param candidate the key.
+     * @return true if equal.
+     */
+    private static boolean regionMatches(byte[] data, int from, byte[] candidate) {
+        for (int j = 0; j < candidate.length; j++) {
+            if (data[from + j] != candidate[j]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Decodes a string value, handling JSON escapes.
+     *
+     * @param data the line.
+     * @param from the index of the first character.
+     * @param to the index of the closing quote.
+     * @return the value.
+     */
+    private static String decode(byte[] data, int from, int to) {
+        String raw = new String(data, from, to - from, StandardCharsets.UTF_8);
+        if (raw.indexOf('\\') < 0) {
+            return raw;
+        }
+        StringBuilder str = new StringBuilder(raw.length());
+        int i = 0;
+        while (i < raw.length()) {
+            char c = raw.charAt(i);
+            i++;
+            if (c != '\\' || i >= raw.length()) {
+                str.append(c);
+                continue;
+            }
+            char escaped = raw.charAt(i);
+            i++;
+            switch (escaped) {
+                case 'n':
+                    str.append('\n');
+                    break;
+                case 't':
+                    str.append('\t');
+                    break;
+                case 'r':
+                    str.append('\r');
+                    break;
+                case 'b':
+                    str.append('\b');
+                    break;
+                case 'f':
+                    str.append('\f');
+                    break;
+                case 'u':
+                    if (i + HEX_DIGITS <= raw.length()) {
+                        try {
+                            str.append((char)Integer.parseInt(raw.substring(i, i + HEX_DIGITS), HEX_RADIX));
+                            i += HEX_DIGITS;
+                        } catch (NumberFormatException e) {
+                            str.append(escaped);
+                        }
+                    } else {
+                        str.append(escaped);
+                    }
+                    break;
+                default:
+                    str.append(escaped);
+                    break;
+            }
+        }
+        return str.toString();
+    }
+
+    /**
+     * Returns a JSON object property if it exists.
+     *
+     * @param json the object.
+     * @param key the key.
+     * @return the property, or null if missing or not an object.
+     */
+    private static JSONObject getObject(JSONObject json, String key) {
+        Object value = json.opt(key);
+        if (value instanceof JSONObject && !((JSONObject)value).isNullObject()) {
+            return (JSONObject)value;
+        }
+        return null;
+    }
+
+    @Override
+    public String toString() {
+        return "EventHeader{type=" + type + ", project=" + project + ", branch=" + branch
+                + ", authorEmail=" + authorEmail + ", uploaderEmail=" + uploaderEmail + ", ownerEmail=" + ownerEmail
+                + ", changeNumber=" + changeNumber + ", refName=" + refName + "}";
+    }
+}
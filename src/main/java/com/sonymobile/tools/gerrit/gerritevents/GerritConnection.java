@@ -25,9 +25,8 @@
 package com.sonymobile.tools.gerrit.gerritevents;
 
 import java.io.IOException;
-import java.io.InputStreamReader;
-import java.io.Reader;
-import java.nio.CharBuffer;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.Collections;
 import java.util.Set;
 import java.util.concurrent.CopyOnWriteArraySet;
@@ -72,6 +71,7 @@ public class GerritConnection extends Thread implements Connector {
      */
     private static final int SSH_RX_BUFFER_SIZE = 262400;
     private static final int SSH_RX_SLEEP_MILLIS = 100;
+    private static final int SSH_RX_MIN_IDLE_SLEEP_MILLIS = 1;
     /**
      * The standard scheme used for stream-events.
      */
@@ -95,7 +95,8 @@ public class GerritConnection extends Thread implements Connector {
     private AuthenticationUpdater authenticationUpdater = null;
     private final Set<ConnectionListener> listeners = new CopyOnWriteArraySet<ConnectionListener>();
     private int sshRxBufferSize = SSH_RX_BUFFER_SIZE;
-    private StringBuilder eventBuffer = null;
+    private volatile boolean lowLatencyRead = false;
+    private int rxIdleSleepMillis = SSH_RX_MIN_IDLE_SLEEP_MILLIS;
 
     /**
      * Creates a GerritHandler with all the default values set.
@@ -247,6 +248,32 @@ public class GerritConnection extends Thread implements Connector {
         return prev;
     }
 
+    /**
+     * Sets the read mode for the stream-events channel.
+     * <p>
+     * By default the reader sleeps 100 ms after every read that produced events,
+     * to let more data gather in the buffer. In low latency mode the events are posted as soon as they are read
+     * and the reader goes straight back to blocking on the channel. It only sleeps when a read returns no data,
+     * starting at 1 ms and doubling up to 100 ms
+     * for as long as the channel stays idle.
+     * Takes effect the next time the connection starts reading.
+     *
+     * @param lowLatencyRead true to use the low latency read mode.
+     */
+    public void setLowLatencyRead(boolean lowLatencyRead) {
+        this.lowLatencyRead = lowLatencyRead;
+    }
+
+    /**
+     * If the low latency read mode is used.
+     *
+     * @return true if so.
+     * @see #setLowLatencyRead(boolean)
+     */
+    public boolean isLowLatencyRead() {
+        return lowLatencyRead;
+    }
+
     /**
      * Sets gerrit handler.
      *
@@ -330,49 +357,24 @@ public class GerritConnection extends Thread implements Connector {
     }
 
     /**
-     * Offers lines in buffer to queue.
+     * Waits between two reads of the stream-events channel according to the read mode.
      *
-     * @param cb a buffer to have received text data.
-     * @return the line string. null if no EOL, otherwise buffer is compacted.
-     */
-    private String getLine(CharBuffer cb) {
-        String line = null;
-        int pos = cb.position();
-        int limit = cb.limit();
-        cb.flip();
-        for (int i = 0; i < cb.length(); i++) {
-            if (cb.charAt(i) == '\n') {
-                line = cb.subSequence(0, i).toString();
-                cb.position(i + 1);
-                break;
-            }
-        }
-        if (line != null) {
-            cb.compact();
-            if (eventBuffer != null) {
-                eventBuffer.append(line);
-                String eventString = eventBuffer.toString();
-                eventBuffer = null;
-                line = eventString;
-            }
-            line.trim();
-        } else {
-            if (cb.length() > 0) {
-                if (cb.length() == cb.capacity()) {
-                    if (eventBuffer == null) {
-                        logger.debug("Encountered big event.");
-                        eventBuffer = new StringBuilder();
-                    }
-                    eventBuffer.append(cb.subSequence(0, pos));
-                } else {
-                    cb.position(pos);
-                    cb.limit(limit);
-                }
+     * @param readCount the number of bytes from the last read.
+     * @param linecount the number of lines the last read completed.
+     * @throws InterruptedException if interrupted while sleeping.
+     * @see #setLowLatencyRead(boolean)
+     */
+    private void waitBeforeNextRead(int readCount, int linecount) throws InterruptedException {
+        if (lowLatencyRead) {
+            if (readCount > 0) {
+                rxIdleSleepMillis = SSH_RX_MIN_IDLE_SLEEP_MILLIS;
             } else {
-                cb.clear();
+                sleep(rxIdleSleepMillis);
+                rxIdleSleepMillis = Math.min(rxIdleSleepMillis * 2, SSH_RX_SLEEP_MILLIS);
             }
+        } else if (readCount == 0 || linecount > 0) {
+            sleep(SSH_RX_SLEEP_MILLIS);
         }
-        return line;
     }
 
     /**
@@ -398,9 +400,10 @@ public class GerritConnection extends Thread implements Connector {
                 if (channel == null) {
                     throw new IOException("Cannot open SSH channel.");
                 }
-                Reader reader = new InputStreamReader(channel.getInputStream(), "utf-8");
+                InputStream stream = channel.getInputStream();
                 channel.connect();
-                CharBuffer cb = CharBuffer.allocate(sshRxBufferSize);
+                LineFramer framer = new LineFramer(sshRxBufferSize);
+                rxIdleSleepMillis = SSH_RX_MIN_IDLE_SLEEP_MILLIS;
                 notifyConnectionEstablished();
                 Provider provider = new Provider(
                         gerritName,
@@ -410,14 +413,16 @@ public class GerritConnection extends Thread implements Connector {
                         gerritFrontEndUrl,
                         getGerritVersionString());
                 logger.info("Ready to receive data from Gerrit: " + gerritName);
-                String line;
-                Integer readCount;
-                while ((readCount = reader.read(cb)) != -1) {
-                    logger.debug("Read count from Gerrit stream: {}", String.valueOf(readCount));
+                byte[] line;
+                int readCount;
+                while ((readCount = framer.read(stream)) != -1) {
+                    logger.debug("Read count from Gerrit stream: {}", readCount);
                     int linecount = 0;
-                    while ((line = getLine(cb)) != null) {
+                    while ((line = framer.nextLine()) != null) {
                         linecount++;
-                        logger.debug("Data-line from Gerrit: {}", line);
+                        if (logger.isDebugEnabled()) {
+                            logger.debug("Data-line from Gerrit: {}", new String(line, StandardCharsets.UTF_8));
+                        }
                         if (handler != null) {
                             handler.post(line, provider);
                         }
@@ -431,9 +436,7 @@ public class GerritConnection extends Thread implements Connector {
                     if (!channel.isConnected() || !sshConnection.isConnected()) {
                         throw new IllegalStateException("SSH connection is already lost.");
                     }
-                    if (readCount == 0 || linecount > 0) {
-                        sleep(SSH_RX_SLEEP_MILLIS);
-                    }
+                    waitBeforeNextRead(readCount, linecount);
                 }
             } catch (IOException ex) {
                 logger.error("Stream events command error. ", ex);
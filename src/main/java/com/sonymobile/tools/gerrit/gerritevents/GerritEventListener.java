@@ -38,7 +38,8 @@ import com.sonymobile.tools.gerrit.gerritevents.dto.GerritEvent;
  * is a fallback method if no other suitable method could be found.
  * <p>
  * The events are fired on one of the event worker threads so any listener needs to handle that two or more events
- * theoretically could be fired at the same time.
+ * theoretically could be fired at the same time. Listeners that never block can implement
+ * {@link NonBlockingGerritEventListener} to be notified before the others.
  *
  * @author Robert Sandell &lt;robert.sandell@sonyericsson.com&gt;
  */
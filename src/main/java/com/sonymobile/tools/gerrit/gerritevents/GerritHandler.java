@@ -25,6 +25,7 @@
 package com.sonymobile.tools.gerrit.gerritevents;
 
 import com.sonymobile.tools.gerrit.gerritevents.dto.GerritEvent;
+import com.sonymobile.tools.gerrit.gerritevents.dto.GerritEventType;
 import com.sonymobile.tools.gerrit.gerritevents.dto.attr.Account;
 import com.sonymobile.tools.gerrit.gerritevents.dto.attr.Provider;
 import com.sonymobile.tools.gerrit.gerritevents.dto.events.CommentAdded;
@@ -41,33 +42,41 @@ import org.apache.commons.lang.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Method;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.EnumSet;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
-import java.util.concurrent.ScheduledExecutorService;
+import java.util.function.BinaryOperator;
+import java.util.function.Consumer;
+import java.util.function.ToIntFunction;
 
-import static com.sonymobile.tools.gerrit.gerritevents.dto.GerritEventKeys.PROJECT;
 import static java.util.concurrent.TimeUnit.MINUTES;
 
-import java.io.BufferedReader;
-import java.io.FileNotFoundException;
-import java.io.FileReader;
-import java.io.IOException;
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 
 //CS IGNORE LineLength FOR NEXT 2 LINES. REASON: static import.
 import static com.sonymobile.tools.gerrit.gerritevents.GerritDefaultValues.DEFAULT_NR_OF_RECEIVING_WORKER_THREADS;
@@ -87,23 +96,123 @@ public class GerritHandler implements Coordinator, Handler {
      * Time to wait between connection attempts.
      */
     private static final Logger logger = LoggerFactory.getLogger(GerritHandler.class);
-    private int numberOfWorkerThreads;
+    private volatile int numberOfWorkerThreads;
     private final Set<GerritEventListener> gerritEventListeners = new CopyOnWriteArraySet<GerritEventListener>();
+    private final ListenerDispatchCache dispatchCache = new ListenerDispatchCache();
+    private volatile boolean hasNonBlockingListeners = false;
+    private final Map<BatchGerritEventListener, EventBatcher> batchers =
+            new ConcurrentHashMap<BatchGerritEventListener, EventBatcher>();
+    private final ListenerRouter listenerRouter = new ListenerRouter();
+    private volatile Set<GerritEventListener> routedAndGlobal = Collections.emptySet();
+    private volatile EventCoalescer eventCoalescer = null;
+    private volatile EventDeduplicator eventDeduplicator = null;
+    private volatile Map<GerritEventType, List<TypedListener<?>>> typedListeners =
+            new EnumMap<GerritEventType, List<TypedListener<?>>>(GerritEventType.class);
     private Map<String, String> ignoreEMails = new ConcurrentHashMap<String, String>();
-    private ThreadPoolExecutor executor = null;
+    private volatile ExecutorService executor = null;
+    private volatile boolean ownsExecutor = true;
+    private volatile WorkerPoolAutoscaler workerAutoscaler = null;
+    private final Executor workers = new Executor() {
+        @Override
+        public void execute(Runnable task) {
+            ExecutorService pool = executor;
+            if (pool == null) {
+                throw new RejectedExecutionException("The handler is shut down");
+            }
+            pool.execute(task);
+        }
+    };
+    private volatile EventDispatcher dispatcher = new WorkerPoolDispatcher(workers);
+    private final Map<GerritEventListener, ListenerMailbox> mailboxes =
+            new ConcurrentHashMap<GerritEventListener, ListenerMailbox>();
+    private volatile boolean listenerMailboxes = false;
+    private volatile boolean sharingAccounts = false;
+    private volatile ReceiveQueue receiveQueue = null;
+    private volatile int[] eventTypePriorities = new int[GerritEventType.values().length];
+    private final PriorityWorkQueue workQueue = new PriorityWorkQueue(new ToIntFunction<Work>() {
+        @Override
+        public int applyAsInt(Work work) {
+            return getEventTypePriority(getEventType(work));
+        }
+    }, TimeUnit.MILLISECONDS.toNanos(STARVATION_THRESHOLD));
+    private final Map<GerritEventListener, ListenerStats> listenerStats =
+            new ConcurrentHashMap<GerritEventListener, ListenerStats>();
+    private final Map<GerritEventListener, ListenerMailbox> quarantineMailboxes =
+            new ConcurrentHashMap<GerritEventListener, ListenerMailbox>();
     private int threadKeepAliveTime = DEFAULT_RECEIVE_THREAD_KEEP_ALIVE_TIME;
     private static final String THREAD_PREFIX = "Gerrit Worker EventThread_";
     private static final int WAIT_FOR_JOBS_SHUTDOWN_TIMEOUT = 30;
-    private final ScheduledExecutorService whitelistScheduler = Executors.newScheduledThreadPool(1);
     private final String whitelistLocation = "gerrit.whitelist.location";
     private final String whitelistTimeout = "gerrit.whitelist.timeout";
     private final String whitelistTimeoutDefault = "30";
-    private static volatile HashMap<String, Object> whitelist = new HashMap<String, Object>();
+    private volatile ProjectFilter projectFilter = ProjectFilter.ACCEPT_ALL;
+    private volatile EventFilter eventFilter = null;
+    private ProjectFilterWatcher projectFilterWatcher = null;
+    private static volatile ProjectFilter lastReadProjectFilter = ProjectFilter.ACCEPT_ALL;
     /**
      * The minimum size of the job-queue before monitors should begin to warn the administrator(s).
      */
     private static final int WORK_QUEUE_SIZE_WARNING_THRESHOLD =
             Integer.getInteger("gerritevents.GerritSendCommandQueue.WORK_QUEUE_SIZE_WARNING_THRESHOLD", 40);
+    /**
+     * The capacity of the mailboxes listeners get in mailbox mode.
+     */
+    private static final int DEFAULT_MAILBOX_CAPACITY =
+            Integer.getInteger("gerritevents.GerritHandler.DEFAULT_MAILBOX_CAPACITY", 1000);
+    /**
+     * The time budget in milliseconds of notifying a listener that has no budget of its own, 0 for none.
+     */
+    private static final long DEFAULT_LISTENER_TIME_BUDGET =
+            Long.getLong("gerritevents.GerritHandler.DEFAULT_LISTENER_TIME_BUDGET", 0);
+    /**
+     * The number of notifications in a row over the time budget that puts a listener in quarantine.
+     */
+    private static final int LISTENER_QUARANTINE_THRESHOLD =
+            Integer.getInteger("gerritevents.GerritHandler.LISTENER_QUARANTINE_THRESHOLD", 5);
+    /**
+     * The most events waiting for the worker threads, 0 for no limit.
+     */
+    private static final int RECEIVE_QUEUE_MAX_ITEMS =
+            Integer.getInteger("gerritevents.GerritHandler.RECEIVE_QUEUE_MAX_ITEMS", 0);
+    /**
+     * The most bytes of stream-events lines waiting for the worker threads, 0 for no limit.
+     */
+    private static final long RECEIVE_QUEUE_MAX_BYTES =
+            Long.getLong("gerritevents.GerritHandler.RECEIVE_QUEUE_MAX_BYTES", 0);
+    /**
+     * What to do with an event when the receive queue is full.
+     */
+    private static final String RECEIVE_QUEUE_OVERFLOW_POLICY =
+            System.getProperty("gerritevents.GerritHandler.RECEIVE_QUEUE_OVERFLOW_POLICY", "BLOCK");
+    /**
+     * The milliseconds an event may wait for a worker thread before it goes ahead of events of higher priority.
+     */
+    private static final long STARVATION_THRESHOLD =
+            Long.getLong("gerritevents.GerritHandler.STARVATION_THRESHOLD", 10000);
+    /**
+     * If the worker threads should be virtual threads, when the Java version supports it.
+     */
+    private static final boolean VIRTUAL_THREADS = Boolean.getBoolean("gerritevents.GerritHandler.VIRTUAL_THREADS");
+    /**
+     * The least number of worker threads when autoscaling.
+     */
+    private static final int AUTOSCALE_MIN_THREADS =
+            Integer.getInteger("gerritevents.GerritHandler.AUTOSCALE_MIN_THREADS", 1);
+    /**
+     * The most number of worker threads when autoscaling, 0 to not autoscale.
+     */
+    private static final int AUTOSCALE_MAX_THREADS =
+            Integer.getInteger("gerritevents.GerritHandler.AUTOSCALE_MAX_THREADS", 0);
+    /**
+     * The milliseconds events may wait for a worker thread on average before the pool grows, when autoscaling.
+     */
+    private static final long AUTOSCALE_TARGET_QUEUE_WAIT =
+            Long.getLong("gerritevents.GerritHandler.AUTOSCALE_TARGET_QUEUE_WAIT", 100);
+    /**
+     * The milliseconds between the looks at the worker threads when autoscaling.
+     */
+    private static final long AUTOSCALE_INTERVAL =
+            Long.getLong("gerritevents.GerritHandler.AUTOSCALE_INTERVAL", 1000);
 
     /**
      * Creates a GerritHandler with all the default values set.
@@ -137,7 +246,22 @@ public class GerritHandler implements Coordinator, Handler {
         this.numberOfWorkerThreads = numberOfWorkerThreads;
         this.threadKeepAliveTime = Math.max(MIN_RECEIVE_THREAD_KEEP_ALIVE_TIME, threadKeepAliveTime);
 
+        if (VIRTUAL_THREADS && WorkerExecutors.isVirtualThreadsSupported()) {
+            executor = WorkerExecutors.newVirtualThreadPerTaskExecutor(THREAD_PREFIX);
+        } else if (VIRTUAL_THREADS) {
+            logger.warn("Virtual threads need Java 21 or later, using a pool of worker threads.");
+        }
         startQueue();
+        if (RECEIVE_QUEUE_MAX_ITEMS > 0 || RECEIVE_QUEUE_MAX_BYTES > 0) {
+            setReceiveQueueBudget(RECEIVE_QUEUE_MAX_ITEMS, RECEIVE_QUEUE_MAX_BYTES,
+                    ReceiveQueue.OverflowPolicy.valueOf(RECEIVE_QUEUE_OVERFLOW_POLICY));
+        }
+        if (IngestPipeline.ENABLED) {
+            setIngestPipeline(true);
+        }
+        if (AUTOSCALE_MAX_THREADS > 0) {
+            setWorkerAutoscaling(AUTOSCALE_MIN_THREADS, AUTOSCALE_MAX_THREADS);
+        }
     }
 
     /**
@@ -177,33 +301,156 @@ public class GerritHandler implements Coordinator, Handler {
      */
     protected void startQueue() {
       if (executor == null) {
-          logger.debug("Starting the receiving thread pool.");
-          executor = new ThreadPoolExecutor(
-                  numberOfWorkerThreads,
-                  numberOfWorkerThreads,
-                  threadKeepAliveTime, TimeUnit.SECONDS,
-                  new LinkedBlockingQueue<Runnable>(),
-                  getThreadFactory());
-          executor.allowCoreThreadTimeOut(true);
-          //Start with one thread, and build it up gradually as it needs.
-          executor.prestartCoreThread();
-          logger.info("ReceiveQueue started! Current pool size: {}", executor.getPoolSize());
+          executor = createWorkerPool();
+          ownsExecutor = true;
+          return;
+      }
+      WorkerPool pool = getWorkerPool();
+      if (pool == null) {
+          logger.info("ReceiveQueue running on {}. Current Queue size: {}", executor, getQueueSize());
       } else {
-          if (executor.getCorePoolSize() < numberOfWorkerThreads) {
-              //If the number has increased we need to set the max first, or we'll get an IllegalArgumentException
-              executor.setMaximumPoolSize(numberOfWorkerThreads);
-              executor.setCorePoolSize(numberOfWorkerThreads);
-          } else if (executor.getCorePoolSize() > numberOfWorkerThreads) {
-              //If the number has decreased we need to set the core first.
-              executor.setCorePoolSize(numberOfWorkerThreads);
-              executor.setMaximumPoolSize(numberOfWorkerThreads);
-          }
+          pool.resize(numberOfWorkerThreads);
           logger.info("ReceiveQueue running. Current pool size: {}. Current Queue size: {}",
-                  executor.getPoolSize(), getQueueSize());
-          logger.info("Nr of active pool-threads: {}", executor.getActiveCount());
+                  pool.getPoolSize(), getQueueSize());
+          logger.info("Nr of active pool-threads: {}", pool.getActiveCount());
       }
     }
 
+    /**
+     * Creates the pool of worker threads the handler uses unless given an executor.
+     *
+     * @return the pool.
+     */
+    private WorkerPool createWorkerPool() {
+        logger.debug("Starting the receiving thread pool.");
+        WorkerPool pool = new WorkerPool(numberOfWorkerThreads, threadKeepAliveTime, workQueue, getThreadFactory());
+        pool.allowCoreThreadTimeOut(true);
+        //Start with one thread, and build it up gradually as it needs.
+        pool.prestartCoreThread();
+        logger.info("ReceiveQueue started! Current pool size: {}", pool.getPoolSize());
+        return pool;
+    }
+
+    /**
+     * The pool of worker threads created by the handler.
+     *
+     * @return the pool, or null if the handler runs the work on an executor it was given or on virtual threads.
+     */
+    WorkerPool getWorkerPool() {
+        ExecutorService current = executor;
+        if (ownsExecutor && current instanceof WorkerPool) {
+            return (WorkerPool)current;
+        }
+        return null;
+    }
+
+    /**
+     * Changes the number of threads of the pool of worker threads, for the {@link WorkerPoolAutoscaler}.
+     *
+     * @param threads the number of threads.
+     */
+    void resizeWorkerPool(int threads) {
+        numberOfWorkerThreads = threads;
+        WorkerPool pool = getWorkerPool();
+        if (pool != null) {
+            pool.resize(threads);
+        }
+    }
+
+    /**
+     * Grows and shrinks the pool of worker threads between the bounds, going by how long the events wait for a
+     * thread and how busy the threads are, see {@link WorkerPoolAutoscaler}. The pool starts out with the number
+     * of worker threads it has, within the bounds.
+     * Autoscaling can also be turned on from the start with the system properties
+     * {@code gerritevents.GerritHandler.AUTOSCALE_MIN_THREADS} and {@code AUTOSCALE_MAX_THREADS},
+     * the target queue wait and interval can be set with {@code AUTOSCALE_TARGET_QUEUE_WAIT} and
+     * {@code AUTOSCALE_INTERVAL}.
+     *
+     * @param minThreads the least number of threads, at least 1.
+     * @param maxThreads the most number of threads, 0 to stop autoscaling.
+     * @see #setWorkerAutoscaling(int, int, long, TimeUnit)
+     */
+    public void setWorkerAutoscaling(int minThreads, int maxThreads) {
+        setWorkerAutoscaling(minThreads, maxThreads, AUTOSCALE_INTERVAL, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Grows and shrinks the pool of worker threads between the bounds.
+     * Does nothing while the work is run on an executor given with {@link #setExecutor(ExecutorService)}.
+     *
+     * @param minThreads the least number of threads, at least 1.
+     * @param maxThreads the most number of threads, 0 to stop autoscaling.
+     * @param interval the time between the looks at the pool.
+     * @param unit the unit of the interval.
+     * @see WorkerPoolAutoscaler
+     */
+    public synchronized void setWorkerAutoscaling(int minThreads, int maxThreads, long interval, TimeUnit unit) {
+        WorkerPoolAutoscaler old = workerAutoscaler;
+        if (maxThreads <= 0) {
+            workerAutoscaler = null;
+        } else {
+            WorkerPoolAutoscaler autoscaler = new WorkerPoolAutoscaler(this, minThreads, maxThreads,
+                    TimeUnit.MILLISECONDS.toNanos(AUTOSCALE_TARGET_QUEUE_WAIT), unit.toMillis(interval));
+            resizeWorkerPool(Math.min(maxThreads, Math.max(minThreads, numberOfWorkerThreads)));
+            autoscaler.start();
+            workerAutoscaler = autoscaler;
+        }
+        if (old != null) {
+            old.close();
+        }
+    }
+
+    /**
+     * The autoscaler of the pool of worker threads, to tune it and see what it has done.
+     *
+     * @return the autoscaler, or null if not autoscaling.
+     * @see #setWorkerAutoscaling(int, int)
+     */
+    public WorkerPoolAutoscaler getWorkerAutoscaler() {
+        return workerAutoscaler;
+    }
+
+    /**
+     * The executor that the work is run on.
+     *
+     * @return the executor, null if shut down.
+     * @see #setExecutor(ExecutorService)
+     */
+    public ExecutorService getExecutor() {
+        return executor;
+    }
+
+    /**
+     * Runs the work on an executor instead of the pool of worker threads of the handler,
+     * e.g. a work-stealing {@link java.util.concurrent.ForkJoinPool}, or virtual threads from
+     * {@link WorkerExecutors#newVirtualThreadPerTaskExecutor(String)}.
+     * <p>
+     * The executor belongs to the caller, the handler does not shut it down.
+     * The number of worker threads, thread keep alive time and event type priorities are settings of the pool of
+     * the handler and do nothing for an executor from the caller. Virtual threads can also be turned on from the
+     * start with the system property {@code gerritevents.GerritHandler.VIRTUAL_THREADS}.
+     * <p>
+     * Work already queued in the pool of the handler is still run by it, the pool shuts down when that is done.
+     *
+     * @param executorService the executor, null to go back to a pool of worker threads of the handler.
+     */
+    public synchronized void setExecutor(ExecutorService executorService) {
+        ExecutorService old = executor;
+        boolean ownedOld = ownsExecutor;
+        if (executorService == null) {
+            if (!ownedOld) {
+                executor = createWorkerPool();
+                ownsExecutor = true;
+            }
+            return;
+        }
+        ownsExecutor = false;
+        executor = executorService;
+        if (ownedOld && old != null) {
+            old.shutdown();
+        }
+    }
+
     /**
      * Returns the largest number of threads that have ever simultaneously been in the pool.
      * Package visibility for testing purposes only.
@@ -211,7 +458,11 @@ public class GerritHandler implements Coordinator, Handler {
      * @return number of threads
      */
     int getLargestPoolSize() {
-        return executor.getLargestPoolSize();
+        WorkerPool pool = getWorkerPool();
+        if (pool == null) {
+            return 0;
+        }
+        return pool.getLargestPoolSize();
     }
 
     /**
@@ -245,182 +496,1117 @@ public class GerritHandler implements Coordinator, Handler {
         }
     }
 
+    /**
+     * If the events this handler reads share their accounts and providers.
+     *
+     * @return true if shared.
+     * @see #setSharingAccounts(boolean)
+     */
     @Override
-    public void post(String data) {
-        post(data, null);
+    public boolean isSharingAccounts() {
+        return sharingAccounts;
     }
 
-    @Override
-    public void post(JSONObject json) {
-        post(json, null);
+    /**
+     * Turns sharing equal accounts and providers between the events this handler reads on or off, off by default.
+     * <p>
+     * Not compatible with listeners that change the accounts or providers of events, their setters throw
+     * {@link UnsupportedOperationException} when shared, see
+     * {@link com.sonymobile.tools.gerrit.gerritevents.dto.attr.Canonicalizer#account(Account)}.
+     *
+     * @param sharingAccounts true to share.
+     */
+    public void setSharingAccounts(boolean sharingAccounts) {
+        this.sharingAccounts = sharingAccounts;
     }
 
-    @Override
-    public void post(String data, Provider provider) {
-        logger.debug("Trigger event string: {}", data);
-        post(new StreamEventsStringWork(data, provider));
+    /**
+     * If events are dispatched in order per change.
+     *
+     * @return true if sharded dispatch is on.
+     * @see #setShardedDispatch(boolean)
+     */
+    public boolean isShardedDispatch() {
+        return getWorkerDispatcher(dispatcher) instanceof ShardedDispatcher;
     }
 
-    @Override
-    public void post(JSONObject json, Provider provider) {
-        logger.debug("Trigger event json object: {}", json);
-        post(new JSONEventWork(json, provider));
+    /**
+     * Turns sharded dispatch on or off.
+     * <p>
+     * In sharded dispatch mode the events of one change, and the ref-updated events of one ref, are hashed to
+     * the same one of a fixed number of lanes. Each lane hands its events to the worker threads one at a time
+     * and in the order they were posted, so listeners see the events of a change in order while events of
+     * different changes are still worked on in parallel by all the worker threads.
+     * Events that are neither about a change nor a ref are queued as usual.
+     * <p>
+     * The order of the events that are queued when the mode is switched is not kept across the switch.
+     *
+     * @param shardedDispatch true to turn sharded dispatch on.
+     */
+    public synchronized void setShardedDispatch(boolean shardedDispatch) {
+        if (shardedDispatch == isShardedDispatch()) {
+            return;
+        }
+        EventDispatcher next = new WorkerPoolDispatcher(workers);
+        if (shardedDispatch) {
+            next = new ShardedDispatcher(workers);
+        }
+        IngestPipeline pipeline = getIngestPipeline();
+        if (pipeline != null) {
+            next = new IngestPipeline(this, pipeline.getCapacity(), pipeline.getWaitStrategy(), getThreadFactory(),
+                    next);
+        }
+        setDispatcher(next);
     }
 
-    @Override
-    public void post(GerritEvent event) {
-        logger.debug("Internally trigger event: {}", event);
-        post(new GerritEventWork(event));
+    /**
+     * If posted events go through the ingest pipeline.
+     *
+     * @return true if there is an ingest pipeline.
+     * @see #setIngestPipeline(int, IngestPipeline.WaitStrategy)
+     */
+    public boolean isIngestPipeline() {
+        return dispatcher instanceof IngestPipeline;
+    }
+
+    /**
+     * Turns the ingest pipeline on with the default ring size and wait strategy, or off.
+     * The defaults can be set with the system properties {@code gerritevents.GerritHandler.INGEST_RING_SIZE}
+     * and {@code INGEST_WAIT_STRATEGY}, the pipeline can be turned on from the start with
+     * {@code INGEST_PIPELINE}.
+     *
+     * @param ingestPipeline true to turn the pipeline on.
+     * @see #setIngestPipeline(int, IngestPipeline.WaitStrategy)
+     */
+    public void setIngestPipeline(boolean ingestPipeline) {
+        if (!ingestPipeline) {
+            setIngestPipeline(0, null);
+        } else if (!isIngestPipeline()) {
+            setIngestPipeline(IngestPipeline.DEFAULT_RING_SIZE, IngestPipeline.DEFAULT_WAIT_STRATEGY);
+        }
+    }
+
+    /**
+     * Lets the events that pass the receive queue go through an {@link IngestPipeline} before the worker threads.
+     * <p>
+     * The pipeline frames, filters and parses the events in stages, each on a thread of its own,
+     * passing them along a ring of preallocated slots, and then hands the parsed events to the worker threads
+     * to notify the listeners, directly or through the lanes of sharded dispatch.
+     * That takes the parsing off the worker threads, so they are free for the listeners during bursts of events.
+     * <p>
+     * A pipeline that is replaced or turned off finishes the events already posted to it first.
+     *
+     * @param ringSize the number of slots in the ring, a power of two, 0 to turn the pipeline off.
+     * @param waitStrategy how the threads of the pipeline wait for each other.
+     */
+    public synchronized void setIngestPipeline(int ringSize, IngestPipeline.WaitStrategy waitStrategy) {
+        EventDispatcher next = getWorkerDispatcher(dispatcher);
+        if (ringSize > 0) {
+            next = new IngestPipeline(this, ringSize, waitStrategy, getThreadFactory(), next);
+        }
+        setDispatcher(next);
+    }
+
+    /**
+     * The ingest pipeline, to see how it is doing.
+     *
+     * @return the pipeline, or null if events go to the worker threads.
+     * @see #setIngestPipeline(int, IngestPipeline.WaitStrategy)
+     */
+    public IngestPipeline getIngestPipeline() {
+        EventDispatcher current = dispatcher;
+        if (current instanceof IngestPipeline) {
+            return (IngestPipeline)current;
+        }
+        return null;
+    }
+
+    /**
+     * What hands the events to the worker threads, behind the ingest pipeline if there is one.
+     *
+     * @param current the dispatcher of the handler.
+     * @return the dispatcher of the worker threads.
+     */
+    private static EventDispatcher getWorkerDispatcher(EventDispatcher current) {
+        if (current instanceof IngestPipeline) {
+            return ((IngestPipeline)current).getDownstream();
+        }
+        return current;
+    }
+
+    /**
+     * Replaces how events are dispatched, letting the old dispatcher pass on the events it has first.
+     *
+     * @param next the new dispatcher.
+     */
+    private void setDispatcher(EventDispatcher next) {
+        EventDispatcher old = dispatcher;
+        dispatcher = next;
+        if (old != next) {
+            old.close(true);
+        }
+    }
+
+    /**
+     * Limits the number of events, and the bytes of stream-events lines, waiting for the worker threads.
+     * By default there is no limit, unless set with the system properties
+     * {@code gerritevents.GerritHandler.RECEIVE_QUEUE_MAX_ITEMS}, {@code RECEIVE_QUEUE_MAX_BYTES}
+     * and {@code RECEIVE_QUEUE_OVERFLOW_POLICY}.
+     * Lines are spilled to a new directory in the temporary directory with
+     * {@link ReceiveQueue.OverflowPolicy#SPILL_TO_DISK}.
+     *
+     * @param maxItems the most events, 0 for no limit.
+     * @param maxBytes the most bytes of lines, 0 for no limit.
+     * @param overflowPolicy what to do with an event that does not fit.
+     * @see #setReceiveQueueBudget(int, long, ReceiveQueue.OverflowPolicy, File)
+     */
+    public void setReceiveQueueBudget(int maxItems, long maxBytes, ReceiveQueue.OverflowPolicy overflowPolicy) {
+        setReceiveQueueBudget(maxItems, maxBytes, overflowPolicy, null);
+    }
+
+    /**
+     * Limits the number of events, and the bytes of stream-events lines, waiting for the worker threads.
+     * The events already waiting are not counted against the new budget, and the ones spilled to disk are still
+     * read back as the worker threads make room.
+     *
+     * @param maxItems the most events, 0 for no limit.
+     * @param maxBytes the most bytes of lines, 0 for no limit.
+     * @param overflowPolicy what to do with an event that does not fit.
+     * @param spillDirectory where to spill lines with {@link ReceiveQueue.OverflowPolicy#SPILL_TO_DISK}.
+     * @see ReceiveQueue
+     */
+    public synchronized void setReceiveQueueBudget(int maxItems, long maxBytes,
+                                                   ReceiveQueue.OverflowPolicy overflowPolicy, File spillDirectory) {
+        ReceiveQueue old = receiveQueue;
+        if (maxItems <= 0 && maxBytes <= 0) {
+            receiveQueue = null;
+        } else {
+            receiveQueue = new ReceiveQueue(maxItems, maxBytes, overflowPolicy, spillDirectory);
+        }
+        if (old != null) {
+            old.close();
+        }
+    }
+
+    /**
+     * The queue of events waiting for the worker threads, to see how full it is.
+     *
+     * @return the queue, or null if there is no limit.
+     * @see #setReceiveQueueBudget(int, long, ReceiveQueue.OverflowPolicy)
+     */
+    public ReceiveQueue getReceiveQueue() {
+        return receiveQueue;
+    }
+
+    /**
+     * Sets the priority of a type of events, 0 by default.
+     * <p>
+     * The worker threads take the events of the highest priority first, and events of the same priority in the
+     * order they came. An event that has waited longer than {@code gerritevents.GerritHandler.STARVATION_THRESHOLD}
+     * milliseconds, see {@link #setStarvationThreshold(long, TimeUnit)}, goes first whatever its priority.
+     * {@link ReceiveQueue.OverflowPolicy#DROP_BY_PRIORITY} also uses the priority to choose what to drop.
+     * For example, to let builds start ahead of a replication storm:
+     * <pre>
+     * handler.setEventTypePriority(GerritEventType.PATCHSET_CREATED, 10);
+     * handler.setEventTypePriority(GerritEventType.COMMENT_ADDED, 10);
+     * handler.setEventTypePriority(GerritEventType.REF_REPLICATED, -10);
+     * handler.setEventTypePriority(GerritEventType.REF_REPLICATION_DONE, -10);
+     * </pre>
+     *
+     * @param type the type of events.
+     * @param priority the priority, higher is more important.
+     * @see #getQueueWaitStats()
+     */
+    public synchronized void setEventTypePriority(GerritEventType type, int priority) {
+        int[] priorities = eventTypePriorities.clone();
+        priorities[type.ordinal()] = priority;
+        eventTypePriorities = priorities;
+        if (priority != 0) {
+            workQueue.setPrioritized(true);
+        }
+    }
+
+    /**
+     * Orders the events waiting for the worker threads with a comparator instead of by the priorities of their
+     * types. Events the comparator finds equal are taken in the order they came, and the starvation threshold
+     * still applies.
+     *
+     * @param comparator sorts the work to do first first, or null to order by the priorities of the types.
+     * @see #setEventTypePriority(GerritEventType, int)
+     */
+    public synchronized void setWorkComparator(Comparator<Work> comparator) {
+        if (comparator != null) {
+            workQueue.setPrioritized(true);
+        }
+        workQueue.setComparator(comparator);
+    }
+
+    /**
+     * Sets how long an event may wait for a worker thread before it goes ahead of events of higher priority.
+     *
+     * @param threshold the time, 0 to never let events go ahead.
+     * @param unit the unit of the time.
+     */
+    public void setStarvationThreshold(long threshold, TimeUnit unit) {
+        workQueue.setStarvationThresholdNanos(unit.toNanos(Math.max(0, threshold)));
+    }
+
+    /**
+     * How long the events waited for a worker thread, per priority of their types.
+     *
+     * @return a snapshot of the stats per priority.
+     * @see #setEventTypePriority(GerritEventType, int)
+     */
+    public Map<Integer, QueueWaitStats> getQueueWaitStats() {
+        return workQueue.getWaitStats();
+    }
+
+    /**
+     * The priority of a type of events.
+     *
+     * @param type the type of events, or null for an unknown type.
+     * @return the priority, higher is more important.
+     */
+    public int getEventTypePriority(GerritEventType type) {
+        if (type == null) {
+            return 0;
+        }
+        return eventTypePriorities[type.ordinal()];
+    }
+
+    /**
+     * If every listener gets a mailbox of its own.
+     *
+     * @return true if mailbox mode is on.
+     * @see #setListenerMailboxes(boolean)
+     */
+    public boolean isListenerMailboxes() {
+        return listenerMailboxes;
+    }
+
+    /**
+     * Turns mailbox mode on or off.
+     * <p>
+     * In mailbox mode every {@link GerritEventListener} that has no mailbox set with
+     * {@link #setListenerMailbox(GerritEventListener, int, ListenerMailbox.OverflowPolicy)}
+     * gets a mailbox of {@code gerritevents.GerritHandler.DEFAULT_MAILBOX_CAPACITY} events that blocks when full.
+     * Turning the mode off closes those mailboxes, the events in them are still delivered.
+     *
+     * @param listenerMailboxes true to turn mailbox mode on.
+     * @see ListenerMailbox
+     */
+    public void setListenerMailboxes(boolean listenerMailboxes) {
+        this.listenerMailboxes = listenerMailboxes;
+        if (!listenerMailboxes) {
+            Iterator<ListenerMailbox> iterator = mailboxes.values().iterator();
+            while (iterator.hasNext()) {
+                ListenerMailbox mailbox = iterator.next();
+                if (!mailbox.isConfigured()) {
+                    iterator.remove();
+                    mailbox.close();
+                }
+            }
+        }
+    }
+
+    /**
+     * Gives a listener a mailbox of its own, whether mailbox mode is on or not.
+     * The listener is then notified on a thread of its own, so that it can not hold up the other listeners.
+     * Replaces and closes the mailbox the listener had.
+     *
+     * @param listener the listener.
+     * @param capacity the number of events the mailbox can hold.
+     * @param overflowPolicy what to do with an event when the mailbox is full.
+     * @return the mailbox.
+     * @see ListenerMailbox
+     */
+    public ListenerMailbox setListenerMailbox(GerritEventListener listener, int capacity,
+                                              ListenerMailbox.OverflowPolicy overflowPolicy) {
+        ListenerMailbox mailbox = new ListenerMailbox(String.valueOf(listener), capacity, overflowPolicy, true);
+        closeMailbox(mailboxes.put(listener, mailbox));
+        return mailbox;
+    }
+
+    /**
+     * Takes the mailbox from a listener, the listener is then notified on the worker threads again
+     * unless mailbox mode is on. The events in the mailbox are still delivered.
+     *
+     * @param listener the listener.
+     */
+    public void removeListenerMailbox(GerritEventListener listener) {
+        closeMailbox(mailboxes.remove(listener));
+    }
+
+    /**
+     * The mailbox of a listener, to see how many events are waiting for it.
+     *
+     * @param listener the listener.
+     * @return the mailbox, or null if the listener has none.
+     */
+    public ListenerMailbox getListenerMailbox(GerritEventListener listener) {
+        return mailboxes.get(listener);
+    }
+
+    /**
+     * Sets how long notifying a listener may take.
+     * <p>
+     * Every notification of a {@link GerritEventListener} is timed, see {@link #getListenerStats(GerritEventListener)}.
+     * A listener that goes over its budget {@code gerritevents.GerritHandler.LISTENER_QUARANTINE_THRESHOLD} times
+     * in a row is put in quarantine: unless it already has a mailbox, it gets a mailbox of its own that blocks
+     * when full, so that it no longer holds up the worker threads and the other listeners while they keep up,
+     * and still gets every event.
+     * Listeners without a budget of their own have the budget
+     * {@code gerritevents.GerritHandler.DEFAULT_LISTENER_TIME_BUDGET}, in milliseconds, by default none.
+     *
+     * @param listener the listener.
+     * @param budget the time budget, 0 for none.
+     * @param unit the unit of the time budget.
+     * @see #releaseListenerFromQuarantine(GerritEventListener)
+     * @see #setListenerTimeBudget(GerritEventListener, long, TimeUnit, ListenerMailbox.OverflowPolicy)
+     */
+    public void setListenerTimeBudget(GerritEventListener listener, long budget, TimeUnit unit) {
+        setListenerTimeBudget(listener, budget, unit, ListenerMailbox.OverflowPolicy.BLOCK);
+    }
+
+    /**
+     * Sets how long notifying a listener may take, and what the mailbox the listener gets in quarantine does
+     * with an event when full. A listener that can miss events can be given a policy that drops them,
+     * so that it never holds up the worker threads once in quarantine.
+     *
+     * @param listener the listener.
+     * @param budget the time budget, 0 for none.
+     * @param unit the unit of the time budget.
+     * @param quarantinePolicy what the mailbox in quarantine does with an event when full.
+     * @see #setListenerTimeBudget(GerritEventListener, long, TimeUnit)
+     */
+    public void setListenerTimeBudget(GerritEventListener listener, long budget, TimeUnit unit,
+                                      ListenerMailbox.OverflowPolicy quarantinePolicy) {
+        ListenerStats stats = getStats(listener);
+        stats.setQuarantinePolicy(quarantinePolicy);
+        stats.setTimeBudgetNanos(unit.toNanos(Math.max(0, budget)));
+    }
+
+    /**
+     * The notification times of a listener.
+     *
+     * @param listener the listener.
+     * @return the stats, or null if the listener has not been notified nor given a time budget.
+     */
+    public ListenerStats getListenerStats(GerritEventListener listener) {
+        return listenerStats.get(listener);
+    }
+
+    /**
+     * The notification times of all the listeners that have been notified or given a time budget.
+     *
+     * @return a snapshot of the stats per listener.
+     */
+    public Map<GerritEventListener, ListenerStats> getListenerStats() {
+        return Collections.unmodifiableMap(new HashMap<GerritEventListener, ListenerStats>(listenerStats));
+    }
+
+    /**
+     * Takes a listener out of quarantine. The mailbox it got in quarantine is closed and the listener is notified
+     * on the worker threads again, unless mailbox mode is on.
+     *
+     * @param listener the listener.
+     */
+    public void releaseListenerFromQuarantine(GerritEventListener listener) {
+        ListenerMailbox mailbox = quarantineMailboxes.remove(listener);
+        if (mailbox != null && mailboxes.remove(listener, mailbox)) {
+            mailbox.close();
+        }
+        ListenerStats stats = listenerStats.get(listener);
+        if (stats != null) {
+            stats.setQuarantined(false);
+        }
+    }
+
+    /**
+     * The stats of a listener, new ones if it has none.
+     *
+     * @param listener the listener.
+     * @return the stats.
+     */
+    private ListenerStats getStats(GerritEventListener listener) {
+        ListenerStats stats = listenerStats.get(listener);
+        if (stats == null) {
+            ListenerStats created = new ListenerStats(String.valueOf(listener),
+                    TimeUnit.MILLISECONDS.toNanos(DEFAULT_LISTENER_TIME_BUDGET));
+            stats = listenerStats.putIfAbsent(listener, created);
+            if (stats == null) {
+                stats = created;
+            }
+        }
+        return stats;
+    }
+
+    /**
+     * Puts a listener that keeps going over its time budget in quarantine.
+     *
+     * @param listener the listener.
+     * @param stats the stats of the listener.
+     */
+    private void quarantine(GerritEventListener listener, ListenerStats stats) {
+        synchronized (stats) {
+            if (stats.isQuarantined()) {
+                return;
+            }
+            stats.setQuarantined(true);
+        }
+        ListenerMailbox mailbox = new ListenerMailbox(String.valueOf(listener), DEFAULT_MAILBOX_CAPACITY,
+                stats.getQuarantinePolicy(), true);
+        if (mailboxes.putIfAbsent(listener, mailbox) == null) {
+            quarantineMailboxes.put(listener, mailbox);
+            logger.warn("Listener {} keeps going over its time budget, moving it to a mailbox of its own: {}",
+                    listener, stats);
+        } else {
+            mailbox.close();
+            logger.warn("Listener {} keeps going over its time budget: {}", listener, stats);
+        }
+    }
+
+    /**
+     * Closes a mailbox if there is one.
+     *
+     * @param mailbox the mailbox, or null.
+     */
+    private static void closeMailbox(ListenerMailbox mailbox) {
+        if (mailbox != null) {
+            mailbox.close();
+        }
+    }
+
+    @Override
+    public void post(String data) {
+        post(data, null);
+    }
+
+    @Override
+    public void post(JSONObject json) {
+        post(json, null);
+    }
+
+    @Override
+    public void post(String data, Provider provider) {
+        logger.debug("Trigger event string: {}", data);
+        post(new StreamEventsStringWork(data, provider));
+    }
+
+    @Override
+    public void post(byte[] data, Provider provider) {
+        logger.debug("Trigger event bytes: {} bytes", data.length);
+        post(new StreamEventsStringWork(data, provider));
+    }
+
+    @Override
+    public void post(JSONObject json, Provider provider) {
+        logger.debug("Trigger event json object: {}", json);
+        JSONEventWork work = new JSONEventWork(json, provider);
+        post(work);
+    }
+
+    @Override
+    public void post(GerritEvent event) {
+        logger.debug("Internally trigger event: {}", event);
+        post(new GerritEventWork(event));
+    }
+
+    /**
+     * Returns the current queue size of gerrit events.
+     * @return number of events
+     */
+    public int getQueueSize() {
+        return dispatcher.getBacklog(WorkerExecutors.getQueuedTasks(executor));
+    }
+
+    /**
+     * Post work object to work queue.
+     *
+     * @param work the work object.
+     */
+    private void post(Work work) {
+        logger.trace("putting work on queue.");
+        queueWork(work);
+        checkQueueSize();
+    }
+
+    /**
+     * Notifies all the listeners of an event that was held by the coalescer.
+     */
+    private final class CoalescedEventWork extends GerritEventWork {
+
+        /**
+         * Standard Constructor.
+         *
+         * @param event the event.
+         */
+        CoalescedEventWork(GerritEvent event) {
+            super(event);
+        }
+
+        @Override
+        public void perform(Coordinator coordinator) {
+            notifyAllListeners(getEvent());
+        }
+    }
+
+    /**
+     * Helper that will trigger to perform the work
+     *
+     */
+    static class EventWorker implements Runnable, ReceiveQueue.Entry, PriorityWorkQueue.Task {
+
+        volatile Work work;
+        GerritHandler handler;
+        ReceiveQueue queue;
+        long bytes;
+        int priority;
+        private volatile long queuedNanos;
+        private final AtomicBoolean claimed = new AtomicBoolean();
+
+        /**
+         * creates a new new EventWorker
+         *
+         * @param work the work to do
+         * @param handler the handler
+         */
+        EventWorker(Work work, GerritHandler handler) {
+            this.work = work;
+            this.handler = handler;
+        }
+
+        @Override
+        public Work getWork() {
+            return work;
+        }
+
+        @Override
+        public long getQueuedNanos() {
+            return queuedNanos;
+        }
+
+        @Override
+        public void setQueuedNanos(long nanos) {
+            queuedNanos = nanos;
+        }
+
+        @Override
+        public long getBytes() {
+            return bytes;
+        }
+
+        @Override
+        public int getPriority() {
+            return priority;
+        }
+
+        @Override
+        public boolean cancel() {
+            if (claimed.compareAndSet(false, true)) {
+                work = null;
+                return true;
+            }
+            return false;
+        }
+
+        /**
+         * Claims the work, unless it was dropped from the receive queue, and makes room for it there.
+         *
+         * @return true if claimed.
+         */
+        boolean claim() {
+            if (!claimed.compareAndSet(false, true)) {
+                return false;
+            }
+            if (queue != null) {
+                queue.started(this);
+                handler.refill(queue);
+            }
+            return true;
+        }
+
+        @Override
+        public void run() {
+            if (!claim()) {
+                return;
+            }
+            try {
+                //Check if we want to actually perform any further work on this.
+                if (work instanceof StreamEventsStringWork) {
+                    StreamEventsStringWork stringWork = (StreamEventsStringWork)work;
+                    workEvent(stringWork.getHeader(), stringWork.getProvider());
+                } else if (work instanceof JSONEventWork) {
+                    JSONEventWork jsonWork = (JSONEventWork)work;
+                    workEvent(jsonWork.getHeader(), jsonWork.getProvider());
+                } else {
+                    work.perform(handler);
+                }
+            } catch (RuntimeException e) {
+                logger.error("Unexpected error when working on {}", work, e);
+            }
+        }
+
+        /**
+         * Carry out the work if it passes the filters, see {@link GerritHandler#isAccepted(EventHeader, Provider)}.
+         *
+         * @param header the properties of the event.
+         * @param provider the Gerrit server info, null if not known.
+         */
+        private void workEvent(EventHeader header, Provider provider) {
+            if (handler.isAccepted(header, provider)) {
+                work.perform(handler);
+            }
+        }
+    }
+
+    /**
+     * Checks if an event passes the project filter, event type, listener subscription, event filter
+     * and ignored e-mail checks.
+     * All checks are done on the properties found by {@link EventHeader} before the event is parsed.
+     *
+     * @param header the properties of the event.
+     * @param provider the Gerrit server info, null if not known.
+     * @return true if the event should be parsed and the listeners notified.
+     */
+    boolean isAccepted(EventHeader header, Provider provider) {
+        logger.debug("Event before filter: {}", header);
+        if (!projectFilter.matches(header.getProject())) {
+            logger.debug("Ignoring event from: {}", header.getProject());
+            return false;
+        }
+        GerritEventType type = header.getEventType();
+        if (!GerritJsonEventFactory.isInterestingType(header.getType()) || !isInterestedIn(type)) {
+            logger.debug("Ignoring event of type: {}", header.getType());
+            return false;
+        }
+        if (isOnlyRouted() && listenerRouter.route(header).isEmpty()) {
+            logger.debug("No listener has subscribed to the project and branch of: {}", header);
+            return false;
+        }
+        EventFilter filter = eventFilter;
+        if (filter != null && filter.drops(header, provider)) {
+            logger.debug("Event dropped by the event filter: {}", header);
+            return false;
+        }
+        if (type == GerritEventType.COMMENT_ADDED && isIgnoredEMail(header.getAuthorEmail(), provider)) {
+            logger.trace("CommentAdded ignored");
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * If all listeners were added with {@link #addListener(GerritEventListener, String, String)},
+     * so that events that none of them has subscribed to need not be parsed.
+     *
+     * @return true if so.
+     */
+    private boolean isOnlyRouted() {
+        return gerritEventListeners.isEmpty() && typedListeners.isEmpty() && batchers.isEmpty()
+                && !listenerRouter.isEmpty();
+    }
+
+    /**
+     * puts work in the queue
+     * @param work the work to do
+     */
+    private void queueWork(Work work) {
+        try {
+            logger.debug("Queueing work {}", work);
+            EventWorker worker = new EventWorker(work, this);
+            ReceiveQueue queue = receiveQueue;
+            if (queue != null && !admit(queue, worker)) {
+                //A spilled line may have been written after the worker threads last looked.
+                refill(queue);
+                return;
+            }
+            dispatcher.dispatch(worker);
+        } catch (RejectedExecutionException e) {
+            logger.error("Unable to queue a received event! ", e);
+        }
+        checkQueueSize();
+    }
+
+    /**
+     * Lets the work into the receive queue.
+     *
+     * @param queue the receive queue.
+     * @param worker the work.
+     * @return true if let in, false if dropped or spilled to disk.
+     */
+    private boolean admit(ReceiveQueue queue, EventWorker worker) {
+        Work work = worker.work;
+        byte[] line = null;
+        Provider provider = null;
+        if (work instanceof StreamEventsStringWork) {
+            StreamEventsStringWork stringWork = (StreamEventsStringWork)work;
+            line = stringWork.getBytes();
+            if (line != null) {
+                worker.bytes = line.length;
+            } else if (stringWork.getLine() != null) {
+                worker.bytes = stringWork.getLine().length();
+                if (queue.getOverflowPolicy() == ReceiveQueue.OverflowPolicy.SPILL_TO_DISK) {
+                    line = stringWork.getLine().getBytes(StandardCharsets.UTF_8);
+                }
+            }
+            provider = stringWork.getProvider();
+        }
+        if (queue.getOverflowPolicy() == ReceiveQueue.OverflowPolicy.DROP_BY_PRIORITY) {
+            worker.priority = getEventTypePriority(getEventType(work));
+        }
+        worker.queue = queue;
+        return queue.admit(worker, !(work instanceof GerritEventWork), line, provider);
+    }
+
+    /**
+     * The type of the event of the work.
+     *
+     * @param work the work.
+     * @return the type, or null if not known.
+     */
+    private static GerritEventType getEventType(Work work) {
+        if (work instanceof StreamEventsStringWork) {
+            return ((StreamEventsStringWork)work).getHeader().getEventType();
+        } else if (work instanceof JSONEventWork) {
+            return ((JSONEventWork)work).getHeader().getEventType();
+        } else if (work instanceof GerritEventWork && ((GerritEventWork)work).getEvent() != null) {
+            return ((GerritEventWork)work).getEvent().getEventType();
+        }
+        return null;
+    }
+
+    /**
+     * Hands the lines spilled to disk back to the worker threads when the receive queue has room for them.
+     *
+     * @param queue the receive queue.
+     */
+    private void refill(ReceiveQueue queue) {
+        for (SpillQueue.SpilledLine spilledLine : queue.refill()) {
+            StreamEventsStringWork work = new StreamEventsStringWork(spilledLine.getLine(), spilledLine.getProvider());
+            EventWorker worker = new EventWorker(work, this);
+            worker.bytes = spilledLine.getLine().length;
+            worker.queue = queue;
+            queue.admitRefilled(worker);
+            try {
+                dispatcher.dispatch(worker);
+            } catch (RejectedExecutionException e) {
+                queue.started(worker);
+                logger.error("Unable to queue a spilled event! ", e);
+            } finally {
+                queue.handedOver();
+            }
+        }
+    }
+
+    /**
+     * Checks queue size.
+     */
+    private void checkQueueSize() {
+        int queueSize = getQueueSize();
+        if (WORK_QUEUE_SIZE_WARNING_THRESHOLD > 0 && queueSize >= WORK_QUEUE_SIZE_WARNING_THRESHOLD) {
+            logger.warn("The Gerrit incoming events queue contains {} items!"
+                        + " Something might be stuck, or your system can't process the commands fast enough."
+                        + " Try to increase the number of receiving worker threads."
+                        + " Current thread-pool: {}. Slowest listener: {}",
+                    queueSize, executor, getSlowestListenerStats());
+        }
+    }
+
+    /**
+     * The stats of the listener with the highest 99th percentile notification time.
+     *
+     * @return the stats, or null if no listener has been notified.
+     */
+    private ListenerStats getSlowestListenerStats() {
+        ListenerStats slowest = null;
+        long slowestP99 = -1;
+        for (ListenerStats stats : listenerStats.values()) {
+            long p99 = stats.getP99Nanos();
+            if (p99 > slowestP99) {
+                slowest = stats;
+                slowestP99 = p99;
+            }
+        }
+        return slowest;
+    }
+
+    @Override
+    public void addListener(GerritEventListener listener) {
+        synchronized (this) {
+            if (!gerritEventListeners.add(listener)) {
+                logger.warn("The listener was doubly-added: {}", listener);
+            }
+            listenersChanged();
+        }
+    }
+
+    /**
+     * Forgets what was known about the listeners after one was added or removed.
+     */
+    private void listenersChanged() {
+        dispatchCache.invalidate();
+        boolean nonBlocking = false;
+        Set<GerritEventListener> routed = listenerRouter.getListeners();
+        List<GerritEventListener> listeners = new ArrayList<GerritEventListener>(gerritEventListeners);
+        listeners.addAll(routed);
+        for (GerritEventListener listener : listeners) {
+            if (listener instanceof NonBlockingGerritEventListener) {
+                nonBlocking = true;
+            }
+        }
+        hasNonBlockingListeners = nonBlocking;
+        routed.retainAll(gerritEventListeners);
+        routedAndGlobal = routed;
+    }
+
+    /**
+     * Adds a listener that is only notified about the events of the projects and branches that match the globs,
+     * see {@link ListenerRouter}. The subscriptions of all listeners are matched at once, so this scales to
+     * thousands of listeners where each listener checking every event itself does not.
+     * A listener can be added many times with different globs, and is notified once about each matching event.
+     * A listener that is also added with {@link #addListener(GerritEventListener)} is notified once about every event.
+     *
+     * @param listener the listener.
+     * @param projectPattern the glob of the project names, like {@code platform/*}.
+     * @param branchPattern the glob of the branch names, like {@code release/**}.
+     * @throws IllegalArgumentException if a glob is null or empty.
+     */
+    public void addListener(GerritEventListener listener, String projectPattern, String branchPattern) {
+        synchronized (this) {
+            listenerRouter.add(listener, projectPattern, branchPattern);
+            listenersChanged();
+        }
+    }
+
+    /**
+     * The router of the listeners added with {@link #addListener(GerritEventListener, String, String)}.
+     *
+     * @return the router.
+     */
+    public ListenerRouter getListenerRouter() {
+        return listenerRouter;
+    }
+
+    /**
+     * Adds a listener that is only notified about events of the given class, including subclasses of it.
+     * <p>
+     * Events are looked up by their {@link GerritEventType}, so a listener added here is never called for
+     * events of other types. When neither this nor {@link #addListener(GerritEventListener)} has been used
+     * for a type, events of that type are dropped before they are converted into DTOs,
+     * see {@link #isInterestedIn(GerritEventType)}.
+     *
+     * @param eventClass the class of the events to listen for, for example {@code PatchsetCreated.class}.
+     * @param listener the listener.
+     * @param <E> the type of events.
+     * @throws IllegalArgumentException if no {@link GerritEventType} is represented by the class.
+     */
+    public <E extends GerritEvent> void addListener(Class<E> eventClass, Consumer<? super E> listener) {
+        Set<GerritEventType> types = getEventTypes(eventClass);
+        if (types.isEmpty()) {
+            throw new IllegalArgumentException("No event type is represented by " + eventClass.getName());
+        }
+        TypedListener<E> typedListener = new TypedListener<E>(eventClass, listener);
+        synchronized (this) {
+            Map<GerritEventType, List<TypedListener<?>>> index = copyTypedListeners();
+            for (GerritEventType type : types) {
+                List<TypedListener<?>> list = index.get(type);
+                if (list == null) {
+                    list = new ArrayList<TypedListener<?>>();
+                    index.put(type, list);
+                }
+                list.add(typedListener);
+            }
+            typedListeners = index;
+        }
+    }
+
+    /**
+     * Removes a listener added with {@link #addListener(Class, Consumer)}.
+     *
+     * @param eventClass the class the listener was added for.
+     * @param listener the listener.
+     */
+    public void removeListener(Class<? extends GerritEvent> eventClass, Consumer<?> listener) {
+        synchronized (this) {
+            Map<GerritEventType, List<TypedListener<?>>> index = copyTypedListeners();
+            Iterator<List<TypedListener<?>>> lists = index.values().iterator();
+            while (lists.hasNext()) {
+                List<TypedListener<?>> list = lists.next();
+                Iterator<TypedListener<?>> it = list.iterator();
+                while (it.hasNext()) {
+                    if (it.next().isFor(eventClass, listener)) {
+                        it.remove();
+                    }
+                }
+                if (list.isEmpty()) {
+                    lists.remove();
+                }
+            }
+            typedListeners = index;
+        }
+    }
+
+    /**
+     * The event types with a representative class that is the given class, a subclass or a superclass of it.
+     *
+     * @param eventClass the event class.
+     * @return the event types that events of the class can have.
+     */
+    private static Set<GerritEventType> getEventTypes(Class<? extends GerritEvent> eventClass) {
+        Set<GerritEventType> types = EnumSet.noneOf(GerritEventType.class);
+        for (GerritEventType type : GerritEventType.values()) {
+            Class<?> representative = type.getEventRepresentative();
+            if (eventClass.isAssignableFrom(representative) || representative.isAssignableFrom(eventClass)) {
+                types.add(type);
+            }
+        }
+        return types;
+    }
+
+    /**
+     * A modifiable copy of the index of typed listeners, to be published when done.
+     *
+     * @return the copy.
+     */
+    private Map<GerritEventType, List<TypedListener<?>>> copyTypedListeners() {
+        Map<GerritEventType, List<TypedListener<?>>> copy =
+                new EnumMap<GerritEventType, List<TypedListener<?>>>(GerritEventType.class);
+        for (Map.Entry<GerritEventType, List<TypedListener<?>>> entry : typedListeners.entrySet()) {
+            copy.put(entry.getKey(), new ArrayList<TypedListener<?>>(entry.getValue()));
+        }
+        return copy;
+    }
+
+    /**
+     * Tells if any listener wants events of the given type.
+     * A {@link GerritEventListener} wants all events,
+     * a listener added with {@link #addListener(Class, Consumer)} only those of the types it was added for.
+     *
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean isInterestedIn(GerritEventType type) {
+        return !gerritEventListeners.isEmpty() || typedListeners.containsKey(type) || !batchers.isEmpty()
+                || !listenerRouter.isEmpty();
+    }
+
+    /**
+     * Adds a listener that gets the events in batches, see {@link BatchGerritEventListener}.
+     * A batch is delivered when it has the max number of events, or when its first event has waited the max delay.
+     * Adding a listener again replaces the batch settings, delivering what was gathered first.
+     *
+     * @param listener the listener.
+     * @param maxBatchSize the most events in a batch.
+     * @param maxDelay the longest time an event waits for its batch to be delivered.
+     * @param unit the unit of the max delay.
+     * @return the batcher of the listener, with statistics about what it has delivered.
+     */
+    public EventBatcher addBatchListener(BatchGerritEventListener listener, int maxBatchSize, long maxDelay,
+                                         TimeUnit unit) {
+        //The same lanes as sharded dispatch, so a lane of batches is fed by one lane of workers.
+        EventBatcher batcher = new EventBatcher(listener, maxBatchSize, maxDelay, unit, ShardedDispatcher.LANES);
+        EventBatcher old = batchers.put(listener, batcher);
+        if (old != null) {
+            old.close();
+        }
+        return batcher;
+    }
+
+    /**
+     * Removes a listener added with {@link #addBatchListener(BatchGerritEventListener, int, long, TimeUnit)},
+     * delivering what was gathered for it first.
+     *
+     * @param listener the listener.
+     */
+    public void removeBatchListener(BatchGerritEventListener listener) {
+        EventBatcher batcher = batchers.remove(listener);
+        if (batcher != null) {
+            batcher.close();
+        }
     }
 
     /**
-     * Returns the current queue size of gerrit events.
-     * @return number of events
+     * The batcher of a listener added with {@link #addBatchListener(BatchGerritEventListener, int, long, TimeUnit)}.
+     *
+     * @param listener the listener.
+     * @return the batcher, or null if the listener has not been added.
      */
-    public int getQueueSize() {
-        return executor.getQueue().size();
+    public EventBatcher getEventBatcher(BatchGerritEventListener listener) {
+        return batchers.get(listener);
     }
 
     /**
-     * Post work object to work queue.
+     * Coalesces bursts of events of a type, see {@link #setCoalescing(Set, long, TimeUnit, BinaryOperator)}.
      *
-     * @param work the work object.
+     * @param type the event type.
+     * @param window how long the first event about a change or ref is held, zero or less to stop coalescing.
+     * @param unit the unit of the window.
+     * @param merge picks the event to hold from the held event and the next one, like {@link EventCoalescer#LATEST}.
      */
-    private void post(Work work) {
-        logger.trace("putting work on queue.");
-        queueWork(work);
-        checkQueueSize();
+    public void setCoalescing(GerritEventType type, long window, TimeUnit unit, BinaryOperator<GerritEvent> merge) {
+        setCoalescing(EnumSet.of(type), window, unit, merge);
     }
 
     /**
-     * Helper that will trigger to perform the work
+     * Coalesces bursts of events of a group of types, see {@link EventCoalescer}.
+     * The first event about a change, or a ref, is held for the window and merged with the ones that follow it
+     * about the same change or ref. The result is delivered to all listeners on the worker threads when the window
+     * is over, also to the {@link NonBlockingGerritEventListener}s.
+     * <p>
+     * For example {@code setCoalescing(EnumSet.of(REF_REPLICATED, REF_REPLICATION_DONE), 2, SECONDS, LATEST)}
+     * only delivers the final {@code ref-replication-done} of a ref, and
+     * {@code setCoalescing(PATCHSET_CREATED, 2, SECONDS, LATEST)} only the last patch set of a change
+     * uploaded within two seconds.
      *
+     * @param types the event types, events of different types in the group are merged with each other.
+     * @param window how long the first event about a change or ref is held, zero or less to stop coalescing.
+     * @param unit the unit of the window.
+     * @param merge picks the event to hold from the held event and the next one, like {@link EventCoalescer#LATEST}.
      */
-    private static class EventWorker implements Runnable {
-
-        Work work;
-        Coordinator coordinator;
-
-        /**
-         * creates a new new EventWorker
-         *
-         * @param work the work to do
-         * @param coordinator the coordinator
-         */
-        EventWorker(Work work, Coordinator coordinator) {
-            this.work = work;
-            this.coordinator = coordinator;
-        }
-
-        @Override
-        public void run() {
-            //Check if we want to actually perform any further work on this.
-            if (work instanceof StreamEventsStringWork) {
-                workEvent(((StreamEventsStringWork)work).getLine());
-            } else if (work instanceof JSONEventWork) {
-                logger.debug("JSON project: {}", ((JSONEventWork)work).getJson());
-                workEvent(((JSONEventWork)work).getJson().toString());
-            } else {
-                work.perform(coordinator);
-            }
-        }
-
-        /**
-         * Check String and carry out work if in whitelist.
-         * @param line - string of json to look at
-         */
-        private void workEvent(String line) {
-            logger.debug("Line for project evaluation{},line");
-            String project = getProjectNameFromJsonString(line);
-            logger.debug("Project before filter: {}", project);
-            if (isValidProject(project)) {
-                work.perform(coordinator);
-            } else {
-                logger.debug("Ignoring event from: {}", project);
-            }
-        }
-
-        /**
-         * Checks if project is in hash list or list is empty(default to true)
-         * @param project - project id
-         * @return boolean if project is in
-         */
-        private boolean isValidProject(String project) {
-            // If whitelist is empty, either on purpose or because whitelist file is
-            // missing,
-            // treat everything as valid.
-            if (getWhitelist().isEmpty()) {
-                return true;
+    public synchronized void setCoalescing(Set<GerritEventType> types, long window, TimeUnit unit,
+                                           BinaryOperator<GerritEvent> merge) {
+        EventCoalescer coalescer = eventCoalescer;
+        if (coalescer == null) {
+            if (window <= 0) {
+                return;
             }
-            return getWhitelist().containsKey(project);
-        }
-
-        /**
-        * Helper method to parse Strings of json. Problem is project key might be
-        * nested under another json object, so parsing the json is recursive. This
-        * method should be sub-linear.
-         *
-        * project could be "foo" and could also be "foo/bar". Because of this I added
-        * the logic for nextSeparator and nextQuote. We will only match on the "foo"
-        * value in both of the preceding examples.
-         *
-         * @param data incoming json string from from project
-         * @return the json project string
-         */
-        String getProjectNameFromJsonString(String data) {
-            int indexOf = data.indexOf(PROJECT);
-            if (indexOf >= 0) {
-                indexOf += PROJECT.length();
-                indexOf = data.indexOf(':', indexOf);
-                indexOf = data.indexOf('"', indexOf);
-                indexOf++;
-                int nextSeparator = data.indexOf('/', indexOf);
-                int nextQuote = data.indexOf('"', indexOf);
-                if (nextSeparator > 0 && nextSeparator < nextQuote) {
-                    return data.substring(indexOf, nextSeparator);
+            coalescer = new EventCoalescer(new Consumer<GerritEvent>() {
+                @Override
+                public void accept(GerritEvent event) {
+                    post(new CoalescedEventWork(event));
                 }
-                return data.substring(indexOf, nextQuote);
-            } else {
-                return "";
-            }
+            });
+            eventCoalescer = coalescer;
         }
+        coalescer.setRule(types, window, unit, merge);
     }
 
     /**
-     * puts work in the queue
-     * @param work the work to do
+     * The coalescer of the events, with statistics about what it has held and merged.
+     *
+     * @return the coalescer, or null if {@link #setCoalescing(Set, long, TimeUnit, BinaryOperator)} has not been used.
      */
-    private void queueWork(Work work) {
-        try {
-            logger.debug("Queueing work {}", work);
-            executor.submit(new EventWorker(work, this));
-        } catch (RejectedExecutionException e) {
-            logger.error("Unable to queue a received event! ", e);
-        }
-        checkQueueSize();
+    public EventCoalescer getEventCoalescer() {
+        return eventCoalescer;
     }
 
     /**
-     * Checks queue size.
+     * Drops the events that the de-duplicator has seen before, like after a reconnect or from another replica.
+     *
+     * @param deduplicator the de-duplicator, or null to stop dropping duplicates.
      */
-    private void checkQueueSize() {
-        int queueSize = getQueueSize();
-        if (WORK_QUEUE_SIZE_WARNING_THRESHOLD > 0 && queueSize >= WORK_QUEUE_SIZE_WARNING_THRESHOLD) {
-            logger.warn("The Gerrit incoming events queue contains {} items!"
-                        + " Something might be stuck, or your system can't process the commands fast enough."
-                        + " Try to increase the number of receiving worker threads."
-                        + " Current thread-pool size: {}",
-                    queueSize, executor.getPoolSize());
-        }
+    public void setEventDeduplicator(EventDeduplicator deduplicator) {
+        eventDeduplicator = deduplicator;
     }
 
-    @Override
-    public void addListener(GerritEventListener listener) {
-        synchronized (this) {
-            if (!gerritEventListeners.add(listener)) {
-                logger.warn("The listener was doubly-added: {}", listener);
-            }
-        }
+    /**
+     * The de-duplicator of the events, with the duplicate rates.
+     *
+     * @return the de-duplicator, or null if there is none.
+     */
+    public EventDeduplicator getEventDeduplicator() {
+        return eventDeduplicator;
     }
 
     /**
@@ -441,18 +1627,31 @@ public class GerritHandler implements Coordinator, Handler {
     public void addEventListeners(Collection<? extends GerritEventListener> listeners) {
         synchronized (this) {
             gerritEventListeners.addAll(listeners);
+            listenersChanged();
         }
     }
 
+    /**
+     * Removes a listener, also all the subscriptions it was added with
+     * by {@link #addListener(GerritEventListener, String, String)}.
+     *
+     * {@inheritDoc}
+     */
     @Override
     public void removeListener(GerritEventListener listener) {
         synchronized (this) {
             gerritEventListeners.remove(listener);
+            listenerRouter.remove(listener);
+            listenersChanged();
         }
+        removeListenerMailbox(listener);
+        quarantineMailboxes.remove(listener);
+        listenerStats.remove(listener);
     }
 
     /**
-     * Removes all event listeners and returns those that where removed.
+     * Removes all event listeners and returns those that where removed,
+     * also the ones added with {@link #addListener(GerritEventListener, String, String)}.
      *
      * @return the former list of listeners.
      */
@@ -460,6 +1659,16 @@ public class GerritHandler implements Coordinator, Handler {
         synchronized (this) {
             HashSet<GerritEventListener> listeners = new HashSet<GerritEventListener>(gerritEventListeners);
             gerritEventListeners.clear();
+            for (GerritEventListener listener : listenerRouter.getListeners()) {
+                listeners.add(listener);
+                listenerRouter.remove(listener);
+            }
+            listenersChanged();
+            for (GerritEventListener listener : listeners) {
+                removeListenerMailbox(listener);
+                quarantineMailboxes.remove(listener);
+                listenerStats.remove(listener);
+            }
             return listeners;
         }
     }
@@ -517,7 +1726,10 @@ public class GerritHandler implements Coordinator, Handler {
      */
     public void setThreadKeepAliveTime(int threadKeepAliveTime) {
         this.threadKeepAliveTime = Math.max(MIN_RECEIVE_THREAD_KEEP_ALIVE_TIME, threadKeepAliveTime);
-        executor.setKeepAliveTime(threadKeepAliveTime, TimeUnit.SECONDS);
+        WorkerPool pool = getWorkerPool();
+        if (pool != null) {
+            pool.setKeepAliveTime(threadKeepAliveTime, TimeUnit.SECONDS);
+        }
     }
 
     /**
@@ -529,12 +1741,15 @@ public class GerritHandler implements Coordinator, Handler {
     public BlockingQueue<Work> getWorkQueue() {
 
         BlockingQueue<Work> queue = new LinkedBlockingQueue<Work>();
-        BlockingQueue<Runnable> workQueue = executor.getQueue();
-        for (Runnable r: workQueue) {
-            if (r instanceof EventWorker) {
-                queue.add(((EventWorker)r).work);
+        if (executor instanceof ThreadPoolExecutor) {
+            BlockingQueue<Runnable> executorQueue = ((ThreadPoolExecutor)executor).getQueue();
+            for (Runnable r: executorQueue) {
+                if (r instanceof EventWorker && ((EventWorker)r).work != null) {
+                    queue.add(((EventWorker)r).work);
+                }
             }
         }
+        dispatcher.addPendingWork(queue);
 
         return queue;
     }
@@ -548,52 +1763,193 @@ public class GerritHandler implements Coordinator, Handler {
      */
     @Override
     public void notifyListeners(GerritEvent event) {
-        if (event instanceof CommentAdded) {
-            if (ignoreEvent((CommentAdded)event)) {
-                logger.trace("CommentAdded ignored");
-                return;
+        if (isDuplicate(event) || isCoalesced(event)) {
+            return;
+        }
+        notifyAllListeners(event);
+    }
+
+    /**
+     * Checks if the event has been seen before, see {@link #setEventDeduplicator(EventDeduplicator)}.
+     *
+     * @param event the event.
+     * @return true if it is a duplicate that should be dropped.
+     */
+    private boolean isDuplicate(GerritEvent event) {
+        EventDeduplicator deduplicator = eventDeduplicator;
+        if (deduplicator != null && deduplicator.isDuplicate(event)) {
+            logger.debug("Dropping duplicate event: {}", event);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Hands the event to the coalescer if its type is coalesced, see {@link #setCoalescing(Set, long, TimeUnit,
+     * BinaryOperator)}.
+     *
+     * @param event the event.
+     * @return true if the coalescer took the event, to deliver later.
+     */
+    private boolean isCoalesced(GerritEvent event) {
+        EventCoalescer coalescer = eventCoalescer;
+        return coalescer != null && !isIgnored(event) && coalescer.hold(event);
+    }
+
+    /**
+     * Notifies the listeners of a Gerrit event, the {@link NonBlockingGerritEventListener}s first, then the others.
+     * The listeners added with {@link #addListener(Class, Consumer)} are counted as blocking.
+     *
+     * @param event the event.
+     */
+    private void notifyAllListeners(GerritEvent event) {
+        if (isIgnored(event)) {
+            logger.trace("CommentAdded ignored");
+            return;
+        }
+        List<GerritEventListener> routed = Collections.emptyList();
+        if (!listenerRouter.isEmpty()) {
+            routed = listenerRouter.route(event);
+        }
+        if (hasNonBlockingListeners) {
+            notifyListeners(event, routed, true);
+        }
+        notifyListeners(event, routed, false);
+        List<TypedListener<?>> listeners = typedListeners.get(event.getEventType());
+        if (!batchers.isEmpty()) {
+            String orderingKey = ShardedDispatcher.getOrderingKey(event);
+            for (EventBatcher batcher : batchers.values()) {
+                batcher.add(orderingKey, event);
+            }
+        }
+        if (listeners != null) {
+            for (TypedListener<?> listener : listeners) {
+                try {
+                    listener.deliver(event);
+                } catch (Exception ex) {
+                    logger.error("When notifying listener: {} about event: {}", listener, event);
+                    logger.error("Notify-error: ", ex);
+                }
             }
         }
+    }
+
+    /**
+     * Notifies the {@link NonBlockingGerritEventListener}s, or the other listeners, of a Gerrit event.
+     *
+     * @param event the event.
+     * @param routed the listeners routed the event, see {@link ListenerRouter#route(GerritEvent)}.
+     * @param nonBlocking true for the non-blocking listeners, false for the others.
+     */
+    private void notifyListeners(GerritEvent event, List<GerritEventListener> routed, boolean nonBlocking) {
         for (GerritEventListener listener : gerritEventListeners) {
-            try {
-                notifyListener(listener, event);
-            } catch (Exception ex) {
-                logger.error("When notifying listener: {} about event: {}", listener, event);
-                logger.error("Notify-error: ", ex);
+            notifyListener(listener, event, nonBlocking);
+        }
+        if (!routed.isEmpty()) {
+            Set<GerritEventListener> notified = routedAndGlobal;
+            for (GerritEventListener listener : routed) {
+                if (!notified.contains(listener)) {
+                    notifyListener(listener, event, nonBlocking);
+                }
+            }
+        }
+    }
+
+    /**
+     * Notifies a listener of a Gerrit event, right away or through its mailbox,
+     * if it is one of the kind of listeners to notify.
+     *
+     * @param listener the listener.
+     * @param event the event.
+     * @param nonBlocking true to notify the listener only if it is a {@link NonBlockingGerritEventListener},
+     *                    false only if it is not.
+     */
+    private void notifyListener(GerritEventListener listener, GerritEvent event, boolean nonBlocking) {
+        if (listener instanceof NonBlockingGerritEventListener != nonBlocking) {
+            return;
+        }
+        try {
+            ListenerMailbox mailbox = getMailbox(listener);
+            if (mailbox != null) {
+                postToMailbox(mailbox, listener, event);
+                return;
+            }
+            notifyListener(listener, event);
+        } catch (Exception ex) {
+            logger.error("When notifying listener: {} about event: {}", listener, event);
+            logger.error("Notify-error: ", ex);
+        }
+    }
+
+    /**
+     * The mailbox of a listener, a new one if mailbox mode is on and the listener has none.
+     *
+     * @param listener the listener.
+     * @return the mailbox, or null if the listener is to be notified right away.
+     */
+    private ListenerMailbox getMailbox(GerritEventListener listener) {
+        ListenerMailbox mailbox = mailboxes.get(listener);
+        if (mailbox == null && listenerMailboxes) {
+            ListenerMailbox created = new ListenerMailbox(String.valueOf(listener), DEFAULT_MAILBOX_CAPACITY,
+                    ListenerMailbox.OverflowPolicy.BLOCK, false);
+            mailbox = mailboxes.putIfAbsent(listener, created);
+            if (mailbox == null) {
+                mailbox = created;
+            } else {
+                created.close();
             }
         }
+        return mailbox;
+    }
+
+    /**
+     * Puts the notification of a listener about an event in the mailbox of the listener.
+     *
+     * @param mailbox the mailbox.
+     * @param listener the listener.
+     * @param event the event.
+     */
+    private void postToMailbox(ListenerMailbox mailbox, final GerritEventListener listener, final GerritEvent event) {
+        mailbox.post(new Runnable() {
+            @Override
+            public void run() {
+                notifyListener(listener, event);
+            }
+        });
     }
 
     /**
      * Sub method of {@link #notifyListeners(com.sonymobile.tools.gerrit.gerritevents.dto.GerritEvent) }.
-     * This is where most of the reflection magic in the event notification is done.
+     * The most specific {@code gerritEvent} method of the listener is resolved once per listener class and
+     * event class by the {@link ListenerDispatchCache}, see {@link GerritEventListener}.
      *
      * @param listener the listener to notify
      * @param event    the event.
      */
     private void notifyListener(GerritEventListener listener, GerritEvent event) {
         logger.trace("Notifying listener {} of event {}", listener, event);
+        long start = System.nanoTime();
         try {
-            logger.trace("Reflecting closest method");
-            Method method = listener.getClass().getMethod("gerritEvent", event.getClass());
-            method.invoke(listener, event);
-        } catch (IllegalAccessException ex) {
-            logger.debug("Not allowed to invoke the reflected method. Calling default.", ex);
-            listener.gerritEvent(event);
-        } catch (IllegalArgumentException ex) {
-            logger.debug("Not allowed to invoke the reflected method with specified parameter (REFLECTION BUG). "
-               + "Calling default.", ex);
-            listener.gerritEvent(event);
-        } catch (InvocationTargetException ex) {
+            dispatchCache.invoke(listener, event);
+        } catch (Exception ex) {
             logger.error("When notifying listener: {} about event: {}", listener, event);
             logger.error("Exception thrown during event handling.", ex);
-        } catch (NoSuchMethodException ex) {
-            logger.debug("No appropriate method found during reflection. Calling default.", ex);
-            listener.gerritEvent(event);
-        } catch (SecurityException ex) {
-            logger.debug("Not allowed to reflect/invoke a method on this listener (DESIGN BUG). Calling default", ex);
-            listener.gerritEvent(event);
         }
+        ListenerStats stats = getStats(listener);
+        int overBudgetInARow = stats.record(System.nanoTime() - start);
+        if (LISTENER_QUARANTINE_THRESHOLD > 0 && overBudgetInARow >= LISTENER_QUARANTINE_THRESHOLD) {
+            quarantine(listener, stats);
+        }
+    }
+
+    /**
+     * Checks if the event is a comment by an ignored e-mail address.
+     *
+     * @param event the event to check.
+     * @return true if it should be ignored.
+     */
+    private boolean isIgnored(GerritEvent event) {
+        return event instanceof CommentAdded && ignoreEvent((CommentAdded)event);
     }
 
     /**
@@ -606,14 +1962,20 @@ public class GerritHandler implements Coordinator, Handler {
         if (account == null) {
             return false;
         }
+        return isIgnoredEMail(account.getEmail(), event.getProvider());
+    }
 
-        String accountEmail = account.getEmail();
+    /**
+     * Checks if CommentAdded events from the e-mail address should be ignored for the provider.
+     * @param accountEmail the e-mail address of the account that triggered the event.
+     * @param provider the Gerrit server info.
+     * @return true if it should be ignored, false if not.
+     */
+    private boolean isIgnoredEMail(String accountEmail, Provider provider) {
         if (StringUtils.isEmpty(accountEmail)) {
             return false;
         }
-
-        Provider provider = event.getProvider();
-        if (provider != null) {
+        if (provider != null && provider.getName() != null) {
             String ignoreEMail = ignoreEMails.get(provider.getName());
             if (StringUtils.isNotEmpty(ignoreEMail) && accountEmail.endsWith(ignoreEMail)) {
                 return true;
@@ -623,13 +1985,68 @@ public class GerritHandler implements Coordinator, Handler {
     }
 
     /**
-     * Closes the handler.
+     * Closes the handler. An executor given with {@link #setExecutor(ExecutorService)} is left running.
+     * <p>
+     * When joining, the events spilled to disk by the receive queue are read back and worked on first.
+     * If not, they are deleted and counted in {@link ReceiveQueue#getDiscarded()}.
      *
      * @param join if the method should wait for the thread to finish before returning.
      */
     public void shutdown(boolean join) {
-        ThreadPoolExecutor pool = executor;
+        watchProjectFilter(null);
+        WorkerPoolAutoscaler autoscaler = workerAutoscaler;
+        workerAutoscaler = null;
+        if (autoscaler != null) {
+            autoscaler.close();
+        }
+        EventDispatcher current = dispatcher;
+        dispatcher = getWorkerDispatcher(current);
+        EventCoalescer coalescer = eventCoalescer;
+        if (coalescer != null) {
+            //Queues the held events before the worker threads stop taking work.
+            coalescer.close();
+        }
+        //Before the worker threads, that the ingest pipeline hands its events to.
+        current.close(join);
+        ReceiveQueue queue = receiveQueue;
+        if (queue != null) {
+            queue.close();
+            if (join) {
+                drainSpilled(queue);
+            }
+            queue.discardSpilled();
+        }
+        ExecutorService pool = executor;
         executor = null;
+        if (ownsExecutor) {
+            shutdownExecutor(pool, join);
+        }
+        closeMailboxes(join);
+        for (EventBatcher batcher : batchers.values()) {
+            batcher.close();
+        }
+    }
+
+    /**
+     * Hands the events spilled to disk to the worker threads as there is room for them, until there are none left
+     * or the worker threads stop making room.
+     *
+     * @param queue the closed receive queue.
+     */
+    private void drainSpilled(ReceiveQueue queue) {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(WAIT_FOR_JOBS_SHUTDOWN_TIMEOUT);
+        do {
+            refill(queue);
+        } while (queue.awaitRoomToRefill() && System.nanoTime() < deadline);
+    }
+
+    /**
+     * Shuts down the executor the handler created.
+     *
+     * @param pool the executor.
+     * @param join if the method should wait for the running work to finish before returning.
+     */
+    private static void shutdownExecutor(ExecutorService pool, boolean join) {
         pool.shutdown(); // Disable new tasks from being submitted
         if (join) {
             try {
@@ -650,6 +2067,32 @@ public class GerritHandler implements Coordinator, Handler {
         }
     }
 
+    /**
+     * Closes the mailboxes of the listeners, after the worker threads are done with them if joining.
+     *
+     * @param join if the method should wait for the events in the mailboxes to be delivered.
+     */
+    private void closeMailboxes(boolean join) {
+        List<ListenerMailbox> closed = new ArrayList<ListenerMailbox>(mailboxes.values());
+        mailboxes.clear();
+        quarantineMailboxes.clear();
+        for (ListenerMailbox mailbox : closed) {
+            mailbox.close();
+        }
+        if (!join) {
+            return;
+        }
+        try {
+            for (ListenerMailbox mailbox : closed) {
+                if (!mailbox.awaitClose(WAIT_FOR_JOBS_SHUTDOWN_TIMEOUT, TimeUnit.SECONDS)) {
+                    logger.error("Mailbox did not finish: {}", mailbox);
+                }
+            }
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
     /**
      * "Triggers" an event by adding it to the internal queue and be taken by one of the worker threads. This way it
      * will be put into the normal flow of events as if it was coming from the stream-events command.
@@ -662,55 +2105,160 @@ public class GerritHandler implements Coordinator, Handler {
     }
 
     /**
-     * Schedule whitelist read from system property.
+     * Watches the project filter file named by the system property {@code gerrit.whitelist.location},
+     * see {@link #watchProjectFilter(Path)}.
      */
     public void scheduleGerritWhitelistRead() {
         scheduleGerritWhitelistRead(System.getProperty(whitelistLocation));
     }
 
     /**
-     * schedules update of list from provided string.
-     * @param location - location of file to read whitelist from.
+     * Watches a project filter file, see {@link #watchProjectFilter(Path)}.
+     * @param location - location of file to read the project filter from.
      */
     public void scheduleGerritWhitelistRead(String location) {
         if (StringUtils.isEmpty(location)) {
             logger.info("config file for whitelist not found; will not filter events for processing");
             return;
         }
+        watchProjectFilter(Paths.get(location));
+    }
 
-        final Runnable whitelistReader = new Runnable() {
-            @Override
-            public void run() {
-                String fileName = location;
-                logger.debug("reading config file");
-                HashMap<String, Object> newWhitelist = new HashMap<>();
-                try (BufferedReader in = new BufferedReader(new FileReader(fileName))) {
-                    String readLine = in.readLine();
-                    while (StringUtils.isNotEmpty(readLine)) {
-                        logger.debug("whitelisting: {}", readLine);
-                        newWhitelist.put(readLine, null);
-                        readLine = in.readLine();
-                    }
-                    // overwrite whitelist last in case reading the file fails for some reason.
-                    whitelist = newWhitelist;
-                } catch (FileNotFoundException ex) {
-                    logger.error("Exception thrown during whitelist file read. File does not exist", ex);
-                } catch (IOException ex) {
-                    logger.error("Exception thrown during whitelist file read.", ex);
-                }
-            }
-        };
+    /**
+     * Reads the project filter of this handler from a file, see {@link ProjectFilter} for the rules,
+     * and reads it again within moments of the file changing. The file is also read every
+     * {@code gerrit.whitelist.timeout} minutes, 30 by default, in case the file system does not report changes.
+     * A file that can not be read is logged and the filter read before is kept.
+     *
+     * @param file the file, or null to stop watching.
+     */
+    public synchronized void watchProjectFilter(Path file) {
+        if (projectFilterWatcher != null) {
+            projectFilterWatcher.close();
+            projectFilterWatcher = null;
+        }
+        if (file == null) {
+            return;
+        }
         String whitelistTimeoutString = System.getProperty(whitelistTimeout);
         if (StringUtils.isEmpty(whitelistTimeoutString)) {
             whitelistTimeoutString = whitelistTimeoutDefault;
         }
-        whitelistScheduler.scheduleAtFixedRate(whitelistReader, 0, Integer.parseInt(whitelistTimeoutString), MINUTES);
+        long period = MINUTES.toMillis(Integer.parseInt(whitelistTimeoutString));
+        ProjectFilterWatcher watcher = new ProjectFilterWatcher(file, period, new Consumer<ProjectFilter>() {
+            @Override
+            public void accept(ProjectFilter filter) {
+                setProjectFilter(filter);
+                lastReadProjectFilter = filter;
+            }
+        });
+        watcher.start();
+        projectFilterWatcher = watcher;
+    }
+
+    /**
+     * Sets the filter on the projects this handler lets events through for.
+     * The filter is checked before the events are parsed.
+     *
+     * @param filter the filter, null to let all events through.
+     */
+    public void setProjectFilter(ProjectFilter filter) {
+        if (filter == null) {
+            projectFilter = ProjectFilter.ACCEPT_ALL;
+        } else {
+            projectFilter = filter;
+        }
+    }
+
+    /**
+     * Sets the rules for dropping events before they are parsed, on top of the project filter,
+     * see {@link EventFilter} for the rules.
+     *
+     * @param filter the filter, null to drop nothing.
+     */
+    public void setEventFilter(EventFilter filter) {
+        eventFilter = filter;
+    }
+
+    /**
+     * The rules for dropping events before they are parsed, with the number of events each rule has dropped.
+     *
+     * @return the filter, or null if none has been set.
+     */
+    public EventFilter getEventFilter() {
+        return eventFilter;
     }
 
     /**
-     * @return the whitelist
+     * The filter on the projects this handler lets events through for.
+     *
+     * @return the filter, {@link ProjectFilter#ACCEPT_ALL} if none has been set.
+     */
+    public ProjectFilter getProjectFilter() {
+        return projectFilter;
+    }
+
+    /**
+     * The rules of the project filter file read last by any handler in this JVM, as a whitelist.
+     * Changes to the returned map have no effect.
+     *
+     * @return the rules as keys, empty if no file has been read.
+     * @deprecated the project filter belongs to each handler, use {@link #getProjectFilter()} instead.
      */
+    @Deprecated
     public static HashMap<String, Object> getWhitelist() {
+        HashMap<String, Object> whitelist = new HashMap<String, Object>();
+        for (String rule : lastReadProjectFilter.getRules()) {
+            whitelist.put(rule, null);
+        }
         return whitelist;
     }
+
+    /**
+     * A listener added with {@link #addListener(Class, Consumer)}.
+     *
+     * @param <E> the type of events.
+     */
+    private static final class TypedListener<E extends GerritEvent> {
+        private final Class<E> eventClass;
+        private final Consumer<? super E> listener;
+
+        /**
+         * Standard constructor.
+         *
+         * @param eventClass the class of the events to listen for.
+         * @param listener the listener.
+         */
+        TypedListener(Class<E> eventClass, Consumer<? super E> listener) {
+            this.eventClass = eventClass;
+            this.listener = listener;
+        }
+
+        /**
+         * Passes the event on to the listener if it is of the class the listener was added for.
+         *
+         * @param event the event.
+         */
+        void deliver(GerritEvent event) {
+            if (eventClass.isInstance(event)) {
+                listener.accept(eventClass.cast(event));
+            }
+        }
+
+        /**
+         * If this is the given listener added for the given class.
+         *
+         * @param otherClass the class.
+         * @param otherListener the listener.
+         * @return true if so.
+         */
+        boolean isFor(Class<?> otherClass, Object otherListener) {
+            return eventClass.equals(otherClass) && listener.equals(otherListener);
+        }
+
+        @Override
+        public String toString() {
+            return listener + " (" + eventClass.getName() + ")";
+        }
+    }
 }
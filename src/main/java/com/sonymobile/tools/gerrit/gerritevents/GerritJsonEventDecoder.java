@@ -0,0 +1,259 @@
+/*
+ *  The MIT License
+ *
+ *  Copyright 2026 Sony Mobile Communications Inc. All rights reserved.
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+package com.sonymobile.tools.gerrit.gerritevents;
+
+import com.google.gson.JsonParser;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.sonymobile.tools.gerrit.gerritevents.dto.GerritJsonDTO;
+import com.sonymobile.tools.gerrit.gerritevents.dto.GerritJsonEvent;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decodes stream-events lines straight into the event DTOs with a streaming {@link JsonReader},
+ * without building a JSON tree first.
+ * <p>
+ * The DTOs of this library read themselves with {@link GerritJsonDTO#fromJson(JsonReader)}, using the
+ * value helpers in this class that convert values the same way as the helpers in {@link GerritJsonEventFactory}
+ * do for {@link net.sf.json.JSONObject}s.
+ */
+public final class GerritJsonEventDecoder {
+
+    private static final Logger logger = LoggerFactory.getLogger(GerritJsonEventDecoder.class);
+
+    /**
+     * Empty private Constructor to hinder instantiation.
+     */
+    private GerritJsonEventDecoder() {
+        //Empty
+    }
+
+    /**
+     * Decodes a UTF-8 encoded stream-events line if it is interesting and usable.
+     *
+     * @param data the line.
+     * @return the event, or null if it is not interesting, not usable or not valid.
+     * @see GerritJsonEventFactory#isInterestingType(String)
+     */
+    public static GerritJsonEvent decode(byte[] data) {
+        if (data == null) {
+            return null;
+        }
+        return decode(EventHeader.scan(data).getType(), data);
+    }
+
+    /**
+     * Decodes a stream-events line if it is interesting and usable.
+     *
+     * @param line the line.
+     * @return the event, or null if it is not interesting, not usable or not valid.
+     * @see GerritJsonEventFactory#isInterestingType(String)
+     */
+    public static GerritJsonEvent decode(String line) {
+        if (line == null) {
+            return null;
+        }
+        return decode(EventHeader.scan(line).getType(), new StringReader(line));
+    }
+
+    /**
+     * Decodes a UTF-8 encoded stream-events line of a known type.
+     *
+     * @param typeValue the type of the event, as found by {@link EventHeader}.
+     * @param data the line.
+     * @return the event, or null if it is not interesting, not usable or not valid.
+     */
+    public static GerritJsonEvent decode(String typeValue, byte[] data) {
+        if (data == null) {
+            return null;
+        }
+        //Cheaper than an InputStreamReader for lines this short, it allocates an 8k buffer per line.
+        return decode(typeValue, new StringReader(new String(data, StandardCharsets.UTF_8)));
+    }
+
+    /**
+     * Decodes a stream-events event of a known type,
+     * into an event created by the factory registered for the type.
+     *
+     * @param typeValue the type of the event, as found by {@link EventHeader}.
+     * @param in the JSON text.
+     * @return the event, or null if it is not interesting, not usable or not valid.
+     * @see GerritJsonEventFactory#registerEventFactory(String, java.util.function.Supplier)
+     */
+    public static GerritJsonEvent decode(String typeValue, Reader in) {
+        if (!GerritJsonEventFactory.isInterestingType(typeValue)) {
+            logger.debug("Not an interesting and usable event type: {}", typeValue);
+            return null;
+        }
+        try {
+            GerritJsonEvent event = GerritJsonEventFactory.createEvent(typeValue);
+            JsonReader reader = new JsonReader(in);
+            reader.setLenient(true);
+            event.fromJson(reader);
+            logger.debug("Returning an event: {}", event);
+            return event;
+        } catch (IOException | RuntimeException ex) {
+            logger.warn("Unanticipated error when decoding JSON String", ex);
+        }
+        return null;
+    }
+
+    /**
+     * Consumes a null value if that is what comes next.
+     *
+     * @param reader the reader.
+     * @return true if a null was consumed.
+     * @throws IOException if the JSON is broken.
+     */
+    public static boolean nextIsNull(JsonReader reader) throws IOException {
+        if (reader.peek() == JsonToken.NULL) {
+            reader.nextNull();
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Reads the next value as a String,
+     * like {@link GerritJsonEventFactory#getString(net.sf.json.JSONObject, String)}.
+     * Numbers and booleans are returned as they are written, objects and arrays as JSON text.
+     *
+     * @param reader the reader.
+     * @return the value, or null for a null value.
+     * @throws IOException if the JSON is broken.
+     */
+    public static String nextString(JsonReader reader) throws IOException {
+        switch (reader.peek()) {
+            case NULL:
+                reader.nextNull();
+                return null;
+            case BOOLEAN:
+                return String.valueOf(reader.nextBoolean());
+            case BEGIN_OBJECT:
+            case BEGIN_ARRAY:
+                return JsonParser.parseReader(reader).toString();
+            default:
+                return reader.nextString();
+        }
+    }
+
+    /**
+     * Reads the next value as a boolean,
+     * like {@link GerritJsonEventFactory#getBoolean(net.sf.json.JSONObject, String, boolean)}.
+     *
+     * @param reader the reader.
+     * @param defaultValue the value to return if it is not a boolean.
+     * @return the value.
+     * @throws IOException if the JSON is broken.
+     */
+    public static boolean nextBoolean(JsonReader reader, boolean defaultValue) throws IOException {
+        JsonToken token = reader.peek();
+        if (token == JsonToken.BOOLEAN) {
+            return reader.nextBoolean();
+        } else if (token == JsonToken.STRING) {
+            String value = reader.nextString();
+            if ("true".equalsIgnoreCase(value)) {
+                return true;
+            } else if ("false".equalsIgnoreCase(value)) {
+                return false;
+            }
+            return defaultValue;
+        }
+        reader.skipValue();
+        return defaultValue;
+    }
+
+    /**
+     * Reads the next value as a Date in seconds since the epoch,
+     * like {@link GerritJsonEventFactory#getDate(net.sf.json.JSONObject, String)}.
+     *
+     * @param reader the reader.
+     * @return the value, or null if it is not a number of seconds.
+     * @throws IOException if the JSON is broken.
+     */
+    public static Date nextDate(JsonReader reader) throws IOException {
+        String secondsString = nextString(reader);
+        if (secondsString == null) {
+            return null;
+        }
+        try {
+            //In gerrit, time is written in seconds, not milliseconds.
+            return new Date(TimeUnit.SECONDS.toMillis(Long.parseLong(secondsString)));
+        } catch (NumberFormatException nfe) {
+            return null;
+        }
+    }
+
+    /**
+     * Reads the next value, an array, as a list of Strings. Null elements are left out.
+     *
+     * @param reader the reader.
+     * @return the list, or null for a null value.
+     * @throws IOException if the JSON is broken.
+     */
+    public static List<String> nextStringList(JsonReader reader) throws IOException {
+        if (nextIsNull(reader)) {
+            return null;
+        }
+        List<String> list = new ArrayList<String>();
+        reader.beginArray();
+        while (reader.hasNext()) {
+            //A lenient reader reports a trailing comma as a null element, json-lib ignores it.
+            String value = nextString(reader);
+            if (value != null) {
+                list.add(value);
+            }
+        }
+        reader.endArray();
+        return list;
+    }
+
+    /**
+     * Reads the next value, an object, into the DTO.
+     *
+     * @param reader the reader.
+     * @param dto the DTO to fill.
+     * @param <T> the type of DTO.
+     * @return the DTO, or null for a null value.
+     * @throws IOException if the JSON is broken.
+     */
+    public static <T extends GerritJsonDTO> T nextObject(JsonReader reader, T dto) throws IOException {
+        if (nextIsNull(reader)) {
+            return null;
+        }
+        dto.fromJson(reader);
+        return dto;
+    }
+}
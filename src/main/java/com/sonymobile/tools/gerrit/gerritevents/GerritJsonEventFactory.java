@@ -25,10 +25,12 @@ package com.sonymobile.tools.gerrit.gerritevents;
 
 import com.sonymobile.tools.gerrit.gerritevents.dto.GerritEventType;
 import com.sonymobile.tools.gerrit.gerritevents.dto.GerritJsonEvent;
-import java.lang.reflect.Constructor;
-import java.lang.reflect.InvocationTargetException;
 import java.util.Date;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
 
 import net.sf.json.JSONException;
 import net.sf.json.JSONObject;
@@ -43,6 +45,16 @@ import org.slf4j.LoggerFactory;
 public final class GerritJsonEventFactory {
 
     private static final Logger logger = LoggerFactory.getLogger(GerritJsonEventFactory.class);
+    private static final ConcurrentMap<String, Supplier<? extends GerritJsonEvent>> EVENT_FACTORIES =
+            new ConcurrentHashMap<String, Supplier<? extends GerritJsonEvent>>();
+
+    static {
+        for (GerritEventType type : GerritEventType.values()) {
+            if (type.getEventFactory() != null) {
+                EVENT_FACTORIES.put(type.getTypeValue(), type.getEventFactory());
+            }
+        }
+    }
 
     /**
      * Empty private Constructor to hinder instantiation.
@@ -51,46 +63,101 @@ public final class GerritJsonEventFactory {
         //Empty
     }
 
+    /**
+     * Registers the factory to create events of a type with, so that events of that type are decoded and
+     * passed on to listeners. Replaces any factory already registered for the type, built in types included.
+     * @param typeValue the value of the type property in the JSON object, case is ignored.
+     * @param factory creates empty events, that are then filled with {@link GerritJsonEvent#fromJson(JSONObject)}
+     *                or {@link GerritJsonEvent#fromJson(com.google.gson.stream.JsonReader)}.
+     */
+    public static void registerEventFactory(String typeValue, Supplier<? extends GerritJsonEvent> factory) {
+        if (typeValue == null || factory == null) {
+            throw new IllegalArgumentException("Both the type and the factory are needed.");
+        }
+        EVENT_FACTORIES.put(typeValue.toLowerCase(Locale.ENGLISH), factory);
+    }
+
+    /**
+     * Removes the factory registered for a type.
+     * For the types in {@link GerritEventType} the built in factory is restored.
+     * @param typeValue the value of the type property in the JSON object, case is ignored.
+     */
+    public static void unregisterEventFactory(String typeValue) {
+        if (typeValue == null) {
+            return;
+        }
+        GerritEventType type = GerritEventType.findByTypeValue(typeValue);
+        if (type != null && type.getEventFactory() != null) {
+            EVENT_FACTORIES.put(type.getTypeValue(), type.getEventFactory());
+        } else {
+            EVENT_FACTORIES.remove(typeValue.toLowerCase(Locale.ENGLISH));
+        }
+    }
+
+    /**
+     * Gets the factory registered for a type.
+     * @param typeValue the value of the type property in the JSON object, case is ignored.
+     * @return the factory, or null if there is none.
+     */
+    public static Supplier<? extends GerritJsonEvent> getEventFactory(String typeValue) {
+        if (typeValue == null) {
+            return null;
+        }
+        Supplier<? extends GerritJsonEvent> factory = EVENT_FACTORIES.get(typeValue);
+        if (factory == null) {
+            factory = EVENT_FACTORIES.get(typeValue.toLowerCase(Locale.ENGLISH));
+        }
+        return factory;
+    }
+
+    /**
+     * Check if events of the type are interesting and usable.
+     * They are usable if a factory is registered for the type, see {@link #registerEventFactory(String, Supplier)}.
+     * The types in {@link GerritEventType} must also be {@link GerritEventType#isInteresting()} to be interesting.
+     * @param typeValue the value of the type property in the JSON object.
+     * @return true if interesting and usable.
+     */
+    public static boolean isInterestingType(String typeValue) {
+        if (getEventFactory(typeValue) == null) {
+            return false;
+        }
+        GerritEventType type = GerritEventType.findByTypeValue(typeValue);
+        return type == null || type.isInteresting();
+    }
+
+    /**
+     * Creates an empty event of the type with the registered factory.
+     * @param typeValue the value of the type property in the JSON object.
+     * @return the event, or null if there is no factory for the type.
+     */
+    public static GerritJsonEvent createEvent(String typeValue) {
+        Supplier<? extends GerritJsonEvent> factory = getEventFactory(typeValue);
+        if (factory == null) {
+            return null;
+        }
+        return factory.get();
+    }
+
     /**
      * Creates a GerritJsonEvent DTO out of the provided JSONObject.
      * The jsonObject is assumed to be interesting and usable
      * as defined by {@link #getJsonObjectIfInterestingAndUsable(java.lang.String) }
      * @param jsonObject the parsed JSON Object
-     * @return the POJO DTO representation of the jsonObject.
+     * @return the POJO DTO representation of the jsonObject, or null if it could not be created.
      */
     public static GerritJsonEvent getEvent(JSONObject jsonObject) {
-
-        GerritEventType type = GerritEventType.findByTypeValue(jsonObject.getString("type"));
-        //the type has already been verified by the method that gets the JSONObject,
-        //so any NullPointerExceptions or similar problems are the caller's own fault.
-        Class<? extends GerritJsonEvent> clazz = type.getEventRepresentative();
+        String typeValue = getString(jsonObject, "type");
         GerritJsonEvent event = null;
         try {
-            logger.debug("Interesting event with a class defined. Searching shorthand constructor.");
-            Constructor<? extends GerritJsonEvent> constructor = clazz.getConstructor(JSONObject.class);
-            event = constructor.newInstance(jsonObject);
-            logger.trace("Event created from shorthand constructor.");
-        } catch (NoSuchMethodException ex) {
-            logger.debug("Constructor with JSONObject as parameter missing, trying default constructor.", ex);
-        } catch (Exception ex) {
-            logger.debug("Error when using event constructor with JSONObject, trying default constructor.", ex);
-        }
-        if (event == null) {
-            logger.debug("Trying default constructor.");
-            try {
-                event = clazz.getDeclaredConstructor().newInstance();
-                event.fromJson(jsonObject);
-                logger.trace("Event created from default constructor");
-            } catch (InstantiationException
-                | IllegalAccessException
-                | IllegalArgumentException
-                | InvocationTargetException
-                | NoSuchMethodException
-                | SecurityException
-                ex) {
-                logger.error("Could not create an interesting GerritJsonEvent via default constructor "
-                        + "(DESIGN ERROR).", ex);
+            event = createEvent(typeValue);
+            if (event == null) {
+                logger.error("No event factory registered for type {}.", typeValue);
+                return null;
             }
+            event.fromJson(jsonObject);
+        } catch (RuntimeException ex) {
+            logger.error("Could not create an interesting GerritJsonEvent of type {}.", typeValue, ex);
+            return null;
         }
         logger.debug("Returning an event: {}", event);
         return event;
@@ -113,11 +180,11 @@ public final class GerritJsonEventFactory {
      * If it is interesting is determined by:
      * <ol>
      *  <li>The object contains a String field named type</li>
-     *  <li>The String returns a non null GerritEventType from
-     *      {@link GerritEventType#findByTypeValue(java.lang.String) }</li>
-     *  <li>The property {@link GerritEventType#isInteresting() } == true</li>
+     *  <li>If the String returns a GerritEventType from
+     *      {@link GerritEventType#findByTypeValue(java.lang.String) },
+     *      the property {@link GerritEventType#isInteresting() } == true</li>
      * </ol>
-     * It is usable if the type's {@link GerritEventType#getEventRepresentative() } is not null.
+     * It is usable if a factory is registered for the type, see {@link #registerEventFactory(String, Supplier)}.
      * @param jsonString the string to parse.
      * @return an interesting and usable JSONObject, or null if it is not.
      */
@@ -152,11 +219,11 @@ public final class GerritJsonEventFactory {
      * Check if it is interesting and usable. If it is interesting is determined by:
      * <ol>
      *  <li>The object contains a String field named type</li>
-     *  <li>The String returns a non null GerritEventType from
-     *      {@link GerritEventType#findByTypeValue(java.lang.String) }</li>
-     *  <li>The property {@link GerritEventType#isInteresting() } == true</li>
+     *  <li>If the String returns a GerritEventType from
+     *      {@link GerritEventType#findByTypeValue(java.lang.String) },
+     *      the property {@link GerritEventType#isInteresting() } == true</li>
      * </ol>
-     * It is usable if the type's {@link GerritEventType#getEventRepresentative() } is not null.
+     * It is usable if a factory is registered for the type, see {@link #registerEventFactory(String, Supplier)}.
      * @param json the string to parse.
      * @return true if an interesting and usable JSONObject.
      */
@@ -165,9 +232,9 @@ public final class GerritJsonEventFactory {
             if (json != null) {
                 if (json.get("type") != null) {
                     logger.trace("It has a type");
-                    GerritEventType type = GerritEventType.findByTypeValue(json.getString("type"));
+                    String type = json.getString("type");
                     logger.debug("Type found: {}", type);
-                    if (type != null && type.isInteresting() && type.getEventRepresentative() != null) {
+                    if (isInterestingType(type)) {
                         logger.debug("It is interesting and usable.");
                         return true;
                     }
@@ -179,6 +246,21 @@ public final class GerritJsonEventFactory {
         return false;
     }
 
+    /**
+     * Check if events of the type are interesting and usable.
+     * It is interesting if {@link GerritEventType#isInteresting() } == true
+     * and usable if a factory is registered for it, see {@link #registerEventFactory(String, Supplier)}.
+     * @param type the type of event, or null if it is unknown.
+     * @return true if interesting and usable.
+     */
+    public static boolean isInterestingAndUsable(GerritEventType type) {
+        if (type != null && type.isInteresting() && getEventFactory(type.getTypeValue()) != null) {
+            logger.debug("It is interesting and usable.");
+            return true;
+        }
+        return false;
+    }
+
     /**
      * Tries to parse the provided string into a GerritJsonEvent DTO if it is interesting and usable.
      * @param jsonString the JSON formatted string.
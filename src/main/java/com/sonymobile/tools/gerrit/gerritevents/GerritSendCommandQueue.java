@@ -35,6 +35,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 import java.util.concurrent.LinkedBlockingQueue;
@@ -53,7 +54,8 @@ public final class GerritSendCommandQueue {
 
     private static final Logger logger = LoggerFactory.getLogger(GerritSendCommandQueue.class);
     private static GerritSendCommandQueue instance;
-    private ThreadPoolExecutor executor = null;
+    private ExecutorService executor = null;
+    private boolean ownsExecutor = true;
     private static final String THREAD_PREFIX = "Gerrit-send-command-thread-";
     private static final int THREAD_KEEP_ALIVE_TIME = 20;
     /**
@@ -62,6 +64,11 @@ public final class GerritSendCommandQueue {
     public static final int SEND_QUEUE_SIZE_WARNING_THRESHOLD =
             Integer.getInteger("gerritevents.GerritSendCommandQueue.SEND_QUEUE_SIZE_WARNING_THRESHOLD", 20);
     private static final int WAIT_FOR_JOBS_SHUTDOWN_TIMEOUT = 30;
+    /**
+     * If the sending threads should be virtual threads, when the Java version supports it.
+     */
+    private static final boolean VIRTUAL_THREADS =
+            Boolean.getBoolean("gerritevents.GerritSendCommandQueue.VIRTUAL_THREADS");
 
     /**
      * Private Default constructor.
@@ -121,12 +128,12 @@ public final class GerritSendCommandQueue {
     /**
      * Returns the current queue size.
      *
-     * @return the queue size,
+     * @return the queue size, 0 if the executor does not tell.
      * @see java.util.concurrent.ThreadPoolExecutor#getQueue()
      */
     public static int getQueueSize() {
         if (instance != null && instance.executor != null) {
-            return instance.executor.getQueue().size();
+            return WorkerExecutors.getQueuedTasks(instance.executor);
         } else {
             return 0;
         }
@@ -178,9 +185,8 @@ public final class GerritSendCommandQueue {
             logger.warn("The Gerrit send commands queue contains {} items!"
                     + " Something might be stuck, or your system can't process the commands fast enough."
                     + " Try to increase the number of sending worker threads."
-                    + " Current thread-pool size: {}",
-                    queueSize, executor.getPoolSize());
-            logger.info("Nr of active pool-threads: {}", executor.getActiveCount());
+                    + " Current thread-pool: {}",
+                    queueSize, executor);
         }
     }
 
@@ -190,9 +196,16 @@ public final class GerritSendCommandQueue {
      * @param config the config with the pool-size.
      */
     protected void startQueue(GerritWorkersConfig config) {
-        if (executor == null) {
+        if (executor == null && VIRTUAL_THREADS && WorkerExecutors.isVirtualThreadsSupported()) {
+            executor = WorkerExecutors.newVirtualThreadPerTaskExecutor(THREAD_PREFIX);
+            ownsExecutor = true;
+            logger.info("SendQueue started on virtual threads!");
+        } else if (executor == null) {
+            if (VIRTUAL_THREADS) {
+                logger.warn("Virtual threads need Java 21 or later, using a pool of sending threads.");
+            }
             logger.debug("Starting the sending thread pool.");
-            executor = new ThreadPoolExecutor(
+            ThreadPoolExecutor pool = new ThreadPoolExecutor(
                     config.getNumberOfSendingWorkerThreads(),
                     config.getNumberOfSendingWorkerThreads(),
                     THREAD_KEEP_ALIVE_TIME, TimeUnit.MINUTES,
@@ -208,23 +221,28 @@ public final class GerritSendCommandQueue {
                           return t;
                         }
                       });
-            executor.allowCoreThreadTimeOut(true);
+            pool.allowCoreThreadTimeOut(true);
             //Start with one thread, and build it up gradually as it needs.
-            executor.prestartCoreThread();
-            logger.info("SendQueue started! Current pool size: {}", executor.getPoolSize());
-        } else {
-            if (executor.getCorePoolSize() < config.getNumberOfSendingWorkerThreads()) {
+            pool.prestartCoreThread();
+            executor = pool;
+            ownsExecutor = true;
+            logger.info("SendQueue started! Current pool size: {}", pool.getPoolSize());
+        } else if (ownsExecutor && executor instanceof ThreadPoolExecutor) {
+            ThreadPoolExecutor pool = (ThreadPoolExecutor)executor;
+            if (pool.getCorePoolSize() < config.getNumberOfSendingWorkerThreads()) {
                 //If the number has increased we need to set the max first, or we'll get an IllegalArgumentException
-                executor.setMaximumPoolSize(config.getNumberOfSendingWorkerThreads());
-                executor.setCorePoolSize(config.getNumberOfSendingWorkerThreads());
-            } else if (executor.getCorePoolSize() > config.getNumberOfSendingWorkerThreads()) {
+                pool.setMaximumPoolSize(config.getNumberOfSendingWorkerThreads());
+                pool.setCorePoolSize(config.getNumberOfSendingWorkerThreads());
+            } else if (pool.getCorePoolSize() > config.getNumberOfSendingWorkerThreads()) {
                 //If the number has decreased we need to set the core first.
-                executor.setCorePoolSize(config.getNumberOfSendingWorkerThreads());
-                executor.setMaximumPoolSize(config.getNumberOfSendingWorkerThreads());
+                pool.setCorePoolSize(config.getNumberOfSendingWorkerThreads());
+                pool.setMaximumPoolSize(config.getNumberOfSendingWorkerThreads());
             }
             logger.debug("SendQueue running. Current pool size: {}. Current Queue size: {}",
-                    executor.getPoolSize(), getQueueSize());
-            logger.debug("Nr of active pool-threads: {}", executor.getActiveCount());
+                    pool.getPoolSize(), getQueueSize());
+            logger.debug("Nr of active pool-threads: {}", pool.getActiveCount());
+        } else {
+            logger.debug("SendQueue running on {}. Current Queue size: {}", executor, getQueueSize());
         }
     }
 
@@ -240,6 +258,38 @@ public final class GerritSendCommandQueue {
         getInstance().startQueue(config);
     }
 
+    /**
+     * Initializes the singleton instance to send the commands on an executor,
+     * e.g. virtual threads from {@link WorkerExecutors#newVirtualThreadPerTaskExecutor(String)}.
+     * <p>
+     * The executor belongs to the caller, {@link #shutdown()} does not shut it down, and the number of sending
+     * worker threads in the config does nothing for it. Commands already queued in the previous executor are
+     * still sent by it. Virtual threads can also be turned on with the system property
+     * {@code gerritevents.GerritSendCommandQueue.VIRTUAL_THREADS}.
+     *
+     * @param config the configuration.
+     * @param executorService the executor, null for a pool of sending threads of the queue.
+     */
+    public static synchronized void initialize(GerritWorkersConfig config, ExecutorService executorService) {
+        if (instance == null) {
+            instance = new GerritSendCommandQueue();
+        }
+        GerritSendCommandQueue queue = getInstance();
+        if (executorService == null) {
+            if (!queue.ownsExecutor) {
+                queue.executor = null;
+            }
+        } else {
+            ExecutorService old = queue.executor;
+            if (queue.ownsExecutor && old != null) {
+                old.shutdown();
+            }
+            queue.executor = executorService;
+            queue.ownsExecutor = false;
+        }
+        queue.startQueue(config);
+    }
+
     /**
      * Reconfigures the instance.
      *
@@ -252,12 +302,16 @@ public final class GerritSendCommandQueue {
     /**
      * Shuts down the executor(s).
      * Gracefully waits for {@link #WAIT_FOR_JOBS_SHUTDOWN_TIMEOUT} seconds for all jobs to finish
-     * before forcefully shutting them down.
+     * before forcefully shutting them down. An executor given to
+     * {@link #initialize(GerritWorkersConfig, ExecutorService)} is left running.
      */
     public static void shutdown() {
         if (instance != null && instance.executor != null) {
-            ThreadPoolExecutor pool = instance.executor;
+            ExecutorService pool = instance.executor;
             instance.executor = null;
+            if (!instance.ownsExecutor) {
+                return;
+            }
             pool.shutdown(); // Disable new tasks from being submitted
             try {
                 // Wait a while for existing tasks to terminate
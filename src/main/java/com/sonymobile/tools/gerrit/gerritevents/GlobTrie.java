@@ -0,0 +1,299 @@
+/*
+ *  The MIT License
+ *
+ *  Copyright 2026 Sony Mobile Communications Inc. All rights reserved.
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+package com.sonymobile.tools.gerrit.gerritevents;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Globs compiled into one trie, with the wildcards as loops, that is walked over a name following all the paths
+ * the wildcards allow at the same time.
+ * <p>
+ * {@code *} matches any characters but {@code /}, {@code **} any characters and {@code ?} one character but
+ * {@code /}. A glob matches the whole name. Each glob ends in a node that holds the values it was added with,
+ * so a walk finds all the globs that match a name in time in the length of the name, not in the number of globs.
+ * <p>
+ * The trie is not thread safe while globs are added, walking it is.
+ *
+ * @param <T> the type of the values.
+ * @see ProjectFilter
+ * @see ListenerRouter
+ */
+final class GlobTrie<T> {
+
+    /**
+     * The character that {@code *} and {@code ?} do not match.
+     */
+    static final char SEPARATOR = '/';
+    /**
+     * The character that no wildcard matches, to join the globs of more than one name, like a project and a branch.
+     */
+    static final char BARRIER = '\0';
+
+    private final Node<T> root = new Node<T>(0);
+    private int nodes = 1;
+
+    /**
+     * The node the trie starts from.
+     *
+     * @return the root.
+     */
+    Node<T> getRoot() {
+        return root;
+    }
+
+    /**
+     * Adds a glob.
+     *
+     * @param glob the glob.
+     * @param value the value to find when the glob matches.
+     */
+    void add(String glob, T value) {
+        add(root, glob).values.add(value);
+    }
+
+    /**
+     * Adds a glob after a node.
+     *
+     * @param start the node to add it after.
+     * @param glob the glob.
+     * @return the node at the end of the glob.
+     */
+    Node<T> add(Node<T> start, String glob) {
+        Node<T> node = start;
+        int i = 0;
+        while (i < glob.length()) {
+            char c = glob.charAt(i);
+            if (c == '*') {
+                if (i + 1 < glob.length() && glob.charAt(i + 1) == '*') {
+                    node = loop(node, Node.LOOP_ANY);
+                    i++;
+                } else {
+                    node = loop(node, Node.LOOP_SEGMENT);
+                }
+            } else if (c == '?') {
+                if (node.anyChar == null) {
+                    node.anyChar = new Node<T>(nodes++);
+                }
+                node = node.anyChar;
+            } else {
+                node = child(node, c);
+            }
+            i++;
+        }
+        return node;
+    }
+
+    /**
+     * The child of a node for a character, a new one if there is none.
+     *
+     * @param node the node.
+     * @param c the character.
+     * @return the child.
+     */
+    Node<T> child(Node<T> node, char c) {
+        Node<T> child = node.children.get(c);
+        if (child == null) {
+            child = new Node<T>(nodes++);
+            node.children.put(c, child);
+        }
+        return child;
+    }
+
+    /**
+     * The loop node for a wildcard after a node, a new one if there is none.
+     *
+     * @param node the node.
+     * @param kind {@link Node#LOOP_SEGMENT} or {@link Node#LOOP_ANY}.
+     * @return the loop node.
+     */
+    private Node<T> loop(Node<T> node, int kind) {
+        if (node.loopKind == kind) {
+            //A wildcard right after the same wildcard adds nothing.
+            return node;
+        }
+        if (kind == Node.LOOP_ANY) {
+            if (node.anyLoop == null) {
+                node.anyLoop = new Node<T>(nodes++);
+                node.anyLoop.loopKind = Node.LOOP_ANY;
+            }
+            return node.anyLoop;
+        }
+        if (node.segmentLoop == null) {
+            node.segmentLoop = new Node<T>(nodes++);
+            node.segmentLoop.loopKind = Node.LOOP_SEGMENT;
+        }
+        return node.segmentLoop;
+    }
+
+    /**
+     * The nodes a walk starts in.
+     *
+     * @return the nodes.
+     */
+    Set<Node<T>> start() {
+        Set<Node<T>> states = new HashSet<Node<T>>();
+        enter(states, root);
+        return states;
+    }
+
+    /**
+     * The nodes a walk is in after a character.
+     *
+     * @param states the nodes before the character.
+     * @param c the character.
+     * @param <T> the type of the values.
+     * @return the nodes after it, empty if no glob can match any more.
+     */
+    static <T> Set<Node<T>> step(Collection<Node<T>> states, char c) {
+        Set<Node<T>> next = new HashSet<Node<T>>();
+        step(states, c, next);
+        return next;
+    }
+
+    /**
+     * Adds the nodes a walk is in after a character to a collection.
+     *
+     * @param states the nodes before the character.
+     * @param c the character.
+     * @param next the nodes after it.
+     * @param <T> the type of the values.
+     */
+    private static <T> void step(Collection<Node<T>> states, char c, Collection<Node<T>> next) {
+        for (Node<T> node : states) {
+            Node<T> child = node.children.get(c);
+            if (child != null) {
+                enter(next, child);
+            }
+            if (c != SEPARATOR && c != BARRIER) {
+                if (node.anyChar != null) {
+                    enter(next, node.anyChar);
+                }
+                if (node.loopKind == Node.LOOP_SEGMENT) {
+                    enter(next, node);
+                }
+            }
+            if (node.loopKind == Node.LOOP_ANY && c != BARRIER) {
+                enter(next, node);
+            }
+        }
+    }
+
+    /**
+     * Checks if any glob matches a name.
+     * The few nodes a walk is in at a time are kept in lists, that are cheaper than sets at that size.
+     *
+     * @param name the name.
+     * @return true if so.
+     */
+    boolean matches(String name) {
+        List<Node<T>> states = new ArrayList<Node<T>>();
+        List<Node<T>> next = new ArrayList<Node<T>>();
+        enter(states, root);
+        for (int i = 0; i < name.length() && !states.isEmpty(); i++) {
+            next.clear();
+            step(states, name.charAt(i), next);
+            List<Node<T>> swap = states;
+            states = next;
+            next = swap;
+        }
+        for (Node<T> node : states) {
+            if (!node.values.isEmpty()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Adds a node to the nodes a walk is in, and the loops that can match nothing after it.
+     *
+     * @param states the nodes.
+     * @param node the node.
+     * @param <T> the type of the values.
+     */
+    private static <T> void enter(Collection<Node<T>> states, Node<T> node) {
+        if (states.contains(node)) {
+            return;
+        }
+        states.add(node);
+        if (node.segmentLoop != null) {
+            enter(states, node.segmentLoop);
+        }
+        if (node.anyLoop != null) {
+            enter(states, node.anyLoop);
+        }
+    }
+
+    /**
+     * A node in the trie.
+     *
+     * @param <T> the type of the values.
+     */
+    static final class Node<T> {
+        static final int LOOP_NONE = 0;
+        static final int LOOP_SEGMENT = 1;
+        static final int LOOP_ANY = 2;
+
+        private final int id;
+        private final Map<Character, Node<T>> children = new HashMap<Character, Node<T>>();
+        private final List<T> values = new ArrayList<T>();
+        private Node<T> anyChar;
+        private Node<T> segmentLoop;
+        private Node<T> anyLoop;
+        private int loopKind = LOOP_NONE;
+
+        /**
+         * Standard constructor.
+         *
+         * @param id the id of the node, unique in the trie.
+         */
+        Node(int id) {
+            this.id = id;
+        }
+
+        /**
+         * The id of the node, unique in the trie.
+         *
+         * @return the id.
+         */
+        int getId() {
+            return id;
+        }
+
+        /**
+         * The values of the globs that end in this node.
+         *
+         * @return the values, that can be changed.
+         */
+        List<T> getValues() {
+            return values;
+        }
+    }
+}
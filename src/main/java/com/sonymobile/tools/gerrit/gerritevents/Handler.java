@@ -27,6 +27,8 @@ import net.sf.json.JSONObject;
 import com.sonymobile.tools.gerrit.gerritevents.dto.GerritEvent;
 import com.sonymobile.tools.gerrit.gerritevents.dto.attr.Provider;
 
+import java.nio.charset.StandardCharsets;
+
 /**
  * A handler to deliver gerrit events and connection ones to listener.
  *
@@ -48,6 +50,17 @@ public interface Handler {
      * @param provider the Gerrit server info.
      */
     void post(String data, Provider provider);
+    /**
+     * Post a raw line to working queue without decoding it first.
+     * The array is handed over to the handler and must not be updated by the caller afterwards.
+     * The default implementation decodes the line and calls {@link #post(String, Provider)}.
+     *
+     * @param data a UTF-8 encoded line of text from the stream-events stream of events.
+     * @param provider the Gerrit server info.
+     */
+    default void post(byte[] data, Provider provider) {
+        post(new String(data, StandardCharsets.UTF_8), provider);
+    }
     /**
      * Post json object to working queue.
      * Note that you must not update objects passed to this method.
@@ -0,0 +1,661 @@
+/*
+ *  The MIT License
+ *
+ *  Copyright 2026 Sony Mobile Communications Inc. All rights reserved.
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+package com.sonymobile.tools.gerrit.gerritevents;
+
+import com.sonymobile.tools.gerrit.gerritevents.dto.GerritEvent;
+import com.sonymobile.tools.gerrit.gerritevents.dto.attr.Canonicalizer;
+import com.sonymobile.tools.gerrit.gerritevents.dto.attr.Provider;
+import com.sonymobile.tools.gerrit.gerritevents.dto.events.GerritTriggeredEvent;
+import com.sonymobile.tools.gerrit.gerritevents.workers.GerritEventWork;
+import com.sonymobile.tools.gerrit.gerritevents.workers.JSONEventWork;
+import com.sonymobile.tools.gerrit.gerritevents.workers.StreamEventsStringWork;
+import com.sonymobile.tools.gerrit.gerritevents.workers.Work;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Filters and parses the events dispatched by a {@link GerritHandler} in stages over a preallocated ring of slots,
+ * before they are handed to the worker threads.
+ * <p>
+ * Dispatching an event claims the next slot in the ring and fills it in.
+ * Each stage has a thread of its own that follows the stage before it around the ring:
+ * <ol>
+ *     <li>frame, scans the line for the properties of the event, see {@link EventHeader},</li>
+ *     <li>filter, drops the events the handler would ignore, before they are parsed,</li>
+ *     <li>parse, decodes the line into the event,</li>
+ *     <li>dispatch, hands the parsed event on to the downstream {@link EventDispatcher}.</li>
+ * </ol>
+ * A stage takes all the slots the stage before it is done with as one batch,
+ * and waits with the {@link WaitStrategy} of the pipeline when there are none.
+ * Dispatching waits the same way when the ring is full, until the dispatch stage has caught up.
+ * <p>
+ * The events stay in the receive queue of the handler until a worker thread notifies the listeners about them,
+ * so the receive queue budget, the event type priorities and sharded dispatch work the same with or without
+ * the pipeline.
+ *
+ * @see GerritHandler#setIngestPipeline(int, WaitStrategy)
+ */
+public final class IngestPipeline implements EventDispatcher {
+
+    /**
+     * How the threads of the pipeline wait for each other.
+     */
+    public enum WaitStrategy {
+        /**
+         * Spin, for the lowest latency at the cost of a busy core for each stage.
+         */
+        BUSY_SPIN,
+        /**
+         * Spin for a while and then yield the core to other threads.
+         */
+        YIELDING,
+        /**
+         * Spin, yield and then sleep a little at a time.
+         */
+        SLEEPING,
+        /**
+         * Spin for a while and then block until woken up.
+         */
+        BLOCKING
+    }
+
+    /**
+     * If the handlers should start with a pipeline.
+     */
+    static final boolean ENABLED = Boolean.getBoolean("gerritevents.GerritHandler.INGEST_PIPELINE");
+    /**
+     * The default number of slots in the ring, a power of two.
+     */
+    static final int DEFAULT_RING_SIZE = Integer.getInteger("gerritevents.GerritHandler.INGEST_RING_SIZE", 4096);
+    /**
+     * How the threads of the pipeline wait for each other by default.
+     */
+    static final WaitStrategy DEFAULT_WAIT_STRATEGY =
+            WaitStrategy.valueOf(System.getProperty("gerritevents.GerritHandler.INGEST_WAIT_STRATEGY", "BLOCKING"));
+
+    private static final Logger logger = LoggerFactory.getLogger(IngestPipeline.class);
+    private static final String THREAD_PREFIX = "Gerrit Ingest ";
+    private static final int SPIN_TRIES = 100;
+    private static final int YIELD_TRIES = 100;
+    private static final long SLEEP_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+    private static final long BLOCK_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+    private static final int CLOSE_TIMEOUT = 30;
+
+    private final GerritHandler handler;
+    private final WaitStrategy waitStrategy;
+    private final EventDispatcher downstream;
+    private final Slot[] ring;
+    private final int mask;
+    private final AtomicLong claimed = new AtomicLong(-1);
+    private final AtomicInteger publishers = new AtomicInteger();
+    private final Stage[] stages;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition advanced = lock.newCondition();
+    private final AtomicInteger waiters = new AtomicInteger();
+    private volatile boolean running = true;
+    private volatile boolean closed = false;
+
+    /**
+     * Creates the pipeline and starts the threads of the stages.
+     *
+     * @param handler the handler to filter the events for.
+     * @param ringSize the number of slots in the ring, a power of two.
+     * @param waitStrategy how the threads wait for each other.
+     * @param threadFactory the factory of the threads of the stages.
+     * @param downstream what the parsed events are handed on to.
+     */
+    IngestPipeline(GerritHandler handler, int ringSize, WaitStrategy waitStrategy, ThreadFactory threadFactory,
+                   EventDispatcher downstream) {
+        if (ringSize <= 0 || Integer.bitCount(ringSize) != 1) {
+            throw new IllegalArgumentException("The ring size must be a power of two: " + ringSize);
+        }
+        this.handler = handler;
+        this.waitStrategy = waitStrategy;
+        this.downstream = downstream;
+        ring = new Slot[ringSize];
+        for (int i = 0; i < ringSize; i++) {
+            ring[i] = new Slot();
+        }
+        mask = ringSize - 1;
+        Stage frame = new Stage("frame", new Barrier() {
+            @Override
+            public long getAvailable(long next) {
+                long sequence = next;
+                while (ring[(int)(sequence & mask)].published == sequence) {
+                    sequence++;
+                }
+                return sequence - 1;
+            }
+
+            @Override
+            public boolean isFinished() {
+                return closed;
+            }
+        }) {
+            @Override
+            void process(Slot slot) {
+                frame(slot);
+            }
+        };
+        Stage filter = new Stage("filter", frame) {
+            @Override
+            void process(Slot slot) {
+                if (slot.header != null && !handler.isAccepted(slot.header, slot.provider)) {
+                    slot.dropped = true;
+                }
+            }
+        };
+        Stage parse = new Stage("parse", filter) {
+            @Override
+            void process(Slot slot) {
+                parse(slot);
+            }
+        };
+        Stage dispatch = new Stage("dispatch", parse) {
+            @Override
+            void process(Slot slot) {
+                downstream.dispatch(slot.worker);
+            }
+        };
+        stages = new Stage[]{frame, filter, parse, dispatch};
+        for (Stage stage : stages) {
+            stage.thread = threadFactory.newThread(stage);
+            stage.thread.setName(THREAD_PREFIX + stage.stats.getName());
+            stage.thread.setDaemon(true);
+        }
+        for (Stage stage : stages) {
+            stage.thread.start();
+        }
+    }
+
+    /**
+     * Finds the properties of the event of a slot, unless it is parsed already.
+     *
+     * @param slot the slot.
+     */
+    private void frame(Slot slot) {
+        Work work = slot.worker.work;
+        if (work instanceof StreamEventsStringWork) {
+            StreamEventsStringWork stringWork = (StreamEventsStringWork)work;
+            slot.header = stringWork.getHeader();
+            slot.provider = stringWork.getProvider();
+            slot.receivedOn = stringWork.createdOn();
+        } else if (work instanceof JSONEventWork) {
+            JSONEventWork jsonWork = (JSONEventWork)work;
+            slot.header = jsonWork.getHeader();
+            slot.provider = jsonWork.getProvider();
+            slot.receivedOn = jsonWork.createdOn();
+        } else if (work == null) {
+            //Dropped from the receive queue.
+            slot.dropped = true;
+        }
+    }
+
+    /**
+     * Decodes the line or JSON object of a slot into the event,
+     * that the worker threads then notify the listeners about.
+     *
+     * @param slot the slot.
+     */
+    private void parse(Slot slot) {
+        if (slot.header == null) {
+            return;
+        }
+        Work work = slot.worker.work;
+        GerritEvent event = null;
+        boolean sharing = Canonicalizer.setSharing(handler.isSharingAccounts());
+        try {
+            if (work instanceof StreamEventsStringWork) {
+                StreamEventsStringWork stringWork = (StreamEventsStringWork)work;
+                if (stringWork.getBytes() != null) {
+                    event = GerritJsonEventDecoder.decode(slot.header.getType(), stringWork.getBytes());
+                } else {
+                    event = GerritJsonEventDecoder.decode(slot.header.getType(),
+                            new StringReader(stringWork.getLine()));
+                }
+            } else if (work instanceof JSONEventWork
+                    && GerritJsonEventFactory.isInterestingAndUsable(((JSONEventWork)work).getJson())) {
+                event = GerritJsonEventFactory.getEvent(((JSONEventWork)work).getJson());
+            }
+        } finally {
+            Canonicalizer.setSharing(sharing);
+        }
+        if (event == null) {
+            logger.debug("No event extracted!");
+            slot.dropped = true;
+            return;
+        }
+        if (event instanceof GerritTriggeredEvent) {
+            GerritTriggeredEvent gerritTriggeredEvent = (GerritTriggeredEvent)event;
+            gerritTriggeredEvent.setProvider(slot.provider);
+            gerritTriggeredEvent.setReceivedOn(slot.receivedOn);
+        }
+        slot.worker.work = new GerritEventWork(event);
+    }
+
+    @Override
+    public void dispatch(GerritHandler.EventWorker worker) {
+        if (!publish(worker)) {
+            downstream.dispatch(worker);
+        }
+    }
+
+    /**
+     * Puts an event in the next slot of the ring, waiting for a free slot if the ring is full.
+     *
+     * @param worker the event.
+     * @return true if posted, false if the pipeline is closed or the caller is a thread of the pipeline.
+     */
+    boolean publish(GerritHandler.EventWorker worker) {
+        if (isStageThread()) {
+            //The receive queue hands its spilled events back on the thread that makes room for them.
+            return false;
+        }
+        publishers.incrementAndGet();
+        try {
+            if (!running) {
+                return false;
+            }
+            long sequence = claimed.incrementAndGet();
+            long wrapPoint = sequence - ring.length;
+            Stage last = stages[stages.length - 1];
+            int idleCount = 0;
+            while (last.getAvailable(wrapPoint) < wrapPoint) {
+                idleCount = idle(idleCount, last, wrapPoint);
+            }
+            Slot slot = ring[(int)(sequence & mask)];
+            slot.worker = worker;
+            slot.provider = null;
+            slot.header = null;
+            slot.dropped = false;
+            slot.postedNanos = System.nanoTime();
+            slot.published = sequence;
+            signal();
+            return true;
+        } finally {
+            publishers.decrementAndGet();
+        }
+    }
+
+
+    /**
+     * If the current thread is the thread of one of the stages.
+     *
+     * @return true if so.
+     */
+    private boolean isStageThread() {
+        Thread current = Thread.currentThread();
+        for (Stage stage : stages) {
+            if (stage.thread == current) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Waits a little, the longer the more times it has waited already.
+     *
+     * @param idleCount the number of times waited already.
+     * @param barrier what is waited for.
+     * @param target the sequence that should be available.
+     * @return the number of times waited, including this time.
+     */
+    private int idle(int idleCount, Barrier barrier, long target) {
+        if (waitStrategy == WaitStrategy.BUSY_SPIN || idleCount < SPIN_TRIES) {
+            Thread.onSpinWait();
+        } else if (waitStrategy == WaitStrategy.YIELDING
+                || (waitStrategy == WaitStrategy.SLEEPING && idleCount < SPIN_TRIES + YIELD_TRIES)) {
+            Thread.yield();
+        } else if (waitStrategy == WaitStrategy.SLEEPING) {
+            LockSupport.parkNanos(SLEEP_NANOS);
+        } else {
+            block(barrier, target);
+        }
+        if (idleCount < SPIN_TRIES + YIELD_TRIES) {
+            return idleCount + 1;
+        }
+        return idleCount;
+    }
+
+    /**
+     * Blocks until woken up by {@link #signal()}, unless the target is available already.
+     *
+     * @param barrier what is waited for.
+     * @param target the sequence that should be available.
+     */
+    private void block(Barrier barrier, long target) {
+        lock.lock();
+        waiters.incrementAndGet();
+        try {
+            if (barrier.getAvailable(target) < target && !barrier.isFinished()) {
+                advanced.awaitNanos(BLOCK_NANOS);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            waiters.decrementAndGet();
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Wakes up the blocked threads, after a slot is published or a stage has moved on.
+     */
+    private void signal() {
+        if (waiters.get() > 0) {
+            lock.lock();
+            try {
+                advanced.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Stops taking new events. The stages finish the events already posted and then stop.
+     */
+    void close() {
+        running = false;
+        while (publishers.get() > 0) {
+            Thread.yield();
+        }
+        closed = true;
+        lock.lock();
+        try {
+            advanced.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Waits for the stages of a closed pipeline to finish the events that were posted.
+     *
+     * @param timeout the longest time to wait.
+     * @param unit the unit of the timeout.
+     * @return true if all were finished.
+     * @throws InterruptedException if interrupted while waiting.
+     */
+    boolean awaitClose(long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        for (Stage stage : stages) {
+            if (stage.thread == Thread.currentThread()) {
+                continue;
+            }
+            long remaining = deadline - System.nanoTime();
+            if (remaining > 0) {
+                TimeUnit.NANOSECONDS.timedJoin(stage.thread, remaining);
+            }
+            if (stage.thread.isAlive()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public void close(boolean join) {
+        close();
+        if (!join) {
+            return;
+        }
+        try {
+            if (!awaitClose(CLOSE_TIMEOUT, TimeUnit.SECONDS)) {
+                logger.error("Ingest pipeline did not finish: {}", this);
+            }
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public int getBacklog(int queuedTasks) {
+        return getBacklog() + downstream.getBacklog(queuedTasks);
+    }
+
+    @Override
+    public void addPendingWork(Collection<Work> works) {
+        for (long s = stages[stages.length - 1].sequence + 1; s <= claimed.get(); s++) {
+            Slot slot = ring[(int)(s & mask)];
+            GerritHandler.EventWorker worker = null;
+            if (slot.published == s) {
+                worker = slot.worker;
+            }
+            if (worker != null && worker.work != null) {
+                works.add(worker.work);
+            }
+        }
+        downstream.addPendingWork(works);
+    }
+
+    /**
+     * What the parsed events are handed on to.
+     *
+     * @return the downstream dispatcher.
+     */
+    EventDispatcher getDownstream() {
+        return downstream;
+    }
+
+    /**
+     * The number of slots in the ring, the most events that can be in the pipeline at the same time.
+     *
+     * @return the number of slots.
+     */
+    public int getCapacity() {
+        return ring.length;
+    }
+
+    /**
+     * How the threads of the pipeline wait for each other.
+     *
+     * @return the wait strategy.
+     */
+    public WaitStrategy getWaitStrategy() {
+        return waitStrategy;
+    }
+
+    /**
+     * The number of events posted that the dispatch stage is not done with yet.
+     *
+     * @return the number of events.
+     */
+    public int getBacklog() {
+        return (int)Math.max(0, claimed.get() - stages[stages.length - 1].sequence);
+    }
+
+    /**
+     * What the stages have done, in the order of the stages.
+     *
+     * @return the stats of the frame, filter, parse and dispatch stages.
+     */
+    public List<IngestStageStats> getStageStats() {
+        List<IngestStageStats> stats = new ArrayList<IngestStageStats>(stages.length);
+        for (Stage stage : stages) {
+            stats.add(stage.stats);
+        }
+        return Collections.unmodifiableList(stats);
+    }
+
+    @Override
+    public String toString() {
+        return "IngestPipeline{backlog=" + getBacklog() + "/" + ring.length + ", waitStrategy=" + waitStrategy
+                + ", stages=" + getStageStats() + "}";
+    }
+
+    /**
+     * A slot in the ring, reused for every event that goes around.
+     */
+    private static final class Slot {
+        private volatile long published = -1;
+        private GerritHandler.EventWorker worker;
+        private Provider provider;
+        private EventHeader header;
+        private boolean dropped;
+        private long receivedOn;
+        private long postedNanos;
+
+        /**
+         * Lets go of the event, once the last stage is done with it.
+         */
+        void clear() {
+            worker = null;
+            provider = null;
+            header = null;
+        }
+    }
+
+
+    /**
+     * What a thread of the pipeline waits for.
+     */
+    private interface Barrier {
+        /**
+         * The last sequence that is available.
+         *
+         * @param next the next sequence the caller wants.
+         * @return the last available sequence, less than next if next is not available yet.
+         */
+        long getAvailable(long next);
+
+        /**
+         * If no more sequences will become available.
+         *
+         * @return true if finished.
+         */
+        boolean isFinished();
+    }
+
+    /**
+     * A stage of the pipeline, with a thread of its own.
+     */
+    private abstract class Stage implements Runnable, Barrier {
+        private final Barrier upstream;
+        private final IngestStageStats stats;
+        private volatile long sequence = -1;
+        private volatile boolean finished = false;
+        private Thread thread;
+
+        /**
+         * Standard constructor.
+         *
+         * @param name the name of the stage.
+         * @param upstream what the stage waits for, the stage before it.
+         */
+        Stage(String name, Barrier upstream) {
+            this.upstream = upstream;
+            this.stats = new IngestStageStats(name);
+        }
+
+        /**
+         * Works on the event in a slot.
+         *
+         * @param slot the slot.
+         */
+        abstract void process(Slot slot);
+
+        @Override
+        public long getAvailable(long next) {
+            return sequence;
+        }
+
+        @Override
+        public boolean isFinished() {
+            return finished;
+        }
+
+        @Override
+        public void run() {
+            boolean last = this == stages[stages.length - 1];
+            long next = 0;
+            int idleCount = 0;
+            while (true) {
+                long available = upstream.getAvailable(next);
+                if (available < next) {
+                    if (upstream.isFinished() && upstream.getAvailable(next) < next) {
+                        break;
+                    }
+                    idleCount = idle(idleCount, upstream, next);
+                    continue;
+                }
+                idleCount = 0;
+                long start = System.nanoTime();
+                for (long s = next; s <= available; s++) {
+                    Slot slot = ring[(int)(s & mask)];
+                    if (!slot.dropped) {
+                        processSafely(slot);
+                    }
+                    if (last && slot.dropped) {
+                        //Makes room in the receive queue for the events that are not handed on.
+                        slot.worker.claim();
+                    }
+                }
+                long end = System.nanoTime();
+                for (long s = next; s <= available; s++) {
+                    Slot slot = ring[(int)(s & mask)];
+                    stats.recordLatency(end - slot.postedNanos);
+                    if (last) {
+                        slot.clear();
+                    }
+                }
+                stats.recordBatch((int)(available - next + 1), end - start);
+                sequence = available;
+                signal();
+                next = available + 1;
+            }
+            finished = true;
+            signal();
+            logger.debug("Ingest stage {} stopped.", stats.getName());
+        }
+
+        /**
+         * Works on the event in a slot, dropping it if that fails.
+         *
+         * @param slot the slot.
+         */
+        private void processSafely(Slot slot) {
+            try {
+                process(slot);
+            } catch (RuntimeException e) {
+                logger.error("Unexpected error in the {} stage", stats.getName(), e);
+                slot.dropped = true;
+            }
+        }
+    }
+}
@@ -0,0 +1,160 @@
+/*
+ *  The MIT License
+ *
+ *  Copyright 2026 Sony Mobile Communications Inc. All rights reserved.
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+package com.sonymobile.tools.gerrit.gerritevents;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * What one stage of an {@link IngestPipeline} has done: the events and batches it worked on, the time it spent
+ * on them and how long after they were posted it was done with them.
+ *
+ * @see IngestPipeline#getStageStats()
+ */
+public final class IngestStageStats {
+
+    private final String name;
+    private final AtomicLongArray latencies = ListenerStats.newHistogram();
+    private final LongAdder events = new LongAdder();
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder busyNanos = new LongAdder();
+
+    /**
+     * Standard constructor.
+     *
+     * @param name the name of the stage.
+     */
+    IngestStageStats(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Records one batch of events.
+     *
+     * @param size the number of events in the batch.
+     * @param nanos the time it took to work on the batch.
+     */
+    void recordBatch(int size, long nanos) {
+        events.add(size);
+        batches.increment();
+        busyNanos.add(nanos);
+    }
+
+    /**
+     * Records the time from when an event was posted until the stage was done with it.
+     *
+     * @param nanos the time.
+     */
+    void recordLatency(long nanos) {
+        latencies.incrementAndGet(ListenerStats.bucketOf(Math.max(0, nanos)));
+    }
+
+    /**
+     * The name of the stage.
+     *
+     * @return the name.
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * The number of events the stage has worked on.
+     *
+     * @return the number of events.
+     */
+    public long getEvents() {
+        return events.sum();
+    }
+
+    /**
+     * The number of batches the stage has worked on.
+     *
+     * @return the number of batches.
+     */
+    public long getBatches() {
+        return batches.sum();
+    }
+
+    /**
+     * The mean number of events the stage took at a time.
+     *
+     * @return the mean batch size, 0 if there were none.
+     */
+    public double getMeanBatchSize() {
+        long count = batches.sum();
+        if (count == 0) {
+            return 0;
+        }
+        return events.sum() / (double)count;
+    }
+
+    /**
+     * The time the stage has spent working on events, as opposed to waiting for them.
+     *
+     * @return the time in nanoseconds.
+     */
+    public long getBusyNanos() {
+        return busyNanos.sum();
+    }
+
+    /**
+     * A percentile of the times from when the events were posted until the stage was done with them.
+     *
+     * @param percentile the percentile, between 0 and 100.
+     * @return the time in nanoseconds, 0 if there were no events.
+     */
+    public long getLatencyPercentileNanos(double percentile) {
+        return ListenerStats.getPercentileNanos(latencies, percentile);
+    }
+
+    /**
+     * The median time from when the events were posted until the stage was done with them.
+     *
+     * @return the time in nanoseconds.
+     */
+    public long getP50LatencyNanos() {
+        //CS IGNORE MagicNumber FOR NEXT 1 LINES. REASON: Percentile.
+        return getLatencyPercentileNanos(50);
+    }
+
+    /**
+     * The 99th percentile of the times from when the events were posted until the stage was done with them.
+     *
+     * @return the time in nanoseconds.
+     */
+    public long getP99LatencyNanos() {
+        //CS IGNORE MagicNumber FOR NEXT 1 LINES. REASON: Percentile.
+        return getLatencyPercentileNanos(99);
+    }
+
+    @Override
+    public String toString() {
+        return "IngestStageStats{" + name + ", events=" + getEvents() + ", meanBatchSize=" + getMeanBatchSize()
+                + ", busy=" + TimeUnit.NANOSECONDS.toMillis(getBusyNanos()) + "ms"
+                + ", p50=" + TimeUnit.NANOSECONDS.toMicros(getP50LatencyNanos()) + "us"
+                + ", p99=" + TimeUnit.NANOSECONDS.toMicros(getP99LatencyNanos()) + "us}";
+    }
+}
@@ -0,0 +1,173 @@
+/*
+ *  The MIT License
+ *
+ *  Copyright 2026 Sony Mobile Communications Inc. All rights reserved.
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+package com.sonymobile.tools.gerrit.gerritevents;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Splits the raw stream-events byte stream into lines without decoding it.
+ * <p>
+ * Bytes are read into one reused buffer and only the bytes that arrived since the last call are searched for
+ * the end of line, so a line that trickles in over several reads is never rescanned from the start.
+ * Lines longer than the buffer are collected in a separate overflow array until their end of line arrives.
+ * <p>
+ * Not thread safe, an instance is meant to be owned by the thread reading the stream.
+ */
+public class LineFramer {
+
+    private static final byte EOL = '\n';
+
+    private final ByteBuffer buffer;
+    private int lineStart = 0;
+    private int scanned = 0;
+    private byte[] overflow = null;
+    private int overflowLength = 0;
+
+    /**
+     * Standard constructor.
+     *
+     * @param bufferSize the size of the receive buffer.
+     */
+    public LineFramer(int bufferSize) {
+        if (bufferSize <= 0) {
+            throw new IllegalArgumentException("Buffer size must be positive: " + bufferSize);
+        }
+        buffer = ByteBuffer.allocate(bufferSize);
+    }
+
+    /**
+     * Reads what is available from the stream into the buffer, blocking until at least one byte is available.
+     *
+     * @param in the stream to read from.
+     * @return the number of bytes read, or -1 at the end of the stream.
+     * @throws IOException if the stream fails.
+     */
+    public int read(InputStream in) throws IOException {
+        makeRoom();
+        int count = in.read(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+        if (count > 0) {
+            buffer.position(buffer.position() + count);
+        }
+        return count;
+    }
+
+    /**
+     * Returns the next complete line in the buffer, without the line feed.
+     *
+     * @return the line as raw bytes, or null if no complete line has been received yet.
+     */
+    public byte[] nextLine() {
+        byte[] array = buffer.array();
+        int offset = buffer.arrayOffset();
+        int end = buffer.position();
+        for (int i = scanned; i < end; i++) {
+            if (array[offset + i] == EOL) {
+                byte[] line = copyLine(offset + lineStart, offset + i);
+                lineStart = i + 1;
+                scanned = lineStart;
+                return line;
+            }
+        }
+        scanned = end;
+        if (lineStart == end) {
+            buffer.clear();
+            lineStart = 0;
+            scanned = 0;
+        }
+        return null;
+    }
+
+    /**
+     * The number of received bytes that are not yet part of a returned line.
+     *
+     * @return the number of pending bytes.
+     */
+    public int pending() {
+        return overflowLength + buffer.position() - lineStart;
+    }
+
+    /**
+     * Makes sure there is free space at the end of the buffer before the next read.
+     * Moves a partial line to the front of the buffer, or to the overflow when it fills the whole buffer.
+     */
+    private void makeRoom() {
+        if (buffer.hasRemaining()) {
+            return;
+        }
+        byte[] array = buffer.array();
+        int offset = buffer.arrayOffset();
+        int end = buffer.position();
+        if (lineStart > 0) {
+            int length = end - lineStart;
+            System.arraycopy(array, offset + lineStart, array, offset, length);
+            buffer.position(length);
+            scanned -= lineStart;
+            lineStart = 0;
+        } else {
+            appendOverflow(array, offset, end);
+            buffer.clear();
+            scanned = 0;
+        }
+    }
+
+    /**
+     * Appends a part of a line that did not fit in the buffer to the overflow.
+     *
+     * @param src the source array.
+     * @param from the start index in src.
+     * @param length the number of bytes to append.
+     */
+    private void appendOverflow(byte[] src, int from, int length) {
+        if (overflow == null) {
+            overflow = new byte[length * 2];
+        } else if (overflow.length - overflowLength < length) {
+            overflow = Arrays.copyOf(overflow, Math.max(overflow.length * 2, overflowLength + length));
+        }
+        System.arraycopy(src, from, overflow, overflowLength, length);
+        overflowLength += length;
+    }
+
+    /**
+     * Copies a line out of the buffer, prefixed with any overflow collected for it.
+     *
+     * @param from the start index in the backing array.
+     * @param to the end index (exclusive) in the backing array.
+     * @return the line.
+     */
+    private byte[] copyLine(int from, int to) {
+        byte[] array = buffer.array();
+        if (overflowLength == 0) {
+            return Arrays.copyOfRange(array, from, to);
+        }
+        byte[] line = new byte[overflowLength + to - from];
+        System.arraycopy(overflow, 0, line, 0, overflowLength);
+        System.arraycopy(array, from, line, overflowLength, to - from);
+        overflow = null;
+        overflowLength = 0;
+        return line;
+    }
+}
@@ -0,0 +1,146 @@
+/*
+ *  The MIT License
+ *
+ *  Copyright 2026 Sony Mobile Communications Inc. All rights reserved.
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+package com.sonymobile.tools.gerrit.gerritevents;
+
+import com.sonymobile.tools.gerrit.gerritevents.dto.GerritEvent;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.UndeclaredThrowableException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Finds the {@code gerritEvent} method to call on a {@link GerritEventListener} for an event,
+ * and remembers it per listener class and event class.
+ * <p>
+ * The method is looked up the same way as before, with {@link Class#getMethod(String, Class[])} on the listener
+ * class using the concrete event class as parameter type. If no such method exists or it is not accessible,
+ * {@link GerritEventListener#gerritEvent(GerritEvent)} is used. The lookup is only done the first time a pair
+ * is seen, after that the event is passed on through a {@link MethodHandle} without any reflection.
+ */
+final class ListenerDispatchCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(ListenerDispatchCache.class);
+    private static final String METHOD_NAME = "gerritEvent";
+    private static final MethodType DISPATCH_TYPE =
+            MethodType.methodType(void.class, GerritEventListener.class, GerritEvent.class);
+
+    private final MethodHandles.Lookup lookup = MethodHandles.lookup();
+    private final MethodHandle defaultHandle;
+    private final ConcurrentMap<Class<?>, ConcurrentMap<Class<?>, MethodHandle>> handles =
+            new ConcurrentHashMap<Class<?>, ConcurrentMap<Class<?>, MethodHandle>>();
+
+    /**
+     * Standard constructor.
+     */
+    ListenerDispatchCache() {
+        try {
+            defaultHandle = lookup.findVirtual(GerritEventListener.class, METHOD_NAME,
+                    MethodType.methodType(void.class, GerritEvent.class));
+        } catch (NoSuchMethodException | IllegalAccessException e) {
+            throw new IllegalStateException("GerritEventListener has no usable gerritEvent(GerritEvent)", e);
+        }
+    }
+
+    /**
+     * Calls the most specific {@code gerritEvent} method of the listener with the event.
+     *
+     * @param listener the listener to notify.
+     * @param event the event.
+     * @throws Exception whatever exception the listener throws, errors are thrown as they are.
+     */
+    void invoke(GerritEventListener listener, GerritEvent event) throws Exception {
+        try {
+            getHandle(listener.getClass(), event.getClass()).invokeExact(listener, event);
+        } catch (Exception | Error e) {
+            throw e;
+        } catch (Throwable t) {
+            throw new UndeclaredThrowableException(t);
+        }
+    }
+
+    /**
+     * Forgets all resolved methods, so that classes of listeners that are no longer registered are not held on to.
+     */
+    void invalidate() {
+        handles.clear();
+    }
+
+    /**
+     * The method to call for the given pair, resolving it if it has not been seen before.
+     *
+     * @param listenerClass the class of the listener.
+     * @param eventClass the class of the event.
+     * @return a handle of type (GerritEventListener, GerritEvent)void.
+     */
+    MethodHandle getHandle(Class<?> listenerClass, Class<?> eventClass) {
+        ConcurrentMap<Class<?>, MethodHandle> byEvent = handles.get(listenerClass);
+        if (byEvent == null) {
+            byEvent = new ConcurrentHashMap<Class<?>, MethodHandle>();
+            ConcurrentMap<Class<?>, MethodHandle> existing = handles.putIfAbsent(listenerClass, byEvent);
+            if (existing != null) {
+                byEvent = existing;
+            }
+        }
+        MethodHandle handle = byEvent.get(eventClass);
+        if (handle == null) {
+            handle = resolve(listenerClass, eventClass);
+            byEvent.put(eventClass, handle);
+        }
+        return handle;
+    }
+
+    /**
+     * Looks up the method to call for the given pair.
+     *
+     * @param listenerClass the class of the listener.
+     * @param eventClass the class of the event.
+     * @return the specific method if there is a usable one, otherwise the default method.
+     */
+    private MethodHandle resolve(Class<?> listenerClass, Class<?> eventClass) {
+        logger.trace("Reflecting closest method for {} on {}", eventClass, listenerClass);
+        try {
+            Method method = listenerClass.getMethod(METHOD_NAME, eventClass);
+            MethodHandle handle = lookup.unreflect(method);
+            if (Modifier.isStatic(method.getModifiers())) {
+                handle = MethodHandles.dropArguments(handle, 0, GerritEventListener.class);
+            }
+            return handle.asType(DISPATCH_TYPE);
+        } catch (NoSuchMethodException ex) {
+            logger.debug("No appropriate method found during reflection. Calling default.", ex);
+        } catch (IllegalAccessException ex) {
+            logger.debug("Not allowed to invoke the reflected method. Calling default.", ex);
+        } catch (SecurityException ex) {
+            logger.debug("Not allowed to reflect/invoke a method on this listener (DESIGN BUG). Calling default", ex);
+        }
+        return defaultHandle;
+    }
+}
@@ -0,0 +1,239 @@
+/*
+ *  The MIT License
+ *
+ *  Copyright 2026 Sony Mobile Communications Inc. All rights reserved.
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+package com.sonymobile.tools.gerrit.gerritevents;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A bounded queue of events for one listener, worked on by a thread of its own.
+ * <p>
+ * A listener with a mailbox is notified in the order the events were put in the mailbox, but not on the worker
+ * thread of the {@link GerritHandler}, so a slow listener only holds up itself. When the mailbox is full the
+ * {@link OverflowPolicy} of the mailbox decides what happens to the next event.
+ *
+ * @see GerritHandler#setListenerMailbox(GerritEventListener, int, OverflowPolicy)
+ */
+public final class ListenerMailbox {
+
+    /**
+     * What to do with an event when the mailbox is full.
+     */
+    public enum OverflowPolicy {
+        /**
+         * Wait on the worker thread of the handler until there is room in the mailbox.
+         */
+        BLOCK,
+        /**
+         * Drop the new event.
+         */
+        DROP_NEWEST,
+        /**
+         * Drop the oldest event in the mailbox to make room for the new event.
+         */
+        DROP_OLDEST,
+        /**
+         * Notify the listener on the worker thread of the handler, like when there are no mailboxes.
+         * <p>
+         * The listener is then notified while the thread of the mailbox may still be notifying it of an earlier
+         * event, and before the events that are waiting in the mailbox, so it has to be thread safe and must not
+         * depend on the order of the events. Use {@link #BLOCK} to keep the order.
+         */
+        CALLER_RUNS
+    }
+
+    private static final Logger logger = LoggerFactory.getLogger(ListenerMailbox.class);
+    private static final String THREAD_PREFIX = "Gerrit Listener Mailbox_";
+    private static final int THREAD_KEEP_ALIVE_TIME = 60;
+
+    private final String name;
+    private final int capacity;
+    private final OverflowPolicy overflowPolicy;
+    private final boolean configured;
+    private final ThreadPoolExecutor executor;
+    private final AtomicLong dropped = new AtomicLong();
+
+    /**
+     * Standard constructor.
+     *
+     * @param name the name of the listener, for the thread name and logging.
+     * @param capacity the number of events the mailbox can hold.
+     * @param overflowPolicy what to do with an event when the mailbox is full.
+     * @param configured true if the mailbox was set for the listener, false if it is a default mailbox.
+     */
+    ListenerMailbox(String name, int capacity, OverflowPolicy overflowPolicy, boolean configured) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("The capacity must be at least 1: " + capacity);
+        }
+        if (overflowPolicy == null) {
+            throw new IllegalArgumentException("An overflow policy is needed");
+        }
+        this.name = name;
+        this.capacity = capacity;
+        this.overflowPolicy = overflowPolicy;
+        this.configured = configured;
+        this.executor = new ThreadPoolExecutor(1, 1, THREAD_KEEP_ALIVE_TIME, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<Runnable>(capacity), new ThreadFactory() {
+                    private final ThreadFactory parent = Executors.defaultThreadFactory();
+
+                    @Override
+                    public Thread newThread(Runnable task) {
+                        Thread thread = parent.newThread(task);
+                        thread.setName(THREAD_PREFIX + ListenerMailbox.this.name);
+                        return thread;
+                    }
+                }, new Overflow());
+        executor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * The number of events waiting in the mailbox.
+     *
+     * @return the depth.
+     */
+    public int getDepth() {
+        return executor.getQueue().size();
+    }
+
+    /**
+     * The number of events the mailbox can hold.
+     *
+     * @return the capacity.
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * What is done with an event when the mailbox is full.
+     *
+     * @return the overflow policy.
+     */
+    public OverflowPolicy getOverflowPolicy() {
+        return overflowPolicy;
+    }
+
+    /**
+     * The number of events that were dropped because the mailbox was full.
+     *
+     * @return the number of dropped events.
+     */
+    public long getDropped() {
+        return dropped.get();
+    }
+
+    /**
+     * If the mailbox was set for the listener, rather than given to it by the mailbox mode of the handler.
+     *
+     * @return true if set for the listener.
+     * @see GerritHandler#setListenerMailboxes(boolean)
+     */
+    boolean isConfigured() {
+        return configured;
+    }
+
+    /**
+     * Puts the notification of an event in the mailbox.
+     *
+     * @param notification notifies the listener.
+     */
+    void post(Runnable notification) {
+        try {
+            executor.execute(notification);
+        } catch (RejectedExecutionException e) {
+            dropped.incrementAndGet();
+            logger.warn("The mailbox of {} did not take an event: {}", name, e.getMessage());
+        }
+    }
+
+    /**
+     * Closes the mailbox. The events in it are still delivered.
+     */
+    void close() {
+        executor.shutdown();
+    }
+
+    /**
+     * Waits for the events in a closed mailbox to be delivered.
+     *
+     * @param timeout the longest time to wait.
+     * @param unit the unit of the timeout.
+     * @return true if all were delivered.
+     * @throws InterruptedException if interrupted while waiting.
+     */
+    boolean awaitClose(long timeout, TimeUnit unit) throws InterruptedException {
+        return executor.awaitTermination(timeout, unit);
+    }
+
+    @Override
+    public String toString() {
+        return "ListenerMailbox{" + name + ", depth=" + getDepth() + "/" + capacity
+                + ", overflowPolicy=" + overflowPolicy + ", dropped=" + getDropped() + "}";
+    }
+
+    /**
+     * Carries out the overflow policy when the mailbox is full.
+     */
+    private class Overflow implements RejectedExecutionHandler {
+        @Override
+        public void rejectedExecution(Runnable notification, ThreadPoolExecutor pool) {
+            if (pool.isShutdown()) {
+                throw new RejectedExecutionException("The mailbox is closed");
+            }
+            switch (overflowPolicy) {
+                case BLOCK:
+                    try {
+                        pool.getQueue().put(notification);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new RejectedExecutionException("Interrupted while waiting for room", e);
+                    }
+                    break;
+                case DROP_OLDEST:
+                    if (pool.getQueue().poll() != null) {
+                        dropped.incrementAndGet();
+                        logger.warn("The mailbox of {} is full, dropping the oldest event.", name);
+                    }
+                    pool.execute(notification);
+                    break;
+                case CALLER_RUNS:
+                    notification.run();
+                    break;
+                default:
+                    dropped.incrementAndGet();
+                    logger.warn("The mailbox of {} is full, dropping an event.", name);
+                    break;
+            }
+        }
+    }
+}
@@ -0,0 +1,399 @@
+/*
+ *  The MIT License
+ *
+ *  Copyright 2026 Sony Mobile Communications Inc. All rights reserved.
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+package com.sonymobile.tools.gerrit.gerritevents;
+
+import com.sonymobile.tools.gerrit.gerritevents.dto.GerritEvent;
+import com.sonymobile.tools.gerrit.gerritevents.dto.events.ChangeBasedEvent;
+import com.sonymobile.tools.gerrit.gerritevents.dto.events.RefUpdated;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Finds the listeners that have subscribed to the project and branch of an event.
+ * <p>
+ * A listener subscribes with a project glob and a branch glob, like {@code platform/*} and {@code release/**}.
+ * {@code *} matches any characters but {@code /}, {@code **} any characters and {@code ?} one character but
+ * {@code /}, like in {@link ProjectFilter}. A glob matches the whole name, the branch without {@code refs/heads/}.
+ * <p>
+ * All the subscriptions are compiled into one {@link GlobTrie} over the project and branch names.
+ * The sets of trie nodes that a walk can be in are turned into the states of one deterministic automaton the first
+ * time they are reached, and each state knows the listeners it matches. So once the automaton is warm, finding the
+ * listeners of an event takes one step per character of the project and branch names, however many listeners
+ * have subscribed. Adding or removing a subscription starts over with a new automaton.
+ *
+ * @see GerritHandler#addListener(GerritEventListener, String, String)
+ */
+public final class ListenerRouter {
+
+    /**
+     * The most automaton states that are kept. States past this are worked out for each event instead,
+     * so that globs that blow up the automaton cost time rather than memory.
+     */
+    private static final int MAX_STATES = 10000;
+    private static final String REFS_HEADS = "refs/heads/";
+    /**
+     * Between the project and the branch name, no wildcard matches it.
+     */
+    private static final char END_OF_PROJECT = GlobTrie.BARRIER;
+    private static final Comparator<GlobTrie.Node<Subscription>> BY_ID = new Comparator<GlobTrie.Node<Subscription>>() {
+        @Override
+        public int compare(GlobTrie.Node<Subscription> o1, GlobTrie.Node<Subscription> o2) {
+            return Integer.compare(o1.getId(), o2.getId());
+        }
+    };
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<GerritEventListener, List<Subscription>> subscriptions =
+            new LinkedHashMap<GerritEventListener, List<Subscription>>();
+    private final GlobTrie<Subscription> trie = new GlobTrie<Subscription>();
+    private int subscribed = 0;
+    private Automaton automaton = new Automaton(trie);
+
+    /**
+     * Subscribes a listener to the events about the matching projects and branches.
+     * A listener can have many subscriptions, it is notified once about an event that matches more than one.
+     *
+     * @param listener the listener.
+     * @param projectPattern the glob of the project names.
+     * @param branchPattern the glob of the branch names.
+     * @throws IllegalArgumentException if a glob is null or empty.
+     */
+    public void add(GerritEventListener listener, String projectPattern, String branchPattern) {
+        if (projectPattern == null || projectPattern.isEmpty() || branchPattern == null || branchPattern.isEmpty()) {
+            throw new IllegalArgumentException("Empty listener subscription " + projectPattern + " " + branchPattern);
+        }
+        lock.writeLock().lock();
+        try {
+            List<Subscription> list = subscriptions.get(listener);
+            if (list == null) {
+                list = new ArrayList<Subscription>();
+                subscriptions.put(listener, list);
+            }
+            for (Subscription subscription : list) {
+                if (subscription.projectPattern.equals(projectPattern)
+                        && subscription.branchPattern.equals(branchPattern)) {
+                    return;
+                }
+            }
+            GlobTrie.Node<Subscription> node = trie.add(trie.getRoot(), projectPattern);
+            node = trie.child(node, END_OF_PROJECT);
+            node = trie.add(node, branchPattern);
+            Subscription subscription = new Subscription(listener, projectPattern, branchPattern, node,
+                    subscribed++);
+            node.getValues().add(subscription);
+            list.add(subscription);
+            automaton = new Automaton(trie);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Removes all the subscriptions of a listener.
+     *
+     * @param listener the listener.
+     * @return true if the listener had subscriptions.
+     */
+    public boolean remove(GerritEventListener listener) {
+        lock.writeLock().lock();
+        try {
+            List<Subscription> list = subscriptions.remove(listener);
+            if (list == null) {
+                return false;
+            }
+            for (Subscription subscription : list) {
+                //The nodes are left in the trie, they lead nowhere now.
+                subscription.node.getValues().remove(subscription);
+            }
+            automaton = new Automaton(trie);
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * The listeners subscribed to the project and branch of an event.
+     * Events that are neither about a change nor a ref update have no branch and go to nobody.
+     *
+     * @param event the event.
+     * @return the listeners, in the order they subscribed.
+     */
+    public List<GerritEventListener> route(GerritEvent event) {
+        if (event instanceof ChangeBasedEvent && ((ChangeBasedEvent)event).getChange() != null) {
+            ChangeBasedEvent changeEvent = (ChangeBasedEvent)event;
+            return route(changeEvent.getChange().getProject(), changeEvent.getChange().getBranch());
+        } else if (event instanceof RefUpdated && ((RefUpdated)event).getRefUpdate() != null) {
+            RefUpdated refUpdated = (RefUpdated)event;
+            return route(refUpdated.getRefUpdate().getProject(), refUpdated.getRefUpdate().getRefName());
+        }
+        return Collections.emptyList();
+    }
+
+    /**
+     * The listeners subscribed to the project and branch of an event that has not been parsed yet.
+     *
+     * @param header the properties of the event.
+     * @return the listeners, in the order they subscribed.
+     */
+    List<GerritEventListener> route(EventHeader header) {
+        if (header.getBranch() != null) {
+            return route(header.getProject(), header.getBranch());
+        }
+        return route(header.getProject(), header.getRefName());
+    }
+
+    /**
+     * The listeners subscribed to a project and branch.
+     *
+     * @param project the name of the project.
+     * @param branch the name of the branch, with or without {@code refs/heads/}.
+     * @return the listeners, in the order they subscribed.
+     */
+    public List<GerritEventListener> route(String project, String branch) {
+        if (project == null || branch == null) {
+            return Collections.emptyList();
+        }
+        String branchName = branch;
+        if (branchName.startsWith(REFS_HEADS)) {
+            branchName = branchName.substring(REFS_HEADS.length());
+        }
+        lock.readLock().lock();
+        try {
+            Automaton current = automaton;
+            State state = current.walk(current.start, project);
+            state = current.step(state, END_OF_PROJECT);
+            state = current.walk(state, branchName);
+            return state.listeners;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * If no listener has subscribed.
+     *
+     * @return true if so.
+     */
+    public boolean isEmpty() {
+        lock.readLock().lock();
+        try {
+            return subscriptions.isEmpty();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * The listeners that have subscribed.
+     *
+     * @return a copy of the listeners.
+     */
+    public Set<GerritEventListener> getListeners() {
+        lock.readLock().lock();
+        try {
+            return new LinkedHashSet<GerritEventListener>(subscriptions.keySet());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * The number of automaton states worked out since the subscriptions last changed.
+     *
+     * @return the number of states.
+     */
+    public int getStateCount() {
+        lock.readLock().lock();
+        try {
+            return automaton.states.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "ListenerRouter " + getListeners().size() + " listeners";
+    }
+
+    /**
+     * The subscription of a listener to a project and branch glob.
+     */
+    private static final class Subscription {
+        static final Comparator<Subscription> IN_ORDER = new Comparator<Subscription>() {
+            @Override
+            public int compare(Subscription o1, Subscription o2) {
+                return Integer.compare(o1.order, o2.order);
+            }
+        };
+
+        private final GerritEventListener listener;
+        private final String projectPattern;
+        private final String branchPattern;
+        private final GlobTrie.Node<Subscription> node;
+        private final int order;
+
+        /**
+         * Standard constructor.
+         *
+         * @param listener the listener.
+         * @param projectPattern the project glob.
+         * @param branchPattern the branch glob.
+         * @param node the trie node at the end of the globs.
+         * @param order the number of subscriptions made before this one.
+         */
+        Subscription(GerritEventListener listener, String projectPattern, String branchPattern,
+                     GlobTrie.Node<Subscription> node, int order) {
+            this.listener = listener;
+            this.projectPattern = projectPattern;
+            this.branchPattern = branchPattern;
+            this.node = node;
+            this.order = order;
+        }
+    }
+
+    /**
+     * The deterministic automaton of the trie, with the states worked out as they are reached.
+     */
+    private static final class Automaton {
+        private final ConcurrentMap<String, State> states = new ConcurrentHashMap<String, State>();
+        private final State start;
+
+        /**
+         * Standard constructor.
+         *
+         * @param trie the trie.
+         */
+        Automaton(GlobTrie<Subscription> trie) {
+            start = state(trie.start());
+        }
+
+        /**
+         * Walks the automaton over a name.
+         *
+         * @param from the state to start in.
+         * @param name the name.
+         * @return the state after the name.
+         */
+        State walk(State from, String name) {
+            State state = from;
+            for (int i = 0; i < name.length() && !state.nodes.isEmpty(); i++) {
+                state = step(state, name.charAt(i));
+            }
+            return state;
+        }
+
+        /**
+         * The state after a character, worked out the first time.
+         *
+         * @param state the state.
+         * @param c the character.
+         * @return the next state.
+         */
+        State step(State state, char c) {
+            State next = state.next.get(c);
+            if (next != null) {
+                return next;
+            }
+            next = state(GlobTrie.step(state.nodes, c));
+            if (states.containsKey(next.key)) {
+                state.next.put(c, next);
+            }
+            return next;
+        }
+
+        /**
+         * The state for a set of trie nodes, a new one if it has not been reached before.
+         *
+         * @param set the nodes.
+         * @return the state.
+         */
+        private State state(Set<GlobTrie.Node<Subscription>> set) {
+            List<GlobTrie.Node<Subscription>> sorted = new ArrayList<GlobTrie.Node<Subscription>>(set);
+            Collections.sort(sorted, BY_ID);
+            StringBuilder key = new StringBuilder();
+            for (GlobTrie.Node<Subscription> node : sorted) {
+                key.append(node.getId()).append(',');
+            }
+            State state = states.get(key.toString());
+            if (state == null) {
+                state = new State(key.toString(), sorted);
+                if (states.size() < MAX_STATES) {
+                    State raced = states.putIfAbsent(state.key, state);
+                    if (raced != null) {
+                        state = raced;
+                    }
+                }
+            }
+            return state;
+        }
+    }
+
+    /**
+     * A state of the automaton, a set of trie nodes.
+     */
+    private static final class State {
+        private final String key;
+        private final List<GlobTrie.Node<Subscription>> nodes;
+        private final List<GerritEventListener> listeners;
+        private final ConcurrentMap<Character, State> next = new ConcurrentHashMap<Character, State>();
+
+        /**
+         * Standard constructor.
+         *
+         * @param key the ids of the nodes.
+         * @param nodes the nodes, sorted by id.
+         */
+        State(String key, List<GlobTrie.Node<Subscription>> nodes) {
+            this.key = key;
+            this.nodes = nodes;
+            List<Subscription> accepted = new ArrayList<Subscription>();
+            for (GlobTrie.Node<Subscription> node : nodes) {
+                accepted.addAll(node.getValues());
+            }
+            Collections.sort(accepted, Subscription.IN_ORDER);
+            Set<GerritEventListener> matched = new LinkedHashSet<GerritEventListener>();
+            for (Subscription subscription : accepted) {
+                matched.add(subscription.listener);
+            }
+            if (matched.isEmpty()) {
+                listeners = Collections.emptyList();
+            } else {
+                listeners = Collections.unmodifiableList(new ArrayList<GerritEventListener>(matched));
+            }
+        }
+    }
+}
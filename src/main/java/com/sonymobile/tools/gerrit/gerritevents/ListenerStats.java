@@ -0,0 +1,267 @@
+/*
+ *  The MIT License
+ *
+ *  Copyright 2026 Sony Mobile Communications Inc. All rights reserved.
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+package com.sonymobile.tools.gerrit.gerritevents;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * How long the notifications of one listener take, and how often they go over the time budget of the listener.
+ * <p>
+ * The times are kept in a histogram with eight buckets per power of two, so the percentiles are accurate to
+ * within an eighth.
+ *
+ * @see GerritHandler#setListenerTimeBudget(GerritEventListener, long, TimeUnit)
+ */
+public final class ListenerStats {
+
+    private static final int SUB_BUCKET_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKETS = SUB_BUCKETS + (Long.SIZE - 1 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+    private final String name;
+    private final AtomicLongArray histogram = newHistogram();
+    private final LongAdder invocations = new LongAdder();
+    private final LongAdder overBudget = new LongAdder();
+    private final AtomicInteger overBudgetInARow = new AtomicInteger();
+    private volatile long timeBudgetNanos;
+    private volatile boolean quarantined = false;
+    private volatile ListenerMailbox.OverflowPolicy quarantinePolicy = ListenerMailbox.OverflowPolicy.BLOCK;
+
+    /**
+     * Standard constructor.
+     *
+     * @param name the name of the listener.
+     * @param timeBudgetNanos the time budget of a notification in nanoseconds, 0 for none.
+     */
+    ListenerStats(String name, long timeBudgetNanos) {
+        this.name = name;
+        this.timeBudgetNanos = timeBudgetNanos;
+    }
+
+    /**
+     * Records the time of one notification.
+     *
+     * @param nanos the time it took.
+     * @return the number of notifications in a row that went over the time budget, including this one.
+     */
+    int record(long nanos) {
+        invocations.increment();
+        histogram.incrementAndGet(bucketOf(Math.max(0, nanos)));
+        long budget = timeBudgetNanos;
+        if (budget > 0 && nanos > budget) {
+            overBudget.increment();
+            return overBudgetInARow.incrementAndGet();
+        }
+        overBudgetInARow.set(0);
+        return 0;
+    }
+
+    /**
+     * The histogram bucket of a time.
+     *
+     * @param nanos the time.
+     * @return the bucket.
+     */
+    static int bucketOf(long nanos) {
+        if (nanos < SUB_BUCKETS) {
+            return (int)nanos;
+        }
+        int exponent = Long.SIZE - 1 - Long.numberOfLeadingZeros(nanos);
+        int shift = exponent - SUB_BUCKET_BITS;
+        int sub = (int)(nanos >>> shift) & (SUB_BUCKETS - 1);
+        return SUB_BUCKETS + shift * SUB_BUCKETS + sub;
+    }
+
+    /**
+     * The largest time that goes in a histogram bucket.
+     *
+     * @param bucket the bucket.
+     * @return the time in nanoseconds.
+     */
+    static long upperBoundOf(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int shift = (bucket - SUB_BUCKETS) / SUB_BUCKETS;
+        long sub = (bucket - SUB_BUCKETS) % SUB_BUCKETS;
+        long upper = ((SUB_BUCKETS + sub + 1) << shift) - 1;
+        if (upper < 0) {
+            return Long.MAX_VALUE;
+        }
+        return upper;
+    }
+
+    /**
+     * A percentile of the notification times.
+     *
+     * @param percentile the percentile, between 0 and 100.
+     * @return the time in nanoseconds that that share of the notifications took at most, 0 if there were none.
+     */
+    public long getPercentileNanos(double percentile) {
+        return getPercentileNanos(histogram, percentile);
+    }
+
+    /**
+     * Creates an empty histogram of times, see {@link #bucketOf(long)}.
+     *
+     * @return the histogram.
+     */
+    static AtomicLongArray newHistogram() {
+        return new AtomicLongArray(BUCKETS);
+    }
+
+    /**
+     * A percentile of the times in a histogram.
+     *
+     * @param histogram the histogram, from {@link #newHistogram()}.
+     * @param percentile the percentile, between 0 and 100.
+     * @return the time in nanoseconds that that share of the times were at most, 0 if there are none.
+     */
+    static long getPercentileNanos(AtomicLongArray histogram, double percentile) {
+        long[] counts = new long[BUCKETS];
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i] = histogram.get(i);
+            total += counts[i];
+        }
+        if (total == 0) {
+            return 0;
+        }
+        //CS IGNORE MagicNumber FOR NEXT 1 LINES. REASON: Percent.
+        long rank = Math.max(1, (long)Math.ceil(total * Math.min(100, Math.max(0, percentile)) / 100));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return upperBoundOf(i);
+            }
+        }
+        return upperBoundOf(BUCKETS - 1);
+    }
+
+    /**
+     * The median notification time.
+     *
+     * @return the time in nanoseconds.
+     */
+    public long getP50Nanos() {
+        //CS IGNORE MagicNumber FOR NEXT 1 LINES. REASON: Percentile.
+        return getPercentileNanos(50);
+    }
+
+    /**
+     * The 99th percentile of the notification times.
+     *
+     * @return the time in nanoseconds.
+     */
+    public long getP99Nanos() {
+        //CS IGNORE MagicNumber FOR NEXT 1 LINES. REASON: Percentile.
+        return getPercentileNanos(99);
+    }
+
+    /**
+     * The number of notifications.
+     *
+     * @return the number of notifications.
+     */
+    public long getInvocations() {
+        return invocations.sum();
+    }
+
+    /**
+     * The number of notifications that went over the time budget.
+     *
+     * @return the number of notifications.
+     */
+    public long getOverBudget() {
+        return overBudget.sum();
+    }
+
+    /**
+     * The time budget of a notification.
+     *
+     * @return the time budget in nanoseconds, 0 for none.
+     */
+    public long getTimeBudgetNanos() {
+        return timeBudgetNanos;
+    }
+
+    /**
+     * Sets the time budget of a notification.
+     *
+     * @param timeBudgetNanos the time budget in nanoseconds, 0 for none.
+     */
+    void setTimeBudgetNanos(long timeBudgetNanos) {
+        this.timeBudgetNanos = timeBudgetNanos;
+        overBudgetInARow.set(0);
+    }
+
+    /**
+     * What the mailbox the listener gets in quarantine does with an event when full.
+     *
+     * @return the overflow policy, {@link ListenerMailbox.OverflowPolicy#BLOCK} by default.
+     */
+    public ListenerMailbox.OverflowPolicy getQuarantinePolicy() {
+        return quarantinePolicy;
+    }
+
+    /**
+     * Sets what the mailbox the listener gets in quarantine does with an event when full.
+     *
+     * @param quarantinePolicy the overflow policy.
+     */
+    void setQuarantinePolicy(ListenerMailbox.OverflowPolicy quarantinePolicy) {
+        this.quarantinePolicy = quarantinePolicy;
+    }
+
+    /**
+     * If the listener is quarantined for going over its time budget too many times in a row.
+     *
+     * @return true if quarantined.
+     */
+    public boolean isQuarantined() {
+        return quarantined;
+    }
+
+    /**
+     * Marks the listener as quarantined or not.
+     *
+     * @param quarantined true if quarantined.
+     */
+    void setQuarantined(boolean quarantined) {
+        this.quarantined = quarantined;
+        overBudgetInARow.set(0);
+    }
+
+    @Override
+    public String toString() {
+        return "ListenerStats{" + name + ", invocations=" + getInvocations() + ", overBudget=" + getOverBudget()
+                + ", p50=" + TimeUnit.NANOSECONDS.toMicros(getP50Nanos()) + "us"
+                + ", p99=" + TimeUnit.NANOSECONDS.toMicros(getP99Nanos()) + "us"
+                + ", quarantined=" + quarantined + "}";
+    }
+}
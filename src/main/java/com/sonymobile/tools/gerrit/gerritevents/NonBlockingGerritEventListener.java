@@ -0,0 +1,39 @@
+/*
+ *  The MIT License
+ *
+ *  Copyright 2026 Sony Mobile Communications Inc. All rights reserved.
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+package com.sonymobile.tools.gerrit.gerritevents;
+
+/**
+ * A {@link GerritEventListener} that is quick and never blocks, like a listener that counts events or updates
+ * metrics.
+ * <p>
+ * The {@link GerritHandler} notifies these listeners on the worker thread of the event, before any of the other
+ * listeners, so they never wait for a slow listener of the same event. They are not notified on the thread that
+ * posted the event, that would move the decoding of the event onto the thread reading the stream of events.
+ * <p>
+ * A listener that does block holds up the notification of the other listeners, so one that is too slow is
+ * quarantined to its own mailbox like any other listener, see
+ * {@link GerritHandler#setListenerTimeBudget(GerritEventListener, long, java.util.concurrent.TimeUnit)}.
+ */
+public interface NonBlockingGerritEventListener extends GerritEventListener {
+}
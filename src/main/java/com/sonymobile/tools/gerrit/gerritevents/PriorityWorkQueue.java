@@ -0,0 +1,543 @@
+/*
+ *  The MIT License
+ *
+ *  Copyright 2026 Sony Mobile Communications Inc. All rights reserved.
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+package com.sonymobile.tools.gerrit.gerritevents;
+
+import com.sonymobile.tools.gerrit.gerritevents.workers.Work;
+
+import java.util.AbstractQueue;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Queue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.ToIntFunction;
+
+/**
+ * The work queue of the worker threads of a {@link GerritHandler}, that hands out the work of the highest priority
+ * first and work of the same priority in the order it was queued.
+ * <p>
+ * Work that has waited longer than the starvation threshold is handed out first, oldest first, whatever its
+ * priority, so that a steady stream of important events can not hold back the rest forever.
+ * <p>
+ * Until a priority or a comparator is set the queue is a plain {@link LinkedBlockingQueue} of the work.
+ * After that the work is kept sorted under a lock, and the blocking queue only holds a token for each piece of
+ * work, that the worker threads wait for.
+ */
+final class PriorityWorkQueue extends AbstractQueue<Runnable> implements BlockingQueue<Runnable> {
+
+    /**
+     * Something in the queue that knows what work it is going to do.
+     */
+    interface Task {
+        /**
+         * The work the task is going to do next.
+         *
+         * @return the work, or null if not known.
+         */
+        Work getWork();
+
+        /**
+         * When the task was queued, for the wait stats.
+         *
+         * @return the {@link System#nanoTime()} when queued.
+         */
+        long getQueuedNanos();
+
+        /**
+         * Sets when the task was queued.
+         *
+         * @param nanos the {@link System#nanoTime()} when queued.
+         */
+        void setQueuedNanos(long nanos);
+    }
+
+    /**
+     * Stands for a piece of work kept sorted.
+     */
+    private static final Runnable TOKEN = new Runnable() {
+        @Override
+        public void run() {
+            //Never run
+        }
+    };
+
+    private final LinkedBlockingQueue<Runnable> queue = new LinkedBlockingQueue<Runnable>();
+    private final ReentrantLock lock = new ReentrantLock();
+    private final ToIntFunction<Work> priorities;
+    private final ArrayDeque<Item> byArrival = new ArrayDeque<Item>();
+    private final Map<Integer, QueueWaitStats> waitStats = new ConcurrentHashMap<Integer, QueueWaitStats>();
+    private PriorityQueue<Item> byPriority;
+    private volatile Comparator<Work> comparator = null;
+    private volatile boolean prioritized = false;
+    private volatile long starvationThresholdNanos;
+    private long sequence = 0;
+    private int sorted = 0;
+
+    /**
+     * Standard constructor.
+     *
+     * @param priorities gives the priority class of a piece of work.
+     * @param starvationThresholdNanos how long work may wait before it is handed out first, 0 for forever.
+     */
+    PriorityWorkQueue(ToIntFunction<Work> priorities, long starvationThresholdNanos) {
+        this.priorities = priorities;
+        this.starvationThresholdNanos = starvationThresholdNanos;
+        this.byPriority = new PriorityQueue<Item>(new ItemComparator());
+    }
+
+    /**
+     * Turns on ordering by priority. Before that the priorities of the work are not looked up.
+     * Work queued before is handed out before the work queued after.
+     *
+     * @param prioritized true to order by priority.
+     */
+    void setPrioritized(boolean prioritized) {
+        this.prioritized = prioritized;
+    }
+
+    /**
+     * Orders the work with a comparator instead of by priority class. Work that the comparator finds equal is
+     * handed out in the order it was queued, and work that is not known after all known work.
+     * The priority classes are still used for the wait stats.
+     *
+     * @param workComparator the comparator, sorting the work to hand out first first, or null to order by priority.
+     */
+    void setComparator(Comparator<Work> workComparator) {
+        lock.lock();
+        try {
+            this.comparator = workComparator;
+            PriorityQueue<Item> resorted = new PriorityQueue<Item>(new ItemComparator());
+            for (Item item : byPriority) {
+                if (!item.taken) {
+                    resorted.add(item);
+                }
+            }
+            byPriority = resorted;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * The comparator that orders the work.
+     *
+     * @return the comparator, or null if ordered by priority class.
+     */
+    Comparator<Work> getComparator() {
+        return comparator;
+    }
+
+    /**
+     * Sets how long work may wait before it is handed out first.
+     *
+     * @param nanos the time in nanoseconds, 0 for forever.
+     */
+    void setStarvationThresholdNanos(long nanos) {
+        this.starvationThresholdNanos = nanos;
+    }
+
+    /**
+     * How long work may wait before it is handed out first.
+     *
+     * @return the time in nanoseconds, 0 for forever.
+     */
+    long getStarvationThresholdNanos() {
+        return starvationThresholdNanos;
+    }
+
+    /**
+     * The wait times per priority class.
+     *
+     * @return a snapshot of the stats per priority.
+     */
+    Map<Integer, QueueWaitStats> getWaitStats() {
+        return Collections.unmodifiableMap(new HashMap<Integer, QueueWaitStats>(waitStats));
+    }
+
+    @Override
+    public boolean offer(Runnable runnable) {
+        if (runnable == null) {
+            throw new NullPointerException();
+        }
+        if (!prioritized) {
+            if (runnable instanceof Task) {
+                ((Task)runnable).setQueuedNanos(System.nanoTime());
+            }
+            return queue.offer(runnable);
+        }
+        Work work = null;
+        int priority = 0;
+        if (runnable instanceof Task) {
+            work = ((Task)runnable).getWork();
+            if (work != null) {
+                priority = priorities.applyAsInt(work);
+            }
+        }
+        lock.lock();
+        try {
+            Item item = new Item(runnable, work, priority, sequence++);
+            byArrival.addLast(item);
+            byPriority.add(item);
+            sorted++;
+        } finally {
+            lock.unlock();
+        }
+        return queue.offer(TOKEN);
+    }
+
+    @Override
+    public void put(Runnable runnable) {
+        offer(runnable);
+    }
+
+    @Override
+    public boolean offer(Runnable runnable, long timeout, TimeUnit unit) {
+        return offer(runnable);
+    }
+
+    @Override
+    public Runnable poll() {
+        Runnable runnable = queue.poll();
+        while (runnable != null) {
+            Runnable work = handOut(runnable);
+            if (work != null) {
+                return work;
+            }
+            runnable = queue.poll();
+        }
+        return null;
+    }
+
+    @Override
+    public Runnable take() throws InterruptedException {
+        while (true) {
+            Runnable work = handOut(queue.take());
+            if (work != null) {
+                return work;
+            }
+        }
+    }
+
+    @Override
+    public Runnable poll(long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        Runnable runnable = queue.poll(timeout, unit);
+        while (runnable != null) {
+            Runnable work = handOut(runnable);
+            if (work != null) {
+                return work;
+            }
+            runnable = queue.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+        }
+        return null;
+    }
+
+    @Override
+    public Runnable peek() {
+        Runnable runnable = queue.peek();
+        if (runnable != TOKEN) {
+            return runnable;
+        }
+        lock.lock();
+        try {
+            Item item = peekFirst(byPriority);
+            if (item == null) {
+                return null;
+            }
+            return item.runnable;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public int size() {
+        return queue.size();
+    }
+
+    @Override
+    public int remainingCapacity() {
+        return Integer.MAX_VALUE;
+    }
+
+    @Override
+    public boolean remove(Object o) {
+        if (o == null || o == TOKEN) {
+            return false;
+        }
+        if (queue.remove(o)) {
+            return true;
+        }
+        lock.lock();
+        try {
+            for (Item item : byArrival) {
+                if (!item.taken && item.runnable == o) {
+                    item.taken = true;
+                    sorted--;
+                    compact();
+                    //If a worker thread has just taken the token, it finds nothing sorted and waits for the next.
+                    queue.remove(TOKEN);
+                    return true;
+                }
+            }
+            return false;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public int drainTo(Collection<? super Runnable> c) {
+        return drainTo(c, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public int drainTo(Collection<? super Runnable> c, int maxElements) {
+        int drained = 0;
+        while (drained < maxElements) {
+            Runnable work = poll();
+            if (work == null) {
+                break;
+            }
+            c.add(work);
+            drained++;
+        }
+        return drained;
+    }
+
+    /**
+     * Iterates over a snapshot of the queue, the work that is not sorted first.
+     *
+     * @return the iterator.
+     */
+    @Override
+    public Iterator<Runnable> iterator() {
+        final List<Runnable> snapshot = new ArrayList<Runnable>();
+        for (Runnable runnable : queue) {
+            if (runnable != TOKEN) {
+                snapshot.add(runnable);
+            }
+        }
+        lock.lock();
+        try {
+            for (Item item : byArrival) {
+                if (!item.taken) {
+                    snapshot.add(item.runnable);
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+        return new Iterator<Runnable>() {
+            private final Iterator<Runnable> iterator = snapshot.iterator();
+            private Runnable current;
+
+            @Override
+            public boolean hasNext() {
+                return iterator.hasNext();
+            }
+
+            @Override
+            public Runnable next() {
+                current = iterator.next();
+                return current;
+            }
+
+            @Override
+            public void remove() {
+                PriorityWorkQueue.this.remove(current);
+            }
+        };
+    }
+
+    /**
+     * Turns what was taken from the blocking queue into the work to hand out.
+     *
+     * @param runnable the work, or a token for the next sorted work.
+     * @return the work, or null if the token was for work that has been removed.
+     */
+    private Runnable handOut(Runnable runnable) {
+        if (runnable != TOKEN) {
+            if (runnable instanceof Task) {
+                long now = System.nanoTime();
+                record(0, now - ((Task)runnable).getQueuedNanos(), false);
+            }
+            return runnable;
+        }
+        lock.lock();
+        try {
+            return dequeue();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Takes the next sorted work. Must hold the lock.
+     *
+     * @return the work, or null if there is none.
+     */
+    private Runnable dequeue() {
+        Item oldest = peekFirst(byArrival);
+        if (oldest == null) {
+            return null;
+        }
+        long now = System.nanoTime();
+        long threshold = starvationThresholdNanos;
+        Item item;
+        boolean starved = false;
+        if (threshold <= 0 || now - oldest.queued < threshold) {
+            item = peekFirst(byPriority);
+            byPriority.poll();
+        } else {
+            item = oldest;
+            byArrival.poll();
+            starved = peekFirst(byPriority) != oldest;
+        }
+        item.taken = true;
+        sorted--;
+        compact();
+        record(item.priority, now - item.queued, starved);
+        return item.runnable;
+    }
+
+    /**
+     * Throws the taken items out of a structure once they outnumber the items still in it,
+     * they are otherwise only thrown away when they come up first. Must hold the lock.
+     */
+    private void compact() {
+        if (byArrival.size() - sorted > sorted) {
+            Iterator<Item> iterator = byArrival.iterator();
+            while (iterator.hasNext()) {
+                if (iterator.next().taken) {
+                    iterator.remove();
+                }
+            }
+        }
+        if (byPriority.size() - sorted > sorted) {
+            PriorityQueue<Item> live = new PriorityQueue<Item>(Math.max(1, sorted), byPriority.comparator());
+            for (Item item : byPriority) {
+                if (!item.taken) {
+                    live.add(item);
+                }
+            }
+            byPriority = live;
+        }
+    }
+
+    /**
+     * Adds the wait of handed out work to the stats of its priority class.
+     *
+     * @param priority the priority class.
+     * @param waitNanos how long the work waited.
+     * @param starved if the work went ahead of work of a higher priority.
+     */
+    private void record(int priority, long waitNanos, boolean starved) {
+        QueueWaitStats stats = waitStats.get(priority);
+        if (stats == null) {
+            stats = new QueueWaitStats(priority);
+            QueueWaitStats existing = waitStats.putIfAbsent(priority, stats);
+            if (existing != null) {
+                stats = existing;
+            }
+        }
+        stats.record(waitNanos, starved);
+    }
+
+    /**
+     * The first item in a structure that has not been taken, after throwing away the taken ones in front of it.
+     *
+     * @param items the structure.
+     * @return the item, or null if there is none.
+     */
+    private static Item peekFirst(Queue<Item> items) {
+        Item item = items.peek();
+        while (item != null && item.taken) {
+            items.poll();
+            item = items.peek();
+        }
+        return item;
+    }
+
+    /**
+     * A queued piece of work.
+     */
+    private static final class Item {
+        private final Runnable runnable;
+        private final Work work;
+        private final int priority;
+        private final long sequence;
+        private final long queued = System.nanoTime();
+        private boolean taken = false;
+
+        /**
+         * Standard constructor.
+         *
+         * @param runnable the work.
+         * @param work what the work is going to do, or null if not known.
+         * @param priority the priority class.
+         * @param sequence the place in the queue order.
+         */
+        Item(Runnable runnable, Work work, int priority, long sequence) {
+            this.runnable = runnable;
+            this.work = work;
+            this.priority = priority;
+            this.sequence = sequence;
+        }
+    }
+
+    /**
+     * Orders the items by the comparator or by priority, then by the queue order.
+     * Under a comparator, items that do not know their work come after all the items that do.
+     */
+    private final class ItemComparator implements Comparator<Item> {
+        @Override
+        public int compare(Item a, Item b) {
+            int result;
+            Comparator<Work> workComparator = comparator;
+            if (workComparator == null) {
+                result = Integer.compare(b.priority, a.priority);
+            } else if (a.work != null && b.work != null) {
+                result = workComparator.compare(a.work, b.work);
+            } else {
+                result = Boolean.compare(a.work == null, b.work == null);
+            }
+            if (result == 0) {
+                result = Long.compare(a.sequence, b.sequence);
+            }
+            return result;
+        }
+    }
+}
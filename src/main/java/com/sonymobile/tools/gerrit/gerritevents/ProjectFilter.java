@@ -0,0 +1,194 @@
+/*
+ *  The MIT License
+ *
+ *  Copyright 2026 Sony Mobile Communications Inc. All rights reserved.
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+package com.sonymobile.tools.gerrit.gerritevents;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * Decides which projects a {@link GerritHandler} lets events through for, compiled from a list of rules.
+ * <p>
+ * One rule per line, blank lines and lines starting with {@code #} are ignored:
+ * <ul>
+ *     <li>{@code platform/build} a project name, matches the project and all projects below it,
+ *     like {@code platform/build/soong}.</li>
+ *     <li>{@code platform/*} a glob, {@code *} matches any characters but {@code /}, {@code **} any characters
+ *     and {@code ?} one character but {@code /}. A glob matches the whole project name.</li>
+ *     <li>{@code regex:platform/(build|art)} a {@link Pattern}, matched against the whole project name.</li>
+ * </ul>
+ * The names and globs are compiled into one {@link GlobTrie}, that is walked once over the project name.
+ * So a match costs time in the length of the project name, not in the number of rules.
+ * Regular expressions can not be compiled into the trie and are tried one by one when the trie has no match,
+ * so prefer globs. A filter without rules lets everything through.
+ * <p>
+ * A filter never changes once compiled, so it can be swapped atomically for a new one.
+ *
+ * @see GerritHandler#setProjectFilter(ProjectFilter)
+ */
+public final class ProjectFilter {
+
+    /**
+     * The filter without rules, that lets everything through.
+     */
+    public static final ProjectFilter ACCEPT_ALL = new ProjectFilter(Collections.<String>emptyList());
+
+    private static final String REGEX_PREFIX = "regex:";
+    private static final String COMMENT_PREFIX = "#";
+    private static final String BELOW = "/**";
+
+    private final List<String> rules;
+    private final GlobTrie<String> trie = new GlobTrie<String>();
+    private final List<Pattern> patterns = new ArrayList<Pattern>();
+
+    /**
+     * Standard constructor.
+     *
+     * @param rules the rules.
+     * @throws IllegalArgumentException if a regular expression is not valid.
+     */
+    private ProjectFilter(List<String> rules) {
+        this.rules = Collections.unmodifiableList(rules);
+        for (String rule : rules) {
+            if (rule.startsWith(REGEX_PREFIX)) {
+                try {
+                    patterns.add(Pattern.compile(rule.substring(REGEX_PREFIX.length())));
+                } catch (PatternSyntaxException e) {
+                    throw new IllegalArgumentException("Bad project filter rule: " + rule, e);
+                }
+            } else {
+                add(rule);
+            }
+        }
+    }
+
+    /**
+     * Compiles the rules into a filter. Blank rules and comments are left out.
+     *
+     * @param rules the rules.
+     * @return the filter.
+     * @throws IllegalArgumentException if a regular expression is not valid.
+     */
+    public static ProjectFilter compile(Collection<String> rules) {
+        List<String> kept = new ArrayList<String>();
+        for (String rule : rules) {
+            if (rule == null) {
+                continue;
+            }
+            String trimmed = rule.trim();
+            if (!trimmed.isEmpty() && !trimmed.startsWith(COMMENT_PREFIX)) {
+                kept.add(trimmed);
+            }
+        }
+        return new ProjectFilter(kept);
+    }
+
+    /**
+     * Reads the rules from a UTF-8 encoded file, one per line, and compiles them.
+     *
+     * @param file the file.
+     * @return the filter.
+     * @throws IOException if the file could not be read.
+     * @throws IllegalArgumentException if a regular expression is not valid.
+     */
+    public static ProjectFilter read(Path file) throws IOException {
+        List<String> lines = new ArrayList<String>();
+        try (BufferedReader in = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line = in.readLine();
+            while (line != null) {
+                lines.add(line);
+                line = in.readLine();
+            }
+        }
+        return compile(lines);
+    }
+
+    /**
+     * Adds a project name or glob to the trie.
+     *
+     * @param rule the rule.
+     */
+    private void add(String rule) {
+        trie.add(rule, rule);
+        if (rule.indexOf('*') < 0 && rule.indexOf('?') < 0) {
+            //A named project, and the projects below it.
+            trie.add(rule + BELOW, rule);
+        }
+    }
+
+    /**
+     * Checks if the filter lets events about the project through.
+     *
+     * @param project the name of the project, null if not known.
+     * @return true if it matches a rule or there are no rules.
+     */
+    public boolean matches(String project) {
+        if (rules.isEmpty()) {
+            return true;
+        }
+        if (project == null) {
+            return false;
+        }
+        if (trie.matches(project)) {
+            return true;
+        }
+        for (Pattern pattern : patterns) {
+            if (pattern.matcher(project).matches()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * The rules the filter was compiled from.
+     *
+     * @return the rules.
+     */
+    public List<String> getRules() {
+        return rules;
+    }
+
+    /**
+     * If the filter has no rules and lets everything through.
+     *
+     * @return true if so.
+     */
+    public boolean isEmpty() {
+        return rules.isEmpty();
+    }
+
+    @Override
+    public String toString() {
+        return "ProjectFilter " + rules;
+    }
+}
@@ -0,0 +1,195 @@
+/*
+ *  The MIT License
+ *
+ *  Copyright 2026 Sony Mobile Communications Inc. All rights reserved.
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+package com.sonymobile.tools.gerrit.gerritevents;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Reads a {@link ProjectFilter} from a file, and again within moments of the file changing.
+ * <p>
+ * Changes are picked up by a {@link WatchService} on the directory of the file. The file is also read every
+ * period, in case the file system does not report changes, for example on some network file systems.
+ * A file that can not be read or has bad rules is logged and the filter read before is kept.
+ */
+final class ProjectFilterWatcher implements Runnable {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProjectFilterWatcher.class);
+    private static final String THREAD_NAME = "Gerrit Project Filter Watcher";
+    /**
+     * Milliseconds to wait for more changes before reading, editors write files in several steps.
+     */
+    private static final long SETTLE_TIME = 100;
+
+    private final Path file;
+    private final long periodMillis;
+    private final Consumer<ProjectFilter> target;
+    private WatchService watchService;
+    private Thread thread;
+    private volatile boolean closed = false;
+
+    /**
+     * Standard constructor.
+     *
+     * @param file the file with the rules.
+     * @param periodMillis the milliseconds between reads when the file is not reported to change.
+     * @param target what to hand the filters to.
+     */
+    ProjectFilterWatcher(Path file, long periodMillis, Consumer<ProjectFilter> target) {
+        this.file = file.toAbsolutePath();
+        this.periodMillis = periodMillis;
+        this.target = target;
+    }
+
+    /**
+     * Reads the file right away, so no events slip through before the filter is in place, and starts watching it.
+     */
+    synchronized void start() {
+        reload();
+        try {
+            watchService = file.getFileSystem().newWatchService();
+            file.getParent().register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                    StandardWatchEventKinds.ENTRY_MODIFY);
+        } catch (IOException | UnsupportedOperationException e) {
+            logger.warn("Can not watch {} for changes, it will be read every {} ms", file, periodMillis, e);
+            closeWatchService();
+        }
+        thread = new Thread(this, THREAD_NAME);
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Stops watching the file.
+     */
+    synchronized void close() {
+        closed = true;
+        if (thread != null) {
+            thread.interrupt();
+        }
+        closeWatchService();
+    }
+
+    /**
+     * Closes the watch service, if there is one.
+     */
+    private void closeWatchService() {
+        if (watchService != null) {
+            try {
+                watchService.close();
+            } catch (IOException e) {
+                logger.debug("Could not close the watch service of {}", file, e);
+            }
+            watchService = null;
+        }
+    }
+
+    /**
+     * The file with the rules.
+     *
+     * @return the file.
+     */
+    Path getFile() {
+        return file;
+    }
+
+    /**
+     * Reads the file and hands the filter over.
+     *
+     * @return true if the file could be read.
+     */
+    boolean reload() {
+        try {
+            ProjectFilter filter = ProjectFilter.read(file);
+            logger.info("Read {} project filter rules from {}", filter.getRules().size(), file);
+            target.accept(filter);
+            return true;
+        } catch (NoSuchFileException e) {
+            logger.error("Project filter file {} does not exist", file);
+        } catch (IOException | IllegalArgumentException e) {
+            logger.error("Exception thrown during project filter file read of {}", file, e);
+        }
+        return false;
+    }
+
+    @Override
+    public void run() {
+        WatchService service;
+        synchronized (this) {
+            service = watchService;
+        }
+        try {
+            while (!closed) {
+                if (service == null) {
+                    Thread.sleep(periodMillis);
+                    reload();
+                } else if (awaitChange(service)) {
+                    reload();
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            logger.debug("Stopped watching {}", file);
+        }
+    }
+
+    /**
+     * Waits for the file to change, or for the period to pass.
+     *
+     * @param service the watch service.
+     * @return true if the file should be read.
+     * @throws InterruptedException if interrupted while waiting.
+     */
+    private boolean awaitChange(WatchService service) throws InterruptedException {
+        WatchKey key = service.poll(periodMillis, TimeUnit.MILLISECONDS);
+        if (key == null) {
+            return true;
+        }
+        boolean changed = false;
+        while (key != null) {
+            for (WatchEvent<?> event : key.pollEvents()) {
+                if (event.kind() == StandardWatchEventKinds.OVERFLOW
+                        || file.getFileName().equals(event.context())) {
+                    changed = true;
+                }
+            }
+            key.reset();
+            if (!changed) {
+                return false;
+            }
+            key = service.poll(SETTLE_TIME, TimeUnit.MILLISECONDS);
+        }
+        return true;
+    }
+}
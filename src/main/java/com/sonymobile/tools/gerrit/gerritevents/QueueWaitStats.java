@@ -0,0 +1,132 @@
+/*
+ *  The MIT License
+ *
+ *  Copyright 2026 Sony Mobile Communications Inc. All rights reserved.
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+package com.sonymobile.tools.gerrit.gerritevents;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * How long the events of one priority class waited in the queue of a {@link GerritHandler} for a worker thread.
+ *
+ * @see GerritHandler#getQueueWaitStats()
+ */
+public final class QueueWaitStats {
+
+    private final int priority;
+    private final LongAdder count = new LongAdder();
+    private final LongAdder totalWaitNanos = new LongAdder();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+    private final LongAdder starved = new LongAdder();
+
+    /**
+     * Standard constructor.
+     *
+     * @param priority the priority of the class.
+     */
+    QueueWaitStats(int priority) {
+        this.priority = priority;
+    }
+
+    /**
+     * Records the wait of one event.
+     *
+     * @param waitNanos the time the event waited.
+     * @param wasStarved true if the event was taken ahead of higher priority events because it waited too long.
+     */
+    void record(long waitNanos, boolean wasStarved) {
+        count.increment();
+        totalWaitNanos.add(waitNanos);
+        maxWaitNanos.accumulateAndGet(waitNanos, Math::max);
+        if (wasStarved) {
+            starved.increment();
+        }
+    }
+
+    /**
+     * The priority of the class.
+     *
+     * @return the priority.
+     */
+    public int getPriority() {
+        return priority;
+    }
+
+    /**
+     * The number of events that have waited.
+     *
+     * @return the number of events.
+     */
+    public long getCount() {
+        return count.sum();
+    }
+
+    /**
+     * The mean time the events waited.
+     *
+     * @return the time in nanoseconds, 0 if none have waited.
+     */
+    public long getMeanWaitNanos() {
+        long events = count.sum();
+        if (events == 0) {
+            return 0;
+        }
+        return totalWaitNanos.sum() / events;
+    }
+
+    /**
+     * The time all the events waited together.
+     *
+     * @return the time in nanoseconds.
+     */
+    long getTotalWaitNanos() {
+        return totalWaitNanos.sum();
+    }
+
+    /**
+     * The longest time an event waited.
+     *
+     * @return the time in nanoseconds.
+     */
+    public long getMaxWaitNanos() {
+        return maxWaitNanos.get();
+    }
+
+    /**
+     * The number of events that were taken ahead of higher priority events because they waited too long.
+     *
+     * @return the number of events.
+     */
+    public long getStarved() {
+        return starved.sum();
+    }
+
+    @Override
+    public String toString() {
+        return "QueueWaitStats{priority=" + priority + ", count=" + getCount()
+                + ", meanWait=" + TimeUnit.NANOSECONDS.toMillis(getMeanWaitNanos()) + "ms"
+                + ", maxWait=" + TimeUnit.NANOSECONDS.toMillis(getMaxWaitNanos()) + "ms"
+                + ", starved=" + getStarved() + "}";
+    }
+}
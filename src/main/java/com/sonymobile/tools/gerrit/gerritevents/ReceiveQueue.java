@@ -0,0 +1,564 @@
+/*
+ *  The MIT License
+ *
+ *  Copyright 2026 Sony Mobile Communications Inc. All rights reserved.
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+package com.sonymobile.tools.gerrit.gerritevents;
+
+import com.sonymobile.tools.gerrit.gerritevents.dto.attr.Provider;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Keeps the events waiting for the worker threads of a {@link GerritHandler} within a number of events and a
+ * number of bytes of stream-events lines, so that a flood of events from Gerrit can not fill the heap.
+ * <p>
+ * When an event does not fit, the {@link OverflowPolicy} decides what happens.
+ * <p>
+ * With {@link OverflowPolicy#SPILL_TO_DISK} the segment files are written and read outside of the lock of the
+ * queue, so that posters and worker threads only wait for the disk when they spill or refill lines themselves.
+ *
+ * @see GerritHandler#setReceiveQueueBudget(int, long, OverflowPolicy)
+ */
+public final class ReceiveQueue {
+
+    /**
+     * What to do with an event when the queue is full.
+     */
+    public enum OverflowPolicy {
+        /**
+         * Make the poster wait until there is room, so that the stream-events connection stops being read and
+         * TCP flow control slows down Gerrit.
+         * Events posted by the listeners themselves never wait.
+         */
+        BLOCK,
+        /**
+         * Drop the oldest events in the queue to make room.
+         */
+        DROP_OLDEST,
+        /**
+         * Drop the oldest events of the lowest priority in the queue to make room, or the new event if its
+         * priority is lower than that of every event in the queue.
+         *
+         * @see GerritHandler#setEventTypePriority(com.sonymobile.tools.gerrit.gerritevents.dto.GerritEventType, int)
+         */
+        DROP_BY_PRIORITY,
+        /**
+         * Write stream-events lines to segment files on disk, and read them back in order when the queue is
+         * down to half of its budget. Other events are let in over the budget.
+         */
+        SPILL_TO_DISK
+    }
+
+    private static final Logger logger = LoggerFactory.getLogger(ReceiveQueue.class);
+    private static final long BLOCK_CHECK_INTERVAL = TimeUnit.SECONDS.toMillis(1);
+
+    private final int maxItems;
+    private final long maxBytes;
+    private final OverflowPolicy overflowPolicy;
+    private final SpillQueue spillQueue;
+    private final LinkedHashSet<Entry> entries = new LinkedHashSet<Entry>();
+    private final TreeMap<Integer, LinkedHashSet<Entry>> byPriority = new TreeMap<Integer, LinkedHashSet<Entry>>();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder spilled = new LongAdder();
+    private final LongAdder discarded = new LongAdder();
+    private final Object refillLock = new Object();
+    private long bytes = 0;
+    private int spilledItems = 0;
+    private int refilling = 0;
+    private long refillingBytes = 0;
+    private int handingOver = 0;
+    private boolean closed = false;
+
+    /**
+     * Standard constructor.
+     *
+     * @param maxItems the most events to keep, 0 for no limit.
+     * @param maxBytes the most bytes of lines to keep, 0 for no limit.
+     * @param overflowPolicy what to do with an event when the queue is full.
+     * @param spillDirectory where to spill lines with {@link OverflowPolicy#SPILL_TO_DISK},
+     *                       null for a new directory in the temporary directory.
+     */
+    ReceiveQueue(int maxItems, long maxBytes, OverflowPolicy overflowPolicy, File spillDirectory) {
+        if (maxItems < 0 || maxBytes < 0) {
+            throw new IllegalArgumentException("The budget can not be negative");
+        }
+        if (overflowPolicy == null) {
+            throw new IllegalArgumentException("An overflow policy is needed");
+        }
+        this.maxItems = maxItems;
+        this.maxBytes = maxBytes;
+        this.overflowPolicy = overflowPolicy;
+        if (overflowPolicy == OverflowPolicy.SPILL_TO_DISK) {
+            spillQueue = new SpillQueue(spillDirectory);
+        } else {
+            spillQueue = null;
+        }
+    }
+
+    /**
+     * The most events the queue keeps.
+     *
+     * @return the number of events, 0 for no limit.
+     */
+    public int getMaxItems() {
+        return maxItems;
+    }
+
+    /**
+     * The most bytes of stream-events lines the queue keeps.
+     *
+     * @return the number of bytes, 0 for no limit.
+     */
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    /**
+     * What is done with an event when the queue is full.
+     *
+     * @return the overflow policy.
+     */
+    public OverflowPolicy getOverflowPolicy() {
+        return overflowPolicy;
+    }
+
+    /**
+     * The number of events waiting for a worker thread, not counting the spilled lines.
+     *
+     * @return the number of events.
+     */
+    public synchronized int getItems() {
+        return entries.size();
+    }
+
+    /**
+     * The number of bytes of the stream-events lines waiting for a worker thread.
+     *
+     * @return the number of bytes.
+     */
+    public synchronized long getBytes() {
+        return bytes;
+    }
+
+    /**
+     * The number of lines waiting on disk.
+     *
+     * @return the number of lines.
+     */
+    public synchronized int getSpilledItems() {
+        return spilledItems;
+    }
+
+    /**
+     * The number of events dropped because the queue was full.
+     *
+     * @return the number of events.
+     */
+    public long getDropped() {
+        return dropped.sum();
+    }
+
+    /**
+     * The number of lines that have been written to disk.
+     *
+     * @return the number of lines.
+     */
+    public long getSpilled() {
+        return spilled.sum();
+    }
+
+    /**
+     * The number of lines on disk that were deleted unread, because the handler was shut down without waiting
+     * for them.
+     *
+     * @return the number of lines.
+     * @see GerritHandler#shutdown(boolean)
+     */
+    public long getDiscarded() {
+        return discarded.sum();
+    }
+
+    /**
+     * Lets an event into the queue, or carries out the overflow policy if it does not fit.
+     *
+     * @param entry the event.
+     * @param external true if posted from outside, so that the poster may be made to wait.
+     * @param line the UTF-8 encoded line of the event if it can be spilled to disk, or null.
+     * @param provider the Gerrit server the line came from, or null.
+     * @return true if the event was let in and should be handed to the worker threads,
+     *         false if it was dropped or spilled.
+     */
+    boolean admit(Entry entry, boolean external, byte[] line, Provider provider) {
+        if (line != null && reserveSpill(entry)) {
+            try {
+                spillQueue.add(line, provider);
+                spilled.increment();
+                return false;
+            } catch (IOException e) {
+                logger.error("Could not spill an event to disk, keeping it in memory.", e);
+                synchronized (this) {
+                    spilledItems--;
+                }
+            }
+        }
+        return admitInMemory(entry, external);
+    }
+
+    /**
+     * Decides if a line goes to disk, and counts it as spilled if so.
+     *
+     * @param entry the event of the line.
+     * @return true if the line should be written to disk.
+     */
+    private synchronized boolean reserveSpill(Entry entry) {
+        if (spillQueue == null || closed) {
+            return false;
+        }
+        //Keep the order, once lines are spilled the new ones go after them.
+        if (spilledItems > 0 || refilling > 0 || !fits(entry)) {
+            spilledItems++;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Lets an event into the queue in memory, or carries out the overflow policy if it does not fit.
+     *
+     * @param entry the event.
+     * @param external true if posted from outside, so that the poster may be made to wait.
+     * @return true if the event was let in, false if it was dropped.
+     */
+    private synchronized boolean admitInMemory(Entry entry, boolean external) {
+        if (closed) {
+            return true;
+        }
+        if (!fits(entry)) {
+            switch (overflowPolicy) {
+                case BLOCK:
+                    if (external) {
+                        waitForRoom(entry);
+                    }
+                    break;
+                case DROP_OLDEST:
+                    while (!fits(entry)) {
+                        drop(entries.iterator().next());
+                    }
+                    break;
+                case DROP_BY_PRIORITY:
+                    while (!fits(entry)) {
+                        Map.Entry<Integer, LinkedHashSet<Entry>> lowest = byPriority.firstEntry();
+                        if (lowest.getKey() > entry.getPriority()) {
+                            dropped.increment();
+                            logger.debug("Receive queue full, dropping a new event of priority {}",
+                                    entry.getPriority());
+                            return false;
+                        }
+                        drop(lowest.getValue().iterator().next());
+                    }
+                    break;
+                default:
+                    break;
+            }
+        }
+        add(entry);
+        return true;
+    }
+
+    /**
+     * Lets a line read back from disk into the queue.
+     * Once it is handed to the worker threads, that must be told with {@link #handedOver()}.
+     *
+     * @param entry the event of the line.
+     */
+    synchronized void admitRefilled(Entry entry) {
+        refilling--;
+        refillingBytes -= entry.getBytes();
+        handingOver++;
+        add(entry);
+    }
+
+    /**
+     * Tells that a line let in with {@link #admitRefilled(Entry)} has been handed to the worker threads,
+     * or could not be.
+     */
+    synchronized void handedOver() {
+        handingOver--;
+        notifyAll();
+    }
+
+    /**
+     * Takes an event out of the queue when a worker thread starts on it.
+     *
+     * @param entry the event.
+     */
+    synchronized void started(Entry entry) {
+        remove(entry);
+    }
+
+    /**
+     * Reads lines back from disk when the queue is down to half of its budget, also after it is closed.
+     * They must then be let in with {@link #admitRefilled(Entry)}.
+     *
+     * @return the lines, empty if there are none to read.
+     */
+    List<SpillQueue.SpilledLine> refill() {
+        if (spillQueue == null || !hasRoomToRefill()) {
+            return Collections.emptyList();
+        }
+        List<SpillQueue.SpilledLine> lines = new ArrayList<SpillQueue.SpilledLine>();
+        boolean drained = false;
+        //Only one thread reads at a time, so that the lines are counted against the budget before the next read.
+        synchronized (refillLock) {
+            while (hasRoomToRefill()) {
+                SpillQueue.SpilledLine spilledLine;
+                try {
+                    spilledLine = spillQueue.poll();
+                } catch (IOException e) {
+                    logger.error("Could not read spilled events back from disk, dropping them.", e);
+                    int lost = spillQueue.clear();
+                    synchronized (this) {
+                        spilledItems -= lost;
+                    }
+                    dropped.add(lost);
+                    break;
+                }
+                if (spilledLine == null) {
+                    //Counted, but not written yet, the poster refills when it is.
+                    break;
+                }
+                lines.add(spilledLine);
+                synchronized (this) {
+                    spilledItems--;
+                    refilling++;
+                    refillingBytes += spilledLine.getLine().length;
+                    drained = closed && spilledItems == 0;
+                }
+            }
+            if (drained) {
+                spillQueue.clear();
+            }
+        }
+        return lines;
+    }
+
+    /**
+     * If there are lines on disk and the queue is below half of its budget.
+     *
+     * @return true if lines should be read back.
+     */
+    private synchronized boolean hasRoomToRefill() {
+        return spilledItems > 0 && isBelowHalf(entries.size() + refilling, bytes + refillingBytes);
+    }
+
+    /**
+     * Waits a while for room to read lines back from disk, or for the lines read back to reach the worker threads.
+     *
+     * @return true if there are lines left on disk, or read back but not handed to the worker threads yet.
+     */
+    synchronized boolean awaitRoomToRefill() {
+        boolean noRoom = spilledItems > 0 && !isBelowHalf(entries.size() + refilling, bytes + refillingBytes);
+        if (noRoom || refilling > 0 || handingOver > 0) {
+            try {
+                wait(BLOCK_CHECK_INTERVAL);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        return spilledItems > 0 || refilling > 0 || handingOver > 0;
+    }
+
+    /**
+     * Stops the queue. Posters waiting for room go on and new events are let in over the budget.
+     * The lines on disk are kept for {@link #refill()}, the files are deleted when the last one is read,
+     * or by {@link #discardSpilled()}.
+     */
+    void close() {
+        boolean drained;
+        synchronized (this) {
+            closed = true;
+            drained = spilledItems == 0;
+            notifyAll();
+        }
+        if (drained && spillQueue != null) {
+            synchronized (refillLock) {
+                spillQueue.clear();
+            }
+        }
+    }
+
+    /**
+     * Deletes the lines on disk that have not been read back.
+     *
+     * @return the number of lines deleted.
+     * @see #getDiscarded()
+     */
+    int discardSpilled() {
+        if (spillQueue == null) {
+            return 0;
+        }
+        int lost;
+        synchronized (refillLock) {
+            lost = spillQueue.clear();
+        }
+        synchronized (this) {
+            spilledItems -= lost;
+        }
+        if (lost > 0) {
+            logger.warn("Discarded {} events spilled to disk.", lost);
+            discarded.add(lost);
+        }
+        return lost;
+    }
+
+    /**
+     * If an event fits in the budget. An event always fits in an empty queue.
+     *
+     * @param entry the event.
+     * @return true if it fits.
+     */
+    private boolean fits(Entry entry) {
+        if (entries.isEmpty()) {
+            return true;
+        }
+        return (maxItems <= 0 || entries.size() < maxItems)
+                && (maxBytes <= 0 || bytes + entry.getBytes() <= maxBytes);
+    }
+
+    /**
+     * If the queue is below half of its budget.
+     *
+     * @param items the number of events.
+     * @param queuedBytes the number of bytes.
+     * @return true if below half.
+     */
+    private boolean isBelowHalf(int items, long queuedBytes) {
+        return (maxItems <= 0 || items < maxItems / 2) && (maxBytes <= 0 || queuedBytes < maxBytes / 2);
+    }
+
+    /**
+     * Waits until an event fits or the queue is closed.
+     *
+     * @param entry the event.
+     */
+    private void waitForRoom(Entry entry) {
+        try {
+            while (!fits(entry) && !closed) {
+                wait(BLOCK_CHECK_INTERVAL);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Drops an event from the queue.
+     *
+     * @param entry the event.
+     */
+    private void drop(Entry entry) {
+        remove(entry);
+        if (entry.cancel()) {
+            dropped.increment();
+            logger.debug("Receive queue full, dropped an event of priority {}", entry.getPriority());
+        }
+    }
+
+    /**
+     * Adds an event to the queue.
+     *
+     * @param entry the event.
+     */
+    private void add(Entry entry) {
+        entries.add(entry);
+        LinkedHashSet<Entry> samePriority = byPriority.get(entry.getPriority());
+        if (samePriority == null) {
+            samePriority = new LinkedHashSet<Entry>();
+            byPriority.put(entry.getPriority(), samePriority);
+        }
+        samePriority.add(entry);
+        bytes += entry.getBytes();
+    }
+
+    /**
+     * Removes an event from the queue if it is in it.
+     *
+     * @param entry the event.
+     */
+    private void remove(Entry entry) {
+        if (!entries.remove(entry)) {
+            return;
+        }
+        LinkedHashSet<Entry> samePriority = byPriority.get(entry.getPriority());
+        samePriority.remove(entry);
+        if (samePriority.isEmpty()) {
+            byPriority.remove(entry.getPriority());
+        }
+        bytes -= entry.getBytes();
+        notifyAll();
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "ReceiveQueue{items=" + entries.size() + "/" + maxItems + ", bytes=" + bytes + "/" + maxBytes
+                + ", overflowPolicy=" + overflowPolicy + ", dropped=" + getDropped()
+                + ", spilled=" + spilledItems + "}";
+    }
+
+    /**
+     * An event in the queue.
+     */
+    interface Entry {
+        /**
+         * The size of the stream-events line of the event.
+         *
+         * @return the number of bytes, 0 if it is not a line.
+         */
+        long getBytes();
+
+        /**
+         * The priority of the type of the event.
+         *
+         * @return the priority, higher is more important.
+         */
+        int getPriority();
+
+        /**
+         * Makes sure the event is not worked on, if no worker thread has started on it yet.
+         *
+         * @return true if cancelled, false if a worker thread has already started on it.
+         */
+        boolean cancel();
+    }
+}
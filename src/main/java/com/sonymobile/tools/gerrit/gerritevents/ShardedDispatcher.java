@@ -0,0 +1,294 @@
+/*
+ *  The MIT License
+ *
+ *  Copyright 2026 Sony Mobile Communications Inc. All rights reserved.
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+
+package com.sonymobile.tools.gerrit.gerritevents;
+
+import com.sonymobile.tools.gerrit.gerritevents.dto.GerritEvent;
+import com.sonymobile.tools.gerrit.gerritevents.dto.events.ChangeBasedEvent;
+import com.sonymobile.tools.gerrit.gerritevents.dto.events.RefUpdated;
+import com.sonymobile.tools.gerrit.gerritevents.workers.GerritEventWork;
+import com.sonymobile.tools.gerrit.gerritevents.workers.JSONEventWork;
+import com.sonymobile.tools.gerrit.gerritevents.workers.StreamEventsStringWork;
+import com.sonymobile.tools.gerrit.gerritevents.workers.Work;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Hashes the events of one change, and the ref-updated events of one ref, to the same one of a fixed number of
+ * lanes, see {@link GerritHandler#setShardedDispatch(boolean)}.
+ * Each lane hands its events to the worker threads one at a time and in the order they were dispatched.
+ * Events that are neither about a change nor a ref go straight to the worker threads.
+ */
+final class ShardedDispatcher implements EventDispatcher {
+
+    /**
+     * The number of lanes events are spread over.
+     */
+    static final int LANES = Math.max(1, Integer.getInteger("gerritevents.GerritHandler.DISPATCH_LANES", 64));
+
+    private static final Logger logger = LoggerFactory.getLogger(ShardedDispatcher.class);
+
+    private final Executor workers;
+    private final DispatchLane[] lanes = new DispatchLane[LANES];
+    private final AtomicInteger scheduledLanes = new AtomicInteger();
+    private final AtomicInteger laneBacklog = new AtomicInteger();
+
+    /**
+     * Standard constructor.
+     *
+     * @param workers the worker threads.
+     */
+    ShardedDispatcher(Executor workers) {
+        this.workers = workers;
+        for (int i = 0; i < lanes.length; i++) {
+            lanes[i] = new DispatchLane();
+        }
+    }
+
+    @Override
+    public void dispatch(GerritHandler.EventWorker worker) {
+        String orderingKey = getOrderingKey(worker.work);
+        if (orderingKey != null) {
+            lanes[Math.floorMod(orderingKey.hashCode(), lanes.length)].execute(worker);
+        } else {
+            workers.execute(worker);
+        }
+    }
+
+    @Override
+    public int getBacklog(int queuedTasks) {
+        //A scheduled lane waits in the executor queue for the first of its events, that is counted in the backlog.
+        return Math.max(0, queuedTasks - scheduledLanes.get()) + laneBacklog.get();
+    }
+
+    @Override
+    public void addPendingWork(Collection<Work> works) {
+        for (DispatchLane lane : lanes) {
+            lane.addPendingWork(works);
+        }
+    }
+
+    @Override
+    public void close(boolean join) {
+        //The lanes finish their events on the worker threads, or on the last thread of a lane if those are gone.
+    }
+
+    /**
+     * The key of the events that need to be worked on in order.
+     *
+     * @param work the work.
+     * @return the change number, the project and ref name of a ref update, or null if neither is known.
+     */
+    static String getOrderingKey(Work work) {
+        EventHeader header = null;
+        if (work instanceof StreamEventsStringWork) {
+            header = ((StreamEventsStringWork)work).getHeader();
+        } else if (work instanceof JSONEventWork) {
+            header = ((JSONEventWork)work).getHeader();
+        } else if (work instanceof GerritEventWork) {
+            return getOrderingKey(((GerritEventWork)work).getEvent());
+        }
+        if (header == null) {
+            return null;
+        } else if (header.getChangeNumber() != null) {
+            return header.getChangeNumber();
+        }
+        return getOrderingKey(header.getProject(), header.getRefName());
+    }
+
+    /**
+     * The key of the events that need to be worked on in order.
+     *
+     * @param event the event.
+     * @return the change number, the project and ref name of a ref update, or null if neither is known.
+     */
+    static String getOrderingKey(GerritEvent event) {
+        if (event instanceof ChangeBasedEvent && ((ChangeBasedEvent)event).getChange() != null) {
+            return ((ChangeBasedEvent)event).getChange().getNumber();
+        } else if (event instanceof RefUpdated && ((RefUpdated)event).getRefUpdate() != null) {
+            RefUpdated refUpdated = (RefUpdated)event;
+            return getOrderingKey(refUpdated.getRefUpdate().getProject(), refUpdated.getRefUpdate().getRefName());
+        }
+        return null;
+    }
+
+    /**
+     * The key of the events about a ref.
+     *
+     * @param project the project.
+     * @param refName the ref name.
+     * @return the key, or null if either is not known.
+     */
+    private static String getOrderingKey(String project, String refName) {
+        if (project == null || refName == null) {
+            return null;
+        }
+        return project + " " + refName;
+    }
+
+    /**
+     * Runs its events one at a time on the worker threads, in the order they were added.
+     * A lane takes a worker thread for one event at a time and then queues up again behind the other work,
+     * so a busy change can not keep the other changes waiting.
+     */
+    private final class DispatchLane implements Runnable, PriorityWorkQueue.Task {
+        private final ArrayDeque<GerritHandler.EventWorker> pending = new ArrayDeque<GerritHandler.EventWorker>();
+        private boolean scheduled = false;
+        private volatile long queuedNanos;
+
+        /**
+         * Adds an event to the lane and schedules the lane if it is idle.
+         *
+         * @param worker the event.
+         * @throws RejectedExecutionException if the executor is shut down.
+         */
+        void execute(GerritHandler.EventWorker worker) {
+            synchronized (this) {
+                pending.add(worker);
+                laneBacklog.incrementAndGet();
+                if (scheduled) {
+                    return;
+                }
+                scheduled = true;
+            }
+            try {
+                schedule();
+            } catch (RejectedExecutionException e) {
+                synchronized (this) {
+                    laneBacklog.addAndGet(-pending.size());
+                    pending.clear();
+                    scheduled = false;
+                }
+                throw e;
+            }
+        }
+
+        /**
+         * Queues the lane on the worker threads.
+         *
+         * @throws RejectedExecutionException if the worker threads are shut down.
+         */
+        private void schedule() {
+            scheduledLanes.incrementAndGet();
+            try {
+                workers.execute(this);
+            } catch (RejectedExecutionException e) {
+                scheduledLanes.decrementAndGet();
+                throw e;
+            }
+        }
+
+        @Override
+        public void run() {
+            scheduledLanes.decrementAndGet();
+            GerritHandler.EventWorker worker;
+            synchronized (this) {
+                worker = pending.poll();
+                laneBacklog.decrementAndGet();
+            }
+            runSafely(worker);
+            synchronized (this) {
+                if (pending.isEmpty()) {
+                    scheduled = false;
+                    return;
+                }
+            }
+            try {
+                schedule();
+            } catch (RejectedExecutionException e) {
+                logger.debug("Executor shut down, finishing the queued events of the lane.");
+                drain();
+            }
+        }
+
+        /**
+         * Works on the events left in the lane on this thread. Used when the executor shuts down.
+         */
+        private void drain() {
+            while (true) {
+                GerritHandler.EventWorker worker;
+                synchronized (this) {
+                    worker = pending.poll();
+                    if (worker == null) {
+                        scheduled = false;
+                        return;
+                    }
+                    laneBacklog.decrementAndGet();
+                }
+                runSafely(worker);
+            }
+        }
+
+        /**
+         * Works on an event, keeping the lane going if that fails.
+         *
+         * @param worker the event.
+         */
+        private void runSafely(GerritHandler.EventWorker worker) {
+            try {
+                worker.run();
+            } catch (RuntimeException e) {
+                logger.error("Unexpected error when working on {}", worker.work, e);
+            }
+        }
+
+        @Override
+        public synchronized Work getWork() {
+            GerritHandler.EventWorker next = pending.peek();
+            if (next == null) {
+                return null;
+            }
+            return next.work;
+        }
+
+        @Override
+        public long getQueuedNanos() {
+            return queuedNanos;
+        }
+
+        @Override
+        public void setQueuedNanos(long nanos) {
+            queuedNanos = nanos;
+        }
+
+        /**
+         * Adds the work of the queued events to the collection.
+         *
+         * @param works the collection.
+         */
+        synchronized void addPendingWork(Collection<Work> works) {
+            for (GerritHandler.EventWorker worker : pending) {
+                if (worker.work != null) {
+                    works.add(worker.work);
+                }
+            }
+        }
+    }
+}
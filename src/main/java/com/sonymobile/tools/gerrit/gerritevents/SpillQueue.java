@@ -0,0 +1,296 @@
+/*
+ *  The MIT License
+ *
+ *  Copyright 2026 Sony Mobile Communications Inc. All rights reserved.
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+package com.sonymobile.tools.gerrit.gerritevents;
+
+import com.sonymobile.tools.gerrit.gerritevents.dto.attr.Provider;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A first in, first out queue of stream-events lines in segment files on disk.
+ * <p>
+ * Lines are appended to the newest segment and read from the oldest. A new segment is started when the newest
+ * one is full, and a segment is deleted when all of its lines have been read. The providers of the lines are
+ * kept in memory, there are only a few of them.
+ * <p>
+ * Thread safe with a lock of its own, so that the {@link ReceiveQueue} does not hold its lock while on disk.
+ */
+final class SpillQueue {
+
+    private static final Logger logger = LoggerFactory.getLogger(SpillQueue.class);
+    private static final long SEGMENT_SIZE = Long.getLong("gerritevents.SpillQueue.SEGMENT_SIZE", 16 * 1024 * 1024);
+    private static final int NO_PROVIDER = -1;
+
+    private final File directory;
+    private final ArrayDeque<Segment> segments = new ArrayDeque<Segment>();
+    private final List<Provider> providers = new ArrayList<Provider>();
+    private File createdDirectory;
+    private int size = 0;
+    private int nextSegment = 0;
+
+    /**
+     * Standard constructor.
+     *
+     * @param directory where to put the segment files, null for a new directory in the temporary directory.
+     */
+    SpillQueue(File directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * The number of lines in the queue.
+     *
+     * @return the number of lines.
+     */
+    synchronized int size() {
+        return size;
+    }
+
+    /**
+     * If there are no lines in the queue.
+     *
+     * @return true if empty.
+     */
+    synchronized boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Appends a line to the queue.
+     *
+     * @param line the UTF-8 encoded line.
+     * @param provider the Gerrit server the line came from, or null.
+     * @throws IOException if the line could not be written.
+     */
+    synchronized void add(byte[] line, Provider provider) throws IOException {
+        Segment segment = segments.peekLast();
+        if (segment == null || segment.out == null || segment.written >= SEGMENT_SIZE) {
+            if (segment != null) {
+                segment.closeOutput();
+                if (segment.read == segment.lines) {
+                    segments.removeLast();
+                    segment.delete();
+                }
+            }
+            segment = new Segment(new File(getDirectory(), "segment-" + nextSegment++));
+            segments.addLast(segment);
+        }
+        segment.out.writeInt(indexOf(provider));
+        segment.out.writeInt(line.length);
+        segment.out.write(line);
+        segment.written += Integer.BYTES * 2 + line.length;
+        segment.lines++;
+        size++;
+    }
+
+    /**
+     * Takes the oldest line from the queue.
+     *
+     * @return the line, or null if the queue is empty.
+     * @throws IOException if the line could not be read.
+     */
+    synchronized SpilledLine poll() throws IOException {
+        Segment segment = segments.peekFirst();
+        if (segment == null || size == 0) {
+            return null;
+        }
+        if (segment.out != null) {
+            segment.out.flush();
+        }
+        if (segment.in == null) {
+            segment.in = new DataInputStream(new BufferedInputStream(new FileInputStream(segment.file)));
+        }
+        int providerIndex = segment.in.readInt();
+        byte[] line = new byte[segment.in.readInt()];
+        segment.in.readFully(line);
+        segment.read++;
+        size--;
+        if (segment.read == segment.lines && segment != segments.peekLast()) {
+            segments.removeFirst();
+            segment.delete();
+        }
+        Provider provider = null;
+        if (providerIndex != NO_PROVIDER) {
+            provider = providers.get(providerIndex);
+        }
+        return new SpilledLine(line, provider);
+    }
+
+    /**
+     * Deletes the segment files and forgets the lines in them.
+     *
+     * @return the number of lines that were in the queue.
+     */
+    synchronized int clear() {
+        int lines = size;
+        for (Segment segment : segments) {
+            segment.delete();
+        }
+        segments.clear();
+        size = 0;
+        if (createdDirectory != null && !createdDirectory.delete()) {
+            logger.debug("Could not delete {}", createdDirectory);
+        }
+        createdDirectory = null;
+        return lines;
+    }
+
+    /**
+     * The directory of the segment files, created if needed.
+     *
+     * @return the directory.
+     * @throws IOException if it could not be created.
+     */
+    private File getDirectory() throws IOException {
+        if (directory != null) {
+            Files.createDirectories(directory.toPath());
+            return directory;
+        }
+        if (createdDirectory == null) {
+            createdDirectory = Files.createTempDirectory("gerrit-events-spill").toFile();
+        }
+        return createdDirectory;
+    }
+
+    /**
+     * The index of a provider in the provider table, added if it is not there.
+     *
+     * @param provider the provider.
+     * @return the index, or NO_PROVIDER for null.
+     */
+    private int indexOf(Provider provider) {
+        if (provider == null) {
+            return NO_PROVIDER;
+        }
+        int index = providers.indexOf(provider);
+        if (index < 0) {
+            providers.add(provider);
+            index = providers.size() - 1;
+        }
+        return index;
+    }
+
+    /**
+     * A line read back from the queue.
+     */
+    static final class SpilledLine {
+        private final byte[] line;
+        private final Provider provider;
+
+        /**
+         * Standard constructor.
+         *
+         * @param line the UTF-8 encoded line.
+         * @param provider the Gerrit server the line came from, or null.
+         */
+        SpilledLine(byte[] line, Provider provider) {
+            this.line = line;
+            this.provider = provider;
+        }
+
+        /**
+         * The line.
+         *
+         * @return the UTF-8 encoded line.
+         */
+        byte[] getLine() {
+            return line;
+        }
+
+        /**
+         * The Gerrit server the line came from.
+         *
+         * @return the provider, or null.
+         */
+        Provider getProvider() {
+            return provider;
+        }
+    }
+
+    /**
+     * One segment file.
+     */
+    private static final class Segment {
+        private final File file;
+        private DataOutputStream out;
+        private DataInputStream in;
+        private long written = 0;
+        private int lines = 0;
+        private int read = 0;
+
+        /**
+         * Creates the segment file.
+         *
+         * @param file the file.
+         * @throws IOException if it could not be created.
+         */
+        Segment(File file) throws IOException {
+            this.file = file;
+            this.out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+        }
+
+        /**
+         * Closes the file for writing.
+         *
+         * @throws IOException if the file could not be written.
+         */
+        void closeOutput() throws IOException {
+            if (out != null) {
+                out.close();
+                out = null;
+            }
+        }
+
+        /**
+         * Closes and deletes the file.
+         */
+        void delete() {
+            try {
+                closeOutput();
+                if (in != null) {
+                    in.close();
+                }
+            } catch (IOException e) {
+                logger.debug("Could not close {}", file, e);
+            }
+            if (!file.delete()) {
+                logger.warn("Could not delete spill segment {}", file);
+            }
+        }
+    }
+}
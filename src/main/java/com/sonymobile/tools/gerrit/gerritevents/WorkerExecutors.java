@@ -0,0 +1,85 @@
+/*
+ *  The MIT License
+ *
+ *  Copyright 2026 Sony Mobile Communications Inc. All rights reserved.
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+package com.sonymobile.tools.gerrit.gerritevents;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ThreadPoolExecutor;
+
+/**
+ * Executors for the worker threads of {@link GerritHandler} and {@link GerritSendCommandQueue}.
+ * <p>
+ * Any {@link ExecutorService} can be given to them, e.g. a work-stealing {@link ForkJoinPool}. When the listeners
+ * or commands mostly wait for SSH or REST calls, an executor that starts a virtual thread per task lets many
+ * more of them wait at the same time than a pool of platform threads does. That needs Java 21 or later.
+ *
+ * @see GerritHandler#setExecutor(ExecutorService)
+ * @see GerritSendCommandQueue#initialize(com.sonymobile.tools.gerrit.gerritevents.workers.GerritWorkersConfig,
+ *      ExecutorService)
+ */
+public final class WorkerExecutors {
+
+    /**
+     * Empty private Constructor to hinder instantiation.
+     */
+    private WorkerExecutors() {
+        //Empty
+    }
+
+    /**
+     * If virtual threads can be used, they need Java 21 or later.
+     *
+     * @return true if they can.
+     */
+    public static boolean isVirtualThreadsSupported() {
+        return VirtualThreads.isSupported();
+    }
+
+    /**
+     * Creates an executor that starts a new virtual thread for each task.
+     *
+     * @param namePrefix the prefix of the names of the threads, followed by a number.
+     * @return the executor.
+     * @throws UnsupportedOperationException if this Java is older than 21.
+     * @see #isVirtualThreadsSupported()
+     */
+    public static ExecutorService newVirtualThreadPerTaskExecutor(String namePrefix) {
+        return VirtualThreads.newExecutor(namePrefix);
+    }
+
+    /**
+     * The number of tasks waiting for a thread in an executor, as far as that can be told.
+     *
+     * @param executor the executor.
+     * @return the number of tasks, 0 if the executor does not tell.
+     */
+    static int getQueuedTasks(ExecutorService executor) {
+        if (executor instanceof ThreadPoolExecutor) {
+            return ((ThreadPoolExecutor)executor).getQueue().size();
+        } else if (executor instanceof ForkJoinPool) {
+            return ((ForkJoinPool)executor).getQueuedSubmissionCount();
+        }
+        return 0;
+    }
+}
@@ -0,0 +1,93 @@
+/*
+ *  The MIT License
+ *
+ *  Copyright 2026 Sony Mobile Communications Inc. All rights reserved.
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+package com.sonymobile.tools.gerrit.gerritevents;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The pool of worker threads of a {@link GerritHandler}, that keeps track of how busy its threads are.
+ */
+final class WorkerPool extends ThreadPoolExecutor {
+
+    private final LongAdder busyNanos = new LongAdder();
+    private final ThreadLocal<long[]> started = new ThreadLocal<long[]>() {
+        @Override
+        protected long[] initialValue() {
+            return new long[1];
+        }
+    };
+
+    /**
+     * Standard constructor.
+     *
+     * @param threads the number of threads.
+     * @param keepAliveSeconds the number of seconds idle threads are kept alive.
+     * @param workQueue the queue of the work.
+     * @param threadFactory the factory of the threads.
+     */
+    WorkerPool(int threads, int keepAliveSeconds, BlockingQueue<Runnable> workQueue, ThreadFactory threadFactory) {
+        super(threads, threads, keepAliveSeconds, TimeUnit.SECONDS, workQueue, threadFactory);
+    }
+
+    @Override
+    protected void beforeExecute(Thread thread, Runnable task) {
+        started.get()[0] = System.nanoTime();
+    }
+
+    @Override
+    protected void afterExecute(Runnable task, Throwable error) {
+        busyNanos.add(System.nanoTime() - started.get()[0]);
+    }
+
+    /**
+     * The time the threads have spent working, summed up over all threads.
+     * Work that is still running is not counted until it is done.
+     *
+     * @return the time in nanoseconds.
+     */
+    long getBusyNanos() {
+        return busyNanos.sum();
+    }
+
+    /**
+     * Changes the number of threads.
+     *
+     * @param threads the number of threads.
+     */
+    void resize(int threads) {
+        if (getCorePoolSize() < threads) {
+            //If the number has increased we need to set the max first, or we'll get an IllegalArgumentException
+            setMaximumPoolSize(threads);
+            setCorePoolSize(threads);
+        } else if (getCorePoolSize() > threads) {
+            //If the number has decreased we need to set the core first.
+            setCorePoolSize(threads);
+            setMaximumPoolSize(threads);
+        }
+    }
+}
@@ -0,0 +1,408 @@
+/*
+ *  The MIT License
+ *
+ *  Copyright 2026 Sony Mobile Communications Inc. All rights reserved.
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+package com.sonymobile.tools.gerrit.gerritevents;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Grows and shrinks the pool of worker threads of a {@link GerritHandler} between a minimum and a maximum,
+ * going by how long events wait in the queue and how busy the worker threads are.
+ * <p>
+ * Every interval the autoscaler looks at the mean time the events taken from the queue during the interval
+ * waited, and at the share of the time the worker threads were busy.
+ * <ul>
+ *     <li>When the events waited longer than the target queue wait, or the threads were busier than the high
+ *     utilization while events are waiting, the pool grows by half, right away.</li>
+ *     <li>When the events waited less than half the target and the threads were less busy than the low
+ *     utilization, for a number of intervals in a row, the pool shrinks by a quarter, or to what is needed
+ *     to bring the utilization up to the high utilization if that is more.</li>
+ * </ul>
+ * The gap between the thresholds, and waiting before shrinking, keeps the pool from going back and forth.
+ * Every change is logged and kept as a {@link Decision}.
+ *
+ * @see GerritHandler#setWorkerAutoscaling(int, int)
+ */
+public final class WorkerPoolAutoscaler {
+
+    private static final Logger logger = LoggerFactory.getLogger(WorkerPoolAutoscaler.class);
+    private static final String THREAD_NAME = "Gerrit Worker Autoscaler";
+    private static final int HISTORY = 100;
+    private static final double DEFAULT_LOW_UTILIZATION = 0.3;
+    private static final double DEFAULT_HIGH_UTILIZATION = 0.85;
+    private static final int DEFAULT_SCALE_DOWN_INTERVALS = 5;
+    private static final int GROW_DIVISOR = 2;
+    private static final int SHRINK_DIVISOR = 4;
+    //CS IGNORE MagicNumber FOR NEXT 1 LINES. REASON: Percent.
+    private static final double PERCENT = 100.0;
+
+    private final GerritHandler handler;
+    private final int minThreads;
+    private final int maxThreads;
+    private final long intervalMillis;
+    private final ArrayDeque<Decision> decisions = new ArrayDeque<Decision>();
+    private volatile long targetQueueWaitNanos;
+    private volatile double lowUtilization = DEFAULT_LOW_UTILIZATION;
+    private volatile double highUtilization = DEFAULT_HIGH_UTILIZATION;
+    private volatile int scaleDownIntervals = DEFAULT_SCALE_DOWN_INTERVALS;
+    private ScheduledExecutorService scheduler;
+    private int idleIntervals = 0;
+    private long lastSampleNanos = 0;
+    private long lastCount;
+    private long lastWaitNanos;
+    private long lastBusyNanos;
+
+    /**
+     * Standard constructor.
+     *
+     * @param handler the handler to scale the pool of.
+     * @param minThreads the least number of threads.
+     * @param maxThreads the most number of threads.
+     * @param targetQueueWaitNanos the longest mean time events should wait for a thread.
+     * @param intervalMillis the milliseconds between looking at the pool.
+     */
+    WorkerPoolAutoscaler(GerritHandler handler, int minThreads, int maxThreads, long targetQueueWaitNanos,
+                         long intervalMillis) {
+        if (minThreads < 1 || maxThreads < minThreads) {
+            throw new IllegalArgumentException("Bad bounds for the number of threads: " + minThreads
+                    + " - " + maxThreads);
+        }
+        this.handler = handler;
+        this.minThreads = minThreads;
+        this.maxThreads = maxThreads;
+        this.targetQueueWaitNanos = targetQueueWaitNanos;
+        this.intervalMillis = intervalMillis;
+    }
+
+    /**
+     * Starts looking at the pool every interval.
+     */
+    synchronized void start() {
+        scheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable task) {
+                Thread thread = new Thread(task, THREAD_NAME);
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        scheduler.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    sample();
+                } catch (RuntimeException e) {
+                    logger.error("Unexpected error when scaling the worker threads", e);
+                }
+            }
+        }, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stops looking at the pool. The pool keeps the size it has.
+     */
+    synchronized void close() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+    }
+
+    /**
+     * Measures the queue wait and utilization since the last time and scales the pool.
+     */
+    synchronized void sample() {
+        WorkerPool pool = handler.getWorkerPool();
+        if (pool == null) {
+            lastSampleNanos = 0;
+            return;
+        }
+        long now = System.nanoTime();
+        long count = 0;
+        long waitNanos = 0;
+        for (QueueWaitStats stats : handler.getQueueWaitStats().values()) {
+            count += stats.getCount();
+            waitNanos += stats.getTotalWaitNanos();
+        }
+        long busyNanos = pool.getBusyNanos();
+        if (lastSampleNanos != 0) {
+            long elapsed = Math.max(1, now - lastSampleNanos);
+            int threads = pool.getCorePoolSize();
+            int queued = pool.getQueue().size();
+            long meanWait = 0;
+            if (count > lastCount) {
+                meanWait = (waitNanos - lastWaitNanos) / (count - lastCount);
+            } else if (queued > 0) {
+                //Nothing was taken from the queue, what is in it has waited the whole interval.
+                meanWait = elapsed;
+            }
+            double utilization = Math.max((busyNanos - lastBusyNanos) / ((double)threads * elapsed),
+                    pool.getActiveCount() / (double)threads);
+            int size = decide(threads, meanWait, Math.min(1, utilization), queued);
+            if (size != threads) {
+                handler.resizeWorkerPool(size);
+            }
+        }
+        lastSampleNanos = now;
+        lastCount = count;
+        lastWaitNanos = waitNanos;
+        lastBusyNanos = busyNanos;
+    }
+
+    /**
+     * Decides the size of the pool from what was measured in the last interval.
+     *
+     * @param threads the current number of threads.
+     * @param meanWaitNanos the mean time events waited for a thread.
+     * @param utilization the share of the time the threads were busy, between 0 and 1.
+     * @param queued the number of events waiting.
+     * @return the new number of threads.
+     */
+    synchronized int decide(int threads, long meanWaitNanos, double utilization, int queued) {
+        long target = targetQueueWaitNanos;
+        if (threads < minThreads || threads > maxThreads) {
+            idleIntervals = 0;
+            return scale(threads, Math.min(maxThreads, Math.max(minThreads, threads)), meanWaitNanos, utilization,
+                    "outside the bounds " + minThreads + " - " + maxThreads);
+        }
+        if (meanWaitNanos > target || (utilization >= highUtilization && queued > 0)) {
+            idleIntervals = 0;
+            int size = Math.min(maxThreads, threads + Math.max(1, threads / GROW_DIVISOR));
+            return scale(threads, size, meanWaitNanos, utilization, "busy, " + queued + " queued");
+        }
+        if (meanWaitNanos <= target / 2 && utilization <= lowUtilization) {
+            idleIntervals++;
+            if (idleIntervals < scaleDownIntervals) {
+                return threads;
+            }
+            idleIntervals = 0;
+            int needed = (int)Math.ceil(threads * utilization / highUtilization);
+            int size = Math.max(minThreads, Math.max(needed, threads - Math.max(1, threads / SHRINK_DIVISOR)));
+            return scale(threads, size, meanWaitNanos, utilization,
+                    "idle for " + scaleDownIntervals + " intervals");
+        }
+        idleIntervals = 0;
+        return threads;
+    }
+
+    /**
+     * Records and logs a change of the size of the pool.
+     *
+     * @param from the current number of threads.
+     * @param to the new number of threads.
+     * @param meanWaitNanos the mean time events waited for a thread.
+     * @param utilization the share of the time the threads were busy.
+     * @param reason why.
+     * @return the new number of threads.
+     */
+    private int scale(int from, int to, long meanWaitNanos, double utilization, String reason) {
+        if (from == to) {
+            return to;
+        }
+        Decision decision = new Decision(System.currentTimeMillis(), from, to, meanWaitNanos, utilization, reason);
+        logger.info("Scaling the receiving worker threads: {}", decision);
+        decisions.addLast(decision);
+        if (decisions.size() > HISTORY) {
+            decisions.removeFirst();
+        }
+        return to;
+    }
+
+    /**
+     * The least number of threads.
+     *
+     * @return the number of threads.
+     */
+    public int getMinThreads() {
+        return minThreads;
+    }
+
+    /**
+     * The most number of threads.
+     *
+     * @return the number of threads.
+     */
+    public int getMaxThreads() {
+        return maxThreads;
+    }
+
+    /**
+     * The longest mean time events should wait for a thread before the pool grows.
+     *
+     * @return the time in nanoseconds.
+     */
+    public long getTargetQueueWaitNanos() {
+        return targetQueueWaitNanos;
+    }
+
+    /**
+     * Sets the longest mean time events should wait for a thread before the pool grows.
+     *
+     * @param targetQueueWait the time.
+     * @param unit the unit of the time.
+     */
+    public void setTargetQueueWait(long targetQueueWait, TimeUnit unit) {
+        this.targetQueueWaitNanos = unit.toNanos(targetQueueWait);
+    }
+
+    /**
+     * Sets the share of the time the threads should be busy. Below the low utilization the pool may shrink,
+     * above the high utilization it grows if events are waiting.
+     *
+     * @param low the low utilization, between 0 and 1, 0.3 by default.
+     * @param high the high utilization, between 0 and 1, 0.85 by default.
+     */
+    public void setUtilizationBounds(double low, double high) {
+        if (low < 0 || high > 1 || low >= high) {
+            throw new IllegalArgumentException("Bad utilization bounds: " + low + " - " + high);
+        }
+        this.lowUtilization = low;
+        this.highUtilization = high;
+    }
+
+    /**
+     * Sets the number of idle intervals in a row before the pool shrinks.
+     *
+     * @param scaleDownIntervals the number of intervals, 5 by default.
+     */
+    public void setScaleDownIntervals(int scaleDownIntervals) {
+        this.scaleDownIntervals = Math.max(1, scaleDownIntervals);
+    }
+
+    /**
+     * The latest changes of the size of the pool, the oldest first.
+     *
+     * @return the changes.
+     */
+    public synchronized List<Decision> getDecisions() {
+        return new ArrayList<Decision>(decisions);
+    }
+
+    @Override
+    public String toString() {
+        return "WorkerPoolAutoscaler{" + minThreads + " - " + maxThreads + " threads, targetQueueWait="
+                + TimeUnit.NANOSECONDS.toMillis(targetQueueWaitNanos) + "ms}";
+    }
+
+    /**
+     * A change of the size of the pool, and why.
+     */
+    public static final class Decision {
+        private final long time;
+        private final int from;
+        private final int to;
+        private final long meanQueueWaitNanos;
+        private final double utilization;
+        private final String reason;
+
+        /**
+         * Standard constructor.
+         *
+         * @param time when, in milliseconds since the epoch.
+         * @param from the number of threads before.
+         * @param to the number of threads after.
+         * @param meanQueueWaitNanos the mean time events waited for a thread.
+         * @param utilization the share of the time the threads were busy.
+         * @param reason why.
+         */
+        Decision(long time, int from, int to, long meanQueueWaitNanos, double utilization, String reason) {
+            this.time = time;
+            this.from = from;
+            this.to = to;
+            this.meanQueueWaitNanos = meanQueueWaitNanos;
+            this.utilization = utilization;
+            this.reason = reason;
+        }
+
+        /**
+         * When the size was changed.
+         *
+         * @return milliseconds since the epoch.
+         */
+        public long getTime() {
+            return time;
+        }
+
+        /**
+         * The number of threads before.
+         *
+         * @return the number of threads.
+         */
+        public int getFrom() {
+            return from;
+        }
+
+        /**
+         * The number of threads after.
+         *
+         * @return the number of threads.
+         */
+        public int getTo() {
+            return to;
+        }
+
+        /**
+         * The mean time events waited for a thread in the interval before the change.
+         *
+         * @return the time in nanoseconds.
+         */
+        public long getMeanQueueWaitNanos() {
+            return meanQueueWaitNanos;
+        }
+
+        /**
+         * The share of the time the threads were busy in the interval before the change.
+         *
+         * @return the utilization, between 0 and 1.
+         */
+        public double getUtilization() {
+            return utilization;
+        }
+
+        /**
+         * Why the size was changed.
+         *
+         * @return the reason.
+         */
+        public String getReason() {
+            return reason;
+        }
+
+        @Override
+        public String toString() {
+            return new Date(time) + " " + from + " -> " + to + " threads, " + reason + ", meanQueueWait="
+                    + TimeUnit.NANOSECONDS.toMillis(meanQueueWaitNanos) + "ms, utilization="
+                    + Math.round(utilization * PERCENT) + "%";
+        }
+    }
+}
@@ -0,0 +1,67 @@
+/*
+ *  The MIT License
+ *
+ *  Copyright 2026 Sony Mobile Communications Inc. All rights reserved.
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+
+package com.sonymobile.tools.gerrit.gerritevents;
+
+import com.sonymobile.tools.gerrit.gerritevents.workers.Work;
+
+import java.util.Collection;
+import java.util.concurrent.Executor;
+
+/**
+ * Hands each event straight to the worker threads, the default {@link EventDispatcher}.
+ */
+final class WorkerPoolDispatcher implements EventDispatcher {
+
+    private final Executor workers;
+
+    /**
+     * Standard constructor.
+     *
+     * @param workers the worker threads.
+     */
+    WorkerPoolDispatcher(Executor workers) {
+        this.workers = workers;
+    }
+
+    @Override
+    public void dispatch(GerritHandler.EventWorker worker) {
+        workers.execute(worker);
+    }
+
+    @Override
+    public int getBacklog(int queuedTasks) {
+        return queuedTasks;
+    }
+
+    @Override
+    public void addPendingWork(Collection<Work> works) {
+        //All the events are in the queue of the worker threads.
+    }
+
+    @Override
+    public void close(boolean join) {
+        //Holds on to nothing.
+    }
+}
@@ -44,8 +44,12 @@ import com.sonymobile.tools.gerrit.gerritevents.dto.events.VoteDeleted;
 import com.sonymobile.tools.gerrit.gerritevents.dto.events.RerunCheck;
 import com.sonymobile.tools.gerrit.gerritevents.dto.events.ChangeDeleted;
 
+import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Supplier;
 
 /**
  * Representation of the type of event, if they are interesting and what class to use to parse the JSON string.
@@ -56,104 +60,116 @@ public enum GerritEventType {
     /**
      * A patchset-created event.
      */
-    PATCHSET_CREATED("patchset-created", true, PatchsetCreated.class),
+    PATCHSET_CREATED("patchset-created", true, PatchsetCreated.class, PatchsetCreated::new),
     /**
      * A draft-published event.
      */
-    DRAFT_PUBLISHED("draft-published", true, DraftPublished.class),
+    DRAFT_PUBLISHED("draft-published", true, DraftPublished.class, DraftPublished::new),
     /**
      * A change-abandoned event.
      */
-    CHANGE_ABANDONED("change-abandoned", true, ChangeAbandoned.class),
+    CHANGE_ABANDONED("change-abandoned", true, ChangeAbandoned.class, ChangeAbandoned::new),
     /**
      * A change-merged event.
      */
-    CHANGE_MERGED("change-merged", true, ChangeMerged.class),
+    CHANGE_MERGED("change-merged", true, ChangeMerged.class, ChangeMerged::new),
     /**
      * A change-restored event.
      */
-    CHANGE_RESTORED("change-restored", true, ChangeRestored.class),
+    CHANGE_RESTORED("change-restored", true, ChangeRestored.class, ChangeRestored::new),
     /**
      * A change-deleted event.
      */
-    CHANGE_DELETED("change-deleted", true, ChangeDeleted.class),
+    CHANGE_DELETED("change-deleted", true, ChangeDeleted.class, ChangeDeleted::new),
     /**
      * A comment-added event.
      */
-    COMMENT_ADDED("comment-added", true, CommentAdded.class),
+    COMMENT_ADDED("comment-added", true, CommentAdded.class, CommentAdded::new),
     /**
      * A ref-updated event.
      */
-    REF_UPDATED("ref-updated", true, RefUpdated.class),
+    REF_UPDATED("ref-updated", true, RefUpdated.class, RefUpdated::new),
     /**
      * Replication Plugin: A ref-replicated event.
      */
-    REF_REPLICATED("ref-replicated", true, RefReplicated.class),
+    REF_REPLICATED("ref-replicated", true, RefReplicated.class, RefReplicated::new),
     /**
      * Replication Plugin: A ref-replication-done event.
      */
-    REF_REPLICATION_DONE("ref-replication-done", true, RefReplicationDone.class),
+    REF_REPLICATION_DONE("ref-replication-done", true, RefReplicationDone.class, RefReplicationDone::new),
     /**
      * Notify PatchSet Plugin: A patchset-notified event.
      */
-    PATCHSET_NOTIFIED("patchset-notified", true, PatchsetNotified.class),
+    PATCHSET_NOTIFIED("patchset-notified", true, PatchsetNotified.class, PatchsetNotified::new),
     /***
      * A project-created event.
      */
-    PROJECT_CREATED("project-created", true, ProjectCreated.class),
+    PROJECT_CREATED("project-created", true, ProjectCreated.class, ProjectCreated::new),
     /***
      * A topic-changed event.
      */
-    TOPIC_CHANGED("topic-changed", true, TopicChanged.class),
+    TOPIC_CHANGED("topic-changed", true, TopicChanged.class, TopicChanged::new),
     /***
      * A reviewer-added event.
      */
-    REVIEWER_ADDED("reviewer-added", true, ReviewerAdded.class),
+    REVIEWER_ADDED("reviewer-added", true, ReviewerAdded.class, ReviewerAdded::new),
     /***
      * A merge-failed event.
      */
-    MERGE_FAILED("merge-failed", true, MergeFailed.class),
+    MERGE_FAILED("merge-failed", true, MergeFailed.class, MergeFailed::new),
 
     /***
      * A private state changed event.
      */
-    PRIVATE_STATE_CHANGED("private-state-changed", true, PrivateStateChanged.class),
+    PRIVATE_STATE_CHANGED("private-state-changed", true, PrivateStateChanged.class, PrivateStateChanged::new),
 
     /***
      * A work in progress state changed event.
      */
-    WIP_STATE_CHANGED("wip-state-changed", true, WipStateChanged.class),
+    WIP_STATE_CHANGED("wip-state-changed", true, WipStateChanged.class, WipStateChanged::new),
 
     /**
      * A hashtags changed event.
      */
-    HASHTAGS_CHANGED("hashtags-changed", true, HashtagsChanged.class),
+    HASHTAGS_CHANGED("hashtags-changed", true, HashtagsChanged.class, HashtagsChanged::new),
 
     /**
      * A vote deleted event.
      */
-    VOTE_DELETED("vote-deleted", true, VoteDeleted.class),
+    VOTE_DELETED("vote-deleted", true, VoteDeleted.class, VoteDeleted::new),
 
     /**
      * A rerun-check event.
      */
-    RERUN_CHECK("rerun-check", true, RerunCheck.class);
+    RERUN_CHECK("rerun-check", true, RerunCheck.class, RerunCheck::new);
+
+    private static final Map<String, GerritEventType> BY_TYPE_VALUE = new HashMap<String, GerritEventType>();
+
+    static {
+        for (GerritEventType type : values()) {
+            BY_TYPE_VALUE.put(type.getTypeValue(), type);
+        }
+    }
 
     private String typeValue;
     private boolean interesting;
     private Class<? extends GerritJsonEvent> eventRepresentative;
+    private Supplier<? extends GerritJsonEvent> eventFactory;
 
     /**
      * Constructs an instance of the enum.
      * @param typeValue The value of the type property in the JSON object.
      * @param interesting If this event type is interesting from a functionality perspective.
      * @param eventRepresentative the DTO class that represents this kind of event.
+     * @param eventFactory creates empty instances of the eventRepresentative.
      */
     GerritEventType(String typeValue, boolean interesting,
-                            Class<? extends GerritJsonEvent> eventRepresentative) {
+                            Class<? extends GerritJsonEvent> eventRepresentative,
+                            Supplier<? extends GerritJsonEvent> eventFactory) {
         this.typeValue = typeValue;
         this.interesting = interesting;
         this.eventRepresentative = eventRepresentative;
+        this.eventFactory = eventFactory;
     }
 
     /**
@@ -174,8 +190,12 @@ public enum GerritEventType {
 
     /**
      * Set if event type is intresting or not.
+     * This is global for all handlers in the JVM, listen only for the events you want with
+     * {@link com.sonymobile.tools.gerrit.gerritevents.GerritHandler#addListener(Class, java.util.function.Consumer)}
+     * instead.
      * @param interesting true if intresting, false otherwise.
      */
+    @Deprecated
     public void setInteresting(boolean interesting) {
         this.interesting = interesting;
     }
@@ -189,17 +209,28 @@ public enum GerritEventType {
     }
 
     /**
-     * Finds the event type for the specified type-value.
+     * Gets the factory that creates empty instances of the {@link #getEventRepresentative()}, without reflection.
+     * @return the factory.
+     * @see com.sonymobile.tools.gerrit.gerritevents.GerritJsonEventFactory#registerEventFactory(String, Supplier)
+     */
+    public Supplier<? extends GerritJsonEvent> getEventFactory() {
+        return eventFactory;
+    }
+
+    /**
+     * Finds the event type for the specified type-value, ignoring case.
      * @param typeValue the value of the JSON object's type property.
      * @return the event type or null if nothing was found.
      */
     public static GerritEventType findByTypeValue(String typeValue) {
-        for (GerritEventType type : values()) {
-            if (type.getTypeValue().equalsIgnoreCase(typeValue)) {
-                return type;
-            }
+        if (typeValue == null) {
+            return null;
+        }
+        GerritEventType type = BY_TYPE_VALUE.get(typeValue);
+        if (type == null) {
+            type = BY_TYPE_VALUE.get(typeValue.toLowerCase(Locale.ENGLISH));
         }
-        return null;
+        return type;
     }
 
     /**
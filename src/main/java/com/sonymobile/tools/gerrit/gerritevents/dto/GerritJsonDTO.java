@@ -24,8 +24,12 @@
  */
 package com.sonymobile.tools.gerrit.gerritevents.dto;
 
+import com.google.gson.JsonParser;
+import com.google.gson.stream.JsonReader;
 import net.sf.json.JSONObject;
 
+import java.io.IOException;
+
 /**
  * Base interface for all DTO POJOs that represents a JSON data structure.
  * @author Robert Sandell &lt;robert.sandell@sonyericsson.com&gt;
@@ -36,4 +40,15 @@ public interface GerritJsonDTO {
      * @param json the JSON Object.
      */
     void fromJson(JSONObject json);
+
+    /**
+     * Reads the next JSON object from the reader and fills its internal data-structure.
+     * The default implementation builds a {@link JSONObject} and calls {@link #fromJson(JSONObject)},
+     * DTOs override it to read the object directly.
+     * @param reader the reader, positioned before the object.
+     * @throws IOException if the JSON could not be read.
+     */
+    default void fromJson(JsonReader reader) throws IOException {
+        fromJson(JSONObject.fromObject(JsonParser.parseReader(reader).toString()));
+    }
 }
@@ -24,9 +24,13 @@
  */
 package com.sonymobile.tools.gerrit.gerritevents.dto.attr;
 
+import com.google.gson.stream.JsonReader;
 import com.sonymobile.tools.gerrit.gerritevents.dto.GerritJsonDTO;
 import net.sf.json.JSONObject;
 
+import java.io.IOException;
+
+import static com.sonymobile.tools.gerrit.gerritevents.GerritJsonEventDecoder.nextString;
 import static com.sonymobile.tools.gerrit.gerritevents.GerritJsonEventFactory.getString;
 import static com.sonymobile.tools.gerrit.gerritevents.dto.GerritEventKeys.EMAIL;
 import static com.sonymobile.tools.gerrit.gerritevents.dto.GerritEventKeys.NAME;
@@ -52,6 +56,10 @@ public class Account implements GerritJsonDTO {
      * Account username.
      */
     private String username;
+    /**
+     * If this account is shared between events, see {@link Canonicalizer#account(Account)}.
+     */
+    private transient boolean shared;
 
     /**
      * Default constructor.
@@ -75,15 +83,37 @@ public class Account implements GerritJsonDTO {
      * @param email the email.
      */
     public Account(String name, String email) {
-        this.name = name;
-        this.email = email;
+        this.name = Canonicalizer.string(name);
+        this.email = Canonicalizer.string(email);
     }
 
     @Override
     public void fromJson(JSONObject json) {
-        name = getString(json, NAME);
-        email = getString(json, EMAIL);
-        username = getString(json, USERNAME);
+        name = Canonicalizer.string(getString(json, NAME));
+        email = Canonicalizer.string(getString(json, EMAIL));
+        username = Canonicalizer.string(getString(json, USERNAME));
+    }
+
+    @Override
+    public void fromJson(JsonReader reader) throws IOException {
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case NAME:
+                    name = Canonicalizer.string(nextString(reader));
+                    break;
+                case EMAIL:
+                    email = Canonicalizer.string(nextString(reader));
+                    break;
+                case USERNAME:
+                    username = Canonicalizer.string(nextString(reader));
+                    break;
+                default:
+                    reader.skipValue();
+                    break;
+            }
+        }
+        reader.endObject();
     }
 
     /**
@@ -101,7 +131,8 @@ public class Account implements GerritJsonDTO {
      * @param email the email
      */
     public void setEmail(String email) {
-        this.email = email;
+        checkNotShared();
+        this.email = Canonicalizer.string(email);
     }
 
     /**
@@ -119,7 +150,8 @@ public class Account implements GerritJsonDTO {
      * @param name the full name
      */
     public void setName(String name) {
-        this.name = name;
+        checkNotShared();
+        this.name = Canonicalizer.string(name);
     }
 
     /**
@@ -137,7 +169,37 @@ public class Account implements GerritJsonDTO {
      * @param username the username
      */
     public void setUsername(String username) {
-        this.username = username;
+        checkNotShared();
+        this.username = Canonicalizer.string(username);
+    }
+
+    /**
+     * If this account is shared between events, and can not be changed.
+     * Accounts read from events are shared when turned on, see {@link Canonicalizer#setSharing(boolean)}.
+     *
+     * @return true if shared.
+     */
+    public boolean isShared() {
+        return shared;
+    }
+
+    /**
+     * Marks this account as shared between events.
+     */
+    void share() {
+        shared = true;
+    }
+
+    /**
+     * Throws if this account is shared.
+     *
+     * @throws UnsupportedOperationException if shared.
+     */
+    private void checkNotShared() {
+        if (shared) {
+            throw new UnsupportedOperationException("The account is shared between events and can not be changed: "
+                    + email);
+        }
     }
 
     /**
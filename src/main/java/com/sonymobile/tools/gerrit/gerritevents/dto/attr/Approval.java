@@ -25,9 +25,15 @@ package com.sonymobile.tools.gerrit.gerritevents.dto.attr;
 
 import static com.sonymobile.tools.gerrit.gerritevents.GerritJsonEventFactory.getString;
 import static com.sonymobile.tools.gerrit.gerritevents.GerritJsonEventFactory.getBoolean;
+import com.google.gson.stream.JsonReader;
 import com.sonymobile.tools.gerrit.gerritevents.dto.GerritJsonDTO;
 import net.sf.json.JSONObject;
 
+import java.io.IOException;
+
+import static com.sonymobile.tools.gerrit.gerritevents.GerritJsonEventDecoder.nextBoolean;
+import static com.sonymobile.tools.gerrit.gerritevents.GerritJsonEventDecoder.nextObject;
+import static com.sonymobile.tools.gerrit.gerritevents.GerritJsonEventDecoder.nextString;
 import static com.sonymobile.tools.gerrit.gerritevents.dto.GerritEventKeys.BY;
 import static com.sonymobile.tools.gerrit.gerritevents.dto.GerritEventKeys.TYPE;
 import static com.sonymobile.tools.gerrit.gerritevents.dto.GerritEventKeys.VALUE;
@@ -48,6 +54,10 @@ public class Approval implements GerritJsonDTO {
     /**
      * The approval value
      */
+    private byte vote = CompactValues.NO_VOTE;
+    /**
+     * The approval value when it can not be kept as a byte, or from old serialized data.
+     */
     private String value;
     /**
      * Approval value update indicator
@@ -56,11 +66,19 @@ public class Approval implements GerritJsonDTO {
     /**
      * The old (or previous) approval value
      */
+    private byte oldVote = CompactValues.NO_VOTE;
+    /**
+     * The old approval value when it can not be kept as a byte, or from old serialized data.
+     */
     private String oldValue;
     /**
      * The user who has approved the patch
      */
     private Account by;
+    /**
+     * False when read from data serialized before the votes were kept compact.
+     */
+    private boolean compact = true;
 
     /* username has been replaced by Approval.by Account.
      * This allows old builds to deserialize without warnings.
@@ -90,17 +108,55 @@ public class Approval implements GerritJsonDTO {
     @Override
     public void fromJson(JSONObject json) {
         if (json.containsKey(TYPE) && json.containsKey(VALUE)) {
-            type = getString(json, TYPE);
-            value = getString(json, VALUE);
+            setType(getString(json, TYPE));
+            setValue(getString(json, VALUE));
         }
         if (json.containsKey(BY)) {
-            by = new Account(json.getJSONObject(BY));
+            by = Canonicalizer.account(new Account(json.getJSONObject(BY)));
         }
         if (json.containsKey(UPDATED)) {
             updated = getBoolean(json, UPDATED);
         }
         if (json.containsKey(OLD_VALUE)) {
-            oldValue = getString(json, OLD_VALUE);
+            setOldValue(getString(json, OLD_VALUE));
+        }
+    }
+
+    @Override
+    public void fromJson(JsonReader reader) throws IOException {
+        String approvalType = null;
+        String approvalValue = null;
+        boolean hasType = false;
+        boolean hasValue = false;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case TYPE:
+                    approvalType = nextString(reader);
+                    hasType = true;
+                    break;
+                case VALUE:
+                    approvalValue = nextString(reader);
+                    hasValue = true;
+                    break;
+                case BY:
+                    by = Canonicalizer.account(nextObject(reader, new Account()));
+                    break;
+                case UPDATED:
+                    updated = nextBoolean(reader, false);
+                    break;
+                case OLD_VALUE:
+                    setOldValue(nextString(reader));
+                    break;
+                default:
+                    reader.skipValue();
+                    break;
+            }
+        }
+        reader.endObject();
+        if (hasType && hasValue) {
+            setType(approvalType);
+            setValue(approvalValue);
         }
     }
 
@@ -151,7 +207,7 @@ public class Approval implements GerritJsonDTO {
      * @param type the type.
      */
     public void setType(String type) {
-        this.type = type;
+        this.type = Canonicalizer.string(type);
     }
 
     /**
@@ -160,7 +216,10 @@ public class Approval implements GerritJsonDTO {
      * @return the approval value.
      */
     public String getValue() {
-        return value;
+        if (value != null) {
+            return value;
+        }
+        return CompactValues.fromVote(vote);
     }
 
     /**
@@ -182,7 +241,24 @@ public class Approval implements GerritJsonDTO {
      * @return the old approval value.
      */
     public String getOldValue() {
-        return oldValue;
+        if (oldValue != null) {
+            return oldValue;
+        }
+        return CompactValues.fromVote(oldVote);
+    }
+
+    /**
+     * The old (or previous) approval value.
+     *
+     * @param oldValue the old approval value.
+     */
+    private void setOldValue(String oldValue) {
+        oldVote = CompactValues.toVote(oldValue);
+        if (oldVote == CompactValues.NO_VOTE) {
+            this.oldValue = oldValue;
+        } else {
+            this.oldValue = null;
+        }
     }
 
     /**
@@ -204,7 +280,12 @@ public class Approval implements GerritJsonDTO {
      * @param value the approval value.
      */
     public void setValue(String value) {
-        this.value = value;
+        vote = CompactValues.toVote(value);
+        if (vote == CompactValues.NO_VOTE) {
+            this.value = value;
+        } else {
+            this.value = null;
+        }
     }
 
     @Override
@@ -214,19 +295,20 @@ public class Approval implements GerritJsonDTO {
 
     @Override
     public int hashCode() {
-        //CS IGNORE MagicNumber FOR NEXT 5 LINES. REASON: Autogenerated Code.
-        //CS IGNORE AvoidInlineConditionals FOR NEXT 5 LINES. REASON: Autogenerated Code.
+        //CS IGNORE MagicNumber FOR NEXT 6 LINES. REASON: Autogenerated Code.
+        //CS IGNORE AvoidInlineConditionals FOR NEXT 6 LINES. REASON: Autogenerated Code.
         final int prime = 31;
         int result = 1;
         result = prime * result + ((type == null) ? 0 : type.hashCode());
+        result = prime * result + vote;
         result = prime * result + ((value == null) ? 0 : value.hashCode());
         return result;
     }
 
     @Override
     public boolean equals(Object obj) {
-        //CS IGNORE NeedBraces FOR NEXT 18 LINES. REASON: Autogenerated Code.
-        //CS IGNORE NoWhitespaceAfter FOR NEXT 18 LINES. REASON: Autogenerated Code.
+        //CS IGNORE NeedBraces FOR NEXT 20 LINES. REASON: Autogenerated Code.
+        //CS IGNORE NoWhitespaceAfter FOR NEXT 20 LINES. REASON: Autogenerated Code.
         if (this == obj)
             return true;
         if (obj == null)
@@ -239,6 +321,8 @@ public class Approval implements GerritJsonDTO {
                 return false;
         } else if (!type.equals(other.type))
             return false;
+        if (vote != other.vote)
+            return false;
         if (value == null) {
             if (other.value != null)
                 return false;
@@ -259,6 +343,18 @@ public class Approval implements GerritJsonDTO {
             by.setUsername(username);
             username = null;
         }
+        if (!compact) {
+            vote = CompactValues.NO_VOTE;
+            oldVote = CompactValues.NO_VOTE;
+            compact = true;
+        }
+        if (value != null) {
+            setValue(value);
+        }
+        if (oldValue != null) {
+            setOldValue(oldValue);
+        }
+        type = Canonicalizer.string(type);
         return this;
     }
 }
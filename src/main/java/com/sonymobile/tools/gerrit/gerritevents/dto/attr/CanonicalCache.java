@@ -0,0 +1,197 @@
+/*
+ *  The MIT License
+ *
+ *  Copyright 2026 Sony Mobile Communications Inc. All rights reserved.
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+package com.sonymobile.tools.gerrit.gerritevents.dto.attr;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A bounded, concurrent cache of canonical instances, with hit and miss statistics.
+ * <p>
+ * The cache is kept in two generations. Instances are looked up in the current generation and then in the
+ * previous one, and are always put in the current one. When the current generation is full it becomes the
+ * previous one, dropping what was only in the old previous generation. So at most two times the capacity is
+ * kept, and instances that keep being asked for stay.
+ *
+ * @param <K> the type of key.
+ * @param <V> the type of canonical instance.
+ * @see Canonicalizer
+ */
+public final class CanonicalCache<K, V> {
+
+    private final String name;
+    private volatile int capacity;
+    private volatile ConcurrentHashMap<K, V> current = new ConcurrentHashMap<K, V>();
+    private volatile ConcurrentHashMap<K, V> previous = new ConcurrentHashMap<K, V>();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder rotations = new LongAdder();
+
+    /**
+     * Standard constructor.
+     *
+     * @param name the name of the cache, for {@link #toString()}.
+     * @param capacity the number of instances in each generation.
+     */
+    CanonicalCache(String name, int capacity) {
+        this.name = name;
+        setCapacity(capacity);
+    }
+
+    /**
+     * The canonical instance for the key.
+     * If there is none yet, the given value becomes the canonical instance.
+     *
+     * @param key the key.
+     * @param value the value to use if there is no canonical instance for the key.
+     * @return the canonical instance, or value if key is null.
+     */
+    public V canonicalize(K key, V value) {
+        if (key == null) {
+            return value;
+        }
+        ConcurrentHashMap<K, V> generation = current;
+        V shared = generation.get(key);
+        if (shared != null) {
+            hits.increment();
+            return shared;
+        }
+        shared = previous.get(key);
+        if (shared != null) {
+            hits.increment();
+        } else {
+            misses.increment();
+            shared = value;
+        }
+        V raced = generation.putIfAbsent(key, shared);
+        if (raced != null) {
+            return raced;
+        }
+        if (generation.size() >= capacity) {
+            rotate(generation);
+        }
+        return shared;
+    }
+
+    /**
+     * Makes the full generation the previous one.
+     *
+     * @param full the generation that is full.
+     */
+    private synchronized void rotate(ConcurrentHashMap<K, V> full) {
+        if (current == full) {
+            previous = full;
+            current = new ConcurrentHashMap<K, V>();
+            rotations.increment();
+        }
+    }
+
+    /**
+     * The number of times a canonical instance was found.
+     *
+     * @return the number of hits.
+     */
+    public long getHits() {
+        return hits.sum();
+    }
+
+    /**
+     * The number of times there was no canonical instance, and the given value became it.
+     *
+     * @return the number of misses.
+     */
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * The share of lookups that found a canonical instance.
+     *
+     * @return the hit ratio, between 0 and 1.
+     */
+    public double getHitRatio() {
+        long hitCount = getHits();
+        long total = hitCount + getMisses();
+        if (total == 0) {
+            return 0;
+        }
+        return (double)hitCount / total;
+    }
+
+    /**
+     * The number of times a full generation was replaced.
+     *
+     * @return the number of rotations.
+     */
+    public long getRotations() {
+        return rotations.sum();
+    }
+
+    /**
+     * The number of canonical instances kept.
+     *
+     * @return the size of both generations.
+     */
+    public int size() {
+        return current.size() + previous.size();
+    }
+
+    /**
+     * The number of instances in each generation.
+     *
+     * @return the capacity.
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * The number of instances in each generation. The cache keeps at most two times this many.
+     *
+     * @param capacity the capacity.
+     */
+    public void setCapacity(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("The capacity must be at least 1: " + capacity);
+        }
+        this.capacity = capacity;
+    }
+
+    /**
+     * Drops all canonical instances and resets the statistics.
+     */
+    public synchronized void clear() {
+        current = new ConcurrentHashMap<K, V>();
+        previous = new ConcurrentHashMap<K, V>();
+        hits.reset();
+        misses.reset();
+        rotations.reset();
+    }
+
+    @Override
+    public String toString() {
+        return "CanonicalCache " + name + ": " + size() + " kept, " + getHits() + " hits, " + getMisses()
+                + " misses, " + getRotations() + " rotations";
+    }
+}
@@ -0,0 +1,196 @@
+/*
+ *  The MIT License
+ *
+ *  Copyright 2026 Sony Mobile Communications Inc. All rights reserved.
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+package com.sonymobile.tools.gerrit.gerritevents.dto.attr;
+
+import java.util.Objects;
+
+/**
+ * Shares equal Strings, {@link Account}s and {@link Provider}s between the events that are read.
+ * <p>
+ * Nearly every event repeats the same project and branch names, accounts and provider. Reading them through
+ * the caches here keeps one instance of each in memory instead of one per event.
+ * <p>
+ * Strings are always shared. Accounts and providers are only shared where turned on with
+ * {@link #setSharing(boolean)}, because the shared ones can not be changed, see {@link Account#isShared()}.
+ * The handler turns it on around reading events when asked to,
+ * see {@link com.sonymobile.tools.gerrit.gerritevents.GerritHandler#setSharingAccounts(boolean)}.
+ */
+public final class Canonicalizer {
+
+    private static final int STRING_CAPACITY = 8192;
+    private static final int ACCOUNT_CAPACITY = 4096;
+    private static final int PROVIDER_CAPACITY = 64;
+
+    private static final CanonicalCache<String, String> STRINGS =
+            new CanonicalCache<String, String>("strings", STRING_CAPACITY);
+    private static final CanonicalCache<AccountKey, Account> ACCOUNTS =
+            new CanonicalCache<AccountKey, Account>("accounts", ACCOUNT_CAPACITY);
+    private static final CanonicalCache<Provider, Provider> PROVIDERS =
+            new CanonicalCache<Provider, Provider>("providers", PROVIDER_CAPACITY);
+
+    private static final ThreadLocal<Boolean> SHARING = new ThreadLocal<Boolean>();
+
+    /**
+     * Empty private Constructor to hinder instantiation.
+     */
+    private Canonicalizer() {
+        //Empty
+    }
+
+    /**
+     * The shared String equal to the value.
+     *
+     * @param value the String.
+     * @return the shared String, or null if value is null.
+     */
+    public static String string(String value) {
+        return STRINGS.canonicalize(value, value);
+    }
+
+    /**
+     * If accounts and providers read from events on the current thread are shared between the events.
+     *
+     * @return true if shared.
+     */
+    public static boolean isSharing() {
+        return Boolean.TRUE.equals(SHARING.get());
+    }
+
+    /**
+     * Turns sharing accounts and providers between the events that are read on the current thread on or off,
+     * off by default. To be turned back to what it was when done reading.
+     * <p>
+     * Not compatible with code that changes the accounts or providers of events, their setters throw
+     * {@link UnsupportedOperationException} when shared. Instances already shared stay shared.
+     *
+     * @param share true to share.
+     * @return if it was turned on before.
+     */
+    public static boolean setSharing(boolean share) {
+        boolean before = isSharing();
+        if (share) {
+            SHARING.set(Boolean.TRUE);
+        } else {
+            SHARING.remove();
+        }
+        return before;
+    }
+
+    /**
+     * The shared account with the same name, e-mail and username, if sharing is turned on.
+     * If there is none yet the account becomes the shared one, and can no longer be changed.
+     *
+     * @param account the account that was read.
+     * @return the shared account, the account itself if sharing is turned off, or null if account is null.
+     * @see #setSharing(boolean)
+     */
+    public static Account account(Account account) {
+        if (account == null || !isSharing()) {
+            return account;
+        }
+        account.share();
+        return ACCOUNTS.canonicalize(new AccountKey(account), account);
+    }
+
+    /**
+     * The shared provider equal to the provider, if sharing is turned on.
+     * If there is none yet the provider becomes the shared one, and can no longer be changed.
+     *
+     * @param provider the provider that was read.
+     * @return the shared provider, the provider itself if sharing is turned off, or null if provider is null.
+     * @see #setSharing(boolean)
+     */
+    public static Provider provider(Provider provider) {
+        if (provider == null || !isSharing()) {
+            return provider;
+        }
+        provider.share();
+        return PROVIDERS.canonicalize(provider, provider);
+    }
+
+    /**
+     * The cache of shared Strings, for its statistics.
+     *
+     * @return the cache.
+     */
+    public static CanonicalCache<String, String> getStringCache() {
+        return STRINGS;
+    }
+
+    /**
+     * The cache of shared accounts, for its statistics.
+     *
+     * @return the cache.
+     */
+    public static CanonicalCache<?, Account> getAccountCache() {
+        return ACCOUNTS;
+    }
+
+    /**
+     * The cache of shared providers, for its statistics.
+     *
+     * @return the cache.
+     */
+    public static CanonicalCache<Provider, Provider> getProviderCache() {
+        return PROVIDERS;
+    }
+
+    /**
+     * Identifies an account by all of its values, {@link Account#equals(Object)} leaves out the username.
+     */
+    private static final class AccountKey {
+        private final String name;
+        private final String email;
+        private final String username;
+
+        /**
+         * Standard constructor.
+         *
+         * @param account the account.
+         */
+        AccountKey(Account account) {
+            name = account.getName();
+            email = account.getEmail();
+            username = account.getUsername();
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof AccountKey)) {
+                return false;
+            }
+            AccountKey other = (AccountKey)obj;
+            return Objects.equals(name, other.name) && Objects.equals(email, other.email)
+                    && Objects.equals(username, other.username);
+        }
+
+        @Override
+        public int hashCode() {
+            //CS IGNORE MagicNumber FOR NEXT 3 LINES. REASON: Hash function.
+            int result = Objects.hashCode(name);
+            result = 31 * result + Objects.hashCode(email);
+            return 31 * result + Objects.hashCode(username);
+        }
+    }
+}
@@ -23,6 +23,7 @@
  */
 package com.sonymobile.tools.gerrit.gerritevents.dto.attr;
 
+import com.google.gson.stream.JsonReader;
 import com.sonymobile.tools.gerrit.gerritevents.GerritQueryHandler;
 import com.sonymobile.tools.gerrit.gerritevents.dto.GerritChangeStatus;
 import com.sonymobile.tools.gerrit.gerritevents.dto.GerritJsonDTO;
@@ -33,11 +34,17 @@ import net.sf.json.JSONArray;
 import net.sf.json.JSONObject;
 import org.apache.commons.lang.StringUtils;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Date;
 import java.util.List;
 
+import static com.sonymobile.tools.gerrit.gerritevents.GerritJsonEventDecoder.nextBoolean;
+import static com.sonymobile.tools.gerrit.gerritevents.GerritJsonEventDecoder.nextDate;
+import static com.sonymobile.tools.gerrit.gerritevents.GerritJsonEventDecoder.nextObject;
+import static com.sonymobile.tools.gerrit.gerritevents.GerritJsonEventDecoder.nextString;
+import static com.sonymobile.tools.gerrit.gerritevents.GerritJsonEventDecoder.nextStringList;
 import static com.sonymobile.tools.gerrit.gerritevents.GerritJsonEventFactory.getBoolean;
 import static com.sonymobile.tools.gerrit.gerritevents.GerritJsonEventFactory.getString;
 import static com.sonymobile.tools.gerrit.gerritevents.GerritJsonEventFactory.getDate;
@@ -94,7 +101,15 @@ public class Change implements GerritJsonDTO {
     /**
      * Change number (deprecated).
      */
+    private int changeNumber;
+    /**
+     * Change number when it can not be kept as an int, or from old serialized data.
+     */
     private String number;
+    /**
+     * The change number as text once asked for.
+     */
+    private transient String numberText;
     /**
      * Description of change.
      */
@@ -113,13 +128,30 @@ public class Change implements GerritJsonDTO {
     private String url;
 
     /**
-     * The Date when this change was created.
+     * When this change was created, see {@link CompactValues#toTime(Date)}.
      */
-    private Date createdOn;
+    private long createdOnTime = CompactValues.NO_TIME;
+
+    /**
+     * When this change was last updated, see {@link CompactValues#toTime(Date)}.
+     */
+    private long lastUpdatedTime = CompactValues.NO_TIME;
 
     /**
-     * The Date when this change was last updated.
+     * False when read from data serialized before the dates were kept compact.
      */
+    private boolean compact = true;
+    /**
+     * The dates once asked for.
+     */
+    private transient Date createdOnDate;
+    private transient Date lastUpdatedDate;
+
+    /* The dates have been replaced by createdOnTime and lastUpdatedTime.
+     * This allows old builds to deserialize, readResolve() handles the migration. */
+    @SuppressWarnings("unused")
+    private Date createdOn;
+    @SuppressWarnings("unused")
     private Date lastUpdated;
 
     private List<Comment> comments;
@@ -141,6 +173,24 @@ public class Change implements GerritJsonDTO {
      */
     @SuppressWarnings("unused")
     private Object readResolve() {
+        if (number != null) {
+            setNumber(number);
+        }
+        if (!compact) {
+            createdOnTime = CompactValues.NO_TIME;
+            lastUpdatedTime = CompactValues.NO_TIME;
+            compact = true;
+        }
+        if (createdOn != null) {
+            createdOnTime = CompactValues.toTime(createdOn);
+            createdOn = null;
+        }
+        if (lastUpdated != null) {
+            lastUpdatedTime = CompactValues.toTime(lastUpdated);
+            lastUpdated = null;
+        }
+        project = Canonicalizer.string(project);
+        branch = Canonicalizer.string(branch);
         if (StringUtils.isNotEmpty(topic)) {
             topicObject = new Topic(topic);
             topic = null;
@@ -181,15 +231,15 @@ public class Change implements GerritJsonDTO {
 
     @Override
     public void fromJson(JSONObject json) {
-        project = getString(json, PROJECT);
-        branch = getString(json, BRANCH);
+        project = Canonicalizer.string(getString(json, PROJECT));
+        branch = Canonicalizer.string(getString(json, BRANCH));
         id = getString(json, ID);
-        number = getString(json, NUMBER);
+        setNumber(getString(json, NUMBER));
         subject = getString(json, SUBJECT);
-        createdOn = getDate(json, CREATED_ON);
-        lastUpdated = getDate(json, LAST_UPDATED);
+        setCreatedOn(getDate(json, CREATED_ON));
+        setLastUpdated(getDate(json, LAST_UPDATED));
         if (json.containsKey(OWNER)) {
-            owner = new Account(json.getJSONObject(OWNER));
+            owner = Canonicalizer.account(new Account(json.getJSONObject(OWNER)));
         }
         if (json.containsKey(COMMENTS)) {
             comments = new ArrayList<Comment>();
@@ -224,6 +274,78 @@ public class Change implements GerritJsonDTO {
         _private = getBoolean(json, PRIVATE, false);
     }
 
+    @Override
+    public void fromJson(JsonReader reader) throws IOException {
+        String statusValue = null;
+        hashtags = Collections.emptyList();
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case PROJECT:
+                    project = Canonicalizer.string(nextString(reader));
+                    break;
+                case BRANCH:
+                    branch = Canonicalizer.string(nextString(reader));
+                    break;
+                case ID:
+                    id = nextString(reader);
+                    break;
+                case NUMBER:
+                    setNumber(nextString(reader));
+                    break;
+                case SUBJECT:
+                    subject = nextString(reader);
+                    break;
+                case CREATED_ON:
+                    setCreatedOn(nextDate(reader));
+                    break;
+                case LAST_UPDATED:
+                    setLastUpdated(nextDate(reader));
+                    break;
+                case OWNER:
+                    owner = Canonicalizer.account(nextObject(reader, new Account()));
+                    break;
+                case COMMENTS:
+                    comments = new ArrayList<Comment>();
+                    reader.beginArray();
+                    while (reader.hasNext()) {
+                        comments.add(nextObject(reader, new Comment()));
+                    }
+                    reader.endArray();
+                    break;
+                case COMMIT_MESSAGE:
+                    commitMessage = nextString(reader);
+                    break;
+                case TOPIC:
+                    String topicName = nextString(reader);
+                    if (StringUtils.isNotEmpty(topicName)) {
+                        topicObject = new Topic(topicName);
+                    }
+                    break;
+                case HASHTAGS:
+                    hashtags = nextStringList(reader);
+                    break;
+                case URL:
+                    url = nextString(reader);
+                    break;
+                case STATUS:
+                    statusValue = nextString(reader);
+                    break;
+                case WIP:
+                    wip = nextBoolean(reader, false);
+                    break;
+                case PRIVATE:
+                    _private = nextBoolean(reader, false);
+                    break;
+                default:
+                    reader.skipValue();
+                    break;
+            }
+        }
+        reader.endObject();
+        status = GerritChangeStatus.fromString(statusValue);
+    }
+
     /**
      * Branch name within project.
      * @return the branch.
@@ -237,7 +359,7 @@ public class Change implements GerritJsonDTO {
      * @param branch the branch.
      */
     public void setBranch(String branch) {
-        this.branch = branch;
+        this.branch = Canonicalizer.string(branch);
     }
 
     /**
@@ -337,7 +459,13 @@ public class Change implements GerritJsonDTO {
      * @deprecated because the Gerrit documentation says so.
      */
     public String getNumber() {
-        return number;
+        if (number != null) {
+            return number;
+        }
+        if (numberText == null) {
+            numberText = CompactValues.fromNumber(changeNumber);
+        }
+        return numberText;
     }
 
     /**
@@ -346,7 +474,13 @@ public class Change implements GerritJsonDTO {
      * @deprecated because the Gerrit documentation says so.
      */
     public void setNumber(String number) {
-        this.number = number;
+        changeNumber = CompactValues.toNumber(number);
+        numberText = null;
+        if (changeNumber == CompactValues.NO_NUMBER) {
+            this.number = number;
+        } else {
+            this.number = null;
+        }
     }
 
     /**
@@ -378,7 +512,7 @@ public class Change implements GerritJsonDTO {
      * @param project the project.
      */
     public void setProject(String project) {
-        this.project = project;
+        this.project = Canonicalizer.string(project);
     }
 
     /**
@@ -434,7 +568,10 @@ public class Change implements GerritJsonDTO {
      * @return the Date.
      */
     public Date getCreatedOn() {
-        return createdOn;
+        if (createdOnDate == null) {
+            createdOnDate = CompactValues.fromTime(createdOnTime);
+        }
+        return createdOnDate;
     }
 
     /**
@@ -442,7 +579,8 @@ public class Change implements GerritJsonDTO {
      * @param date the Date.
      */
     public void setCreatedOn(Date date) {
-        this.createdOn = date;
+        this.createdOnTime = CompactValues.toTime(date);
+        this.createdOnDate = null;
     }
 
     /**
@@ -450,7 +588,10 @@ public class Change implements GerritJsonDTO {
      * @return the Date.
      */
     public Date getLastUpdated() {
-        return lastUpdated;
+        if (lastUpdatedDate == null) {
+            lastUpdatedDate = CompactValues.fromTime(lastUpdatedTime);
+        }
+        return lastUpdatedDate;
     }
 
     /**
@@ -458,7 +599,8 @@ public class Change implements GerritJsonDTO {
      * @param date the Date.
      */
     public void setLastUpdated(Date date) {
-        this.lastUpdated = date;
+        this.lastUpdatedTime = CompactValues.toTime(date);
+        this.lastUpdatedDate = null;
     }
 
     /**
@@ -497,8 +639,8 @@ public class Change implements GerritJsonDTO {
 
     @Override
     public boolean equals(Object obj) {
-        //CS IGNORE MagicNumber FOR NEXT 18 LINES. REASON: Autogenerated Code.
-        //CS IGNORE AvoidInlineConditionals FOR NEXT 18 LINES. REASON: Autogenerated Code.
+        //CS IGNORE MagicNumber FOR NEXT 21 LINES. REASON: Autogenerated Code.
+        //CS IGNORE AvoidInlineConditionals FOR NEXT 21 LINES. REASON: Autogenerated Code.
         if (obj == null) {
             return false;
         }
@@ -512,6 +654,9 @@ public class Change implements GerritJsonDTO {
         if ((this.branch == null) ? (other.branch != null) : !this.branch.equals(other.branch)) {
             return false;
         }
+        if (this.changeNumber != other.changeNumber) {
+            return false;
+        }
         if ((this.number == null) ? (other.number != null) : !this.number.equals(other.number)) {
             return false;
         }
@@ -523,11 +668,12 @@ public class Change implements GerritJsonDTO {
 
     @Override
     public int hashCode() {
-        //CS IGNORE MagicNumber FOR NEXT 6 LINES. REASON: Autogenerated Code.
-        //CS IGNORE AvoidInlineConditionals FOR NEXT 6 LINES. REASON: Autogenerated Code.
+        //CS IGNORE MagicNumber FOR NEXT 7 LINES. REASON: Autogenerated Code.
+        //CS IGNORE AvoidInlineConditionals FOR NEXT 7 LINES. REASON: Autogenerated Code.
         int hash = 7;
         hash = 29 * hash + (this.project != null ? this.project.hashCode() : 0);
         hash = 29 * hash + (this.branch != null ? this.branch.hashCode() : 0);
+        hash = 29 * hash + this.changeNumber;
         hash = 29 * hash + (this.number != null ? this.number.hashCode() : 0);
         hash = 29 * hash + (this.id != null ? this.id.hashCode() : 0);
         return hash;
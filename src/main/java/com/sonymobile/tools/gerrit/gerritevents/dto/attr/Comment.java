@@ -24,9 +24,14 @@
  */
 package com.sonymobile.tools.gerrit.gerritevents.dto.attr;
 
+import com.google.gson.stream.JsonReader;
 import com.sonymobile.tools.gerrit.gerritevents.dto.GerritJsonDTO;
 import net.sf.json.JSONObject;
 
+import java.io.IOException;
+
+import static com.sonymobile.tools.gerrit.gerritevents.GerritJsonEventDecoder.nextObject;
+import static com.sonymobile.tools.gerrit.gerritevents.GerritJsonEventDecoder.nextString;
 import static com.sonymobile.tools.gerrit.gerritevents.GerritJsonEventFactory.getString;
 import static com.sonymobile.tools.gerrit.gerritevents.dto.GerritEventKeys.MESSAGE;
 import static com.sonymobile.tools.gerrit.gerritevents.dto.GerritEventKeys.REVIEWER;
@@ -58,8 +63,27 @@ public class Comment implements GerritJsonDTO {
     public void fromJson(JSONObject json) {
         message = getString(json, MESSAGE);
         if (json.containsKey(REVIEWER)) {
-            reviewer = new Account(json.getJSONObject(REVIEWER));
+            reviewer = Canonicalizer.account(new Account(json.getJSONObject(REVIEWER)));
+        }
+    }
+
+    @Override
+    public void fromJson(JsonReader reader) throws IOException {
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case MESSAGE:
+                    message = nextString(reader);
+                    break;
+                case REVIEWER:
+                    reviewer = Canonicalizer.account(nextObject(reader, new Account()));
+                    break;
+                default:
+                    reader.skipValue();
+                    break;
+            }
         }
+        reader.endObject();
     }
 
     /**
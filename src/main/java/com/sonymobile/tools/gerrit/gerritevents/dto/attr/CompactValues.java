@@ -0,0 +1,166 @@
+/*
+ *  The MIT License
+ *
+ *  Copyright 2026 Sony Mobile Communications Inc. All rights reserved.
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+package com.sonymobile.tools.gerrit.gerritevents.dto.attr;
+
+import java.util.Date;
+
+/**
+ * Conversions between the values the DTOs expose and the compact form they keep them in.
+ * <p>
+ * Numbers are kept as ints, votes as bytes and dates as epoch milliseconds. Values that can not be
+ * kept compact, like a number with a leading zero, stay Strings so that the getters return exactly what was set.
+ * <p>
+ * The compact fields start out as {@link #NO_VOTE} or {@link #NO_TIME}, but read as 0 from data serialized
+ * before they existed. The DTOs tell the two apart with a field that is initialized to true and so is
+ * only true in data written since, and reset the missing fields in readResolve.
+ */
+final class CompactValues {
+
+    /**
+     * The compact number when there is none, Gerrit numbers start at 1.
+     */
+    static final int NO_NUMBER = 0;
+    /**
+     * The compact vote when there is none.
+     */
+    static final byte NO_VOTE = Byte.MIN_VALUE;
+    /**
+     * The compact date when there is none.
+     */
+    static final long NO_TIME = Long.MIN_VALUE;
+
+    private static final String[] VOTES = new String[Byte.MAX_VALUE - Byte.MIN_VALUE + 1];
+
+    static {
+        for (int vote = Byte.MIN_VALUE + 1; vote <= Byte.MAX_VALUE; vote++) {
+            VOTES[vote - Byte.MIN_VALUE] = String.valueOf(vote);
+        }
+    }
+
+    /**
+     * Empty private Constructor to hinder instantiation.
+     */
+    private CompactValues() {
+        //Empty
+    }
+
+    /**
+     * The compact form of a positive number written without sign or leading zeros.
+     *
+     * @param value the number as text.
+     * @return the number, or {@link #NO_NUMBER} if it is null or can not be kept as an int.
+     */
+    static int toNumber(String value) {
+        int number = parse(value);
+        if (number <= 0) {
+            return NO_NUMBER;
+        }
+        return number;
+    }
+
+    /**
+     * The number as text.
+     *
+     * @param number the compact number.
+     * @return the text, or null for {@link #NO_NUMBER}.
+     */
+    static String fromNumber(int number) {
+        if (number == NO_NUMBER) {
+            return null;
+        }
+        return String.valueOf(number);
+    }
+
+    /**
+     * The compact form of a vote like "-2" or "1".
+     *
+     * @param value the vote as text.
+     * @return the vote, or {@link #NO_VOTE} if it is null or can not be kept as a byte.
+     */
+    static byte toVote(String value) {
+        int vote = parse(value);
+        if (vote <= Byte.MIN_VALUE || vote > Byte.MAX_VALUE) {
+            return NO_VOTE;
+        }
+        return (byte)vote;
+    }
+
+    /**
+     * Parses an int that is written the way {@link String#valueOf(int)} writes it.
+     *
+     * @param value the text.
+     * @return the int, or {@link Integer#MIN_VALUE} if the text is null or written some other way.
+     */
+    private static int parse(String value) {
+        if (value == null || value.isEmpty()) {
+            return Integer.MIN_VALUE;
+        }
+        int number;
+        try {
+            number = Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            return Integer.MIN_VALUE;
+        }
+        if (!String.valueOf(number).equals(value)) {
+            return Integer.MIN_VALUE;
+        }
+        return number;
+    }
+
+    /**
+     * The vote as text, without allocating.
+     *
+     * @param vote the compact vote.
+     * @return the text, or null for {@link #NO_VOTE}.
+     */
+    static String fromVote(byte vote) {
+        return VOTES[vote - Byte.MIN_VALUE];
+    }
+
+    /**
+     * The compact form of a date, its epoch milliseconds.
+     *
+     * @param date the date.
+     * @return the compact date, or {@link #NO_TIME} if date is null.
+     */
+    static long toTime(Date date) {
+        if (date == null) {
+            return NO_TIME;
+        }
+        return date.getTime();
+    }
+
+    /**
+     * The date, as a new instance since Date is mutable.
+     *
+     * @param time the compact date.
+     * @return the date, or null for {@link #NO_TIME}.
+     */
+    static Date fromTime(long time) {
+        if (time == NO_TIME) {
+            return null;
+        }
+        return new Date(time);
+    }
+}
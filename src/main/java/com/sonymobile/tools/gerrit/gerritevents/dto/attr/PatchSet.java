@@ -23,15 +23,22 @@
  */
 package com.sonymobile.tools.gerrit.gerritevents.dto.attr;
 
+import com.google.gson.stream.JsonReader;
 import com.sonymobile.tools.gerrit.gerritevents.dto.GerritChangeKind;
 import com.sonymobile.tools.gerrit.gerritevents.dto.GerritJsonDTO;
 import net.sf.json.JSONArray;
 import net.sf.json.JSONObject;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
 
+import static com.sonymobile.tools.gerrit.gerritevents.GerritJsonEventDecoder.nextBoolean;
+import static com.sonymobile.tools.gerrit.gerritevents.GerritJsonEventDecoder.nextDate;
+import static com.sonymobile.tools.gerrit.gerritevents.GerritJsonEventDecoder.nextObject;
+import static com.sonymobile.tools.gerrit.gerritevents.GerritJsonEventDecoder.nextString;
+import static com.sonymobile.tools.gerrit.gerritevents.GerritJsonEventDecoder.nextStringList;
 import static com.sonymobile.tools.gerrit.gerritevents.GerritJsonEventFactory.getDate;
 import static com.sonymobile.tools.gerrit.gerritevents.GerritJsonEventFactory.getString;
 import static com.sonymobile.tools.gerrit.gerritevents.GerritJsonEventFactory.getBoolean;
@@ -57,7 +64,15 @@ public class PatchSet implements GerritJsonDTO {
     /**
      * The patchset number.
      */
+    private int patchSetNumber;
+    /**
+     * The patchset number when it can not be kept as an int, or from old serialized data.
+     */
     private String number;
+    /**
+     * The patchset number as text once asked for.
+     */
+    private transient String numberText;
     /**
      * Git commit-ish for this patchset.
      */
@@ -91,8 +106,20 @@ public class PatchSet implements GerritJsonDTO {
      */
     private List<String> parents;
     /**
-     * The Date when this change was created.
+     * When this patch set was created, see {@link CompactValues#toTime(Date)}.
+     */
+    private long createdOnTime = CompactValues.NO_TIME;
+    /**
+     * False when read from data serialized before the date was kept compact.
+     */
+    private boolean compact = true;
+    /**
+     * The date once asked for.
      */
+    private transient Date createdOnDate;
+    /* The date has been replaced by createdOnTime.
+     * This allows old builds to deserialize, readResolve() handles the migration. */
+    @SuppressWarnings("unused")
     private Date createdOn;
     /**
      * Default constructor.
@@ -110,19 +137,19 @@ public class PatchSet implements GerritJsonDTO {
 
     @Override
     public void fromJson(JSONObject json) {
-        number = getString(json, NUMBER);
+        setNumber(getString(json, NUMBER));
         revision = getString(json, REVISION);
         draft = getBoolean(json, IS_DRAFT);
-        createdOn = getDate(json, CREATED_ON);
+        setCreatedOn(getDate(json, CREATED_ON));
         if (json.containsKey(KIND)) {
             kind = GerritChangeKind.fromString(getString(json, KIND));
         }
         ref = getString(json, REF);
         if (json.containsKey(UPLOADER)) {
-            uploader = new Account(json.getJSONObject(UPLOADER));
+            uploader = Canonicalizer.account(new Account(json.getJSONObject(UPLOADER)));
         }
         if (json.containsKey(AUTHOR)) {
-            author = new Account(json.getJSONObject(AUTHOR));
+            author = Canonicalizer.account(new Account(json.getJSONObject(AUTHOR)));
         }
         if (json.containsKey(APPROVALS)) {
             approvals = new ArrayList<Approval>();
@@ -140,6 +167,75 @@ public class PatchSet implements GerritJsonDTO {
         }
     }
 
+    @Override
+    public void fromJson(JsonReader reader) throws IOException {
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case NUMBER:
+                    setNumber(nextString(reader));
+                    break;
+                case REVISION:
+                    revision = nextString(reader);
+                    break;
+                case IS_DRAFT:
+                    draft = nextBoolean(reader, false);
+                    break;
+                case CREATED_ON:
+                    setCreatedOn(nextDate(reader));
+                    break;
+                case KIND:
+                    kind = GerritChangeKind.fromString(nextString(reader));
+                    break;
+                case REF:
+                    ref = nextString(reader);
+                    break;
+                case UPLOADER:
+                    uploader = Canonicalizer.account(nextObject(reader, new Account()));
+                    break;
+                case AUTHOR:
+                    author = Canonicalizer.account(nextObject(reader, new Account()));
+                    break;
+                case APPROVALS:
+                    approvals = new ArrayList<Approval>();
+                    reader.beginArray();
+                    while (reader.hasNext()) {
+                        approvals.add(nextObject(reader, new Approval()));
+                    }
+                    reader.endArray();
+                    break;
+                case PARENTS:
+                    parents = nextStringList(reader);
+                    break;
+                default:
+                    reader.skipValue();
+                    break;
+            }
+        }
+        reader.endObject();
+    }
+
+    /**
+     * Converts old serialized data to newer construct.
+     *
+     * @return itself
+     */
+    @SuppressWarnings("unused")
+    private Object readResolve() {
+        if (number != null) {
+            setNumber(number);
+        }
+        if (!compact) {
+            createdOnTime = CompactValues.NO_TIME;
+            compact = true;
+        }
+        if (createdOn != null) {
+            createdOnTime = CompactValues.toTime(createdOn);
+            createdOn = null;
+        }
+        return this;
+    }
+
     /**
      * @return the List of parent dependency hashes
      */
@@ -152,7 +248,13 @@ public class PatchSet implements GerritJsonDTO {
      * @return the number.
      */
     public String getNumber() {
-        return number;
+        if (number != null) {
+            return number;
+        }
+        if (numberText == null) {
+            numberText = CompactValues.fromNumber(patchSetNumber);
+        }
+        return numberText;
     }
 
     /**
@@ -170,7 +272,13 @@ public class PatchSet implements GerritJsonDTO {
      * @param number the number.
      */
     public void setNumber(String number) {
-        this.number = number;
+        patchSetNumber = CompactValues.toNumber(number);
+        numberText = null;
+        if (patchSetNumber == CompactValues.NO_NUMBER) {
+            this.number = number;
+        } else {
+            this.number = null;
+        }
     }
 
     /**
@@ -270,7 +378,10 @@ public class PatchSet implements GerritJsonDTO {
      * @return the Date.
      */
     public Date getCreatedOn() {
-        return createdOn;
+        if (createdOnDate == null) {
+            createdOnDate = CompactValues.fromTime(createdOnTime);
+        }
+        return createdOnDate;
     }
 
     /**
@@ -278,13 +389,14 @@ public class PatchSet implements GerritJsonDTO {
      * @param date the Date.
      */
     public void setCreatedOn(Date date) {
-        this.createdOn = date;
+        this.createdOnTime = CompactValues.toTime(date);
+        this.createdOnDate = null;
     }
 
     @Override
     public boolean equals(Object obj) {
-        //CS IGNORE MagicNumber FOR NEXT 15 LINES. REASON: Autogenerated Code.
-        //CS IGNORE AvoidInlineConditionals FOR NEXT 15 LINES. REASON: Autogenerated Code.
+        //CS IGNORE MagicNumber FOR NEXT 18 LINES. REASON: Autogenerated Code.
+        //CS IGNORE AvoidInlineConditionals FOR NEXT 18 LINES. REASON: Autogenerated Code.
         if (obj == null) {
             return false;
         }
@@ -292,6 +404,9 @@ public class PatchSet implements GerritJsonDTO {
             return false;
         }
         final PatchSet other = (PatchSet)obj;
+        if (this.patchSetNumber != other.patchSetNumber) {
+            return false;
+        }
         if ((this.number == null) ? (other.number != null) : !this.number.equals(other.number)) {
             return false;
         }
@@ -303,9 +418,10 @@ public class PatchSet implements GerritJsonDTO {
 
     @Override
     public int hashCode() {
-        //CS IGNORE MagicNumber FOR NEXT 5 LINES. REASON: Autogenerated Code.
-        //CS IGNORE AvoidInlineConditionals FOR NEXT 5 LINES. REASON: Autogenerated Code.
+        //CS IGNORE MagicNumber FOR NEXT 6 LINES. REASON: Autogenerated Code.
+        //CS IGNORE AvoidInlineConditionals FOR NEXT 6 LINES. REASON: Autogenerated Code.
         int hash = 7;
+        hash = 79 * hash + this.patchSetNumber;
         hash = 79 * hash + (this.number != null ? this.number.hashCode() : 0);
         hash = 79 * hash + (this.revision != null ? this.revision.hashCode() : 0);
         return hash;
@@ -24,6 +24,7 @@
  */
 package com.sonymobile.tools.gerrit.gerritevents.dto.attr;
 
+import static com.sonymobile.tools.gerrit.gerritevents.GerritJsonEventDecoder.nextString;
 import static com.sonymobile.tools.gerrit.gerritevents.GerritJsonEventFactory.getString;
 import static com.sonymobile.tools.gerrit.gerritevents.dto.GerritEventKeys.NAME;
 import static com.sonymobile.tools.gerrit.gerritevents.dto.GerritEventKeys.HOST;
@@ -33,11 +34,14 @@ import static com.sonymobile.tools.gerrit.gerritevents.dto.GerritEventKeys.SCHEM
 import static com.sonymobile.tools.gerrit.gerritevents.dto.GerritEventKeys.URL;
 import static com.sonymobile.tools.gerrit.gerritevents.dto.GerritEventKeys.VERSION;
 
+import com.google.gson.stream.JsonReader;
 import com.sonymobile.tools.gerrit.gerritevents.GerritConnection;
 import net.sf.json.JSONObject;
 
 import com.sonymobile.tools.gerrit.gerritevents.dto.GerritJsonDTO;
 
+import java.io.IOException;
+
 /**
  * Represents a Gerrit JSON Provider DTO.
  * A Provider that is related to an event or attribute.
@@ -57,6 +61,10 @@ public class Provider implements GerritJsonDTO {
     /**
      * The port where the Gerrit instance listens for connections.
      */
+    private int portNumber;
+    /**
+     * The port when it can not be kept as an int, or from old serialized data.
+     */
     private String port;
     /**
      * The protocol scheme through which this event was provided.
@@ -70,6 +78,10 @@ public class Provider implements GerritJsonDTO {
      * The version of the Gerrit instance.
      */
     private String version;
+    /**
+     * If this provider is shared between events, see {@link Canonicalizer#provider(Provider)}.
+     */
+    private transient boolean shared;
     /**
      * Default constructor.
      */
@@ -96,27 +108,69 @@ public class Provider implements GerritJsonDTO {
      * @param version the Gerrit version.
      */
     public Provider(String name, String host, String port, String scheme, String url, String version) {
-        this.name = name;
-        this.host = host;
-        this.port = port;
-        this.scheme = scheme;
-        this.url = url;
-        this.version = version;
+        setName(name);
+        setHost(host);
+        setPort(port);
+        setScheme(scheme);
+        setUrl(url);
+        setVersion(version);
     }
 
     @Override
     public void fromJson(JSONObject json) {
-        name = getString(json, NAME);
-        host = getString(json, HOST);
-        port = getString(json, PORT);
+        setName(getString(json, NAME));
+        setHost(getString(json, HOST));
+        setPort(getString(json, PORT));
         // For backwards compatibility we check for `proto` first
         // and if it's not set, then try `scheme`.
-        scheme = getString(json, PROTOCOL);
+        setScheme(getString(json, PROTOCOL));
         if (scheme == null) {
-            scheme = getString(json, SCHEME);
+            setScheme(getString(json, SCHEME));
+        }
+        setUrl(getString(json, URL));
+        setVersion(getString(json, VERSION));
+    }
+
+    @Override
+    public void fromJson(JsonReader reader) throws IOException {
+        String protocol = null;
+        String schemeValue = null;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case NAME:
+                    setName(nextString(reader));
+                    break;
+                case HOST:
+                    setHost(nextString(reader));
+                    break;
+                case PORT:
+                    setPort(nextString(reader));
+                    break;
+                case PROTOCOL:
+                    protocol = nextString(reader);
+                    break;
+                case SCHEME:
+                    schemeValue = nextString(reader);
+                    break;
+                case URL:
+                    setUrl(nextString(reader));
+                    break;
+                case VERSION:
+                    setVersion(nextString(reader));
+                    break;
+                default:
+                    reader.skipValue();
+                    break;
+            }
+        }
+        reader.endObject();
+        // For backwards compatibility `proto` wins over `scheme`.
+        if (protocol != null) {
+            setScheme(protocol);
+        } else {
+            setScheme(schemeValue);
         }
-        url = getString(json, URL);
-        version = getString(json, VERSION);
     }
 
     /**
@@ -134,7 +188,8 @@ public class Provider implements GerritJsonDTO {
      * @param name the name.
      */
     public void setName(String name) {
-        this.name = name;
+        checkNotShared();
+        this.name = Canonicalizer.string(name);
     }
 
     /**
@@ -152,7 +207,8 @@ public class Provider implements GerritJsonDTO {
      * @param host the host.
      */
     public void setHost(String host) {
-        this.host = host;
+        checkNotShared();
+        this.host = Canonicalizer.string(host);
     }
 
     /**
@@ -161,7 +217,10 @@ public class Provider implements GerritJsonDTO {
      * @return the port.
      */
     public String getPort() {
-        return port;
+        if (port != null) {
+            return port;
+        }
+        return CompactValues.fromNumber(portNumber);
     }
 
     /**
@@ -170,7 +229,13 @@ public class Provider implements GerritJsonDTO {
      * @param port the port.
      */
     public void setPort(String port) {
-        this.port = port;
+        checkNotShared();
+        portNumber = CompactValues.toNumber(port);
+        if (portNumber == CompactValues.NO_NUMBER) {
+            this.port = port;
+        } else {
+            this.port = null;
+        }
     }
 
     /**
@@ -208,7 +273,8 @@ public class Provider implements GerritJsonDTO {
      * @param scheme the scheme.
      */
     public void setScheme(String scheme) {
-        this.scheme = scheme;
+        checkNotShared();
+        this.scheme = Canonicalizer.string(scheme);
     }
 
     /**
@@ -230,7 +296,8 @@ public class Provider implements GerritJsonDTO {
      * @param url the url.
      */
     public void setUrl(String url) {
-        this.url = url;
+        checkNotShared();
+        this.url = Canonicalizer.string(url);
     }
 
     /**
@@ -248,7 +315,37 @@ public class Provider implements GerritJsonDTO {
      * @param version the version.
      */
     public void setVersion(String version) {
-        this.version = version;
+        checkNotShared();
+        this.version = Canonicalizer.string(version);
+    }
+
+    /**
+     * If this provider is shared between events, and can not be changed.
+     * Providers read from events are shared when turned on, see {@link Canonicalizer#setSharing(boolean)}.
+     *
+     * @return true if shared.
+     */
+    public boolean isShared() {
+        return shared;
+    }
+
+    /**
+     * Marks this provider as shared between events.
+     */
+    void share() {
+        shared = true;
+    }
+
+    /**
+     * Throws if this provider is shared.
+     *
+     * @throws UnsupportedOperationException if shared.
+     */
+    private void checkNotShared() {
+        if (shared) {
+            throw new UnsupportedOperationException("The provider is shared between events and can not be changed: "
+                    + name);
+        }
     }
 
     @Override
@@ -259,12 +356,13 @@ public class Provider implements GerritJsonDTO {
 
     @Override
     public int hashCode() {
-        //CS IGNORE MagicNumber FOR NEXT 9 LINES. REASON: Autogenerated Code.
-        //CS IGNORE AvoidInlineConditionals FOR NEXT 9 LINES. REASON: Autogenerated Code.
+        //CS IGNORE MagicNumber FOR NEXT 10 LINES. REASON: Autogenerated Code.
+        //CS IGNORE AvoidInlineConditionals FOR NEXT 10 LINES. REASON: Autogenerated Code.
         final int prime = 31;
         int result = 1;
         result = prime * result + ((name == null) ? 0 : name.hashCode());
         result = prime * result + ((host == null) ? 0 : host.hashCode());
+        result = prime * result + portNumber;
         result = prime * result + ((port == null) ? 0 : port.hashCode());
         result = prime * result + ((scheme == null) ? 0 : scheme.hashCode());
         result = prime * result + ((url == null) ? 0 : url.hashCode());
@@ -274,8 +372,8 @@ public class Provider implements GerritJsonDTO {
 
     @Override
     public boolean equals(Object obj) {
-        //CS IGNORE NeedBraces FOR NEXT 38 LINES. REASON: Autogenerated Code.
-        //CS IGNORE NoWhitespaceAfter FOR NEXT 38 LINES. REASON: Autogenerated Code.
+        //CS IGNORE NeedBraces FOR NEXT 40 LINES. REASON: Autogenerated Code.
+        //CS IGNORE NoWhitespaceAfter FOR NEXT 40 LINES. REASON: Autogenerated Code.
         if (this == obj)
             return true;
         if (obj == null)
@@ -293,6 +391,8 @@ public class Provider implements GerritJsonDTO {
                 return false;
         } else if (!host.equals(other.host))
             return false;
+        if (portNumber != other.portNumber)
+            return false;
         if (port == null) {
             if (other.port != null)
                 return false;
@@ -322,6 +422,9 @@ public class Provider implements GerritJsonDTO {
      * @return itself
      */
     protected Object readResolve() {
+        if (port != null) {
+            setPort(port);
+        }
         if (proto != null && scheme == null) {
             scheme = proto;
             proto = null;
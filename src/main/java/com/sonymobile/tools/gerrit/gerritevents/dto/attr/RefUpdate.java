@@ -23,10 +23,14 @@
  */
 package com.sonymobile.tools.gerrit.gerritevents.dto.attr;
 
+import com.google.gson.stream.JsonReader;
 import com.sonymobile.tools.gerrit.gerritevents.dto.GerritJsonDTO;
 import static com.sonymobile.tools.gerrit.gerritevents.GerritJsonEventFactory.getString;
 import net.sf.json.JSONObject;
 
+import java.io.IOException;
+
+import static com.sonymobile.tools.gerrit.gerritevents.GerritJsonEventDecoder.nextString;
 import static com.sonymobile.tools.gerrit.gerritevents.dto.GerritEventKeys.PROJECT;
 import static com.sonymobile.tools.gerrit.gerritevents.dto.GerritEventKeys.REFNAME;
 import static com.sonymobile.tools.gerrit.gerritevents.dto.GerritEventKeys.OLDREV;
@@ -73,12 +77,37 @@ public class RefUpdate implements GerritJsonDTO {
 
     @Override
     public void fromJson(JSONObject json) {
-        project = getString(json, PROJECT);
-        refName = getString(json, REFNAME);
+        project = Canonicalizer.string(getString(json, PROJECT));
+        refName = Canonicalizer.string(getString(json, REFNAME));
         oldRev = getString(json, OLDREV);
         newRev = getString(json, NEWREV);
     }
 
+    @Override
+    public void fromJson(JsonReader reader) throws IOException {
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case PROJECT:
+                    project = Canonicalizer.string(nextString(reader));
+                    break;
+                case REFNAME:
+                    refName = Canonicalizer.string(nextString(reader));
+                    break;
+                case OLDREV:
+                    oldRev = nextString(reader);
+                    break;
+                case NEWREV:
+                    newRev = nextString(reader);
+                    break;
+                default:
+                    reader.skipValue();
+                    break;
+            }
+        }
+        reader.endObject();
+    }
+
     /**
      * Name of project.
      * @return the project.
@@ -92,7 +121,7 @@ public class RefUpdate implements GerritJsonDTO {
      * @param project the project.
      */
     public void setProject(String project) {
-        this.project = project;
+        this.project = Canonicalizer.string(project);
     }
 
     /**
@@ -115,7 +144,7 @@ public class RefUpdate implements GerritJsonDTO {
      * @param refName the ref.
      */
     public void setRefName(String refName) {
-        this.refName = refName;
+        this.refName = Canonicalizer.string(refName);
     }
 
     /**
@@ -24,11 +24,16 @@
  */
 package com.sonymobile.tools.gerrit.gerritevents.dto.events;
 
+import static com.sonymobile.tools.gerrit.gerritevents.GerritJsonEventDecoder.nextObject;
 import static com.sonymobile.tools.gerrit.gerritevents.dto.GerritEventKeys.ABANDONER;
+import com.google.gson.stream.JsonReader;
 import com.sonymobile.tools.gerrit.gerritevents.dto.GerritEventType;
 import com.sonymobile.tools.gerrit.gerritevents.dto.attr.Account;
+import com.sonymobile.tools.gerrit.gerritevents.dto.attr.Canonicalizer;
 import net.sf.json.JSONObject;
 
+import java.io.IOException;
+
 /**
  * A DTO representation of the change-abandoned Gerrit Event.
  * @author Robert Sandell &lt;robert.sandell@sonyericsson.com&gt;
@@ -87,7 +92,18 @@ public class ChangeAbandoned extends ChangeBasedEvent {
         super.fromJson(json);
 
         if (json.containsKey(ABANDONER)) {
-            abandoner = new Account(json.getJSONObject(ABANDONER));
+            abandoner = Canonicalizer.account(new Account(json.getJSONObject(ABANDONER)));
+        }
+    }
+
+    @Override
+    protected boolean readMember(String name, JsonReader reader) throws IOException {
+        switch (name) {
+            case ABANDONER:
+                abandoner = Canonicalizer.account(nextObject(reader, new Account()));
+                return true;
+            default:
+                return super.readMember(name, reader);
         }
     }
 }
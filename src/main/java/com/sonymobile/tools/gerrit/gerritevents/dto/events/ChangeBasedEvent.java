@@ -23,14 +23,17 @@
  */
 package com.sonymobile.tools.gerrit.gerritevents.dto.events;
 
+import com.google.gson.stream.JsonReader;
 import com.sonymobile.tools.gerrit.gerritevents.GerritQueryHandler;
 import com.sonymobile.tools.gerrit.gerritevents.dto.attr.Change;
 import com.sonymobile.tools.gerrit.gerritevents.dto.attr.PatchSet;
 import net.sf.json.JSONObject;
 
+import java.io.IOException;
 import java.util.Collections;
 import java.util.List;
 
+import static com.sonymobile.tools.gerrit.gerritevents.GerritJsonEventDecoder.nextObject;
 import static com.sonymobile.tools.gerrit.gerritevents.dto.GerritEventKeys.CHANGE;
 import static com.sonymobile.tools.gerrit.gerritevents.dto.GerritEventKeys.PATCHSET;
 import static com.sonymobile.tools.gerrit.gerritevents.dto.GerritEventKeys.PATCH_SET;
@@ -141,6 +144,27 @@ public abstract class ChangeBasedEvent extends GerritTriggeredEvent {
         }
     }
 
+    @Override
+    protected boolean readMember(String name, JsonReader reader) throws IOException {
+        switch (name) {
+            case CHANGE:
+                change = nextObject(reader, new Change());
+                return true;
+            case PATCH_SET:
+                patchSet = nextObject(reader, new PatchSet());
+                return true;
+            case PATCHSET:
+                if (patchSet == null) {
+                    patchSet = nextObject(reader, new PatchSet());
+                } else {
+                    reader.skipValue();
+                }
+                return true;
+            default:
+                return super.readMember(name, reader);
+        }
+    }
+
     //CS IGNORE MagicNumber FOR NEXT 15 LINES. REASON: Semi-autogenerated code.
     @Override
     public int hashCode() {
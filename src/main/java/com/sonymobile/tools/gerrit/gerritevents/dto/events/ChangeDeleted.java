@@ -24,10 +24,15 @@
  */
 package com.sonymobile.tools.gerrit.gerritevents.dto.events;
 
+import com.google.gson.stream.JsonReader;
 import com.sonymobile.tools.gerrit.gerritevents.dto.GerritEventType;
 import com.sonymobile.tools.gerrit.gerritevents.dto.attr.Account;
+import com.sonymobile.tools.gerrit.gerritevents.dto.attr.Canonicalizer;
 import net.sf.json.JSONObject;
 
+import java.io.IOException;
+
+import static com.sonymobile.tools.gerrit.gerritevents.GerritJsonEventDecoder.nextObject;
 import static com.sonymobile.tools.gerrit.gerritevents.dto.GerritEventKeys.DELETER;
 
 /**
@@ -89,6 +94,17 @@ public class ChangeDeleted extends ChangeBasedEvent {
         if (!json.containsKey(DELETER)) {
             return;
         }
-        deleter = new Account(json.getJSONObject(DELETER));
+        deleter = Canonicalizer.account(new Account(json.getJSONObject(DELETER)));
+    }
+
+    @Override
+    protected boolean readMember(String name, JsonReader reader) throws IOException {
+        switch (name) {
+            case DELETER:
+                deleter = Canonicalizer.account(nextObject(reader, new Account()));
+                return true;
+            default:
+                return super.readMember(name, reader);
+        }
     }
 }
@@ -24,15 +24,21 @@
  */
 package com.sonymobile.tools.gerrit.gerritevents.dto.events;
 
+import com.google.gson.stream.JsonReader;
 import com.sonymobile.tools.gerrit.gerritevents.dto.GerritEventType;
 import com.sonymobile.tools.gerrit.gerritevents.dto.RepositoryModifiedEvent;
 import com.sonymobile.tools.gerrit.gerritevents.dto.attr.Account;
+import com.sonymobile.tools.gerrit.gerritevents.dto.attr.Canonicalizer;
 
 import net.sf.json.JSONObject;
 import static com.sonymobile.tools.gerrit.gerritevents.dto.GerritEventKeys.SUBMITTER;
 import static com.sonymobile.tools.gerrit.gerritevents.dto.GerritEventKeys.NEWREV;
+import static com.sonymobile.tools.gerrit.gerritevents.GerritJsonEventDecoder.nextObject;
+import static com.sonymobile.tools.gerrit.gerritevents.GerritJsonEventDecoder.nextString;
 import static com.sonymobile.tools.gerrit.gerritevents.GerritJsonEventFactory.getString;
 
+import java.io.IOException;
+
 /**
  * A DTO representation of the change-merged Gerrit Event.
  *
@@ -90,7 +96,7 @@ public class ChangeMerged extends ChangeBasedEvent implements RepositoryModified
     public void fromJson(JSONObject json) {
         super.fromJson(json);
         if (json.containsKey(SUBMITTER)) {
-            account = new Account(json.getJSONObject(SUBMITTER));
+            account = Canonicalizer.account(new Account(json.getJSONObject(SUBMITTER)));
         }
 
         if (json.containsKey(NEWREV)) {
@@ -98,6 +104,20 @@ public class ChangeMerged extends ChangeBasedEvent implements RepositoryModified
         }
     }
 
+    @Override
+    protected boolean readMember(String name, JsonReader reader) throws IOException {
+        switch (name) {
+            case SUBMITTER:
+                account = Canonicalizer.account(nextObject(reader, new Account()));
+                return true;
+            case NEWREV:
+                newRev = nextString(reader);
+                return true;
+            default:
+                return super.readMember(name, reader);
+        }
+    }
+
     /**
      * Rev of the merge-commit.
      * @return the new Rev
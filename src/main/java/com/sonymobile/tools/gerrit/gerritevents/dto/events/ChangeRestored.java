@@ -23,11 +23,16 @@
  */
 package com.sonymobile.tools.gerrit.gerritevents.dto.events;
 
+import static com.sonymobile.tools.gerrit.gerritevents.GerritJsonEventDecoder.nextObject;
 import static com.sonymobile.tools.gerrit.gerritevents.dto.GerritEventKeys.RESTORER;
+import com.google.gson.stream.JsonReader;
 import com.sonymobile.tools.gerrit.gerritevents.dto.GerritEventType;
 import com.sonymobile.tools.gerrit.gerritevents.dto.attr.Account;
+import com.sonymobile.tools.gerrit.gerritevents.dto.attr.Canonicalizer;
 import net.sf.json.JSONObject;
 
+import java.io.IOException;
+
 /**
  * A DTO representation of the change-restored Gerrit Event.
  */
@@ -86,7 +91,18 @@ public class ChangeRestored extends ChangeBasedEvent {
         super.fromJson(json);
 
         if (json.containsKey(RESTORER)) {
-            this.restorer = new Account(json.getJSONObject(RESTORER));
+            this.restorer = Canonicalizer.account(new Account(json.getJSONObject(RESTORER)));
+        }
+    }
+
+    @Override
+    protected boolean readMember(String name, JsonReader reader) throws IOException {
+        switch (name) {
+            case RESTORER:
+                restorer = Canonicalizer.account(nextObject(reader, new Account()));
+                return true;
+            default:
+                return super.readMember(name, reader);
         }
     }
 }
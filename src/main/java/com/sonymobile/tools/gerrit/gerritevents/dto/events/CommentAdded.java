@@ -23,15 +23,20 @@
  */
 package com.sonymobile.tools.gerrit.gerritevents.dto.events;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 
+import com.google.gson.stream.JsonReader;
 import com.sonymobile.tools.gerrit.gerritevents.dto.GerritEventType;
 import com.sonymobile.tools.gerrit.gerritevents.dto.attr.Account;
 import com.sonymobile.tools.gerrit.gerritevents.dto.attr.Approval;
+import com.sonymobile.tools.gerrit.gerritevents.dto.attr.Canonicalizer;
 import net.sf.json.JSONObject;
 import net.sf.json.JSONArray;
 
+import static com.sonymobile.tools.gerrit.gerritevents.GerritJsonEventDecoder.nextObject;
+import static com.sonymobile.tools.gerrit.gerritevents.GerritJsonEventDecoder.nextString;
 import static com.sonymobile.tools.gerrit.gerritevents.GerritJsonEventFactory.getString;
 import static com.sonymobile.tools.gerrit.gerritevents.dto.GerritEventKeys.AUTHOR;
 import static com.sonymobile.tools.gerrit.gerritevents.dto.GerritEventKeys.APPROVALS;
@@ -96,7 +101,7 @@ public class CommentAdded extends ChangeBasedEvent {
         super.fromJson(json);
         comment = getString(json, COMMENT);
         if (json.containsKey(AUTHOR)) {
-            account = new Account(json.getJSONObject(AUTHOR));
+            account = Canonicalizer.account(new Account(json.getJSONObject(AUTHOR)));
         }
         if (json.containsKey(APPROVALS)) {
             JSONArray eventApprovals = json.getJSONArray(APPROVALS);
@@ -106,6 +111,27 @@ public class CommentAdded extends ChangeBasedEvent {
         }
     }
 
+    @Override
+    protected boolean readMember(String name, JsonReader reader) throws IOException {
+        switch (name) {
+            case COMMENT:
+                comment = nextString(reader);
+                return true;
+            case AUTHOR:
+                account = Canonicalizer.account(nextObject(reader, new Account()));
+                return true;
+            case APPROVALS:
+                reader.beginArray();
+                while (reader.hasNext()) {
+                    approvals.add(nextObject(reader, new Approval()));
+                }
+                reader.endArray();
+                return true;
+            default:
+                return super.readMember(name, reader);
+        }
+    }
+
     @Override
     public int hashCode() {
         int a = 0;
@@ -24,13 +24,18 @@
 package com.sonymobile.tools.gerrit.gerritevents.dto.events;
 
 
+import com.google.gson.stream.JsonReader;
 import com.sonymobile.tools.gerrit.gerritevents.dto.GerritEventType;
 import com.sonymobile.tools.gerrit.gerritevents.dto.RepositoryModifiedEvent;
 import com.sonymobile.tools.gerrit.gerritevents.dto.attr.Account;
+import com.sonymobile.tools.gerrit.gerritevents.dto.attr.Canonicalizer;
 
 import net.sf.json.JSONObject;
+import static com.sonymobile.tools.gerrit.gerritevents.GerritJsonEventDecoder.nextObject;
 import static com.sonymobile.tools.gerrit.gerritevents.dto.GerritEventKeys.UPLOADER;
 
+import java.io.IOException;
+
 /**
  * A DTO representation of the draft-published Gerrit Event.
  *
@@ -73,7 +78,18 @@ public class DraftPublished extends ChangeBasedEvent implements RepositoryModifi
     public void fromJson(JSONObject json) {
         super.fromJson(json);
         if (json.containsKey(UPLOADER)) {
-            this.account = new Account(json.getJSONObject(UPLOADER));
+            this.account = Canonicalizer.account(new Account(json.getJSONObject(UPLOADER)));
+        }
+    }
+
+    @Override
+    protected boolean readMember(String name, JsonReader reader) throws IOException {
+        switch (name) {
+            case UPLOADER:
+                account = Canonicalizer.account(nextObject(reader, new Account()));
+                return true;
+            default:
+                return super.readMember(name, reader);
         }
     }
 
@@ -24,15 +24,20 @@
  */
 package com.sonymobile.tools.gerrit.gerritevents.dto.events;
 
+import static com.sonymobile.tools.gerrit.gerritevents.GerritJsonEventDecoder.nextDate;
+import static com.sonymobile.tools.gerrit.gerritevents.GerritJsonEventDecoder.nextObject;
 import static com.sonymobile.tools.gerrit.gerritevents.GerritJsonEventFactory.getDate;
 import static com.sonymobile.tools.gerrit.gerritevents.dto.GerritEventKeys.EVENTCREATED_ON;
 import static com.sonymobile.tools.gerrit.gerritevents.dto.GerritEventKeys.PROVIDER;
 import net.sf.json.JSONObject;
 
+import com.google.gson.stream.JsonReader;
 import com.sonymobile.tools.gerrit.gerritevents.dto.GerritJsonEvent;
 import com.sonymobile.tools.gerrit.gerritevents.dto.attr.Account;
+import com.sonymobile.tools.gerrit.gerritevents.dto.attr.Canonicalizer;
 import com.sonymobile.tools.gerrit.gerritevents.dto.attr.Provider;
 
+import java.io.IOException;
 import java.util.Date;
 import java.util.concurrent.TimeUnit;
 
@@ -146,10 +151,49 @@ public abstract class GerritTriggeredEvent implements GerritJsonEvent {
     @Override
     public void fromJson(JSONObject json) {
         if (json.containsKey(PROVIDER)) {
-            provider = new Provider(json.getJSONObject(PROVIDER));
+            provider = Canonicalizer.provider(new Provider(json.getJSONObject(PROVIDER)));
         }
         if (json.containsKey(EVENTCREATED_ON)) {
             eventCreatedOn = getDate(json, EVENTCREATED_ON);
         }
     }
+
+    /**
+     * Reads the event from the reader, member by member with {@link #readMember(String, JsonReader)}.
+     *
+     * @param reader the reader, positioned before the event object.
+     * @throws IOException if the JSON could not be read.
+     */
+    @Override
+    public void fromJson(JsonReader reader) throws IOException {
+        reader.beginObject();
+        while (reader.hasNext()) {
+            if (!readMember(reader.nextName(), reader)) {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+    }
+
+    /**
+     * Reads the value of one member of the event object when reading from a {@link JsonReader}.
+     * Subclasses read their own members and pass the rest on to the super class.
+     *
+     * @param name the name of the member.
+     * @param reader the reader, positioned before the value.
+     * @return true if the value was read, false if it should be skipped.
+     * @throws IOException if the JSON could not be read.
+     */
+    protected boolean readMember(String name, JsonReader reader) throws IOException {
+        switch (name) {
+            case PROVIDER:
+                provider = Canonicalizer.provider(nextObject(reader, new Provider()));
+                return true;
+            case EVENTCREATED_ON:
+                eventCreatedOn = nextDate(reader);
+                return true;
+            default:
+                return false;
+        }
+    }
 }
@@ -24,14 +24,17 @@
 
 package com.sonymobile.tools.gerrit.gerritevents.dto.events;
 
+import com.google.gson.stream.JsonReader;
 import com.sonymobile.tools.gerrit.gerritevents.dto.GerritEventType;
 import net.sf.json.JSONArray;
 import net.sf.json.JSONObject;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 
+import static com.sonymobile.tools.gerrit.gerritevents.GerritJsonEventDecoder.nextStringList;
 import static com.sonymobile.tools.gerrit.gerritevents.dto.GerritEventKeys.HASHTAGS;
 import static com.sonymobile.tools.gerrit.gerritevents.dto.GerritEventKeys.HASHTAGS_ADDED;
 import static com.sonymobile.tools.gerrit.gerritevents.dto.GerritEventKeys.HASHTAGS_REMOVED;
@@ -88,6 +91,31 @@ public class HashtagsChanged extends ChangeBasedEvent {
         this.addedHashtags = hashtagsFromArray(json, HASHTAGS_ADDED);
     }
 
+    @Override
+    public void fromJson(JsonReader reader) throws IOException {
+        hashtags = Collections.emptyList();
+        removedHashtags = Collections.emptyList();
+        addedHashtags = Collections.emptyList();
+        super.fromJson(reader);
+    }
+
+    @Override
+    protected boolean readMember(String name, JsonReader reader) throws IOException {
+        switch (name) {
+            case HASHTAGS:
+                hashtags = nextStringList(reader);
+                return true;
+            case HASHTAGS_REMOVED:
+                removedHashtags = nextStringList(reader);
+                return true;
+            case HASHTAGS_ADDED:
+                addedHashtags = nextStringList(reader);
+                return true;
+            default:
+                return super.readMember(name, reader);
+        }
+    }
+
     /**
      * Converts an array key from JSON into a list of the strings it contains.
      *
@@ -24,14 +24,20 @@
 
 package com.sonymobile.tools.gerrit.gerritevents.dto.events;
 
+import static com.sonymobile.tools.gerrit.gerritevents.GerritJsonEventDecoder.nextObject;
+import static com.sonymobile.tools.gerrit.gerritevents.GerritJsonEventDecoder.nextString;
 import static com.sonymobile.tools.gerrit.gerritevents.dto.GerritEventKeys.REASON;
 import static com.sonymobile.tools.gerrit.gerritevents.dto.GerritEventKeys.SUBMITTER;
 
+import com.google.gson.stream.JsonReader;
 import com.sonymobile.tools.gerrit.gerritevents.dto.GerritEventType;
 import com.sonymobile.tools.gerrit.gerritevents.dto.attr.Account;
+import com.sonymobile.tools.gerrit.gerritevents.dto.attr.Canonicalizer;
 
 import net.sf.json.JSONObject;
 
+import java.io.IOException;
+
 /**
  * A DTO representation of the merge-failed Gerrit Event.
  * @author David Pursehouse &lt;david.pursehouse@sonymobile.com&gt;
@@ -62,13 +68,27 @@ public class MergeFailed extends ChangeBasedEvent {
     public void fromJson(JSONObject json) {
         super.fromJson(json);
         if (json.containsKey(SUBMITTER)) {
-            this.submitter = new Account(json.getJSONObject(SUBMITTER));
+            this.submitter = Canonicalizer.account(new Account(json.getJSONObject(SUBMITTER)));
         }
         if (json.containsKey(REASON)) {
             this.reason = json.getString(REASON);
         }
     }
 
+    @Override
+    protected boolean readMember(String name, JsonReader reader) throws IOException {
+        switch (name) {
+            case SUBMITTER:
+                submitter = Canonicalizer.account(nextObject(reader, new Account()));
+                return true;
+            case REASON:
+                reason = nextString(reader);
+                return true;
+            default:
+                return super.readMember(name, reader);
+        }
+    }
+
     /**
      * Get the submitter.
      * @return the submitter.
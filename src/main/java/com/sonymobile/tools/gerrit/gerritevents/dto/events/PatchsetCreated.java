@@ -24,11 +24,16 @@
  */
 package com.sonymobile.tools.gerrit.gerritevents.dto.events;
 
+import com.google.gson.stream.JsonReader;
 import com.sonymobile.tools.gerrit.gerritevents.dto.GerritEventType;
 import com.sonymobile.tools.gerrit.gerritevents.dto.RepositoryModifiedEvent;
 import com.sonymobile.tools.gerrit.gerritevents.dto.attr.Account;
+import com.sonymobile.tools.gerrit.gerritevents.dto.attr.Canonicalizer;
 import net.sf.json.JSONObject;
 
+import java.io.IOException;
+
+import static com.sonymobile.tools.gerrit.gerritevents.GerritJsonEventDecoder.nextObject;
 import static com.sonymobile.tools.gerrit.gerritevents.dto.GerritEventKeys.UPLOADER;
 
 /**
@@ -57,7 +62,18 @@ public class PatchsetCreated extends ChangeBasedEvent implements RepositoryModif
     public void fromJson(JSONObject json) {
         super.fromJson(json);
         if (json.containsKey(UPLOADER)) {
-            this.account = new Account(json.getJSONObject(UPLOADER));
+            this.account = Canonicalizer.account(new Account(json.getJSONObject(UPLOADER)));
+        }
+    }
+
+    @Override
+    protected boolean readMember(String name, JsonReader reader) throws IOException {
+        switch (name) {
+            case UPLOADER:
+                account = Canonicalizer.account(nextObject(reader, new Account()));
+                return true;
+            default:
+                return super.readMember(name, reader);
         }
     }
 
@@ -23,10 +23,15 @@
  */
 package com.sonymobile.tools.gerrit.gerritevents.dto.events;
 
+import com.google.gson.stream.JsonReader;
 import com.sonymobile.tools.gerrit.gerritevents.dto.GerritEventType;
 import com.sonymobile.tools.gerrit.gerritevents.dto.attr.Account;
+import com.sonymobile.tools.gerrit.gerritevents.dto.attr.Canonicalizer;
 import net.sf.json.JSONObject;
 
+import java.io.IOException;
+
+import static com.sonymobile.tools.gerrit.gerritevents.GerritJsonEventDecoder.nextObject;
 import static com.sonymobile.tools.gerrit.gerritevents.dto.GerritEventKeys.NOTIFIER;
 
 /**
@@ -53,7 +58,18 @@ public class PatchsetNotified extends ChangeBasedEvent {
     public void fromJson(JSONObject json) {
         super.fromJson(json);
         if (json.containsKey(NOTIFIER)) {
-            this.account = new Account(json.getJSONObject(NOTIFIER));
+            this.account = Canonicalizer.account(new Account(json.getJSONObject(NOTIFIER)));
+        }
+    }
+
+    @Override
+    protected boolean readMember(String name, JsonReader reader) throws IOException {
+        switch (name) {
+            case NOTIFIER:
+                account = Canonicalizer.account(nextObject(reader, new Account()));
+                return true;
+            default:
+                return super.readMember(name, reader);
         }
     }
 
@@ -23,10 +23,14 @@
  */
 package com.sonymobile.tools.gerrit.gerritevents.dto.events;
 
+import com.google.gson.stream.JsonReader;
 import com.sonymobile.tools.gerrit.gerritevents.dto.GerritEventType;
 import com.sonymobile.tools.gerrit.gerritevents.dto.RepositoryModifiedEvent;
 import net.sf.json.JSONObject;
 
+import java.io.IOException;
+
+import static com.sonymobile.tools.gerrit.gerritevents.GerritJsonEventDecoder.nextString;
 import static com.sonymobile.tools.gerrit.gerritevents.GerritJsonEventFactory.getString;
 import static com.sonymobile.tools.gerrit.gerritevents.dto.GerritEventKeys.PROJECT_NAME;
 import static com.sonymobile.tools.gerrit.gerritevents.dto.GerritEventKeys.HEAD_NAME;
@@ -87,6 +91,20 @@ public class ProjectCreated extends GerritTriggeredEvent implements RepositoryMo
         headName = getString(json, HEAD_NAME);
     }
 
+    @Override
+    protected boolean readMember(String name, JsonReader reader) throws IOException {
+        switch (name) {
+            case PROJECT_NAME:
+                projectName = nextString(reader);
+                return true;
+            case HEAD_NAME:
+                headName = nextString(reader);
+                return true;
+            default:
+                return super.readMember(name, reader);
+        }
+    }
+
     @Override
     public GerritEventType getEventType() {
         return GerritEventType.PROJECT_CREATED;
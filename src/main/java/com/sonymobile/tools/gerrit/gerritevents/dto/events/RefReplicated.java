@@ -23,6 +23,7 @@
  */
 package com.sonymobile.tools.gerrit.gerritevents.dto.events;
 
+import static com.sonymobile.tools.gerrit.gerritevents.GerritJsonEventDecoder.nextString;
 import static com.sonymobile.tools.gerrit.gerritevents.GerritJsonEventFactory.getString;
 import static com.sonymobile.tools.gerrit.gerritevents.dto.GerritEventKeys.PROJECT;
 import static com.sonymobile.tools.gerrit.gerritevents.dto.GerritEventKeys.REF;
@@ -30,8 +31,11 @@ import static com.sonymobile.tools.gerrit.gerritevents.dto.GerritEventKeys.STATU
 import static com.sonymobile.tools.gerrit.gerritevents.dto.GerritEventKeys.TARGET_NODE;
 import net.sf.json.JSONObject;
 
+import com.google.gson.stream.JsonReader;
 import com.sonymobile.tools.gerrit.gerritevents.dto.GerritEventType;
 
+import java.io.IOException;
+
 /**
  * A DTO representation of the ref-replicated Gerrit Event.
  *
@@ -84,6 +88,26 @@ public class RefReplicated extends GerritTriggeredEvent {
         super.fromJson(json);
     }
 
+    @Override
+    protected boolean readMember(String name, JsonReader reader) throws IOException {
+        switch (name) {
+            case PROJECT:
+                project = nextString(reader);
+                return true;
+            case REF:
+                ref = nextString(reader);
+                return true;
+            case STATUS:
+                status = nextString(reader);
+                return true;
+            case TARGET_NODE:
+                targetNode = nextString(reader);
+                return true;
+            default:
+                return super.readMember(name, reader);
+        }
+    }
+
     /**
      * Project name.
      * @return the project
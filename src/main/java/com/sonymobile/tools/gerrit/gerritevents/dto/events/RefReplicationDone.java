@@ -23,14 +23,18 @@
  */
 package com.sonymobile.tools.gerrit.gerritevents.dto.events;
 
+import static com.sonymobile.tools.gerrit.gerritevents.GerritJsonEventDecoder.nextString;
 import static com.sonymobile.tools.gerrit.gerritevents.GerritJsonEventFactory.getString;
 import static com.sonymobile.tools.gerrit.gerritevents.dto.GerritEventKeys.NODES_COUNT;
 import static com.sonymobile.tools.gerrit.gerritevents.dto.GerritEventKeys.PROJECT;
 import static com.sonymobile.tools.gerrit.gerritevents.dto.GerritEventKeys.REF;
 import net.sf.json.JSONObject;
 
+import com.google.gson.stream.JsonReader;
 import com.sonymobile.tools.gerrit.gerritevents.dto.GerritEventType;
 
+import java.io.IOException;
+
 /**
  * A DTO representation of the ref-replication-done Gerrit Event.
  *
@@ -69,6 +73,23 @@ public class RefReplicationDone extends GerritTriggeredEvent {
         super.fromJson(json);
     }
 
+    @Override
+    protected boolean readMember(String name, JsonReader reader) throws IOException {
+        switch (name) {
+            case PROJECT:
+                project = nextString(reader);
+                return true;
+            case REF:
+                ref = nextString(reader);
+                return true;
+            case NODES_COUNT:
+                nodesCount = reader.nextInt();
+                return true;
+            default:
+                return super.readMember(name, reader);
+        }
+    }
+
     /**
      * Project name.
      * @return the project
@@ -23,12 +23,17 @@
  */
 package com.sonymobile.tools.gerrit.gerritevents.dto.events;
 
+import com.google.gson.stream.JsonReader;
 import com.sonymobile.tools.gerrit.gerritevents.dto.GerritEventType;
 import com.sonymobile.tools.gerrit.gerritevents.dto.RepositoryModifiedEvent;
 import com.sonymobile.tools.gerrit.gerritevents.dto.attr.Account;
+import com.sonymobile.tools.gerrit.gerritevents.dto.attr.Canonicalizer;
 import com.sonymobile.tools.gerrit.gerritevents.dto.attr.RefUpdate;
 import net.sf.json.JSONObject;
 
+import java.io.IOException;
+
+import static com.sonymobile.tools.gerrit.gerritevents.GerritJsonEventDecoder.nextObject;
 import static com.sonymobile.tools.gerrit.gerritevents.dto.GerritEventKeys.REFUPDATE;
 import static com.sonymobile.tools.gerrit.gerritevents.dto.GerritEventKeys.SUBMITTER;
 
@@ -78,7 +83,21 @@ public class RefUpdated extends GerritTriggeredEvent implements RepositoryModifi
             refUpdate = new RefUpdate(json.getJSONObject(REFUPDATE));
         }
         if (json.containsKey(SUBMITTER)) {
-            this.account = new Account(json.getJSONObject(SUBMITTER));
+            this.account = Canonicalizer.account(new Account(json.getJSONObject(SUBMITTER)));
+        }
+    }
+
+    @Override
+    protected boolean readMember(String name, JsonReader reader) throws IOException {
+        switch (name) {
+            case REFUPDATE:
+                refUpdate = nextObject(reader, new RefUpdate());
+                return true;
+            case SUBMITTER:
+                account = Canonicalizer.account(nextObject(reader, new Account()));
+                return true;
+            default:
+                return super.readMember(name, reader);
         }
     }
     //CS IGNORE MagicNumber FOR NEXT 12 LINES. REASON: Semi-autogenerated code.
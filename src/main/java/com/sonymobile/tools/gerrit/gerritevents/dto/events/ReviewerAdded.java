@@ -24,13 +24,18 @@
 
 package com.sonymobile.tools.gerrit.gerritevents.dto.events;
 
+import static com.sonymobile.tools.gerrit.gerritevents.GerritJsonEventDecoder.nextObject;
 import static com.sonymobile.tools.gerrit.gerritevents.dto.GerritEventKeys.REVIEWER;
 
+import com.google.gson.stream.JsonReader;
 import com.sonymobile.tools.gerrit.gerritevents.dto.GerritEventType;
 import com.sonymobile.tools.gerrit.gerritevents.dto.attr.Account;
+import com.sonymobile.tools.gerrit.gerritevents.dto.attr.Canonicalizer;
 
 import net.sf.json.JSONObject;
 
+import java.io.IOException;
+
 /**
  * A DTO representation of the reviewer-added Gerrit Event.
  * @author David Pursehouse &lt;david.pursehouse@sonymobile.com&gt;
@@ -56,7 +61,18 @@ public class ReviewerAdded extends ChangeBasedEvent {
     public void fromJson(JSONObject json) {
         super.fromJson(json);
         if (json.containsKey(REVIEWER)) {
-            this.reviewer = new Account(json.getJSONObject(REVIEWER));
+            this.reviewer = Canonicalizer.account(new Account(json.getJSONObject(REVIEWER)));
+        }
+    }
+
+    @Override
+    protected boolean readMember(String name, JsonReader reader) throws IOException {
+        switch (name) {
+            case REVIEWER:
+                reviewer = Canonicalizer.account(nextObject(reader, new Account()));
+                return true;
+            default:
+                return super.readMember(name, reader);
         }
     }
 
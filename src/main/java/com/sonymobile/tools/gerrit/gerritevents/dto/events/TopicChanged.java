@@ -24,16 +24,22 @@
 
 package com.sonymobile.tools.gerrit.gerritevents.dto.events;
 
+import static com.sonymobile.tools.gerrit.gerritevents.GerritJsonEventDecoder.nextObject;
+import static com.sonymobile.tools.gerrit.gerritevents.GerritJsonEventDecoder.nextString;
 import static com.sonymobile.tools.gerrit.gerritevents.dto.GerritEventKeys.CHANGER;
 import static com.sonymobile.tools.gerrit.gerritevents.dto.GerritEventKeys.OLD_TOPIC;
 
+import com.google.gson.stream.JsonReader;
 import com.sonymobile.tools.gerrit.gerritevents.dto.GerritEventType;
 import com.sonymobile.tools.gerrit.gerritevents.dto.attr.Account;
+import com.sonymobile.tools.gerrit.gerritevents.dto.attr.Canonicalizer;
 
 import com.sonymobile.tools.gerrit.gerritevents.dto.rest.Topic;
 import net.sf.json.JSONObject;
 import org.apache.commons.lang.StringUtils;
 
+import java.io.IOException;
+
 /**
  * A DTO representation of the topic-changed Gerrit Event.
  * @author David Pursehouse &lt;david.pursehouse@sonymobile.com&gt;
@@ -131,11 +137,25 @@ public class TopicChanged  extends ChangeBasedEvent {
         super.fromJson(json);
 
         if (json.containsKey(CHANGER)) {
-            this.changer = new Account(json.getJSONObject(CHANGER));
+            this.changer = Canonicalizer.account(new Account(json.getJSONObject(CHANGER)));
         }
         if (json.containsKey(OLD_TOPIC)) {
             this.oldTopicObject = new Topic(json.getString(OLD_TOPIC));
         }
     }
 
+    @Override
+    protected boolean readMember(String name, JsonReader reader) throws IOException {
+        switch (name) {
+            case CHANGER:
+                changer = Canonicalizer.account(nextObject(reader, new Account()));
+                return true;
+            case OLD_TOPIC:
+                oldTopicObject = new Topic(nextString(reader));
+                return true;
+            default:
+                return super.readMember(name, reader);
+        }
+    }
+
 }
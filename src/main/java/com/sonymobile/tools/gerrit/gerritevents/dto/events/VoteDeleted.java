@@ -1,14 +1,19 @@
 package com.sonymobile.tools.gerrit.gerritevents.dto.events;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 
+import com.google.gson.stream.JsonReader;
 import com.sonymobile.tools.gerrit.gerritevents.dto.GerritEventType;
 import com.sonymobile.tools.gerrit.gerritevents.dto.attr.Account;
 import com.sonymobile.tools.gerrit.gerritevents.dto.attr.Approval;
+import com.sonymobile.tools.gerrit.gerritevents.dto.attr.Canonicalizer;
 import net.sf.json.JSONObject;
 import net.sf.json.JSONArray;
 
+import static com.sonymobile.tools.gerrit.gerritevents.GerritJsonEventDecoder.nextObject;
+import static com.sonymobile.tools.gerrit.gerritevents.GerritJsonEventDecoder.nextString;
 import static com.sonymobile.tools.gerrit.gerritevents.GerritJsonEventFactory.getString;
 import static com.sonymobile.tools.gerrit.gerritevents.dto.GerritEventKeys.REVIEWER;
 import static com.sonymobile.tools.gerrit.gerritevents.dto.GerritEventKeys.APPROVALS;
@@ -114,10 +119,10 @@ public class VoteDeleted extends ChangeBasedEvent {
         super.fromJson(json);
         comment = getString(json, COMMENT);
         if (json.containsKey(REVIEWER)) {
-            this.reviewer = new Account(json.getJSONObject(REVIEWER));
+            this.reviewer = Canonicalizer.account(new Account(json.getJSONObject(REVIEWER)));
         }
         if (json.containsKey(REMOVER)) {
-            this.remover = new Account(json.getJSONObject(REMOVER));
+            this.remover = Canonicalizer.account(new Account(json.getJSONObject(REMOVER)));
         }
         if (json.containsKey(APPROVALS)) {
             JSONArray eventApprovals = json.getJSONArray(APPROVALS);
@@ -126,4 +131,28 @@ public class VoteDeleted extends ChangeBasedEvent {
             }
         }
     }
+
+    @Override
+    protected boolean readMember(String name, JsonReader reader) throws IOException {
+        switch (name) {
+            case COMMENT:
+                comment = nextString(reader);
+                return true;
+            case REVIEWER:
+                reviewer = Canonicalizer.account(nextObject(reader, new Account()));
+                return true;
+            case REMOVER:
+                remover = Canonicalizer.account(nextObject(reader, new Account()));
+                return true;
+            case APPROVALS:
+                reader.beginArray();
+                while (reader.hasNext()) {
+                    approvals.add(nextObject(reader, new Approval()));
+                }
+                reader.endArray();
+                return true;
+            default:
+                return super.readMember(name, reader);
+        }
+    }
 }
@@ -26,6 +26,7 @@ package com.sonymobile.tools.gerrit.gerritevents.workers;
 
 import com.sonymobile.tools.gerrit.gerritevents.GerritJsonEventFactory;
 import com.sonymobile.tools.gerrit.gerritevents.dto.GerritEvent;
+import com.sonymobile.tools.gerrit.gerritevents.dto.GerritEventType;
 import com.sonymobile.tools.gerrit.gerritevents.dto.attr.Provider;
 import com.sonymobile.tools.gerrit.gerritevents.dto.events.GerritTriggeredEvent;
 import net.sf.json.JSONObject;
@@ -60,13 +61,30 @@ public abstract class AbstractJsonObjectWork extends AbstractGerritEventWork {
 
     /**
      * Parses the JSONObject into a Java bean and sends the parsed {@link GerritEvent} down the inheritance chain.
+     * Nothing is parsed if the coordinator is not interested in the type of event,
+     * see {@link Coordinator#isInterestedIn(GerritEventType)}.
      * @param json the JSONObject to work on.
      * @param coordinator the coordinator.
      * @param provider the Gerrit server info
      */
     protected void perform(JSONObject json, Coordinator coordinator, Provider provider) {
+        GerritEventType type = GerritEventType.findByTypeValue(GerritJsonEventFactory.getString(json, "type"));
+        if (!coordinator.isInterestedIn(type)) {
+            logger.debug("No one is interested in {} events.", type);
+            return;
+        }
         logger.trace("Extracting event from JSON.");
-        GerritEvent event = GerritJsonEventFactory.getEvent(json);
+        perform(GerritJsonEventFactory.getEvent(json), coordinator, provider);
+    }
+
+    /**
+     * Stamps the already parsed event with where and when it was received
+     * and sends it down the inheritance chain.
+     * @param event the event, or null if none could be extracted.
+     * @param coordinator the coordinator.
+     * @param provider the Gerrit server info
+     */
+    protected void perform(GerritEvent event, Coordinator coordinator, Provider provider) {
         if (event != null) {
             if (event instanceof GerritTriggeredEvent) {
                 GerritTriggeredEvent gerritTriggeredEvent = (GerritTriggeredEvent)event;
@@ -25,6 +25,7 @@
 package com.sonymobile.tools.gerrit.gerritevents.workers;
 
 import com.sonymobile.tools.gerrit.gerritevents.dto.GerritEvent;
+import com.sonymobile.tools.gerrit.gerritevents.dto.GerritEventType;
 import java.util.concurrent.BlockingQueue;
 
 /**
@@ -43,4 +44,23 @@ public interface Coordinator {
      * @param event the event to fire.
      */
     void notifyListeners(GerritEvent event);
+
+    /**
+     * Tells if anyone wants events of the given type.
+     * Work for events of types nobody wants is dropped before it is converted into a {@link GerritEvent}.
+     * @param type the event type.
+     * @return true if events of the type should be converted and passed on, true by default.
+     */
+    default boolean isInterestedIn(GerritEventType type) {
+        return true;
+    }
+
+    /**
+     * Tells if the events that are read should share equal accounts and providers,
+     * see {@link com.sonymobile.tools.gerrit.gerritevents.dto.attr.Canonicalizer#setSharing(boolean)}.
+     * @return true if they should be shared, false by default.
+     */
+    default boolean isSharingAccounts() {
+        return false;
+    }
 }
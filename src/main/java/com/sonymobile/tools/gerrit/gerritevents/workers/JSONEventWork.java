@@ -25,6 +25,7 @@ package com.sonymobile.tools.gerrit.gerritevents.workers;
 
 import net.sf.json.JSONObject;
 
+import com.sonymobile.tools.gerrit.gerritevents.EventHeader;
 import com.sonymobile.tools.gerrit.gerritevents.GerritJsonEventFactory;
 import com.sonymobile.tools.gerrit.gerritevents.dto.attr.Provider;
 
@@ -42,6 +43,24 @@ public class JSONEventWork extends AbstractJsonObjectWork {
         return json;
     }
 
+    /**
+     * The properties needed to filter the event, taken from the JSON object.
+     *
+     * @return the properties.
+     */
+    public EventHeader getHeader() {
+        return EventHeader.of(json);
+    }
+
+    /**
+     * The Gerrit server info.
+     *
+     * @return the provider, or null if not known.
+     */
+    public Provider getProvider() {
+        return provider;
+    }
+
     private JSONObject json;
     private Provider provider;
 
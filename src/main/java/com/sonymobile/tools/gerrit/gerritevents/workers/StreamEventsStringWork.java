@@ -25,27 +25,78 @@
 
 package com.sonymobile.tools.gerrit.gerritevents.workers;
 
-import com.sonymobile.tools.gerrit.gerritevents.GerritJsonEventFactory;
+import com.sonymobile.tools.gerrit.gerritevents.EventHeader;
+import com.sonymobile.tools.gerrit.gerritevents.GerritJsonEventDecoder;
+import com.sonymobile.tools.gerrit.gerritevents.dto.GerritEvent;
+import com.sonymobile.tools.gerrit.gerritevents.dto.GerritEventType;
+import com.sonymobile.tools.gerrit.gerritevents.dto.attr.Canonicalizer;
 import com.sonymobile.tools.gerrit.gerritevents.dto.attr.Provider;
-import net.sf.json.JSONObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
 
 /**
- * Top of the hierarchies of work, converts the string to JSON if it is interesting and usable.
+ * Top of the hierarchies of work, decodes the line into an event if it is interesting and usable.
  * And then hands the work over to {@link AbstractJsonObjectWork}.
  *
  * @author Robert Sandell &lt;robert.sandell@sonyericsson.com&gt;
  */
 public class StreamEventsStringWork extends AbstractJsonObjectWork {
 
+    private static final Logger logger = LoggerFactory.getLogger(StreamEventsStringWork.class);
+
     /**
+     * The line as text, decoded from the raw bytes on first call when the work was created from bytes.
+     *
      * @return the line
      */
     public String getLine() {
+        if (line == null && bytes != null) {
+            line = new String(bytes, StandardCharsets.UTF_8);
+        }
         return line;
     }
 
+    /**
+     * The raw UTF-8 encoded line, if the work was created from bytes.
+     *
+     * @return the bytes, or null if the work was created from a String.
+     */
+    public byte[] getBytes() {
+        return bytes;
+    }
+
+    /**
+     * Scans the line for the properties needed to filter it, without parsing it.
+     *
+     * @return the properties.
+     */
+    public EventHeader getHeader() {
+        if (header == null) {
+            if (bytes != null) {
+                header = EventHeader.scan(bytes);
+            } else {
+                header = EventHeader.scan(line);
+            }
+        }
+        return header;
+    }
+
+    /**
+     * The Gerrit server info.
+     *
+     * @return the provider, or null if not known.
+     */
+    public Provider getProvider() {
+        return provider;
+    }
+
     private String line;
+    private byte[] bytes;
     private Provider provider;
+    private EventHeader header;
 
     /**
      * Default constructor.
@@ -67,12 +118,43 @@ public class StreamEventsStringWork extends AbstractJsonObjectWork {
         this.provider = provider;
     }
 
+    /**
+     * Constructor for a line that has not been decoded yet.
+     *
+     * @param bytes    a UTF-8 encoded line of text from the stream-events stream of events.
+     * @param provider the Gerrit server info.
+     */
+    public StreamEventsStringWork(byte[] bytes, Provider provider) {
+        this.bytes = bytes;
+        this.provider = provider;
+    }
+
+    /**
+     * Decodes the line straight into the event with {@link GerritJsonEventDecoder},
+     * if the coordinator is interested in its type.
+     *
+     * @param coordinator the coordinator.
+     */
     @Override
     public void perform(Coordinator coordinator) {
-        JSONObject obj = GerritJsonEventFactory.getJsonObjectIfInterestingAndUsable(getLine());
-        if (obj != null) {
-            perform(obj, coordinator, provider);
+        EventHeader eventHeader = getHeader();
+        GerritEventType type = eventHeader.getEventType();
+        if (!coordinator.isInterestedIn(type)) {
+            logger.debug("No one is interested in {} events.", eventHeader.getType());
+            return;
+        }
+        GerritEvent event = null;
+        boolean sharing = Canonicalizer.setSharing(coordinator.isSharingAccounts());
+        try {
+            if (bytes != null) {
+                event = GerritJsonEventDecoder.decode(eventHeader.getType(), bytes);
+            } else if (line != null) {
+                event = GerritJsonEventDecoder.decode(eventHeader.getType(), new StringReader(line));
+            }
+        } finally {
+            Canonicalizer.setSharing(sharing);
         }
+        perform(event, coordinator, provider);
     }
 
     @Override
@@ -0,0 +1,173 @@
+/*
+ *  The MIT License
+ *
+ *  Copyright 2026 Sony Mobile Communications Inc. All rights reserved.
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+package com.sonymobile.tools.gerrit.gerritevents;
+
+import com.sonymobile.tools.gerrit.gerritevents.dto.GerritEvent;
+import com.sonymobile.tools.gerrit.gerritevents.dto.events.ChangeAbandoned;
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+//CS IGNORE MagicNumber FOR NEXT 200 LINES. REASON: Test data.
+
+/**
+ * Tests for {@link EventBatcher}.
+ */
+public class EventBatcherTest {
+
+    private final List<List<GerritEvent>> delivered = Collections.synchronizedList(new ArrayList<List<GerritEvent>>());
+    private final List<Thread> threads = Collections.synchronizedList(new ArrayList<Thread>());
+    private volatile CountDownLatch deliveries = new CountDownLatch(1);
+    private final BatchGerritEventListener listener = new BatchGerritEventListener() {
+        @Override
+        public void gerritEvents(List<GerritEvent> events) {
+            delivered.add(new ArrayList<GerritEvent>(events));
+            threads.add(Thread.currentThread());
+            deliveries.countDown();
+        }
+    };
+    private EventBatcher batcher;
+
+    /**
+     * Stops the batcher.
+     */
+    @After
+    public void tearDown() {
+        if (batcher != null) {
+            batcher.close();
+        }
+    }
+
+    /**
+     * Tests that a batch is delivered on the adding thread when it is full.
+     */
+    @Test
+    public void testFullBatch() {
+        batcher = new EventBatcher(listener, 3, 1, TimeUnit.HOURS, 1);
+        List<GerritEvent> events = new ArrayList<GerritEvent>();
+        for (int i = 0; i < 7; i++) {
+            GerritEvent event = new ChangeAbandoned();
+            events.add(event);
+            batcher.add(null, event);
+        }
+        assertEquals(2, delivered.size());
+        assertEquals(events.subList(0, 3), delivered.get(0));
+        assertEquals(events.subList(3, 6), delivered.get(1));
+        assertSame(Thread.currentThread(), threads.get(0));
+        assertEquals(1, batcher.getPending());
+        assertEquals(2, batcher.getBatches());
+        assertEquals(6, batcher.getEvents());
+
+        batcher.close();
+        assertEquals(3, delivered.size());
+        assertEquals(events.subList(6, 7), delivered.get(2));
+        //Delivered right away after close.
+        batcher.add(null, new ChangeAbandoned());
+        assertEquals(4, delivered.size());
+    }
+
+    /**
+     * Tests that a batch that does not fill up is delivered after the max delay on the flushing thread.
+     *
+     * @throws Exception if so.
+     */
+    @Test
+    public void testMaxDelay() throws Exception {
+        batcher = new EventBatcher(listener, 100, 50, TimeUnit.MILLISECONDS, 1);
+        long start = System.nanoTime();
+        batcher.add(null, new ChangeAbandoned());
+        batcher.add(null, new ChangeAbandoned());
+        assertTrue(deliveries.await(10, TimeUnit.SECONDS));
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(50));
+        assertEquals(1, delivered.size());
+        assertEquals(2, delivered.get(0).size());
+        assertTrue(threads.get(0).getName().startsWith("Gerrit Batch Flusher_"));
+        assertEquals(0, batcher.getPending());
+    }
+
+    /**
+     * Tests that events are batched per lane of their ordering key, in order.
+     */
+    @Test
+    public void testLanes() {
+        batcher = new EventBatcher(listener, 2, 1, TimeUnit.HOURS, 64);
+        String first = "1";
+        String second = "2";
+        assertTrue(Math.floorMod(first.hashCode(), 64) != Math.floorMod(second.hashCode(), 64));
+        GerritEvent a1 = new ChangeAbandoned();
+        GerritEvent b1 = new ChangeAbandoned();
+        GerritEvent a2 = new ChangeAbandoned();
+        GerritEvent b2 = new ChangeAbandoned();
+        batcher.add(first, a1);
+        batcher.add(second, b1);
+        assertEquals(0, delivered.size());
+        batcher.add(first, a2);
+        batcher.add(second, b2);
+        assertEquals(2, delivered.size());
+        assertEquals(Arrays.asList(a1, a2), delivered.get(0));
+        assertEquals(Arrays.asList(b1, b2), delivered.get(1));
+    }
+
+    /**
+     * Tests that a listener that throws does not stop the batching.
+     */
+    @Test
+    public void testThrowingListener() {
+        batcher = new EventBatcher(new BatchGerritEventListener() {
+            @Override
+            public void gerritEvents(List<GerritEvent> events) {
+                throw new IllegalStateException("Expected");
+            }
+        }, 1, 1, TimeUnit.HOURS, 1);
+        batcher.add(null, new ChangeAbandoned());
+        batcher.add(null, new ChangeAbandoned());
+        assertEquals(2, batcher.getBatches());
+    }
+
+    /**
+     * Tests that a batch size below one is refused.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testBadBatchSize() {
+        new EventBatcher(listener, 0, 1, TimeUnit.SECONDS, 1);
+    }
+
+    /**
+     * Tests that no max delay is refused.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testBadDelay() {
+        new EventBatcher(listener, 1, 0, TimeUnit.SECONDS, 1);
+    }
+}
@@ -0,0 +1,246 @@
+/*
+ *  The MIT License
+ *
+ *  Copyright 2026 Sony Mobile Communications Inc. All rights reserved.
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+package com.sonymobile.tools.gerrit.gerritevents;
+
+import com.sonymobile.tools.gerrit.gerritevents.dto.GerritEvent;
+import com.sonymobile.tools.gerrit.gerritevents.dto.GerritEventType;
+import com.sonymobile.tools.gerrit.gerritevents.dto.attr.Change;
+import com.sonymobile.tools.gerrit.gerritevents.dto.attr.PatchSet;
+import com.sonymobile.tools.gerrit.gerritevents.dto.attr.Provider;
+import com.sonymobile.tools.gerrit.gerritevents.dto.events.ChangeAbandoned;
+import com.sonymobile.tools.gerrit.gerritevents.dto.events.PatchsetCreated;
+import com.sonymobile.tools.gerrit.gerritevents.dto.events.RefReplicated;
+import com.sonymobile.tools.gerrit.gerritevents.dto.events.RefReplicationDone;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+//CS IGNORE MagicNumber FOR NEXT 200 LINES. REASON: Test data.
+
+/**
+ * Tests for {@link EventCoalescer}.
+ */
+public class EventCoalescerTest {
+
+    private final List<GerritEvent> delivered = Collections.synchronizedList(new ArrayList<GerritEvent>());
+    private volatile CountDownLatch deliveries = new CountDownLatch(1);
+    private EventCoalescer coalescer;
+
+    /**
+     * Creates the coalescer.
+     */
+    @Before
+    public void setUp() {
+        coalescer = new EventCoalescer(new Consumer<GerritEvent>() {
+            @Override
+            public void accept(GerritEvent event) {
+                delivered.add(event);
+                deliveries.countDown();
+            }
+        });
+    }
+
+    /**
+     * Closes the coalescer.
+     */
+    @After
+    public void tearDown() {
+        coalescer.close();
+    }
+
+    /**
+     * Creates a patchset-created event.
+     *
+     * @param change the change number.
+     * @param patchSet the patch set number.
+     * @return the event.
+     */
+    private static PatchsetCreated patchsetCreated(String change, String patchSet) {
+        PatchsetCreated event = new PatchsetCreated();
+        Change changeAttr = new Change();
+        changeAttr.setNumber(change);
+        event.setChange(changeAttr);
+        PatchSet patchSetAttr = new PatchSet();
+        patchSetAttr.setNumber(patchSet);
+        event.setPatchset(patchSetAttr);
+        return event;
+    }
+
+    /**
+     * Tests that only the latest patch set of a change within the window is delivered, when the window is over.
+     *
+     * @throws Exception if so.
+     */
+    @Test
+    public void testLatestPatchSet() throws Exception {
+        coalescer.setRule(EnumSet.of(GerritEventType.PATCHSET_CREATED), 200, TimeUnit.MILLISECONDS,
+                EventCoalescer.LATEST);
+        deliveries = new CountDownLatch(2);
+        assertTrue(coalescer.hold(patchsetCreated("1", "1")));
+        assertTrue(coalescer.hold(patchsetCreated("1", "2")));
+        PatchsetCreated latest = patchsetCreated("1", "3");
+        assertTrue(coalescer.hold(latest));
+        PatchsetCreated other = patchsetCreated("2", "1");
+        assertTrue(coalescer.hold(other));
+        assertEquals(2, coalescer.getPending());
+        assertTrue(delivered.isEmpty());
+        assertTrue(deliveries.await(10, TimeUnit.SECONDS));
+        assertEquals(2, delivered.size());
+        assertTrue(delivered.contains(latest));
+        assertTrue(delivered.contains(other));
+        assertEquals(4, coalescer.getHeld());
+        assertEquals(2, coalescer.getMerged());
+        assertEquals(2, coalescer.getDelivered());
+        assertEquals(0, coalescer.getPending());
+    }
+
+    /**
+     * Tests that events of the types in a group are merged with each other, by ref.
+     */
+    @Test
+    public void testReplicationGroup() {
+        coalescer.setRule(EnumSet.of(GerritEventType.REF_REPLICATED, GerritEventType.REF_REPLICATION_DONE), 1,
+                TimeUnit.HOURS, EventCoalescer.LATEST);
+        for (String node : new String[]{"a", "b", "c"}) {
+            RefReplicated replicated = new RefReplicated();
+            replicated.setProject("p");
+            replicated.setRef("refs/heads/main");
+            replicated.setTargetNode(node);
+            assertTrue(coalescer.hold(replicated));
+        }
+        RefReplicationDone done = new RefReplicationDone();
+        done.setProject("p");
+        done.setRef("refs/heads/main");
+        assertTrue(coalescer.hold(done));
+        RefReplicated otherRef = new RefReplicated();
+        otherRef.setProject("p");
+        otherRef.setRef("refs/heads/dev");
+        assertTrue(coalescer.hold(otherRef));
+        coalescer.flush();
+        assertEquals(2, delivered.size());
+        assertTrue(delivered.contains(done));
+        assertTrue(delivered.contains(otherRef));
+    }
+
+    /**
+     * Tests that the first event is kept with {@link EventCoalescer#FIRST}.
+     */
+    @Test
+    public void testFirst() {
+        coalescer.setRule(EnumSet.of(GerritEventType.PATCHSET_CREATED), 1, TimeUnit.HOURS, EventCoalescer.FIRST);
+        PatchsetCreated first = patchsetCreated("1", "1");
+        coalescer.hold(first);
+        coalescer.hold(patchsetCreated("1", "2"));
+        coalescer.flush();
+        assertEquals(1, delivered.size());
+        assertSame(first, delivered.get(0));
+    }
+
+    /**
+     * Tests that events of other types, without a change or ref, or from other servers are not merged.
+     */
+    @Test
+    public void testNotHeld() {
+        coalescer.setRule(EnumSet.of(GerritEventType.PATCHSET_CREATED), 1, TimeUnit.HOURS, EventCoalescer.LATEST);
+        assertFalse(coalescer.hold(new ChangeAbandoned()));
+        assertFalse(coalescer.hold(new PatchsetCreated()));
+        PatchsetCreated fromA = patchsetCreated("1", "1");
+        fromA.setProvider(new Provider("a", "a.example.com", "29418", "ssh", "http://a.example.com", "3.0"));
+        PatchsetCreated fromB = patchsetCreated("1", "1");
+        fromB.setProvider(new Provider("b", "b.example.com", "29418", "ssh", "http://b.example.com", "3.0"));
+        assertTrue(coalescer.hold(fromA));
+        assertTrue(coalescer.hold(fromB));
+        assertEquals(2, coalescer.getPending());
+
+        coalescer.setRule(EnumSet.of(GerritEventType.PATCHSET_CREATED), 0, TimeUnit.HOURS, null);
+        assertFalse(coalescer.hold(patchsetCreated("1", "2")));
+        assertEquals(0, coalescer.getWindowNanos(GerritEventType.PATCHSET_CREATED));
+        assertTrue(coalescer.getTypes().isEmpty());
+    }
+
+    /**
+     * Tests that closing delivers the held events and stops holding new ones.
+     */
+    @Test
+    public void testClose() {
+        coalescer.setRule(EnumSet.of(GerritEventType.PATCHSET_CREATED), 1, TimeUnit.HOURS, EventCoalescer.LATEST);
+        coalescer.hold(patchsetCreated("1", "1"));
+        coalescer.close();
+        assertEquals(1, delivered.size());
+        assertFalse(coalescer.hold(patchsetCreated("1", "2")));
+        assertNull(EventCoalescer.getKey(new ChangeAbandoned()));
+    }
+
+    /**
+     * Tests that every event taken while the coalescer closes is delivered.
+     *
+     * @throws Exception if so.
+     */
+    @Test
+    public void testCloseWhileHolding() throws Exception {
+        for (int round = 0; round < 100; round++) {
+            final AtomicInteger received = new AtomicInteger();
+            final EventCoalescer closing = new EventCoalescer(new Consumer<GerritEvent>() {
+                @Override
+                public void accept(GerritEvent event) {
+                    received.incrementAndGet();
+                }
+            });
+            closing.setRule(EnumSet.of(GerritEventType.PATCHSET_CREATED), 1, TimeUnit.HOURS, EventCoalescer.LATEST);
+            final AtomicInteger taken = new AtomicInteger();
+            final CountDownLatch started = new CountDownLatch(1);
+            Thread holder = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    int change = 0;
+                    while (closing.hold(patchsetCreated(String.valueOf(change++), "1"))) {
+                        taken.incrementAndGet();
+                        started.countDown();
+                    }
+                }
+            });
+            holder.start();
+            assertTrue(started.await(10, TimeUnit.SECONDS));
+            closing.close();
+            holder.join(TimeUnit.SECONDS.toMillis(10));
+            assertEquals(taken.get(), received.get());
+            assertEquals(0, closing.getPending());
+        }
+    }
+}
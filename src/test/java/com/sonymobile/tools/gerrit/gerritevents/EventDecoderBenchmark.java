@@ -0,0 +1,144 @@
+/*
+ *  The MIT License
+ *
+ *  Copyright 2026 Sony Mobile Communications Inc. All rights reserved.
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+package com.sonymobile.tools.gerrit.gerritevents;
+
+import com.sonymobile.tools.gerrit.gerritevents.dto.GerritJsonEvent;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertNotNull;
+
+//CS IGNORE LineLength FOR NEXT 200 LINES. REASON: Benchmark data.
+//CS IGNORE MagicNumber FOR NEXT 200 LINES. REASON: Benchmark data.
+
+/**
+ * Compares decoding stream-events lines through json-lib {@link net.sf.json.JSONObject}s
+ * with decoding them straight into the DTOs with {@link GerritJsonEventDecoder}.
+ * Prints the throughput and the bytes allocated per event for each type of event.
+ * <p>
+ * Not part of the normal test run, start it with {@code mvn test -Dtest=EventDecoderBenchmark}.
+ */
+public class EventDecoderBenchmark {
+
+    private static final int WARMUP = 20000;
+    private static final int ITERATIONS = 50000;
+
+    private static final String ACCOUNT = "{\"name\":\"Foo Bar\",\"email\":\"foo@bar.com\",\"username\":\"foobar\"}";
+    private static final String CHANGE = "\"change\":{\"project\":\"platform/frameworks/base\",\"branch\":\"master\","
+            + "\"id\":\"I4a0ca0ddbbe86258c162f1528f89632113758a9d\",\"number\":1234,\"subject\":\"Fix the frobnicator\","
+            + "\"owner\":" + ACCOUNT + ",\"url\":\"https://gerrit.example.com/c/platform/frameworks/base/+/1234\","
+            + "\"commitMessage\":\"Fix the frobnicator\\n\\nIt was broken.\\n\\nChange-Id: I4a0ca0ddbbe86258c162f1528f89632113758a9d\\n\","
+            + "\"createdOn\":1527883364,\"status\":\"NEW\"}";
+    private static final String PATCH_SET = "\"patchSet\":{\"number\":2,\"revision\":\"8bd741fd301701b1a70b4cfb4d33dac3349b6796\","
+            + "\"parents\":[\"a7b2c9d1f0e36b1e7c3a7ad1c1d6e1f0a9b8c7d6\"],\"ref\":\"refs/changes/34/1234/2\",\"uploader\":" + ACCOUNT + ","
+            + "\"createdOn\":1527883364,\"author\":" + ACCOUNT + ",\"kind\":\"REWORK\",\"sizeInsertions\":10,\"sizeDeletions\":-2}";
+    private static final String APPROVALS = "\"approvals\":[{\"type\":\"Verified\",\"description\":\"Verified\",\"value\":\"1\",\"oldValue\":\"0\"},"
+            + "{\"type\":\"Code-Review\",\"description\":\"Code-Review\",\"value\":\"2\"}]";
+
+    private static final String[][] EVENTS = {
+        {"patchset-created", "{\"uploader\":" + ACCOUNT + "," + PATCH_SET + "," + CHANGE
+                + ",\"project\":\"platform/frameworks/base\",\"refName\":\"refs/heads/master\",\"type\":\"patchset-created\",\"eventCreatedOn\":1527883364}", },
+        {"comment-added", "{\"author\":" + ACCOUNT + "," + APPROVALS + ",\"comment\":\"Patch Set 2: Code-Review+2\\n\\nLooks good to me.\","
+                + PATCH_SET + "," + CHANGE + ",\"type\":\"comment-added\",\"eventCreatedOn\":1527883364}", },
+        {"change-merged", "{\"submitter\":" + ACCOUNT + ",\"newRev\":\"c5c1e64b1f0e36b1e7c3a7ad1c1d6e1f0a9b8c7d\"," + PATCH_SET + ","
+                + CHANGE + ",\"type\":\"change-merged\",\"eventCreatedOn\":1527883364}", },
+        {"ref-updated", "{\"submitter\":" + ACCOUNT + ",\"refUpdate\":{\"oldRev\":\"a7b2c9d1f0e36b1e7c3a7ad1c1d6e1f0a9b8c7d6\","
+                + "\"newRev\":\"c5c1e64b1f0e36b1e7c3a7ad1c1d6e1f0a9b8c7d\",\"refName\":\"refs/heads/master\",\"project\":\"platform/frameworks/base\"},"
+                + "\"type\":\"ref-updated\",\"eventCreatedOn\":1527883364}", },
+        {"ref-replicated", "{\"project\":\"platform/frameworks/base\",\"ref\":\"refs/heads/master\",\"targetNode\":\"mirror.example.com\","
+                + "\"status\":\"succeeded\",\"type\":\"ref-replicated\",\"eventCreatedOn\":1527883364}", },
+    };
+
+    /**
+     * Decodes each sample event with both decoders and prints the results.
+     */
+    @Test
+    public void benchmarkDecoders() {
+        for (String[] sample : EVENTS) {
+            final String line = sample[1];
+            final byte[] bytes = line.getBytes(StandardCharsets.UTF_8);
+            print(sample[0], "json-lib", measure(new Decoder() {
+                @Override
+                public GerritJsonEvent decode() {
+                    return GerritJsonEventFactory.getEventIfInteresting(new String(bytes, StandardCharsets.UTF_8));
+                }
+            }));
+            print(sample[0], "streaming", measure(new Decoder() {
+                @Override
+                public GerritJsonEvent decode() {
+                    return GerritJsonEventDecoder.decode(bytes);
+                }
+            }));
+        }
+    }
+
+    /**
+     * Runs the decoder repeatedly on the calling thread.
+     *
+     * @param decoder the decoder.
+     * @return nanoseconds and allocated bytes per event.
+     */
+    private long[] measure(Decoder decoder) {
+        for (int i = 0; i < WARMUP; i++) {
+            assertNotNull(decoder.decode());
+        }
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean)ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+        long allocatedBefore = threads.getThreadAllocatedBytes(threadId);
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            decoder.decode();
+        }
+        long time = System.nanoTime() - start;
+        long allocated = threads.getThreadAllocatedBytes(threadId) - allocatedBefore;
+        return new long[]{time / ITERATIONS, allocated / ITERATIONS};
+    }
+
+    /**
+     * Prints one result.
+     *
+     * @param type the type of event.
+     * @param decoder the name of the decoder.
+     * @param result nanoseconds and allocated bytes per event.
+     */
+    private void print(String type, String decoder, long[] result) {
+        System.out.printf("%-18s %-10s %9.0f events/s %8d ns/event %8d bytes/event%n",
+                type, decoder, TimeUnit.SECONDS.toNanos(1) / (double)result[0], result[0], result[1]);
+    }
+
+    /**
+     * Something that decodes one event.
+     */
+    private interface Decoder {
+        /**
+         * Decodes the event.
+         *
+         * @return the event.
+         */
+        GerritJsonEvent decode();
+    }
+}
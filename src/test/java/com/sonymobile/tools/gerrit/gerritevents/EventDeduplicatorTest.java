@@ -0,0 +1,194 @@
+/*
+ *  The MIT License
+ *
+ *  Copyright 2026 Sony Mobile Communications Inc. All rights reserved.
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+package com.sonymobile.tools.gerrit.gerritevents;
+
+import com.sonymobile.tools.gerrit.gerritevents.dto.attr.Account;
+import com.sonymobile.tools.gerrit.gerritevents.dto.attr.Change;
+import com.sonymobile.tools.gerrit.gerritevents.dto.attr.PatchSet;
+import com.sonymobile.tools.gerrit.gerritevents.dto.attr.Provider;
+import com.sonymobile.tools.gerrit.gerritevents.dto.events.ChangeAbandoned;
+import com.sonymobile.tools.gerrit.gerritevents.dto.events.ChangeBasedEvent;
+import com.sonymobile.tools.gerrit.gerritevents.dto.events.CommentAdded;
+import com.sonymobile.tools.gerrit.gerritevents.dto.events.PatchsetCreated;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+//CS IGNORE MagicNumber FOR NEXT 200 LINES. REASON: Test data.
+
+/**
+ * Tests for {@link EventDeduplicator}.
+ */
+public class EventDeduplicatorTest {
+
+    private static final long MINUTE = TimeUnit.MINUTES.toNanos(1);
+
+    /**
+     * Fills in a change based event.
+     *
+     * @param event the event.
+     * @param change the change number.
+     * @param patchSet the patch set number.
+     * @param createdOn when Gerrit created the event, in seconds.
+     * @param <E> the type of event.
+     * @return the event.
+     */
+    private static <E extends ChangeBasedEvent> E event(E event, String change, String patchSet, String createdOn) {
+        Change changeAttr = new Change();
+        changeAttr.setProject("p");
+        changeAttr.setNumber(change);
+        event.setChange(changeAttr);
+        PatchSet patchSetAttr = new PatchSet();
+        patchSetAttr.setNumber(patchSet);
+        event.setPatchset(patchSetAttr);
+        event.setAccount(new Account("Bob", "bob@example.com"));
+        if (createdOn != null) {
+            event.setEventCreatedOn(createdOn);
+        }
+        return event;
+    }
+
+    /**
+     * Tests that the same event is a duplicate within the window, also from another server, and not after it.
+     */
+    @Test
+    public void testDuplicates() {
+        EventDeduplicator deduplicator = new EventDeduplicator(10, TimeUnit.MINUTES, 1000, 100);
+        long now = System.nanoTime();
+        PatchsetCreated first = event(new PatchsetCreated(), "1", "1", "1527883364");
+        first.setProvider(new Provider("a", "a.example.com", "29418", "ssh", "http://a.example.com", "3.0"));
+        PatchsetCreated replica = event(new PatchsetCreated(), "1", "1", "1527883364");
+        replica.setProvider(new Provider("b", "b.example.com", "29418", "ssh", "http://b.example.com", "3.0"));
+        assertFalse(deduplicator.isDuplicate(first, now));
+        assertTrue(deduplicator.isDuplicate(replica, now + MINUTE));
+        assertFalse(deduplicator.isDuplicate(event(new PatchsetCreated(), "1", "2", "1527883364"), now));
+        assertFalse(deduplicator.isDuplicate(event(new PatchsetCreated(), "2", "1", "1527883364"), now));
+        assertFalse(deduplicator.isDuplicate(event(new PatchsetCreated(), "1", "1", "1527883365"), now));
+        assertFalse(deduplicator.isDuplicate(event(new ChangeAbandoned(), "1", "1", "1527883364"), now));
+        assertFalse(deduplicator.isDuplicate(first, now + 11 * MINUTE));
+        assertEquals(7, deduplicator.getChecked());
+        assertEquals(1, deduplicator.getDuplicates());
+        assertEquals(0, deduplicator.getProbableDuplicates());
+        assertEquals(1.0 / 7, deduplicator.getDuplicateRate(), 0.0001);
+    }
+
+    /**
+     * Tests that comments of the same account on the same patch set in the same second are told apart.
+     */
+    @Test
+    public void testComments() {
+        EventDeduplicator deduplicator = new EventDeduplicator(10, TimeUnit.MINUTES, 1000, 100);
+        CommentAdded first = event(new CommentAdded(), "1", "1", "1527883364");
+        first.setComment("Looks good");
+        CommentAdded second = event(new CommentAdded(), "1", "1", "1527883364");
+        second.setComment("Looks bad");
+        CommentAdded again = event(new CommentAdded(), "1", "1", "1527883364");
+        again.setComment("Looks good");
+        assertFalse(deduplicator.isDuplicate(first, 0));
+        assertFalse(deduplicator.isDuplicate(second, 0));
+        assertTrue(deduplicator.isDuplicate(again, 0));
+    }
+
+    /**
+     * Tests that events without a creation time are never duplicates.
+     */
+    @Test
+    public void testNoCreationTime() {
+        EventDeduplicator deduplicator = new EventDeduplicator(10, TimeUnit.MINUTES, 1000, 100);
+        PatchsetCreated event = event(new PatchsetCreated(), "1", "1", null);
+        assertNull(EventDeduplicator.getKey(event));
+        assertFalse(deduplicator.isDuplicate(event, 0));
+        assertFalse(deduplicator.isDuplicate(event, 0));
+        assertEquals(0, deduplicator.getChecked());
+        assertEquals(0, deduplicator.getDuplicateRate(), 0);
+    }
+
+    /**
+     * Tests that the events only the Bloom filters know are counted but kept, unless asked for.
+     */
+    @Test
+    public void testProbableDuplicatesKept() {
+        EventDeduplicator deduplicator = new EventDeduplicator(10, TimeUnit.MINUTES, 1000, 0);
+        PatchsetCreated event = event(new PatchsetCreated(), "1", "1", "1527883364");
+        long start = System.nanoTime();
+        assertFalse(deduplicator.isDropProbableDuplicates());
+        assertFalse(deduplicator.isDuplicate(event, start));
+        assertFalse(deduplicator.isDuplicate(event, start + MINUTE));
+        assertEquals(1, deduplicator.getProbableDuplicates());
+        assertEquals(0, deduplicator.getDuplicates());
+    }
+
+    /**
+     * Tests that the Bloom filters find the duplicates the exact map has forgotten when asked to,
+     * and never remember them for longer than the window.
+     */
+    @Test
+    public void testBloomFilters() {
+        EventDeduplicator deduplicator = new EventDeduplicator(10, TimeUnit.MINUTES, 1000, 0);
+        deduplicator.setDropProbableDuplicates(true);
+        PatchsetCreated event = event(new PatchsetCreated(), "1", "1", "1527883364");
+        long start = System.nanoTime();
+        assertFalse(deduplicator.isDuplicate(event, start));
+        assertTrue(deduplicator.isDuplicate(event, start + 6 * MINUTE));
+        assertEquals(1, deduplicator.getProbableDuplicates());
+        assertEquals(1, deduplicator.getRotations());
+        //The filter holding the event was started a window ago.
+        assertFalse(deduplicator.isDuplicate(event, start + 10 * MINUTE));
+        assertTrue(deduplicator.isDuplicate(event, start + 12 * MINUTE));
+        assertFalse(deduplicator.isDuplicate(event, start + 23 * MINUTE));
+        assertEquals(2, deduplicator.getDuplicates());
+    }
+
+    /**
+     * Tests that the Bloom filters are rotated when they hold the expected number of events.
+     */
+    @Test
+    public void testRotateWhenFull() {
+        EventDeduplicator deduplicator = new EventDeduplicator(10, TimeUnit.MINUTES, 100, 10);
+        deduplicator.setDropProbableDuplicates(true);
+        long now = System.nanoTime();
+        for (int i = 0; i < 1000; i++) {
+            assertFalse(deduplicator.isDuplicate(event(new PatchsetCreated(), String.valueOf(i), "1", "1527883364"),
+                    now));
+        }
+        assertEquals(9, deduplicator.getRotations());
+        //The last ones are still known, the first ones have been forgotten early.
+        assertTrue(deduplicator.isDuplicate(event(new PatchsetCreated(), "999", "1", "1527883364"), now));
+        assertTrue(deduplicator.isDuplicate(event(new PatchsetCreated(), "950", "1", "1527883364"), now));
+        assertFalse(deduplicator.isDuplicate(event(new PatchsetCreated(), "0", "1", "1527883364"), now));
+    }
+
+    /**
+     * Tests that the window must be positive.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testBadWindow() {
+        new EventDeduplicator(0, TimeUnit.MINUTES, 100, 10);
+    }
+}
@@ -0,0 +1,177 @@
+/*
+ *  The MIT License
+ *
+ *  Copyright 2026 Sony Mobile Communications Inc. All rights reserved.
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+package com.sonymobile.tools.gerrit.gerritevents;
+
+import com.sonymobile.tools.gerrit.gerritevents.dto.attr.Provider;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+//CS IGNORE MagicNumber FOR NEXT 200 LINES. REASON: Test data.
+//CS IGNORE LineLength FOR NEXT 200 LINES. REASON: Test data.
+
+/**
+ * Tests for {@link EventFilter}.
+ */
+public class EventFilterTest {
+
+    private static final EventHeader PATCHSET = EventHeader.scan("{\"type\":\"patchset-created\",\"uploader\":{\"email\":\"ci@example.com\"},"
+            + "\"change\":{\"project\":\"platform/build\",\"branch\":\"sandbox/foo\",\"number\":12,\"owner\":{\"email\":\"dev@example.com\"}}}");
+    private static final EventHeader REF_UPDATED = EventHeader.scan("{\"type\":\"ref-updated\","
+            + "\"refUpdate\":{\"project\":\"platform/build\",\"refName\":\"refs/changes/12/12/1\"}}");
+    private static final EventHeader COMMENT = EventHeader.scan("{\"type\":\"comment-added\",\"author\":{\"email\":\"dev@example.com\"},"
+            + "\"change\":{\"project\":\"tools/repo\",\"branch\":\"main\",\"number\":13}}");
+
+    /**
+     * Tests each field and operator.
+     */
+    @Test
+    public void testComparisons() {
+        assertTrue(drops("type = patchset-created", PATCHSET));
+        assertFalse(drops("type = patchset-created", COMMENT));
+        assertTrue(drops("type != patchset-created", COMMENT));
+        assertTrue(drops("project ^= platform/", REF_UPDATED));
+        assertTrue(drops("branch ~ \"sandbox/*\"", PATCHSET));
+        assertFalse(drops("branch ~ sandbox/*", COMMENT));
+        assertTrue(drops("ref ~ refs/changes/**", REF_UPDATED));
+        assertFalse(drops("ref ~ refs/changes/*", REF_UPDATED));
+        assertTrue(drops("change in (11, 12)", PATCHSET));
+        assertFalse(drops("change in (11, 12)", COMMENT));
+        assertTrue(drops("uploader = ci@example.com", PATCHSET));
+        assertTrue(drops("owner = dev@example.com", PATCHSET));
+        assertTrue(drops("author = dev@example.com", COMMENT));
+        assertTrue(drops("email = dev@example.com", PATCHSET));
+        assertTrue(drops("email = dev@example.com", COMMENT));
+        assertFalse(drops("email = dev@example.com", REF_UPDATED));
+    }
+
+    /**
+     * Tests that a field that is not in the event matches nothing.
+     */
+    @Test
+    public void testMissingField() {
+        assertFalse(drops("branch = main", REF_UPDATED));
+        assertTrue(drops("branch != main", REF_UPDATED));
+        assertFalse(drops("provider = gerrit", PATCHSET));
+    }
+
+    /**
+     * Tests the provider field.
+     */
+    @Test
+    public void testProvider() {
+        Provider provider = new Provider();
+        provider.setName("mirror");
+        EventFilter filter = EventFilter.compile("provider in (mirror, \"other gerrit\")");
+        assertTrue(filter.drops(PATCHSET, provider));
+        provider.setName("other gerrit");
+        assertTrue(filter.drops(PATCHSET, provider));
+        provider.setName("gerrit");
+        assertFalse(filter.drops(PATCHSET, provider));
+    }
+
+    /**
+     * Tests and, or, not and parentheses.
+     */
+    @Test
+    public void testBooleans() {
+        assertTrue(drops("type = ref-updated and ref ^= refs/changes/", REF_UPDATED));
+        assertFalse(drops("type = ref-updated and ref ^= refs/heads/", REF_UPDATED));
+        assertTrue(drops("type = comment-added or project = platform/build", PATCHSET));
+        //and binds harder than or.
+        assertTrue(drops("type = comment-added or type = patchset-created and branch = main", COMMENT));
+        assertFalse(drops("(type = comment-added or type = patchset-created) and branch = main", PATCHSET));
+        assertTrue(drops("not type = comment-added", PATCHSET));
+        assertFalse(drops("not (type = comment-added or project ^= platform)", PATCHSET));
+        assertTrue(drops("NOT NOT type = patchset-created AND project = platform/build", PATCHSET));
+        //Keywords in quotes are values.
+        assertFalse(drops("project = \"and\"", PATCHSET));
+    }
+
+    /**
+     * Tests that events are counted for the first rule that drops them.
+     */
+    @Test
+    public void testDropCounts() {
+        EventFilter filter = EventFilter.compile(Arrays.asList(
+                "# Irrelevant events",
+                "drafts: ref ^= refs/changes/",
+                "",
+                "platform: project ^= platform/",
+                "email = dev@example.com"));
+        assertEquals(Arrays.asList("drafts", "platform", "line 5"), filter.getNames());
+        assertEquals(0, filter.evaluate(REF_UPDATED, null));
+        assertEquals(1, filter.evaluate(PATCHSET, null));
+        assertEquals(2, filter.evaluate(COMMENT, null));
+        assertFalse(filter.drops(EventHeader.scan("{\"type\":\"change-merged\"}"), null));
+        Map<String, Long> counts = filter.getDropCounts();
+        assertEquals(Long.valueOf(1), counts.get("drafts"));
+        assertEquals(Long.valueOf(1), counts.get("platform"));
+        assertEquals(Long.valueOf(1), counts.get("line 5"));
+        assertEquals(3, filter.getDropped());
+        assertEquals(4, filter.getEvaluated());
+    }
+
+    /**
+     * Tests that a filter without rules drops nothing.
+     */
+    @Test
+    public void testEmpty() {
+        assertFalse(EventFilter.compile("# nothing\n\n").drops(PATCHSET, null));
+        assertFalse(EventFilter.compile((String)null).drops(PATCHSET, null));
+    }
+
+    /**
+     * Tests that broken rules are refused.
+     */
+    @Test
+    public void testSyntaxErrors() {
+        for (String rule : Arrays.asList("type", "type =", "nofield = x", "type <> x", "type = x and", "(type = x",
+                "type = x)", "change in (1, 2", "change in 1", "type = \"x", "type = (")) {
+            try {
+                EventFilter.compile(rule);
+                fail("Expected " + rule + " to be refused");
+            } catch (IllegalArgumentException e) {
+                assertTrue(e.getMessage(), e.getMessage().startsWith("Bad event filter rule"));
+            }
+        }
+    }
+
+    /**
+     * Compiles one rule and checks the event against it.
+     *
+     * @param rule the rule.
+     * @param header the event.
+     * @return true if dropped.
+     */
+    private static boolean drops(String rule, EventHeader header) {
+        return EventFilter.compile(rule).drops(header, null);
+    }
+}
@@ -0,0 +1,142 @@
+/*
+ *  The MIT License
+ *
+ *  Copyright 2026 Sony Mobile Communications Inc. All rights reserved.
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+package com.sonymobile.tools.gerrit.gerritevents;
+
+import com.sonymobile.tools.gerrit.gerritevents.dto.GerritEventType;
+
+import net.sf.json.JSONObject;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Tests for {@link EventHeader}.
+ */
+public class EventHeaderTest {
+
+    //CS IGNORE LineLength FOR NEXT 13 LINES. REASON: Test data.
+    private static final String PATCHSET_CREATED = "{\"uploader\":{\"name\":\"Foo, Bar\",\"email\":\"up@bar.com\",\"username\":\"foobar\"},"
+            + "\"patchSet\":{\"number\":\"1\",\"parents\":[\"8bd741fd\"],\"uploader\":{\"name\":\"Foo Bar\",\"email\":\"nested@bar.com\"},"
+            + "\"author\":{\"name\":\"Foo Bar\",\"email\":\"nested@bar.com\"},\"approvals\":[{\"type\":\"Code-Review\",\"value\":\"1\"}]},"
+            + "\"change\":{\"project\":\"Foo/Bar\",\"branch\":\"main\",\"number\":1234,\"subject\":\"Fix \\\"project\\\": \\u00e5\",\"owner\":{\"email\":\"owner@bar.com\"},\"status\":\"NEW\"},"
+            + "\"project\":\"Other\",\"type\":\"patchset-created\",\"eventCreatedOn\":1527883364}";
+    private static final String COMMENT_ADDED = "{\"type\":\"comment-added\",\"comment\":\"{\\\"type\\\":\\\"x\\\"}\","
+            + "\"author\":{\"name\":\"B\\u00f6t\",\"email\":\"b\\u00f6t@mail.com\"},\"change\":{\"project\":\"a\",\"branch\":\"b\",\"number\":\"42\"}}";
+    private static final String PROJECT_CREATED = "{\"projectName\":\"new/project\",\"projectHead\":\"refs/heads/main\","
+            + "\"type\":\"project-created\"}";
+    private static final String REF_UPDATED = "{\"submitter\":{\"name\":\"Foo\"},\"refUpdate\":{\"oldRev\":\"a7b2\",\"newRev\":\"c5c1\","
+            + "\"refName\":\"refs/heads/main\",\"project\":\"foo\"},\"type\":\"ref-updated\"}";
+    private static final String REF_REPLICATED = "{\"project\":\"foo\",\"ref\":\"refs/heads/main\",\"targetNode\":\"mirror\","
+            + "\"type\":\"ref-replicated\"}";
+
+    /**
+     * Tests scanning a patchset-created line.
+     */
+    @Test
+    public void testScanPatchsetCreated() {
+        EventHeader header = EventHeader.scan(PATCHSET_CREATED);
+        assertEquals("patchset-created", header.getType());
+        assertEquals(GerritEventType.PATCHSET_CREATED, header.getEventType());
+        assertEquals("Foo/Bar", header.getProject());
+        assertEquals("main", header.getBranch());
+        assertEquals("up@bar.com", header.getUploaderEmail());
+        assertEquals("owner@bar.com", header.getOwnerEmail());
+        assertNull(header.getAuthorEmail());
+        assertEquals("1234", header.getChangeNumber());
+        assertNull(header.getRefName());
+    }
+
+    /**
+     * Tests that escapes are decoded and that strings looking like JSON are not looked into.
+     */
+    @Test
+    public void testScanEscapes() {
+        EventHeader header = EventHeader.scan(COMMENT_ADDED);
+        assertEquals(GerritEventType.COMMENT_ADDED, header.getEventType());
+        assertEquals("b\u00f6t@mail.com", header.getAuthorEmail());
+        assertEquals("a", header.getProject());
+        assertEquals("b", header.getBranch());
+        assertEquals("42", header.getChangeNumber());
+    }
+
+    /**
+     * Tests that the ref name is taken from the refUpdate object, or else from the top level.
+     */
+    @Test
+    public void testScanRefName() {
+        EventHeader header = EventHeader.scan(REF_UPDATED);
+        assertEquals("foo", header.getProject());
+        assertEquals("refs/heads/main", header.getRefName());
+        assertNull(header.getChangeNumber());
+        header = EventHeader.scan(REF_REPLICATED);
+        assertEquals("foo", header.getProject());
+        assertEquals("refs/heads/main", header.getRefName());
+        //The ref of a patch set is not the ref of the event.
+        assertNull(EventHeader.scan(PATCHSET_CREATED).getRefName());
+    }
+
+    /**
+     * Tests that projectName is used when there is no project.
+     */
+    @Test
+    public void testScanProjectName() {
+        EventHeader header = EventHeader.scan(PROJECT_CREATED);
+        assertEquals(GerritEventType.PROJECT_CREATED, header.getEventType());
+        assertEquals("new/project", header.getProject());
+        assertNull(header.getBranch());
+    }
+
+    /**
+     * Tests that the same properties are taken from a parsed event.
+     */
+    @Test
+    public void testOfJson() {
+        EventHeader header = EventHeader.of(JSONObject.fromObject(PATCHSET_CREATED));
+        assertEquals(GerritEventType.PATCHSET_CREATED, header.getEventType());
+        assertEquals("Foo/Bar", header.getProject());
+        assertEquals("main", header.getBranch());
+        assertEquals("up@bar.com", header.getUploaderEmail());
+        assertEquals("owner@bar.com", header.getOwnerEmail());
+        assertEquals("1234", header.getChangeNumber());
+        header = EventHeader.of(JSONObject.fromObject(PROJECT_CREATED));
+        assertEquals("new/project", header.getProject());
+        header = EventHeader.of(JSONObject.fromObject(REF_UPDATED));
+        assertEquals("foo", header.getProject());
+        assertEquals("refs/heads/main", header.getRefName());
+        assertEquals("refs/heads/main", EventHeader.of(JSONObject.fromObject(REF_REPLICATED)).getRefName());
+    }
+
+    /**
+     * Tests that broken lines do not throw.
+     */
+    @Test
+    public void testScanGarbage() {
+        assertNull(EventHeader.scan("Hello world").getType());
+        assertNull(EventHeader.scan("{\"type\":\"patchset-cre").getType());
+        assertNull(EventHeader.scan("]]}}{\"a\":[1,2,{\"type\":\"x\"}]}").getType());
+        assertNull(EventHeader.scan((String)null).getProject());
+    }
+}
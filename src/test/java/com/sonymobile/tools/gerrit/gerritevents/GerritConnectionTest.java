@@ -45,6 +45,7 @@ import java.io.PipedInputStream;
 import java.io.PipedOutputStream;
 import java.io.Reader;
 import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.util.concurrent.CountDownLatch;
 
 import org.junit.AfterClass;
@@ -210,6 +211,7 @@ public class GerritConnectionTest {
     @Test
     public void testReceiveEvent() throws Exception {
         doCallRealMethod().when(handlerMock).post(any(String.class), any(Provider.class));
+        doCallRealMethod().when(handlerMock).post(any(byte[].class), any(Provider.class));
         //CS IGNORE LineLength FOR NEXT 1 LINES. REASON: TestData
         String aVeryLongMessage = "This is a very long line.                                             It stands for a commit that contains a very huge commit message. It should be long enough to fill the buffer several times.";
 
@@ -263,6 +265,11 @@ public class GerritConnectionTest {
             post(data, null);
         }
 
+        @Override
+        public void post(byte[] data, Provider provider) {
+            post(new String(data, StandardCharsets.UTF_8), provider);
+        }
+
         @Override
         public void post(String data, Provider provider) {
             System.out.println("INFO: Posted string: " + data);
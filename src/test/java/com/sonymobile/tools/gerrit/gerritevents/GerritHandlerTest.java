@@ -24,13 +24,17 @@
 package com.sonymobile.tools.gerrit.gerritevents;
 
 import com.sonymobile.tools.gerrit.gerritevents.dto.GerritEvent;
+import com.sonymobile.tools.gerrit.gerritevents.dto.GerritEventType;
 import com.sonymobile.tools.gerrit.gerritevents.dto.attr.Account;
+import com.sonymobile.tools.gerrit.gerritevents.dto.attr.Canonicalizer;
 import com.sonymobile.tools.gerrit.gerritevents.dto.attr.Provider;
 import com.sonymobile.tools.gerrit.gerritevents.dto.events.ChangeAbandoned;
+import com.sonymobile.tools.gerrit.gerritevents.dto.events.ChangeBasedEvent;
 import com.sonymobile.tools.gerrit.gerritevents.dto.events.ChangeMerged;
 import com.sonymobile.tools.gerrit.gerritevents.dto.events.ChangeRestored;
 import com.sonymobile.tools.gerrit.gerritevents.dto.events.CommentAdded;
 import com.sonymobile.tools.gerrit.gerritevents.dto.events.DraftPublished;
+import com.sonymobile.tools.gerrit.gerritevents.dto.events.GerritTriggeredEvent;
 import com.sonymobile.tools.gerrit.gerritevents.dto.events.MergeFailed;
 import com.sonymobile.tools.gerrit.gerritevents.dto.events.PatchsetCreated;
 import com.sonymobile.tools.gerrit.gerritevents.dto.events.RefUpdated;
@@ -49,19 +53,40 @@ import org.junit.runner.RunWith;
 import org.powermock.modules.junit4.PowerMockRunner;
 import org.powermock.reflect.Whitebox;
 
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 import net.sf.json.JSONObject;
 
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.collection.IsIn.isIn;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 import org.mockito.Mockito;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.times;
@@ -69,7 +94,7 @@ import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
 import static org.mockito.Mockito.only;
 
-//CS IGNORE MagicNumber FOR NEXT 600 LINES. REASON: Test data.
+//CS IGNORE MagicNumber FOR NEXT 1500 LINES. REASON: Test data.
 
 /**
  * Tests for {@link com.sonymobile.tools.gerrit.gerritevents.GerritHandler}.
@@ -151,6 +176,97 @@ public class GerritHandlerTest {
         assertEquals(nrOfListeners, handler.getEventListenersCount());
     }
 
+    /**
+     * Tests that a listener added with {@link GerritHandler#addListener(Class, Consumer)} only gets events
+     * of that class, and nothing after it is removed.
+     */
+    @Test
+    public void testTypedListener() {
+        final List<GerritEvent> received = new ArrayList<GerritEvent>();
+        Consumer<PatchsetCreated> listener = new Consumer<PatchsetCreated>() {
+            @Override
+            public void accept(PatchsetCreated event) {
+                received.add(event);
+            }
+        };
+        handler.addListener(PatchsetCreated.class, listener);
+        PatchsetCreated patchsetCreated = new PatchsetCreated();
+        handler.notifyListeners(new ChangeMerged());
+        handler.notifyListeners(patchsetCreated);
+        handler.notifyListeners(new RefUpdated());
+        assertEquals(1, received.size());
+        assertEquals(patchsetCreated, received.get(0));
+
+        handler.removeListener(PatchsetCreated.class, listener);
+        handler.notifyListeners(new PatchsetCreated());
+        assertEquals(1, received.size());
+    }
+
+    /**
+     * Tests that a listener added for a super class gets events of all types represented by subclasses.
+     */
+    @Test
+    public void testTypedListenerForSuperClass() {
+        final List<GerritEvent> received = new ArrayList<GerritEvent>();
+        handler.addListener(ChangeBasedEvent.class, new Consumer<ChangeBasedEvent>() {
+            @Override
+            public void accept(ChangeBasedEvent event) {
+                received.add(event);
+            }
+        });
+        handler.notifyListeners(new ChangeMerged());
+        handler.notifyListeners(new RefUpdated());
+        handler.notifyListeners(new PatchsetCreated());
+        assertEquals(2, received.size());
+        assertTrue(handler.isInterestedIn(GerritEventType.CHANGE_ABANDONED));
+        assertFalse(handler.isInterestedIn(GerritEventType.REF_UPDATED));
+    }
+
+    /**
+     * Tests {@link GerritHandler#isInterestedIn(GerritEventType)}.
+     */
+    @Test
+    public void testIsInterestedIn() {
+        assertFalse(handler.isInterestedIn(GerritEventType.PATCHSET_CREATED));
+        Consumer<ChangeMerged> listener = new Consumer<ChangeMerged>() {
+            @Override
+            public void accept(ChangeMerged event) {
+            }
+        };
+        handler.addListener(ChangeMerged.class, listener);
+        assertTrue(handler.isInterestedIn(GerritEventType.CHANGE_MERGED));
+        assertFalse(handler.isInterestedIn(GerritEventType.PATCHSET_CREATED));
+        assertFalse(handler.isInterestedIn(null));
+        GerritEventListener listenerMock = mock(GerritEventListener.class);
+        handler.addListener(listenerMock);
+        assertTrue(handler.isInterestedIn(GerritEventType.PATCHSET_CREATED));
+        handler.removeListener(listenerMock);
+        handler.removeListener(ChangeMerged.class, listener);
+        assertFalse(handler.isInterestedIn(GerritEventType.CHANGE_MERGED));
+    }
+
+    /**
+     * Tests that events of types no one listens for are not converted and passed on.
+     *
+     * @throws Exception if so.
+     */
+    @Test
+    public void testUninterestingTypeIsDropped() throws Exception {
+        final List<GerritEvent> received = new ArrayList<GerritEvent>();
+        handler.addListener(ChangeMerged.class, new Consumer<ChangeMerged>() {
+            @Override
+            public void accept(ChangeMerged event) {
+                received.add(event);
+            }
+        });
+        handler.post("{\"type\":\"patchset-created\",\"change\":{\"project\":\"a\",\"number\":\"1\"}}");
+        handler.post("{\"type\":\"change-merged\",\"change\":{\"project\":\"a\",\"number\":\"2\"}}");
+        handler.shutdown(true);
+        handler = null;
+        assertEquals(1, received.size());
+        assertTrue(received.get(0) instanceof ChangeMerged);
+    }
+
     /**
      * Tests {@link GerritHandler#addEventListeners(java.util.Map)}.
      *
@@ -357,6 +473,715 @@ public class GerritHandlerTest {
         verify(listenerMock, only()).gerritEvent(ca);
     }
 
+    /**
+     * Tests that posted CommentAdded lines from an ignored e-mail address are dropped.
+     * @throws Exception if so.
+     */
+    @Test
+    public void testIgnoreCommentAddedLine() throws Exception {
+        String server = "testserver";
+        handler.setIgnoreEMail(server, "ignore-mail.com");
+        final List<CommentAdded> received = new ArrayList<CommentAdded>();
+        handler.addListener(CommentAdded.class, new Consumer<CommentAdded>() {
+            @Override
+            public void accept(CommentAdded event) {
+                received.add(event);
+            }
+        });
+        Provider provider = new Provider();
+        provider.setName(server);
+        //CS IGNORE LineLength FOR NEXT 4 LINES. REASON: Test data.
+        handler.post("{\"type\":\"comment-added\",\"author\":{\"name\":\"Bot\",\"email\":\"bot@ignore-mail.com\"},\"comment\":\"a\",\"change\":{\"project\":\"p\",\"number\":\"1\"}}",
+                provider);
+        handler.post("{\"type\":\"comment-added\",\"author\":{\"name\":\"Dev\",\"email\":\"dev@mail.com\"},\"comment\":\"b\",\"change\":{\"project\":\"p\",\"number\":\"1\"}}",
+                provider);
+        handler.shutdown(true);
+        handler = null;
+        assertEquals(1, received.size());
+        assertEquals("b", received.get(0).getComment());
+    }
+
+    /**
+     * Tests that the events a handler reads share their accounts when turned on for that handler only.
+     *
+     * @throws Exception if so.
+     */
+    @Test
+    public void testSharingAccounts() throws Exception {
+        handler.setSharingAccounts(true);
+        final List<CommentAdded> received = Collections.synchronizedList(new ArrayList<CommentAdded>());
+        handler.addListener(CommentAdded.class, new Consumer<CommentAdded>() {
+            @Override
+            public void accept(CommentAdded event) {
+                received.add(event);
+            }
+        });
+        //CS IGNORE LineLength FOR NEXT 3 LINES. REASON: Test data.
+        String line = "{\"type\":\"comment-added\",\"author\":{\"name\":\"Dev\",\"email\":\"dev@mail.com\"},\"comment\":\"a\",\"change\":{\"project\":\"p\",\"number\":\"1\"}}";
+        handler.post(line);
+        handler.post(line);
+        handler.shutdown(true);
+        handler = null;
+        assertEquals(2, received.size());
+        assertSame(received.get(0).getAccount(), received.get(1).getAccount());
+        assertTrue(received.get(0).getAccount().isShared());
+        assertFalse(Canonicalizer.isSharing());
+        CommentAdded other = (CommentAdded)GerritJsonEventDecoder.decode(line);
+        assertFalse(other.getAccount().isShared());
+    }
+
+    /**
+     * Tests that events of a type registered by a plugin are passed on to listeners.
+     *
+     * @throws Exception if so.
+     */
+    @Test
+    public void testCustomEventTypeLine() throws Exception {
+        final List<GerritEvent> received = new ArrayList<GerritEvent>();
+        handler.addListener(new GerritEventListener() {
+            @Override
+            public void gerritEvent(GerritEvent event) {
+                received.add(event);
+            }
+        });
+        GerritJsonEventFactory.registerEventFactory("custom-event",
+                new Supplier<GerritJsonEventFactoryTest.CustomEvent>() {
+            @Override
+            public GerritJsonEventFactoryTest.CustomEvent get() {
+                return new GerritJsonEventFactoryTest.CustomEvent();
+            }
+        });
+        try {
+            handler.post("{\"type\":\"custom-event\",\"change\":{\"project\":\"p\",\"number\":\"1\"}}");
+            handler.post("{\"type\":\"other-event\",\"change\":{\"project\":\"p\",\"number\":\"1\"}}");
+            handler.shutdown(true);
+            handler = null;
+        } finally {
+            GerritJsonEventFactory.unregisterEventFactory("custom-event");
+        }
+        assertEquals(1, received.size());
+        assertTrue(received.get(0) instanceof GerritJsonEventFactoryTest.CustomEvent);
+    }
+
+    /**
+     * Tests that events of the same change reach the listeners in the order they were posted in sharded dispatch mode,
+     * with several worker threads.
+     *
+     * @throws Exception if so
+     */
+    @Test
+    public void testShardedDispatchKeepsOrderPerChange() throws Exception {
+        handler.shutdown(true);
+        handler = new GerritHandler(4);
+        assertFalse(handler.isShardedDispatch());
+        handler.setShardedDispatch(true);
+        assertTrue(handler.isShardedDispatch());
+        final Map<String, List<String>> received = new ConcurrentHashMap<String, List<String>>();
+        handler.addListener(PatchsetCreated.class, new Consumer<PatchsetCreated>() {
+            @Override
+            public void accept(PatchsetCreated event) {
+                try {
+                    Thread.sleep(1);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                List<String> numbers = received.get(event.getChange().getNumber());
+                synchronized (numbers) {
+                    numbers.add(event.getPatchSet().getNumber());
+                }
+            }
+        });
+        final int changes = 5;
+        final int patchSets = 40;
+        for (int c = 1; c <= changes; c++) {
+            received.put(String.valueOf(c), new ArrayList<String>());
+        }
+        for (int p = 1; p <= patchSets; p++) {
+            for (int c = 1; c <= changes; c++) {
+                handler.post("{\"type\":\"patchset-created\",\"change\":{\"project\":\"p\",\"number\":" + c
+                        + "},\"patchSet\":{\"number\":" + p + "}}");
+            }
+        }
+        handler.shutdown(true);
+        handler = null;
+        for (List<String> numbers : received.values()) {
+            assertEquals(patchSets, numbers.size());
+            for (int p = 1; p <= patchSets; p++) {
+                assertEquals(String.valueOf(p), numbers.get(p - 1));
+            }
+        }
+    }
+
+    /**
+     * Tests that a slow listener with a mailbox does not hold up the other listeners.
+     *
+     * @throws Exception if so
+     */
+    @Test
+    public void testListenerMailboxIsolatesSlowListener() throws Exception {
+        final CountDownLatch release = new CountDownLatch(1);
+        final List<GerritEvent> slowReceived = new ArrayList<GerritEvent>();
+        final CountDownLatch fastReceived = new CountDownLatch(3);
+        GerritEventListener slow = new GerritEventListener() {
+            @Override
+            public void gerritEvent(GerritEvent event) {
+                try {
+                    release.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                slowReceived.add(event);
+            }
+        };
+        GerritEventListener fast = new GerritEventListener() {
+            @Override
+            public void gerritEvent(GerritEvent event) {
+                fastReceived.countDown();
+            }
+        };
+        handler.addListener(slow);
+        handler.addListener(fast);
+        ListenerMailbox mailbox = handler.setListenerMailbox(slow, 10, ListenerMailbox.OverflowPolicy.DROP_NEWEST);
+        assertSame(mailbox, handler.getListenerMailbox(slow));
+        assertNull(handler.getListenerMailbox(fast));
+        for (int i = 0; i < 3; i++) {
+            handler.post(new ChangeAbandoned());
+        }
+        assertTrue(fastReceived.await(10, TimeUnit.SECONDS));
+        assertTrue(slowReceived.isEmpty());
+        release.countDown();
+        handler.shutdown(true);
+        handler = null;
+        assertEquals(3, slowReceived.size());
+    }
+
+    /**
+     * Tests that mailbox mode gives listeners default mailboxes and takes them away again.
+     *
+     * @throws Exception if so
+     */
+    @Test
+    public void testListenerMailboxMode() throws Exception {
+        final CountDownLatch received = new CountDownLatch(1);
+        GerritEventListener listener = new GerritEventListener() {
+            @Override
+            public void gerritEvent(GerritEvent event) {
+                received.countDown();
+            }
+        };
+        handler.addListener(listener);
+        handler.setListenerMailboxes(true);
+        handler.post(new ChangeAbandoned());
+        assertTrue(received.await(10, TimeUnit.SECONDS));
+        ListenerMailbox mailbox = handler.getListenerMailbox(listener);
+        assertEquals(ListenerMailbox.OverflowPolicy.BLOCK, mailbox.getOverflowPolicy());
+        handler.setListenerMailboxes(false);
+        assertNull(handler.getListenerMailbox(listener));
+    }
+
+    /**
+     * Tests that a listener that keeps going over its time budget is moved to a mailbox of its own.
+     *
+     * @throws Exception if so
+     */
+    @Test
+    public void testListenerQuarantine() throws Exception {
+        handler.shutdown(true);
+        handler = new GerritHandler(1);
+        GerritEventListener slow = new GerritEventListener() {
+            @Override
+            public void gerritEvent(GerritEvent event) {
+                try {
+                    Thread.sleep(5);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        };
+        handler.addListener(slow);
+        handler.setListenerTimeBudget(slow, 1, TimeUnit.MILLISECONDS);
+        ListenerStats stats = handler.getListenerStats(slow);
+        assertFalse(stats.isQuarantined());
+        for (int i = 0; i < 5; i++) {
+            handler.notifyListeners(new ChangeAbandoned());
+        }
+        assertTrue(stats.isQuarantined());
+        assertEquals(5, stats.getOverBudget());
+        assertTrue(stats.getP50Nanos() >= TimeUnit.MILLISECONDS.toNanos(5));
+        assertEquals(ListenerMailbox.OverflowPolicy.BLOCK, handler.getListenerMailbox(slow).getOverflowPolicy());
+        assertSame(stats, handler.getListenerStats().get(slow));
+        handler.releaseListenerFromQuarantine(slow);
+        assertFalse(stats.isQuarantined());
+        assertNull(handler.getListenerMailbox(slow));
+    }
+
+    /**
+     * Tests that a quarantined listener still gets every event when its mailbox fills up,
+     * and that it can be given a mailbox that drops events instead.
+     *
+     * @throws Exception if so
+     */
+    @Test
+    public void testListenerQuarantineKeepsEvents() throws Exception {
+        handler.shutdown(true);
+        handler = new GerritHandler(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final AtomicInteger received = new AtomicInteger();
+        GerritEventListener slow = new GerritEventListener() {
+            @Override
+            public void gerritEvent(GerritEvent event) {
+                int count = received.incrementAndGet();
+                try {
+                    if (count <= 5) {
+                        Thread.sleep(5);
+                    } else if (count == 6) {
+                        release.await();
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        };
+        handler.addListener(slow);
+        handler.setListenerTimeBudget(slow, 1, TimeUnit.MILLISECONDS);
+        for (int i = 0; i < 5; i++) {
+            handler.notifyListeners(new ChangeAbandoned());
+        }
+        final ListenerMailbox mailbox = handler.getListenerMailbox(slow);
+        assertNotNull(mailbox);
+        final int events = mailbox.getCapacity() + 500;
+        Thread poster = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                for (int i = 0; i < events; i++) {
+                    handler.notifyListeners(new ChangeAbandoned());
+                }
+            }
+        });
+        poster.start();
+        long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(10);
+        while (mailbox.getDepth() < mailbox.getCapacity() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(1);
+        }
+        assertTrue(poster.isAlive());
+        release.countDown();
+        poster.join(TimeUnit.SECONDS.toMillis(10));
+        while (received.get() < events + 5 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(1);
+        }
+        assertEquals(events + 5, received.get());
+        assertEquals(0, mailbox.getDropped());
+
+        GerritEventListener dropping = new GerritEventListener() {
+            @Override
+            public void gerritEvent(GerritEvent event) {
+            }
+        };
+        handler.setListenerTimeBudget(dropping, 1, TimeUnit.MILLISECONDS,
+                ListenerMailbox.OverflowPolicy.DROP_OLDEST);
+        assertEquals(ListenerMailbox.OverflowPolicy.DROP_OLDEST,
+                handler.getListenerStats(dropping).getQuarantinePolicy());
+    }
+
+    /**
+     * Tests that lines spilled to disk when the receive queue is full all reach the listeners in order.
+     *
+     * @throws Exception if so
+     */
+    @Test
+    public void testReceiveQueueSpillToDisk() throws Exception {
+        handler.shutdown(true);
+        handler = new GerritHandler(1);
+        handler.setReceiveQueueBudget(3, 0, ReceiveQueue.OverflowPolicy.SPILL_TO_DISK);
+        final CountDownLatch release = new CountDownLatch(1);
+        final List<String> received = Collections.synchronizedList(new ArrayList<String>());
+        handler.addListener(PatchsetCreated.class, new Consumer<PatchsetCreated>() {
+            @Override
+            public void accept(PatchsetCreated event) {
+                try {
+                    release.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                received.add(event.getPatchSet().getNumber());
+            }
+        });
+        for (int i = 1; i <= 20; i++) {
+            handler.post(("{\"type\":\"patchset-created\",\"change\":{\"project\":\"p\",\"number\":1},"
+                    + "\"patchSet\":{\"number\":" + i + "}}").getBytes(StandardCharsets.UTF_8), null);
+        }
+        ReceiveQueue queue = handler.getReceiveQueue();
+        assertTrue(queue.getSpilledItems() > 0);
+        release.countDown();
+        for (int i = 0; i < 100 && received.size() < 20; i++) {
+            Thread.sleep(100);
+        }
+        assertEquals(20, received.size());
+        for (int i = 1; i <= 20; i++) {
+            assertEquals(String.valueOf(i), received.get(i - 1));
+        }
+        assertEquals(0, queue.getDropped());
+    }
+
+    /**
+     * Tests that shutting down and joining works on the lines spilled to disk instead of deleting them.
+     *
+     * @throws Exception if so
+     */
+    @Test
+    public void testShutdownDrainsSpilled() throws Exception {
+        handler.shutdown(true);
+        handler = new GerritHandler(1);
+        handler.setReceiveQueueBudget(2, 0, ReceiveQueue.OverflowPolicy.SPILL_TO_DISK);
+        final CountDownLatch release = new CountDownLatch(1);
+        final List<String> received = Collections.synchronizedList(new ArrayList<String>());
+        handler.addListener(PatchsetCreated.class, new Consumer<PatchsetCreated>() {
+            @Override
+            public void accept(PatchsetCreated event) {
+                try {
+                    release.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                received.add(event.getPatchSet().getNumber());
+            }
+        });
+        for (int i = 1; i <= 10; i++) {
+            handler.post(("{\"type\":\"patchset-created\",\"change\":{\"project\":\"p\",\"number\":1},"
+                    + "\"patchSet\":{\"number\":" + i + "}}").getBytes(StandardCharsets.UTF_8), null);
+        }
+        ReceiveQueue queue = handler.getReceiveQueue();
+        assertTrue(queue.getSpilledItems() > 0);
+        release.countDown();
+        handler.shutdown(true);
+        assertEquals(10, received.size());
+        assertEquals(0, queue.getSpilledItems());
+        assertEquals(0, queue.getDiscarded());
+        handler = null;
+    }
+
+    /**
+     * Tests that shutting down without joining deletes the lines spilled to disk and counts them.
+     *
+     * @throws Exception if so
+     */
+    @Test
+    public void testShutdownDiscardsSpilled() throws Exception {
+        handler.shutdown(true);
+        handler = new GerritHandler(1);
+        handler.setReceiveQueueBudget(2, 0, ReceiveQueue.OverflowPolicy.SPILL_TO_DISK);
+        final CountDownLatch release = new CountDownLatch(1);
+        handler.addListener(PatchsetCreated.class, new Consumer<PatchsetCreated>() {
+            @Override
+            public void accept(PatchsetCreated event) {
+                try {
+                    release.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+        for (int i = 1; i <= 10; i++) {
+            handler.post(("{\"type\":\"patchset-created\",\"change\":{\"project\":\"p\",\"number\":1},"
+                    + "\"patchSet\":{\"number\":" + i + "}}").getBytes(StandardCharsets.UTF_8), null);
+        }
+        ReceiveQueue queue = handler.getReceiveQueue();
+        int spilled = queue.getSpilledItems();
+        assertTrue(spilled > 0);
+        handler.shutdown(false);
+        release.countDown();
+        assertEquals(spilled, queue.getDiscarded());
+        assertEquals(0, queue.getSpilledItems());
+        handler = null;
+    }
+
+    /**
+     * Tests that events of a higher priority type are worked on before the ones that came before them.
+     *
+     * @throws Exception if so
+     */
+    @Test
+    public void testEventTypePriority() throws Exception {
+        handler.shutdown(true);
+        handler = new GerritHandler(1);
+        handler.setEventTypePriority(GerritEventType.PATCHSET_CREATED, 10);
+        handler.setEventTypePriority(GerritEventType.REF_REPLICATED, -10);
+        assertEquals(10, handler.getEventTypePriority(GerritEventType.PATCHSET_CREATED));
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final List<String> received = Collections.synchronizedList(new ArrayList<String>());
+        handler.addListener(new GerritEventListener() {
+            @Override
+            public void gerritEvent(GerritEvent event) {
+                if (event instanceof ChangeAbandoned) {
+                    started.countDown();
+                    try {
+                        release.await(10, TimeUnit.SECONDS);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                } else {
+                    received.add(((GerritTriggeredEvent)event).getEventType().getTypeValue());
+                }
+            }
+        });
+        handler.post(new ChangeAbandoned());
+        assertTrue(started.await(10, TimeUnit.SECONDS));
+        handler.post("{\"type\":\"ref-replicated\",\"project\":\"p\",\"ref\":\"refs/heads/master\"}");
+        handler.post("{\"type\":\"ref-replicated\",\"project\":\"p\",\"ref\":\"refs/heads/master\"}");
+        handler.post("{\"type\":\"patchset-created\",\"change\":{\"project\":\"p\",\"number\":1}}");
+        release.countDown();
+        handler.shutdown(true);
+        handler = null;
+        assertEquals(Arrays.asList("patchset-created", "ref-replicated", "ref-replicated"), received);
+    }
+
+    /**
+     * Tests that events posted through the ingest pipeline are filtered and parsed by the pipeline,
+     * pass the receive queue and are notified on the worker threads in order per change.
+     *
+     * @throws Exception if so
+     */
+    @Test
+    public void testIngestPipeline() throws Exception {
+        handler.setReceiveQueueBudget(1000, 0, ReceiveQueue.OverflowPolicy.BLOCK);
+        handler.setIngestPipeline(8, IngestPipeline.WaitStrategy.BLOCKING);
+        assertTrue(handler.isIngestPipeline());
+        handler.setShardedDispatch(true);
+        assertTrue(handler.isShardedDispatch());
+        IngestPipeline pipeline = handler.getIngestPipeline();
+        assertEquals(8, pipeline.getCapacity());
+        handler.setIgnoreEMail("testserver", "ignore-mail.com");
+        Provider provider = new Provider();
+        provider.setName("testserver");
+        final List<GerritEvent> received = Collections.synchronizedList(new ArrayList<GerritEvent>());
+        final List<String> threads = Collections.synchronizedList(new ArrayList<String>());
+        final CountDownLatch done = new CountDownLatch(52);
+        handler.addListener(new GerritEventListener() {
+            @Override
+            public void gerritEvent(GerritEvent event) {
+                received.add(event);
+                threads.add(Thread.currentThread().getName());
+                done.countDown();
+            }
+        });
+        for (int i = 0; i < 50; i++) {
+            handler.post(("{\"type\":\"patchset-created\",\"change\":{\"project\":\"p\",\"number\":1},"
+                    + "\"patchSet\":{\"number\":" + i + "}}").getBytes(StandardCharsets.UTF_8), provider);
+        }
+        handler.post("{\"type\":\"comment-added\",\"author\":{\"email\":\"e@ignore-mail.com\"},"
+                + "\"change\":{\"project\":\"p\",\"number\":1}}", provider);
+        handler.post("{\"type\":\"no-such-event\"}");
+        handler.post(JSONObject.fromObject("{\"type\":\"change-merged\",\"change\":{\"project\":\"p\",\"number\":50}}"));
+        handler.post(new ChangeAbandoned());
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+
+        handler.setIngestPipeline(false);
+        assertFalse(handler.isIngestPipeline());
+        assertNull(handler.getIngestPipeline());
+        assertTrue(handler.isShardedDispatch());
+
+        assertEquals(52, received.size());
+        int patchSet = 0;
+        for (GerritEvent event : received) {
+            if (event instanceof PatchsetCreated) {
+                assertEquals(String.valueOf(patchSet++), ((PatchsetCreated)event).getPatchSet().getNumber());
+                assertSame(provider, ((PatchsetCreated)event).getProvider());
+            }
+        }
+        assertEquals(50, patchSet);
+        for (String thread : threads) {
+            assertFalse(thread, thread.startsWith("Gerrit Ingest"));
+        }
+        assertEquals(0, handler.getReceiveQueue().getItems());
+
+        assertEquals(0, pipeline.getBacklog());
+        List<IngestStageStats> stats = pipeline.getStageStats();
+        assertEquals(Arrays.asList("frame", "filter", "parse", "dispatch"), Arrays.asList(stats.get(0).getName(),
+                stats.get(1).getName(), stats.get(2).getName(), stats.get(3).getName()));
+        for (IngestStageStats stage : stats) {
+            assertEquals(54, stage.getEvents());
+            assertTrue(stage.getMeanBatchSize() >= 1);
+        }
+        assertTrue(stats.get(3).getP99LatencyNanos() >= stats.get(3).getP50LatencyNanos());
+    }
+
+    /**
+     * Tests that events are worked on by a given executor, that is left running when the handler shuts down.
+     *
+     * @throws Exception if so
+     */
+    @Test
+    public void testSuppliedExecutor() throws Exception {
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            handler.setExecutor(pool);
+            assertSame(pool, handler.getExecutor());
+            assertEquals(0, handler.getLargestPoolSize());
+            final List<Thread> threads = Collections.synchronizedList(new ArrayList<Thread>());
+            final CountDownLatch received = new CountDownLatch(10);
+            handler.addListener(new GerritEventListener() {
+                @Override
+                public void gerritEvent(GerritEvent event) {
+                    threads.add(Thread.currentThread());
+                    received.countDown();
+                }
+            });
+            for (int i = 0; i < 10; i++) {
+                handler.post(new ChangeAbandoned());
+            }
+            assertTrue(received.await(10, TimeUnit.SECONDS));
+            for (Thread thread : threads) {
+                assertTrue(thread instanceof ForkJoinWorkerThread);
+            }
+
+            handler.setExecutor(null);
+            assertTrue(handler.getExecutor() instanceof ThreadPoolExecutor);
+            handler.setExecutor(pool);
+            handler.shutdown(true);
+            handler = null;
+            assertFalse(pool.isShutdown());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Tests that the autoscaler grows the pool of worker threads when the listeners fall behind,
+     * and that it is stopped with the handler.
+     *
+     * @throws Exception if so.
+     */
+    @Test
+    public void testWorkerAutoscaling() throws Exception {
+        handler.setWorkerAutoscaling(1, 8, 50, TimeUnit.MILLISECONDS);
+        WorkerPoolAutoscaler autoscaler = handler.getWorkerAutoscaler();
+        assertNotNull(autoscaler);
+        autoscaler.setTargetQueueWait(10, TimeUnit.MILLISECONDS);
+        final CountDownLatch release = new CountDownLatch(1);
+        final CountDownLatch received = new CountDownLatch(40);
+        handler.addListener(new GerritEventListener() {
+            @Override
+            public void gerritEvent(GerritEvent event) {
+                try {
+                    release.await(200, TimeUnit.MILLISECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                received.countDown();
+            }
+        });
+        for (int i = 0; i < 40; i++) {
+            handler.post(new ChangeAbandoned());
+        }
+        long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(10);
+        while (handler.getNumberOfWorkerThreads() < 8 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(8, handler.getNumberOfWorkerThreads());
+        assertEquals(8, handler.getWorkerPool().getCorePoolSize());
+        assertFalse(autoscaler.getDecisions().isEmpty());
+        release.countDown();
+        assertTrue(received.await(10, TimeUnit.SECONDS));
+
+        handler.setWorkerAutoscaling(0, 0);
+        assertNull(handler.getWorkerAutoscaler());
+    }
+
+    /**
+     * Tests that non-blocking listeners are notified on the worker thread that decoded the event, before the other
+     * listeners of the same event.
+     *
+     * @throws Exception if so.
+     */
+    @Test
+    public void testNonBlockingListener() throws Exception {
+        handler.setIgnoreEMail("testserver", "ignore-mail.com");
+        Provider provider = new Provider();
+        provider.setName("testserver");
+        final Map<GerritEvent, Thread> nonBlocking = Collections.synchronizedMap(
+                new IdentityHashMap<GerritEvent, Thread>());
+        final List<GerritEvent> blocking = Collections.synchronizedList(new ArrayList<GerritEvent>());
+        final AtomicBoolean inOrder = new AtomicBoolean(true);
+        final CountDownLatch received = new CountDownLatch(3);
+        handler.addListener(new GerritEventListener() {
+            @Override
+            public void gerritEvent(GerritEvent event) {
+                if (nonBlocking.get(event) != Thread.currentThread()) {
+                    inOrder.set(false);
+                }
+                blocking.add(event);
+                received.countDown();
+            }
+        });
+        handler.addListener(new NonBlockingGerritEventListener() {
+            @Override
+            public void gerritEvent(GerritEvent event) {
+                nonBlocking.put(event, Thread.currentThread());
+            }
+        });
+        handler.post(("{\"type\":\"patchset-created\",\"change\":{\"project\":\"p\",\"number\":1}}")
+                .getBytes(StandardCharsets.UTF_8), provider);
+        handler.post("{\"type\":\"comment-added\",\"author\":{\"email\":\"e@ignore-mail.com\"},"
+                + "\"change\":{\"project\":\"p\",\"number\":1}}", provider);
+        handler.post(JSONObject.fromObject("{\"type\":\"change-merged\",\"change\":{\"project\":\"p\",\"number\":1}}"));
+        handler.post(new ChangeAbandoned());
+        assertTrue(received.await(10, TimeUnit.SECONDS));
+        assertTrue(inOrder.get());
+        assertEquals(3, nonBlocking.size());
+        assertFalse(nonBlocking.containsValue(Thread.currentThread()));
+        for (GerritEvent event : blocking) {
+            if (event instanceof PatchsetCreated) {
+                assertSame(provider, ((PatchsetCreated)event).getProvider());
+            }
+        }
+    }
+
+    /**
+     * Tests that batch listeners get all events, in order per change, in batches.
+     *
+     * @throws Exception if so.
+     */
+    @Test
+    public void testBatchListener() throws Exception {
+        handler.setShardedDispatch(true);
+        final List<List<GerritEvent>> batches = Collections.synchronizedList(new ArrayList<List<GerritEvent>>());
+        final CountDownLatch received = new CountDownLatch(100);
+        BatchGerritEventListener listener = new BatchGerritEventListener() {
+            @Override
+            public void gerritEvents(List<GerritEvent> events) {
+                batches.add(new ArrayList<GerritEvent>(events));
+                for (int i = 0; i < events.size(); i++) {
+                    received.countDown();
+                }
+            }
+        };
+        EventBatcher batcher = handler.addBatchListener(listener, 10, 50, TimeUnit.MILLISECONDS);
+        assertSame(batcher, handler.getEventBatcher(listener));
+        assertTrue(handler.isInterestedIn(GerritEventType.CHANGE_MERGED));
+        for (int i = 0; i < 100; i++) {
+            handler.post("{\"type\":\"patchset-created\",\"change\":{\"project\":\"p\",\"number\":" + (i % 2)
+                    + "},\"patchSet\":{\"number\":" + i + "}}");
+        }
+        assertTrue(received.await(10, TimeUnit.SECONDS));
+        assertTrue(batches.size() < 100);
+        int[] last = {-1, -1};
+        for (List<GerritEvent> batch : batches) {
+            assertTrue(batch.size() <= 10);
+            for (GerritEvent event : batch) {
+                PatchsetCreated created = (PatchsetCreated)event;
+                int change = Integer.parseInt(created.getChange().getNumber());
+                int patchSet = Integer.parseInt(created.getPatchSet().getNumber());
+                assertTrue(patchSet > last[change]);
+                last[change] = patchSet;
+            }
+        }
+        assertEquals(100, batcher.getEvents());
+
+        handler.removeBatchListener(listener);
+        assertNull(handler.getEventBatcher(listener));
+    }
+
     /**
      * A GerritListener mock that can change it's hashCode
      */
@@ -389,12 +1214,14 @@ public class GerritHandlerTest {
      * @throws Exception thread related
      */
     @Test
+    @SuppressWarnings("deprecation")
     public void testWhitelistIgnore() throws Exception {
         String server = "testserver";
         GerritEventListener listenerMock = mock(GerritEventListener.class);
         handler.addListener(listenerMock);
         handler.scheduleGerritWhitelistRead(
             getClass().getResource("/com/sonymobile/tools/gerrit/gerritevents/whitelist").getPath());
+        assertEquals(Collections.singleton("Foo"), GerritHandler.getWhitelist().keySet());
         //CS IGNORE LineLength FOR NEXT 7 LINES. REASON: Test data.
         String stringTest01 = "{\"uploader\":{\"name\":\"Foo, Bar\",\"email\":\"Foo@Bar.com\",\"username\":\"foobar\"},\"patchSet\":{\"number\":\"1\",\"revision\":\"8bd741fd301701b1a70b4cfb4d33dac3349b6796\",\"parents\":[\"8bd741fd301701b1a70b4cfb4d33dac3349b6797\"],\"ref\":\"refs/changes/1/1234567/1\",\"uploader\":{\"name\":\"Foo Bar\",\"email\":\"Foo@Bar.com\",\"username\":\"foobar\"},\"createdOn\":1527883364,\"author\":{\"name\":\"Foo Bar\",\"email\":\"Foo@Bar.com\",\"username\":\"foobar\"},\"isDraft\":false,\"kind\":\"REWORK\",\"sizeInsertions\":2,\"sizeDeletions\":-2},\"change\":{\"project\":\"Foo/Bar\",\"branch\":\"Foo\",\"id\":\"8bd741fd301701b1a70b4cfb4d33dac3349b6796\",\"number\":\"351587\",\"subject\":\"Foo Bar\",\"owner\":{\"name\":\"Foo Bar\",\"email\":\"foo@bar.com\",\"username\":\"foobar\"},\"url\":\"https://Foo.bar/com/gerrit/351587\",\"commitMessage\":\"Foo Changes\\n\\nChange-Id: I4a0ca0ddbbe86258c162f1528f89632113758a9d\\n\",\"status\":\"NEW\"},\"project\":\"Foo/Bar\",\"refName\":\"refs/heads/FOOMAIN\",\"changeKey\":{\"id\":\"I4a0ca0ddbbe86258c162f1528f89632113758a9d\"},\"type\":\"patchset-created\",\"eventCreatedOn\":1527883364}";
         String stringTest02 = "{\"uploader\":{\"name\":\"Foo, Bar\",\"email\":\"Foo@Bar.com\",\"username\":\"foobar\"},\"patchSet\":{\"number\":\"1\",\"revision\":\"8bd741fd301701b1a70b4cfb4d33dac3349b6796\",\"parents\":[\"8bd741fd301701b1a70b4cfb4d33dac3349b6797\"],\"ref\":\"refs/changes/1/1234567/1\",\"uploader\":{\"name\":\"Foo Bar\",\"email\":\"Foo@Bar.com\",\"username\":\"foobar\"},\"createdOn\":1527883364,\"author\":{\"name\":\"Foo Bar\",\"email\":\"Foo@Bar.com\",\"username\":\"foobar\"},\"isDraft\":false,\"kind\":\"REWORK\",\"sizeInsertions\":2,\"sizeDeletions\":-2},\"change\":{\"project\":\"BAR/Bar\",\"branch\":\"Foo\",\"id\":\"8bd741fd301701b1a70b4cfb4d33dac3349b6796\",\"number\":\"351587\",\"subject\":\"Foo Bar\",\"owner\":{\"name\":\"Foo Bar\",\"email\":\"foo@bar.com\",\"username\":\"foobar\"},\"url\":\"https://Foo.bar/com/gerrit/351587\",\"commitMessage\":\"Foo Changes\\n\\nChange-Id: I4a0ca0ddbbe86258c162f1528f89632113758a9d\\n\",\"status\":\"NEW\"},\"project\":\"NOTAREALPROJECT/Bar\",\"refName\":\"refs/heads/FOOMAIN\",\"changeKey\":{\"id\":\"I4a0ca0ddbbe86258c162f1528f89632113758a9d\"},\"type\":\"patchset-created\",\"eventCreatedOn\":1527883364}";
@@ -409,6 +1236,263 @@ public class GerritHandlerTest {
         verify(listenerMock, times(2)).gerritEvent(Mockito.any());
     }
 
+    /**
+     * Tests that each handler has its own project filter, and that it is read again when the file changes.
+     *
+     * @throws Exception if so.
+     */
+    @Test
+    public void testProjectFilterReload() throws Exception {
+        File file = File.createTempFile("projects", ".filter");
+        GerritHandler other = new GerritHandler();
+        handler.addListener(mock(GerritEventListener.class));
+        other.addListener(mock(GerritEventListener.class));
+        try {
+            Files.write(file.toPath(), Collections.singletonList("Foo"), StandardCharsets.UTF_8);
+            handler.watchProjectFilter(file.toPath());
+            assertEquals(Collections.singletonList("Foo"), handler.getProjectFilter().getRules());
+            assertTrue(other.getProjectFilter().isEmpty());
+            EventHeader header = EventHeader.scan("{\"type\":\"patchset-created\",\"change\":{\"project\":\"Bar/x\"}}");
+            assertFalse(handler.isAccepted(header, null));
+            assertTrue(other.isAccepted(header, null));
+
+            Files.write(file.toPath(), Arrays.asList("Foo", "Bar/*"), StandardCharsets.UTF_8);
+            long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(30);
+            while (!handler.isAccepted(header, null) && System.currentTimeMillis() < deadline) {
+                Thread.sleep(50);
+            }
+            assertTrue(handler.isAccepted(header, null));
+
+            handler.watchProjectFilter(null);
+            handler.setProjectFilter(null);
+            assertTrue(handler.getProjectFilter().isEmpty());
+        } finally {
+            other.shutdown(false);
+            file.delete();
+        }
+    }
+
+    /**
+     * Tests that events the event filter drops never reach the listeners, and are counted.
+     *
+     * @throws Exception if so.
+     */
+    @Test
+    public void testEventFilter() throws Exception {
+        handler.setEventFilter(EventFilter.compile("drafts: type = ref-updated and ref ^= refs/changes/"));
+        final List<GerritEvent> received = Collections.synchronizedList(new ArrayList<GerritEvent>());
+        final CountDownLatch merged = new CountDownLatch(1);
+        handler.addListener(new GerritEventListener() {
+            @Override
+            public void gerritEvent(GerritEvent event) {
+                received.add(event);
+                if (event instanceof ChangeMerged) {
+                    merged.countDown();
+                }
+            }
+        });
+        handler.post("{\"type\":\"ref-updated\",\"refUpdate\":{\"project\":\"p\",\"refName\":\"refs/changes/1/1/1\"}}");
+        handler.post("{\"type\":\"ref-updated\",\"refUpdate\":{\"project\":\"p\",\"refName\":\"refs/heads/main\"}}");
+        handler.post("{\"type\":\"change-merged\",\"change\":{\"project\":\"p\",\"number\":1}}");
+        assertTrue(merged.await(10, TimeUnit.SECONDS));
+        handler.shutdown(true);
+        assertEquals(2, received.size());
+        for (GerritEvent event : received) {
+            if (event instanceof RefUpdated) {
+                assertEquals("main", ((RefUpdated)event).getRefUpdate().getRefName());
+            }
+        }
+        assertEquals(Long.valueOf(1), handler.getEventFilter().getDropCounts().get("drafts"));
+        handler = null;
+    }
+
+    /**
+     * Tests that listeners added with project and branch globs only get the events they subscribed to,
+     * and that the other events are not parsed when there are only such listeners.
+     *
+     * @throws Exception if so.
+     */
+    @Test
+    public void testListenerRouting() throws Exception {
+        final List<GerritEvent> received = Collections.synchronizedList(new ArrayList<GerritEvent>());
+        final CountDownLatch merged = new CountDownLatch(1);
+        GerritEventListener listener = new GerritEventListener() {
+            @Override
+            public void gerritEvent(GerritEvent event) {
+                received.add(event);
+                if (event instanceof ChangeMerged) {
+                    merged.countDown();
+                }
+            }
+        };
+        handler.addListener(listener, "platform/*", "release/**");
+        assertTrue(handler.isInterestedIn(GerritEventType.CHANGE_MERGED));
+        EventHeader other = EventHeader.scan("{\"type\":\"change-merged\",\"change\":"
+                + "{\"project\":\"tools/repo\",\"branch\":\"release/1\",\"number\":1}}");
+        assertFalse(handler.isAccepted(other, null));
+        handler.post("{\"type\":\"ref-updated\",\"refUpdate\":{\"project\":\"platform/art\","
+                + "\"refName\":\"refs/heads/release/1\"}}");
+        handler.post("{\"type\":\"change-merged\",\"change\":{\"project\":\"platform/art\","
+                + "\"branch\":\"master\",\"number\":2}}");
+        handler.post("{\"type\":\"change-merged\",\"change\":{\"project\":\"platform/art\","
+                + "\"branch\":\"release/1/fix\",\"number\":3}}");
+        assertTrue(merged.await(10, TimeUnit.SECONDS));
+        handler.shutdown(true);
+        assertEquals(2, received.size());
+        for (GerritEvent event : received) {
+            if (event instanceof ChangeMerged) {
+                assertEquals("3", ((ChangeMerged)event).getChange().getNumber());
+            } else {
+                assertTrue(event instanceof RefUpdated);
+            }
+        }
+        handler.removeListener(listener);
+        assertTrue(handler.getListenerRouter().isEmpty());
+        handler = null;
+    }
+
+    /**
+     * Tests that an exception from a listener does not keep the other listeners from being notified,
+     * but an error is not swallowed.
+     */
+    @Test
+    public void testListenerErrorsArePassedOn() {
+        GerritEventListener failing = new GerritEventListener() {
+            @Override
+            public void gerritEvent(GerritEvent event) {
+                throw new IllegalStateException("boom");
+            }
+        };
+        GerritEventListener other = mock(GerritEventListener.class);
+        handler.addListener(failing);
+        handler.addListener(other);
+        ChangeAbandoned event = new ChangeAbandoned();
+        handler.notifyListeners(event);
+        verify(other).gerritEvent(event);
+        handler.removeListener(failing);
+        handler.addListener(new GerritEventListener() {
+            @Override
+            public void gerritEvent(GerritEvent event) {
+                throw new OutOfMemoryError("boom");
+            }
+        });
+        try {
+            handler.notifyListeners(event);
+            fail("The error was swallowed");
+        } catch (OutOfMemoryError e) {
+            assertEquals("boom", e.getMessage());
+        }
+    }
+
+    /**
+     * Tests that a listener added both for all events and with globs is notified once,
+     * and that removing all listeners also removes the ones added with globs.
+     *
+     * @throws Exception if so.
+     */
+    @Test
+    public void testListenerRoutedAndGlobal() throws Exception {
+        final List<GerritEvent> received = Collections.synchronizedList(new ArrayList<GerritEvent>());
+        GerritEventListener listener = new GerritEventListener() {
+            @Override
+            public void gerritEvent(GerritEvent event) {
+                received.add(event);
+            }
+        };
+        GerritEventListener routedOnly = mock(GerritEventListener.class);
+        handler.addListener(listener, "platform/*", "**");
+        handler.addListener(listener);
+        handler.addListener(routedOnly, "tools/*", "**");
+        handler.post("{\"type\":\"change-merged\",\"change\":{\"project\":\"platform/art\","
+                + "\"branch\":\"master\",\"number\":1}}");
+        handler.post("{\"type\":\"change-merged\",\"change\":{\"project\":\"other\","
+                + "\"branch\":\"master\",\"number\":2}}");
+        handler.shutdown(true);
+        assertEquals(2, received.size());
+
+        Collection<GerritEventListener> removed = handler.removeAllEventListeners();
+        assertEquals(new HashSet<GerritEventListener>(Arrays.asList(listener, routedOnly)),
+                new HashSet<GerritEventListener>(removed));
+        assertTrue(handler.getListenerRouter().isEmpty());
+        handler = null;
+    }
+
+    /**
+     * Tests that coalesced events are held for the window and only the merged one is delivered,
+     * also to non-blocking listeners.
+     *
+     * @throws Exception if so.
+     */
+    @Test
+    public void testCoalescing() throws Exception {
+        //The patch sets of a change reach the coalescer in order.
+        handler.setShardedDispatch(true);
+        handler.setCoalescing(GerritEventType.PATCHSET_CREATED, 200, TimeUnit.MILLISECONDS, EventCoalescer.LATEST);
+        final List<GerritEvent> received = Collections.synchronizedList(new ArrayList<GerritEvent>());
+        final CountDownLatch patchsets = new CountDownLatch(2);
+        final CountDownLatch merged = new CountDownLatch(1);
+        handler.addListener(new NonBlockingGerritEventListener() {
+            @Override
+            public void gerritEvent(GerritEvent event) {
+                received.add(event);
+                if (event instanceof PatchsetCreated) {
+                    patchsets.countDown();
+                } else {
+                    merged.countDown();
+                }
+            }
+        });
+        for (int patchSet = 1; patchSet <= 3; patchSet++) {
+            handler.post("{\"type\":\"patchset-created\",\"change\":{\"project\":\"p\",\"number\":1},"
+                    + "\"patchSet\":{\"number\":" + patchSet + "}}");
+        }
+        handler.post("{\"type\":\"patchset-created\",\"change\":{\"project\":\"p\",\"number\":2},"
+                + "\"patchSet\":{\"number\":1}}");
+        handler.post("{\"type\":\"change-merged\",\"change\":{\"project\":\"p\",\"number\":3}}");
+        //Not coalesced, delivered right away.
+        assertTrue(merged.await(10, TimeUnit.SECONDS));
+        assertTrue(received.get(0) instanceof ChangeMerged);
+        assertTrue(patchsets.await(10, TimeUnit.SECONDS));
+        assertEquals(3, received.size());
+        for (GerritEvent event : received) {
+            if (event instanceof PatchsetCreated && "1".equals(((PatchsetCreated)event).getChange().getNumber())) {
+                assertEquals("3", ((PatchsetCreated)event).getPatchSet().getNumber());
+            }
+        }
+        EventCoalescer coalescer = handler.getEventCoalescer();
+        assertEquals(4, coalescer.getHeld());
+        assertEquals(2, coalescer.getMerged());
+        assertEquals(2, coalescer.getDelivered());
+    }
+
+    /**
+     * Tests that an event posted again, like after a reconnect, is only delivered once.
+     *
+     * @throws Exception if so.
+     */
+    @Test
+    public void testDeduplication() throws Exception {
+        handler.setEventDeduplicator(new EventDeduplicator(10, TimeUnit.MINUTES));
+        final List<GerritEvent> received = Collections.synchronizedList(new ArrayList<GerritEvent>());
+        handler.addListener(new GerritEventListener() {
+            @Override
+            public void gerritEvent(GerritEvent event) {
+                received.add(event);
+            }
+        });
+        String patchsetCreated = "{\"type\":\"patchset-created\",\"change\":{\"project\":\"p\",\"number\":1},"
+                + "\"patchSet\":{\"number\":1},\"eventCreatedOn\":1527883364}";
+        handler.post(patchsetCreated);
+        handler.post(patchsetCreated);
+        handler.post(patchsetCreated.replace("\"number\":1}", "\"number\":2}"));
+        handler.shutdown(true);
+        assertEquals(2, received.size());
+        EventDeduplicator deduplicator = handler.getEventDeduplicator();
+        assertEquals(3, deduplicator.getChecked());
+        assertEquals(1, deduplicator.getDuplicates());
+        handler = null;
+    }
+
    /**
      * Tests that event notification using the default method.
      */
@@ -0,0 +1,194 @@
+/*
+ *  The MIT License
+ *
+ *  Copyright 2026 Sony Mobile Communications Inc. All rights reserved.
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+package com.sonymobile.tools.gerrit.gerritevents;
+
+import com.sonymobile.tools.gerrit.gerritevents.dto.GerritEventType;
+import com.sonymobile.tools.gerrit.gerritevents.dto.GerritJsonEvent;
+import com.sonymobile.tools.gerrit.gerritevents.dto.attr.Approval;
+import com.sonymobile.tools.gerrit.gerritevents.dto.events.ChangeMerged;
+import com.sonymobile.tools.gerrit.gerritevents.dto.events.CommentAdded;
+import com.sonymobile.tools.gerrit.gerritevents.dto.events.GerritTriggeredEvent;
+import com.sonymobile.tools.gerrit.gerritevents.dto.events.PatchsetCreated;
+import com.thoughtworks.xstream.XStream;
+import org.apache.commons.io.IOUtils;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+//CS IGNORE LineLength FOR NEXT 200 LINES. REASON: Test data.
+//CS IGNORE MagicNumber FOR NEXT 200 LINES. REASON: Test data.
+
+/**
+ * Tests for {@link GerritJsonEventDecoder}.
+ */
+public class GerritJsonEventDecoderTest {
+
+    private static final String RESOURCES = "/com/sonymobile/tools/gerrit/gerritevents/dto/events/";
+    private static final String ACCOUNT = "{\"name\":\"Foo Bar\",\"email\":\"foo@bar.com\",\"username\":\"foobar\"}";
+    private static final String CHANGE = "\"change\":{\"project\":\"foo/bar\",\"branch\":\"master\",\"topic\":\"feature\","
+            + "\"hashtags\":[\"one\",\"two\"],\"id\":\"I4a0ca0ddbbe86258c162f1528f89632113758a9d\",\"number\":1234,"
+            + "\"subject\":\"Foo \\\"bar\\\" \\u00e5\",\"owner\":" + ACCOUNT + ",\"url\":\"https://gerrit/1234\","
+            + "\"commitMessage\":\"Foo\\n\\nChange-Id: I4a0c\\n\",\"createdOn\":1527883364,\"lastUpdated\":\"1527883365\","
+            + "\"comments\":[{\"message\":\"Looks good\",\"reviewer\":" + ACCOUNT + "}],"
+            + "\"status\":\"NEW\",\"wip\":true,\"private\":\"true\",\"unknown\":{\"nested\":[1,{\"a\":null}]}}";
+    private static final String PATCH_SET = "\"patchSet\":{\"number\":\"2\",\"revision\":\"8bd741fd301701b1a70b4cfb4d33dac3349b6796\","
+            + "\"parents\":[\"a7b2c9d\"],\"ref\":\"refs/changes/34/1234/2\",\"uploader\":" + ACCOUNT + ","
+            + "\"createdOn\":1527883364,\"author\":" + ACCOUNT + ",\"isDraft\":false,\"kind\":\"REWORK\","
+            + "\"approvals\":[{\"type\":\"Code-Review\",\"description\":\"Code-Review\",\"value\":\"2\",\"grantedOn\":1527883364,\"by\":" + ACCOUNT + "}],"
+            + "\"sizeInsertions\":10,\"sizeDeletions\":-2}";
+    private static final String PROVIDER = "\"provider\":{\"name\":\"gerrit\",\"host\":\"gerrit.example.com\",\"port\":\"29418\","
+            + "\"scheme\":\"ssh\",\"proto\":\"ssh-proto\",\"url\":\"https://gerrit/\",\"version\":\"3.9.0\"}";
+    private static final String APPROVALS = "\"approvals\":[{\"type\":\"Verified\",\"description\":\"Verified\",\"value\":\"1\",\"oldValue\":\"0\"},"
+            + "{\"type\":\"Code-Review\",\"description\":\"Code-Review\",\"value\":\"0\",\"updated\":true},{\"value\":\"1\"}]";
+
+    private static final String[] EVENTS = {
+        "{\"uploader\":" + ACCOUNT + "," + PATCH_SET + "," + CHANGE + "," + PROVIDER + ",\"type\":\"patchset-created\",\"eventCreatedOn\":1527883364}",
+        "{\"type\":\"draft-published\",\"uploader\":" + ACCOUNT + "," + PATCH_SET + "," + CHANGE + ",\"eventCreatedOn\":1527883364}",
+        "{\"type\":\"change-abandoned\",\"abandoner\":" + ACCOUNT + ",\"reason\":\"Old\"," + PATCH_SET + "," + CHANGE + "}",
+        "{\"type\":\"change-merged\",\"submitter\":" + ACCOUNT + ",\"newRev\":\"c5c1e64\"," + PATCH_SET + "," + CHANGE + "}",
+        "{\"type\":\"change-restored\",\"restorer\":" + ACCOUNT + "," + PATCH_SET + "," + CHANGE + "}",
+        "{\"type\":\"change-deleted\",\"deleter\":" + ACCOUNT + "," + CHANGE + "}",
+        "{\"type\":\"comment-added\",\"author\":" + ACCOUNT + "," + APPROVALS + ",\"comment\":\"Patch Set 2: Code-Review+2\"," + PATCH_SET + "," + CHANGE + "}",
+        "{\"type\":\"ref-updated\",\"submitter\":" + ACCOUNT + ",\"refUpdate\":{\"oldRev\":\"a7b2c9d\",\"newRev\":\"c5c1e64\",\"refName\":\"refs/heads/master\",\"project\":\"foo/bar\"}}",
+        "{\"type\":\"ref-replicated\",\"project\":\"foo/bar\",\"ref\":\"refs/heads/master\",\"targetNode\":\"mirror\",\"status\":\"succeeded\",\"eventCreatedOn\":1527883364}",
+        "{\"type\":\"ref-replication-done\",\"project\":\"foo/bar\",\"ref\":\"refs/heads/master\",\"nodesCount\":3}",
+        "{\"type\":\"patchset-notified\",\"notifier\":" + ACCOUNT + "," + PATCH_SET + "," + CHANGE + "}",
+        "{\"type\":\"project-created\",\"projectName\":\"new/project\",\"headName\":\"refs/heads/main\"}",
+        "{\"type\":\"topic-changed\",\"changer\":" + ACCOUNT + ",\"oldTopic\":\"old\"," + CHANGE + "}",
+        "{\"type\":\"reviewer-added\",\"reviewer\":" + ACCOUNT + "," + PATCH_SET + "," + CHANGE + "}",
+        "{\"type\":\"merge-failed\",\"submitter\":" + ACCOUNT + ",\"reason\":\"Conflict\"," + PATCH_SET + "," + CHANGE + "}",
+        "{\"type\":\"private-state-changed\",\"changer\":" + ACCOUNT + "," + PATCH_SET + "," + CHANGE + "}",
+        "{\"type\":\"wip-state-changed\",\"changer\":" + ACCOUNT + "," + PATCH_SET + "," + CHANGE + "}",
+        "{\"type\":\"hashtags-changed\",\"editor\":" + ACCOUNT + ",\"added\":[\"three\"],\"hashtags\":[\"one\",\"three\"]," + CHANGE + "}",
+        "{\"type\":\"vote-deleted\",\"reviewer\":" + ACCOUNT + ",\"remover\":" + ACCOUNT + "," + APPROVALS + ",\"comment\":\"Removed\"," + PATCH_SET + "," + CHANGE + "}",
+        "{\"type\":\"rerun-check\",\"patchset\":{\"number\":\"1\"}," + PATCH_SET + "," + CHANGE + "}",
+    };
+
+    /**
+     * Tests that every type of event is decoded the same way as through {@link net.sf.json.JSONObject}.
+     */
+    @Test
+    public void testSameAsJsonObject() {
+        for (String json : EVENTS) {
+            assertSameAsJsonObject(json);
+        }
+    }
+
+    /**
+     * Tests that the sample events in the test resources are decoded the same way as through
+     * {@link net.sf.json.JSONObject}.
+     *
+     * @throws IOException if so.
+     */
+    @Test
+    public void testSameAsJsonObjectForResources() throws IOException {
+        String[] resources = {"DeserializeChangeDeletedTest.json", "DeserializeEventCreatedOnTest.json",
+            "DeserializeHashtagsChangedTest.json", "DeserializeVoteDeletedTest.json", };
+        for (String resource : resources) {
+            try (InputStream stream = getClass().getResourceAsStream(RESOURCES + resource)) {
+                assertSameAsJsonObject(IOUtils.toString(stream, StandardCharsets.UTF_8));
+            }
+        }
+    }
+
+    /**
+     * Tests some of the values, to make sure the comparison is not between two empty events.
+     */
+    @Test
+    public void testValues() {
+        PatchsetCreated event = (PatchsetCreated)GerritJsonEventDecoder.decode(EVENTS[0].getBytes(StandardCharsets.UTF_8));
+        assertNotNull(event);
+        assertEquals("foo@bar.com", event.getAccount().getEmail());
+        assertEquals("1234", event.getChange().getNumber());
+        assertEquals("Foo \"bar\" \u00e5", event.getChange().getSubject());
+        assertEquals("feature", event.getChange().getTopic());
+        assertEquals(2, event.getChange().getHashtags().size());
+        assertTrue(event.getChange().isWip());
+        assertTrue(event.getChange().isPrivate());
+        assertEquals(1527883365000L, event.getChange().getLastUpdated().getTime());
+        assertEquals("ssh-proto", event.getProvider().getScheme());
+        assertEquals("Code-Review", event.getPatchSet().getApprovals().get(0).getType());
+        assertEquals(1527883364000L, event.getEventCreatedOn().getTime());
+
+        CommentAdded comment = (CommentAdded)GerritJsonEventDecoder.decode(EVENTS[6]);
+        assertNotNull(comment);
+        assertEquals(3, comment.getApprovals().size());
+        Approval partial = comment.getApprovals().get(2);
+        assertNull(partial.getType());
+        assertNull(partial.getValue());
+        assertTrue(comment.getApprovals().get(0).isUpdated());
+        assertFalse(comment.getApprovals().get(1).isUpdated());
+    }
+
+    /**
+     * Tests that uninteresting, unknown and broken lines give no event.
+     */
+    @Test
+    public void testNotDecoded() {
+        assertNull(GerritJsonEventDecoder.decode("{\"type\":\"no-such-event\",\"project\":\"foo\"}"));
+        assertNull(GerritJsonEventDecoder.decode("{\"project\":\"foo\"}"));
+        assertNull(GerritJsonEventDecoder.decode("{\"type\":\"change-merged\",\"change\":{\"project\":"));
+        assertNull(GerritJsonEventDecoder.decode("{\"type\":\"change-merged\",\"change\":[1,2]}"));
+        assertNull(GerritJsonEventDecoder.decode((String)null));
+        assertNull(GerritJsonEventDecoder.decode((byte[])null));
+        assertFalse(GerritJsonEventFactory.isInterestingAndUsable((GerritEventType)null));
+    }
+
+    /**
+     * Tests that a null object in the JSON gives a null member.
+     */
+    @Test
+    public void testNullMember() {
+        ChangeMerged event = (ChangeMerged)GerritJsonEventDecoder.decode(
+                "{\"type\":\"change-merged\",\"submitter\":null,\"newRev\":null," + CHANGE + "}");
+        assertNotNull(event);
+        assertNull(event.getAccount());
+        assertNull(event.getNewRev());
+        assertNotNull(event.getChange());
+    }
+
+    /**
+     * Decodes the JSON both ways and compares the result field by field.
+     *
+     * @param json the event.
+     */
+    private void assertSameAsJsonObject(String json) {
+        GerritJsonEvent expected = GerritJsonEventFactory.getEventIfInteresting(json);
+        GerritJsonEvent actual = GerritJsonEventDecoder.decode(json.getBytes(StandardCharsets.UTF_8));
+        assertNotNull(json, expected);
+        assertNotNull(json, actual);
+        ((GerritTriggeredEvent)expected).setReceivedOn(0);
+        ((GerritTriggeredEvent)actual).setReceivedOn(0);
+        XStream x = new XStream();
+        assertEquals(json, x.toXML(expected), x.toXML(actual));
+    }
+}
@@ -0,0 +1,181 @@
+/*
+ *  The MIT License
+ *
+ *  Copyright 2026 Sony Mobile Communications Inc. All rights reserved.
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+package com.sonymobile.tools.gerrit.gerritevents;
+
+import com.google.gson.stream.JsonReader;
+import com.sonymobile.tools.gerrit.gerritevents.dto.GerritEventType;
+import com.sonymobile.tools.gerrit.gerritevents.dto.GerritJsonEvent;
+import com.sonymobile.tools.gerrit.gerritevents.dto.events.ChangeBasedEvent;
+import com.sonymobile.tools.gerrit.gerritevents.dto.events.ChangeMerged;
+import net.sf.json.JSONObject;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.function.Supplier;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for the event factories in {@link GerritJsonEventFactory}.
+ */
+public class GerritJsonEventFactoryTest {
+
+    //CS IGNORE LineLength FOR NEXT 2 LINES. REASON: Test data.
+    private static final String CUSTOM_EVENT = "{\"type\":\"custom-event\",\"note\":\"hello\",\"change\":{\"project\":\"foo\",\"number\":\"1\"}}";
+
+    /**
+     * Tests that the types are found by their type value, ignoring case.
+     */
+    @Test
+    public void testFindByTypeValue() {
+        for (GerritEventType type : GerritEventType.values()) {
+            assertSame(type, GerritEventType.findByTypeValue(type.getTypeValue()));
+        }
+        assertSame(GerritEventType.PATCHSET_CREATED, GerritEventType.findByTypeValue("PatchSet-Created"));
+        assertNull(GerritEventType.findByTypeValue("no-such-event"));
+        assertNull(GerritEventType.findByTypeValue(null));
+    }
+
+    /**
+     * Tests that the built in factories create new events of the representative class.
+     */
+    @Test
+    public void testBuiltInFactories() {
+        for (GerritEventType type : GerritEventType.values()) {
+            GerritJsonEvent event = GerritJsonEventFactory.createEvent(type.getTypeValue());
+            assertNotNull(type.name(), event);
+            assertSame(type.name(), type.getEventRepresentative(), event.getClass());
+            assertSame(type, event.getEventType());
+            assertNotSame(event, GerritJsonEventFactory.createEvent(type.getTypeValue()));
+        }
+        assertNull(GerritJsonEventFactory.createEvent("no-such-event"));
+        assertNull(GerritJsonEventFactory.createEvent(null));
+    }
+
+    /**
+     * Tests that events of a registered custom type are created from both JSON objects and streamed JSON.
+     */
+    @Test
+    public void testCustomEventType() {
+        assertFalse(GerritJsonEventFactory.isInterestingType("custom-event"));
+        assertNull(GerritJsonEventFactory.getEventIfInteresting(CUSTOM_EVENT));
+        GerritJsonEventFactory.registerEventFactory("Custom-Event", new Supplier<CustomEvent>() {
+            @Override
+            public CustomEvent get() {
+                return new CustomEvent();
+            }
+        });
+        try {
+            assertTrue(GerritJsonEventFactory.isInterestingType("custom-event"));
+            CustomEvent event = (CustomEvent)GerritJsonEventFactory.getEventIfInteresting(CUSTOM_EVENT);
+            assertNotNull(event);
+            assertEquals("hello", event.note);
+            assertEquals("foo", event.getChange().getProject());
+
+            event = (CustomEvent)GerritJsonEventDecoder.decode(CUSTOM_EVENT);
+            assertNotNull(event);
+            assertEquals("hello", event.note);
+            assertEquals("foo", event.getChange().getProject());
+        } finally {
+            GerritJsonEventFactory.unregisterEventFactory("custom-event");
+        }
+        assertFalse(GerritJsonEventFactory.isInterestingType("custom-event"));
+    }
+
+    /**
+     * Tests that a built in type can be given another factory and that unregistering restores the built in one.
+     */
+    @Test
+    public void testReplaceBuiltInFactory() {
+        GerritJsonEventFactory.registerEventFactory("change-merged", new Supplier<ChangeMerged>() {
+            @Override
+            public ChangeMerged get() {
+                return new ChangeMerged() { };
+            }
+        });
+        try {
+            JSONObject json = JSONObject.fromObject("{\"type\":\"change-merged\"}");
+            GerritJsonEvent event = GerritJsonEventFactory.getEvent(json);
+            assertTrue(event instanceof ChangeMerged);
+            assertNotSame(ChangeMerged.class, event.getClass());
+        } finally {
+            GerritJsonEventFactory.unregisterEventFactory("change-merged");
+        }
+        assertSame(ChangeMerged.class, GerritJsonEventFactory.createEvent("change-merged").getClass());
+    }
+
+    /**
+     * Tests that types that are not interesting are not usable even though they have a factory.
+     */
+    @Test
+    public void testNotInteresting() {
+        GerritEventType type = GerritEventType.CHANGE_RESTORED;
+        type.setInteresting(false);
+        try {
+            assertFalse(GerritJsonEventFactory.isInterestingType(type.getTypeValue()));
+            assertFalse(GerritJsonEventFactory.isInterestingAndUsable(type));
+        } finally {
+            type.setInteresting(true);
+        }
+        assertTrue(GerritJsonEventFactory.isInterestingType(type.getTypeValue()));
+    }
+
+    /**
+     * Event type that is not built in.
+     */
+    public static class CustomEvent extends ChangeBasedEvent {
+        private String note;
+
+        @Override
+        public GerritEventType getEventType() {
+            return null;
+        }
+
+        @Override
+        public boolean isScorable() {
+            return false;
+        }
+
+        @Override
+        public void fromJson(JSONObject json) {
+            super.fromJson(json);
+            note = GerritJsonEventFactory.getString(json, "note");
+        }
+
+        @Override
+        protected boolean readMember(String name, JsonReader reader) throws IOException {
+            if ("note".equals(name)) {
+                note = GerritJsonEventDecoder.nextString(reader);
+                return true;
+            }
+            return super.readMember(name, reader);
+        }
+    }
+}
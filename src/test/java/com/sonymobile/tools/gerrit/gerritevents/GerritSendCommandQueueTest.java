@@ -0,0 +1,127 @@
+/*
+ *  The MIT License
+ *
+ *  Copyright 2026 Sony Mobile Communications Inc. All rights reserved.
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+package com.sonymobile.tools.gerrit.gerritevents;
+
+import com.sonymobile.tools.gerrit.gerritevents.workers.GerritWorkersConfig;
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for the executors of {@link GerritSendCommandQueue}.
+ */
+public class GerritSendCommandQueueTest {
+
+    private static final int TIMEOUT = 10;
+
+    private static final GerritWorkersConfig CONFIG = new GerritWorkersConfig() {
+        @Override
+        public int getNumberOfReceivingWorkerThreads() {
+            return 1;
+        }
+
+        @Override
+        public int getNumberOfSendingWorkerThreads() {
+            return 2;
+        }
+    };
+
+    /**
+     * Shuts down the queue.
+     */
+    @After
+    public void shutDown() {
+        GerritSendCommandQueue.shutdown();
+    }
+
+    /**
+     * Tests that commands are sent on the pool of the queue by default.
+     *
+     * @throws Exception if so.
+     */
+    @Test
+    public void testDefaultPool() throws Exception {
+        GerritSendCommandQueue.initialize(CONFIG);
+        assertTrue(GerritSendCommandQueue.getInstance().queueJob(new ThreadName()).get(TIMEOUT, TimeUnit.SECONDS)
+                .startsWith("Gerrit-send-command-thread-"));
+    }
+
+    /**
+     * Tests that commands are sent on a given executor, that is left running on shutdown.
+     *
+     * @throws Exception if so.
+     */
+    @Test
+    public void testSuppliedExecutor() throws Exception {
+        ForkJoinPool pool = new ForkJoinPool(2);
+        try {
+            GerritSendCommandQueue.initialize(CONFIG, pool);
+            assertEquals(ForkJoinWorkerThread.class.getName(), GerritSendCommandQueue.getInstance()
+                    .queueJob(new ThreadClass()).get(TIMEOUT, TimeUnit.SECONDS));
+            GerritSendCommandQueue.configure(CONFIG);
+            assertEquals(0, GerritSendCommandQueue.getQueueSize());
+            GerritSendCommandQueue.shutdown();
+            assertFalse(pool.isShutdown());
+
+            GerritSendCommandQueue.initialize(CONFIG, pool);
+            GerritSendCommandQueue.initialize(CONFIG, null);
+            assertTrue(GerritSendCommandQueue.getInstance().queueJob(new ThreadName()).get(TIMEOUT, TimeUnit.SECONDS)
+                    .startsWith("Gerrit-send-command-thread-"));
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Tells the name of the thread it is called on.
+     */
+    private static class ThreadName implements Callable<String> {
+        @Override
+        public String call() {
+            return Thread.currentThread().getName();
+        }
+    }
+
+    /**
+     * Tells the class of the thread it is called on.
+     */
+    private static class ThreadClass implements Callable<String> {
+        @Override
+        public String call() {
+            Class<?> c = Thread.currentThread().getClass();
+            while (c.getSuperclass() != Thread.class && c.getSuperclass() != null) {
+                c = c.getSuperclass();
+            }
+            return c.getName();
+        }
+    }
+}
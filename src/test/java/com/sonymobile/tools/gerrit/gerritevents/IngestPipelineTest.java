@@ -0,0 +1,187 @@
+/*
+ *  The MIT License
+ *
+ *  Copyright 2026 Sony Mobile Communications Inc. All rights reserved.
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+package com.sonymobile.tools.gerrit.gerritevents;
+
+import com.sonymobile.tools.gerrit.gerritevents.dto.GerritEvent;
+import com.sonymobile.tools.gerrit.gerritevents.dto.events.ChangeAbandoned;
+import com.sonymobile.tools.gerrit.gerritevents.workers.GerritEventWork;
+import com.sonymobile.tools.gerrit.gerritevents.workers.Work;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+//CS IGNORE MagicNumber FOR NEXT 200 LINES. REASON: Test data.
+
+/**
+ * Tests for {@link IngestPipeline}.
+ */
+public class IngestPipelineTest {
+
+    private static final int PRODUCERS = 3;
+    private static final int EVENTS = 2000;
+
+    private GerritHandler handler;
+    private final EventDispatcher inline = new EventDispatcher() {
+        @Override
+        public void dispatch(GerritHandler.EventWorker worker) {
+            worker.run();
+        }
+
+        @Override
+        public int getBacklog(int queuedTasks) {
+            return queuedTasks;
+        }
+
+        @Override
+        public void addPendingWork(Collection<Work> works) {
+            //Holds on to nothing.
+        }
+
+        @Override
+        public void close(boolean join) {
+            //Holds on to nothing.
+        }
+    };
+
+    /**
+     * Creates a GerritHandler.
+     */
+    @Before
+    public void setup() {
+        handler = new GerritHandler();
+    }
+
+    /**
+     * Shuts down the GerritHandler.
+     */
+    @After
+    public void shutDown() {
+        handler.shutdown(true);
+    }
+
+    /**
+     * Tests that the ring size must be a power of two.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testRingSizeNotPowerOfTwo() {
+        new IngestPipeline(handler, 6, IngestPipeline.WaitStrategy.BLOCKING, Executors.defaultThreadFactory(),
+                inline);
+    }
+
+    /**
+     * Tests several producers on a small ring with each wait strategy.
+     *
+     * @throws Exception if so.
+     */
+    @Test
+    public void testWaitStrategies() throws Exception {
+        for (IngestPipeline.WaitStrategy waitStrategy : IngestPipeline.WaitStrategy.values()) {
+            runProducers(waitStrategy);
+        }
+    }
+
+    /**
+     * Posts events from several threads through a pipeline with a ring much smaller than the number of events,
+     * and checks that all are handed on, in the order each thread posted them.
+     *
+     * @param waitStrategy the wait strategy of the pipeline.
+     * @throws Exception if so.
+     */
+    private void runProducers(IngestPipeline.WaitStrategy waitStrategy) throws Exception {
+        final IngestPipeline pipeline = new IngestPipeline(handler, 16, waitStrategy,
+                Executors.defaultThreadFactory(), inline);
+        final List<GerritEvent> received = new ArrayList<GerritEvent>();
+        GerritEventListener listener = new GerritEventListener() {
+            @Override
+            public void gerritEvent(GerritEvent event) {
+                //Only the dispatch thread adds.
+                received.add(event);
+            }
+        };
+        handler.addListener(listener);
+        final List<List<GerritEvent>> posted = new ArrayList<List<GerritEvent>>();
+        List<Thread> producers = new ArrayList<Thread>();
+        for (int p = 0; p < PRODUCERS; p++) {
+            final List<GerritEvent> events = new ArrayList<GerritEvent>();
+            for (int i = 0; i < EVENTS; i++) {
+                events.add(new ChangeAbandoned());
+            }
+            posted.add(events);
+            producers.add(new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    for (GerritEvent event : events) {
+                        assertTrue(pipeline.publish(newWorker(event)));
+                    }
+                }
+            }));
+        }
+        for (Thread producer : producers) {
+            producer.start();
+        }
+        for (Thread producer : producers) {
+            producer.join();
+        }
+        pipeline.close();
+        assertTrue(waitStrategy.name(), pipeline.awaitClose(10, TimeUnit.SECONDS));
+        assertFalse(pipeline.publish(newWorker(new ChangeAbandoned())));
+        handler.removeListener(listener);
+
+        assertEquals(waitStrategy.name(), PRODUCERS * EVENTS, received.size());
+        for (List<GerritEvent> events : posted) {
+            int index = 0;
+            for (GerritEvent event : received) {
+                if (index < events.size() && event == events.get(index)) {
+                    index++;
+                }
+            }
+            assertEquals(waitStrategy.name(), events.size(), index);
+        }
+        assertEquals(0, pipeline.getBacklog());
+        for (IngestStageStats stats : pipeline.getStageStats()) {
+            assertEquals(PRODUCERS * EVENTS, stats.getEvents());
+            assertTrue(stats.getBatches() <= PRODUCERS * EVENTS);
+        }
+    }
+
+    /**
+     * The worker of an event that is already parsed.
+     *
+     * @param event the event.
+     * @return the worker.
+     */
+    private GerritHandler.EventWorker newWorker(GerritEvent event) {
+        return new GerritHandler.EventWorker(new GerritEventWork(event), handler);
+    }
+}
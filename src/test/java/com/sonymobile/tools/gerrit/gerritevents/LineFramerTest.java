@@ -0,0 +1,129 @@
+/*
+ *  The MIT License
+ *
+ *  Copyright 2026 Sony Mobile Communications Inc. All rights reserved.
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+package com.sonymobile.tools.gerrit.gerritevents;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+//CS IGNORE MagicNumber FOR NEXT 150 LINES. REASON: Test data.
+
+/**
+ * Tests for {@link LineFramer}.
+ */
+public class LineFramerTest {
+
+    /**
+     * Reads the whole stream through the framer and returns the decoded lines.
+     *
+     * @param framer the framer.
+     * @param in the stream.
+     * @return the lines.
+     * @throws Exception if so.
+     */
+    private List<String> readAll(LineFramer framer, InputStream in) throws Exception {
+        List<String> lines = new ArrayList<String>();
+        byte[] line;
+        while (framer.read(in) != -1) {
+            while ((line = framer.nextLine()) != null) {
+                lines.add(new String(line, StandardCharsets.UTF_8));
+            }
+        }
+        return lines;
+    }
+
+    /**
+     * Tests that several lines in one read are all returned.
+     *
+     * @throws Exception if so.
+     */
+    @Test
+    public void testSeveralLinesInOneRead() throws Exception {
+        LineFramer framer = new LineFramer(1024);
+        InputStream in = new ByteArrayInputStream("one\ntwo\nthree\n".getBytes(StandardCharsets.UTF_8));
+        List<String> lines = readAll(framer, in);
+        assertEquals(3, lines.size());
+        assertEquals("one", lines.get(0));
+        assertEquals("two", lines.get(1));
+        assertEquals("three", lines.get(2));
+        assertEquals(0, framer.pending());
+    }
+
+    /**
+     * Tests that a line arriving in small pieces is put together.
+     *
+     * @throws Exception if so.
+     */
+    @Test
+    public void testLineInPieces() throws Exception {
+        LineFramer framer = new LineFramer(1024);
+        framer.read(new ByteArrayInputStream("Thank ".getBytes(StandardCharsets.UTF_8)));
+        assertNull(framer.nextLine());
+        framer.read(new ByteArrayInputStream("You!".getBytes(StandardCharsets.UTF_8)));
+        assertNull(framer.nextLine());
+        assertEquals(10, framer.pending());
+        framer.read(new ByteArrayInputStream("\n".getBytes(StandardCharsets.UTF_8)));
+        assertEquals("Thank You!", new String(framer.nextLine(), StandardCharsets.UTF_8));
+        assertNull(framer.nextLine());
+    }
+
+    /**
+     * Tests lines longer than the buffer, mixed with short lines, and multi-byte characters split by the buffer.
+     *
+     * @throws Exception if so.
+     */
+    @Test
+    public void testLinesLongerThanBuffer() throws Exception {
+        LineFramer framer = new LineFramer(13);
+        String longLine = "This is a very long line with åäö that should fill the buffer several times.";
+        String data = "short\n" + longLine + "\n{\"say\":\"hello\"}\n" + longLine + "\n";
+        List<String> lines = readAll(framer, new ByteArrayInputStream(data.getBytes(StandardCharsets.UTF_8)));
+        assertEquals(4, lines.size());
+        assertEquals("short", lines.get(0));
+        assertEquals(longLine, lines.get(1));
+        assertEquals("{\"say\":\"hello\"}", lines.get(2));
+        assertEquals(longLine, lines.get(3));
+    }
+
+    /**
+     * Tests that an unfinished line is kept until the end of the stream.
+     *
+     * @throws Exception if so.
+     */
+    @Test
+    public void testUnfinishedLine() throws Exception {
+        LineFramer framer = new LineFramer(4);
+        List<String> lines = readAll(framer, new ByteArrayInputStream("ab\ncdefgh".getBytes(StandardCharsets.UTF_8)));
+        assertEquals(1, lines.size());
+        assertEquals("ab", lines.get(0));
+        assertEquals(6, framer.pending());
+    }
+}
@@ -0,0 +1,142 @@
+/*
+ *  The MIT License
+ *
+ *  Copyright 2026 Sony Mobile Communications Inc. All rights reserved.
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+package com.sonymobile.tools.gerrit.gerritevents;
+
+import com.sonymobile.tools.gerrit.gerritevents.dto.GerritEvent;
+import com.sonymobile.tools.gerrit.gerritevents.dto.events.ChangeAbandoned;
+import com.sonymobile.tools.gerrit.gerritevents.dto.events.ChangeMerged;
+import com.sonymobile.tools.gerrit.gerritevents.dto.events.PatchsetCreated;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+//CS IGNORE MagicNumber FOR NEXT 100 LINES. REASON: Test data.
+
+/**
+ * Tests for {@link ListenerDispatchCache}.
+ */
+public class ListenerDispatchCacheTest {
+
+    /**
+     * Tests that the resolved method is remembered per pair and forgotten on invalidate.
+     */
+    @Test
+    public void testHandleIsCached() {
+        ListenerDispatchCache cache = new ListenerDispatchCache();
+        Object first = cache.getHandle(RecordingListener.class, ChangeAbandoned.class);
+        assertSame(first, cache.getHandle(RecordingListener.class, ChangeAbandoned.class));
+        assertNotSame(first, cache.getHandle(RecordingListener.class, ChangeMerged.class));
+        cache.invalidate();
+        assertNotSame(first, cache.getHandle(RecordingListener.class, ChangeAbandoned.class));
+    }
+
+    /**
+     * Tests that specific methods, including ones returning a value, are called and that the rest
+     * go to the default method.
+     *
+     * @throws Exception if so.
+     */
+    @Test
+    public void testSpecificAndDefaultMethods() throws Exception {
+        ListenerDispatchCache cache = new ListenerDispatchCache();
+        RecordingListener listener = new RecordingListener();
+        cache.invoke(listener, new ChangeAbandoned());
+        cache.invoke(listener, new ChangeMerged());
+        cache.invoke(listener, new PatchsetCreated());
+        cache.invoke(listener, new ChangeAbandoned());
+        assertEquals(4, listener.calls.size());
+        assertEquals("abandoned", listener.calls.get(0));
+        assertEquals("merged", listener.calls.get(1));
+        assertEquals("default", listener.calls.get(2));
+        assertEquals("abandoned", listener.calls.get(3));
+    }
+
+    /**
+     * Tests that exceptions from the listener are passed on unwrapped.
+     *
+     * @throws Exception if so.
+     */
+    @Test(expected = IllegalStateException.class)
+    public void testExceptionIsPassedOn() throws Exception {
+        new ListenerDispatchCache().invoke(new GerritEventListener() {
+            @Override
+            public void gerritEvent(GerritEvent event) {
+                throw new IllegalStateException("boom");
+            }
+        }, new ChangeAbandoned());
+    }
+
+    /**
+     * Tests that errors from the listener are passed on as they are.
+     *
+     * @throws Exception if so.
+     */
+    @Test(expected = StackOverflowError.class)
+    public void testErrorIsPassedOn() throws Exception {
+        new ListenerDispatchCache().invoke(new GerritEventListener() {
+            @Override
+            public void gerritEvent(GerritEvent event) {
+                throw new StackOverflowError("boom");
+            }
+        }, new ChangeAbandoned());
+    }
+
+    /**
+     * Listener that records which method was called.
+     */
+    public static class RecordingListener implements GerritEventListener {
+        private final List<String> calls = new ArrayList<String>();
+
+        @Override
+        public void gerritEvent(GerritEvent event) {
+            calls.add("default");
+        }
+
+        /**
+         * Specific method.
+         *
+         * @param event the event.
+         */
+        public void gerritEvent(ChangeAbandoned event) {
+            calls.add("abandoned");
+        }
+
+        /**
+         * Specific method with a return value.
+         *
+         * @param event the event.
+         * @return true.
+         */
+        public boolean gerritEvent(ChangeMerged event) {
+            calls.add("merged");
+            return true;
+        }
+    }
+}
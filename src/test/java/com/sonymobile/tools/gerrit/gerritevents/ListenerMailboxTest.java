@@ -0,0 +1,198 @@
+/*
+ *  The MIT License
+ *
+ *  Copyright 2026 Sony Mobile Communications Inc. All rights reserved.
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+package com.sonymobile.tools.gerrit.gerritevents;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for {@link ListenerMailbox}.
+ */
+public class ListenerMailboxTest {
+
+    private static final int TIMEOUT = 10;
+    private static final long BLOCKED_WAIT = 200;
+
+    private final CountDownLatch started = new CountDownLatch(1);
+    private final CountDownLatch release = new CountDownLatch(1);
+    private final List<String> delivered = Collections.synchronizedList(new ArrayList<String>());
+    private ListenerMailbox mailbox;
+
+    /**
+     * Lets the mailbox finish.
+     *
+     * @throws Exception if so.
+     */
+    @After
+    public void tearDown() throws Exception {
+        release.countDown();
+        if (mailbox != null) {
+            mailbox.close();
+            assertTrue(mailbox.awaitClose(TIMEOUT, TimeUnit.SECONDS));
+        }
+    }
+
+    /**
+     * Creates a mailbox of two events and keeps its thread busy until released.
+     *
+     * @param policy the overflow policy.
+     * @throws Exception if so.
+     */
+    private void createBusyMailbox(ListenerMailbox.OverflowPolicy policy) throws Exception {
+        mailbox = new ListenerMailbox("test", 2, policy, true);
+        mailbox.post(new Runnable() {
+            @Override
+            public void run() {
+                started.countDown();
+                try {
+                    release.await(TIMEOUT, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+        assertTrue(started.await(TIMEOUT, TimeUnit.SECONDS));
+    }
+
+    /**
+     * A notification that records the event.
+     *
+     * @param event the event.
+     * @return the notification.
+     */
+    private Runnable deliver(final String event) {
+        return new Runnable() {
+            @Override
+            public void run() {
+                delivered.add(event);
+            }
+        };
+    }
+
+    /**
+     * Finishes the mailbox.
+     *
+     * @throws Exception if so.
+     */
+    private void finish() throws Exception {
+        release.countDown();
+        mailbox.close();
+        assertTrue(mailbox.awaitClose(TIMEOUT, TimeUnit.SECONDS));
+    }
+
+    /**
+     * Tests that the newest event is dropped when full.
+     *
+     * @throws Exception if so.
+     */
+    @Test
+    public void testDropNewest() throws Exception {
+        createBusyMailbox(ListenerMailbox.OverflowPolicy.DROP_NEWEST);
+        mailbox.post(deliver("a"));
+        mailbox.post(deliver("b"));
+        assertEquals(2, mailbox.getDepth());
+        mailbox.post(deliver("c"));
+        assertEquals(1, mailbox.getDropped());
+        finish();
+        assertEquals(Arrays.asList("a", "b"), delivered);
+    }
+
+    /**
+     * Tests that the oldest event is dropped when full.
+     *
+     * @throws Exception if so.
+     */
+    @Test
+    public void testDropOldest() throws Exception {
+        createBusyMailbox(ListenerMailbox.OverflowPolicy.DROP_OLDEST);
+        mailbox.post(deliver("a"));
+        mailbox.post(deliver("b"));
+        mailbox.post(deliver("c"));
+        assertEquals(2, mailbox.getDepth());
+        assertEquals(1, mailbox.getDropped());
+        finish();
+        assertEquals(Arrays.asList("b", "c"), delivered);
+    }
+
+    /**
+     * Tests that the event is delivered on the posting thread when full.
+     *
+     * @throws Exception if so.
+     */
+    @Test
+    public void testCallerRuns() throws Exception {
+        createBusyMailbox(ListenerMailbox.OverflowPolicy.CALLER_RUNS);
+        final Thread caller = Thread.currentThread();
+        final List<Thread> threads = new ArrayList<Thread>();
+        mailbox.post(deliver("a"));
+        mailbox.post(deliver("b"));
+        mailbox.post(new Runnable() {
+            @Override
+            public void run() {
+                threads.add(Thread.currentThread());
+            }
+        });
+        assertSame(caller, threads.get(0));
+        assertEquals(0, mailbox.getDropped());
+        finish();
+        assertEquals(Arrays.asList("a", "b"), delivered);
+    }
+
+    /**
+     * Tests that the poster waits for room when full.
+     *
+     * @throws Exception if so.
+     */
+    @Test
+    public void testBlock() throws Exception {
+        createBusyMailbox(ListenerMailbox.OverflowPolicy.BLOCK);
+        mailbox.post(deliver("a"));
+        mailbox.post(deliver("b"));
+        Thread poster = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                mailbox.post(deliver("c"));
+            }
+        });
+        poster.start();
+        poster.join(BLOCKED_WAIT);
+        assertTrue(poster.isAlive());
+        release.countDown();
+        poster.join(TimeUnit.SECONDS.toMillis(TIMEOUT));
+        finish();
+        assertEquals(Arrays.asList("a", "b", "c"), delivered);
+        assertEquals(0, mailbox.getDropped());
+    }
+}
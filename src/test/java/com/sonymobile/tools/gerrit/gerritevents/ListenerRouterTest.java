@@ -0,0 +1,180 @@
+/*
+ *  The MIT License
+ *
+ *  Copyright 2026 Sony Mobile Communications Inc. All rights reserved.
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+package com.sonymobile.tools.gerrit.gerritevents;
+
+import com.sonymobile.tools.gerrit.gerritevents.dto.GerritEvent;
+import com.sonymobile.tools.gerrit.gerritevents.dto.attr.Change;
+import com.sonymobile.tools.gerrit.gerritevents.dto.attr.RefUpdate;
+import com.sonymobile.tools.gerrit.gerritevents.dto.events.ChangeAbandoned;
+import com.sonymobile.tools.gerrit.gerritevents.dto.events.PatchsetCreated;
+import com.sonymobile.tools.gerrit.gerritevents.dto.events.RefUpdated;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+//CS IGNORE MagicNumber FOR NEXT 200 LINES. REASON: Test data.
+
+/**
+ * Tests for {@link ListenerRouter}.
+ */
+public class ListenerRouterTest {
+
+    /**
+     * Creates a listener that does nothing.
+     *
+     * @param name the name of the listener.
+     * @return the listener.
+     */
+    private static GerritEventListener listener(final String name) {
+        return new GerritEventListener() {
+            @Override
+            public void gerritEvent(GerritEvent event) {
+                //Only routed, never notified.
+            }
+
+            @Override
+            public String toString() {
+                return name;
+            }
+        };
+    }
+
+    /**
+     * Tests that the project and branch globs match whole names.
+     */
+    @Test
+    public void testGlobs() {
+        ListenerRouter router = new ListenerRouter();
+        assertTrue(router.isEmpty());
+        GerritEventListener exact = listener("exact");
+        GerritEventListener segment = listener("segment");
+        GerritEventListener any = listener("any");
+        GerritEventListener oneChar = listener("oneChar");
+        router.add(exact, "platform/build", "master");
+        router.add(segment, "platform/*", "release/*");
+        router.add(any, "**", "**");
+        router.add(oneChar, "tools/repo?", "v?");
+        assertFalse(router.isEmpty());
+
+        assertEquals(Arrays.asList(exact, any), router.route("platform/build", "master"));
+        assertEquals(Arrays.asList(segment, any), router.route("platform/build", "release/1.0"));
+        assertEquals(Collections.singletonList(any), router.route("platform/build/soong", "release/1.0"));
+        assertEquals(Collections.singletonList(any), router.route("platform/build", "release/1.0/fix"));
+        assertEquals(Collections.singletonList(any), router.route("platform/buil", "master"));
+        assertEquals(Arrays.asList(any, oneChar), router.route("tools/repo2", "v1"));
+        assertEquals(Collections.singletonList(any), router.route("tools/repo", "v1"));
+        assertEquals(Collections.singletonList(any), router.route("tools/repo2", "v12"));
+        assertEquals(Collections.emptyList(), router.route(null, "master"));
+        assertEquals(Collections.emptyList(), router.route("platform/build", null));
+    }
+
+    /**
+     * Tests that wildcards in the project glob never reach into the branch name.
+     */
+    @Test
+    public void testProjectAndBranchAreSeparate() {
+        ListenerRouter router = new ListenerRouter();
+        GerritEventListener listener = listener("listener");
+        router.add(listener, "platform/**", "master");
+        assertEquals(Collections.singletonList(listener), router.route("platform/a/b", "master"));
+        assertEquals(Collections.emptyList(), router.route("platform/a", "x/master"));
+        assertEquals(Collections.emptyList(), router.route("platform", "master"));
+    }
+
+    /**
+     * Tests that a listener with many matching subscriptions is routed to once, and removing it removes them all.
+     */
+    @Test
+    public void testManySubscriptionsAndRemove() {
+        ListenerRouter router = new ListenerRouter();
+        GerritEventListener listener = listener("listener");
+        GerritEventListener other = listener("other");
+        router.add(listener, "p", "*");
+        router.add(listener, "*", "main");
+        router.add(listener, "*", "main");
+        router.add(other, "p", "main");
+        assertEquals(Arrays.asList(listener, other), router.route("p", "main"));
+        assertTrue(router.remove(listener));
+        assertFalse(router.remove(listener));
+        assertEquals(Collections.singletonList(other), router.route("p", "main"));
+        assertEquals(Collections.emptyList(), router.route("q", "main"));
+        assertTrue(router.remove(other));
+        assertTrue(router.isEmpty());
+        assertEquals(Collections.emptyList(), router.route("p", "main"));
+    }
+
+    /**
+     * Tests that events are routed by the project and branch of their change or ref update.
+     */
+    @Test
+    public void testRouteEvents() {
+        ListenerRouter router = new ListenerRouter();
+        GerritEventListener listener = listener("listener");
+        router.add(listener, "p", "main");
+
+        PatchsetCreated patchsetCreated = new PatchsetCreated();
+        Change change = new Change();
+        change.setProject("p");
+        change.setBranch("main");
+        patchsetCreated.setChange(change);
+        assertEquals(Collections.singletonList(listener), router.route(patchsetCreated));
+
+        RefUpdated refUpdated = new RefUpdated();
+        RefUpdate refUpdate = new RefUpdate();
+        refUpdate.setProject("p");
+        refUpdate.setRefName("refs/heads/main");
+        refUpdated.setRefUpdate(refUpdate);
+        assertEquals(Collections.singletonList(listener), router.route(refUpdated));
+        assertEquals(Collections.singletonList(listener), router.route("p", "refs/heads/main"));
+
+        assertEquals(Collections.emptyList(), router.route(new ChangeAbandoned()));
+    }
+
+    /**
+     * Tests that the automaton states are reused between events, and worked out again after a change.
+     */
+    @Test
+    public void testStatesAreReused() {
+        ListenerRouter router = new ListenerRouter();
+        for (int i = 0; i < 3000; i++) {
+            router.add(listener("job" + i), "project" + i + "/*", "release/**");
+        }
+        GerritEventListener wanted = listener("wanted");
+        router.add(wanted, "project42/*", "release/**");
+        assertEquals(2, router.route("project42/a", "release/1/2").size());
+        int states = router.getStateCount();
+        assertEquals(wanted, router.route("project42/b", "release/3/4").get(1));
+        assertEquals(2, router.route("project42/a", "release/1/2").size());
+        assertEquals(states, router.getStateCount());
+        assertEquals(2, router.route("project42/a", "release/1/2").size());
+        assertEquals(states, router.getStateCount());
+        router.remove(wanted);
+        assertEquals(1, router.route("project42/a", "release/1/2").size());
+    }
+}
@@ -0,0 +1,87 @@
+/*
+ *  The MIT License
+ *
+ *  Copyright 2026 Sony Mobile Communications Inc. All rights reserved.
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+package com.sonymobile.tools.gerrit.gerritevents;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+//CS IGNORE MagicNumber FOR NEXT 100 LINES. REASON: Test data.
+
+/**
+ * Tests for {@link ListenerStats}.
+ */
+public class ListenerStatsTest {
+
+    /**
+     * Tests that every time falls in a bucket that holds it.
+     */
+    @Test
+    public void testBuckets() {
+        long[] times = {0, 1, 7, 8, 9, 15, 16, 17, 1000, 123456789, Long.MAX_VALUE};
+        for (long time : times) {
+            int bucket = ListenerStats.bucketOf(time);
+            assertTrue(String.valueOf(time), ListenerStats.upperBoundOf(bucket) >= time);
+            if (bucket > 0) {
+                assertTrue(String.valueOf(time), ListenerStats.upperBoundOf(bucket - 1) < time);
+            }
+        }
+    }
+
+    /**
+     * Tests the percentiles.
+     */
+    @Test
+    public void testPercentiles() {
+        ListenerStats stats = new ListenerStats("test", 0);
+        assertEquals(0, stats.getP50Nanos());
+        for (int i = 1; i <= 100; i++) {
+            stats.record(TimeUnit.MICROSECONDS.toNanos(i));
+        }
+        assertEquals(100, stats.getInvocations());
+        long p50 = stats.getP50Nanos();
+        assertTrue(String.valueOf(p50), p50 >= 50000 && p50 <= 50000 * 9 / 8);
+        long p99 = stats.getP99Nanos();
+        assertTrue(String.valueOf(p99), p99 >= 99000 && p99 <= 99000 * 9 / 8);
+        assertEquals(0, stats.getOverBudget());
+    }
+
+    /**
+     * Tests counting the notifications in a row over the budget.
+     */
+    @Test
+    public void testOverBudgetInARow() {
+        ListenerStats stats = new ListenerStats("test", 1000);
+        assertEquals(1, stats.record(2000));
+        assertEquals(2, stats.record(2000));
+        assertEquals(0, stats.record(500));
+        assertEquals(1, stats.record(2000));
+        assertEquals(3, stats.getOverBudget());
+        stats.setTimeBudgetNanos(0);
+        assertEquals(0, stats.record(2000));
+    }
+}
@@ -0,0 +1,276 @@
+/*
+ *  The MIT License
+ *
+ *  Copyright 2026 Sony Mobile Communications Inc. All rights reserved.
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+package com.sonymobile.tools.gerrit.gerritevents;
+
+import com.sonymobile.tools.gerrit.gerritevents.dto.events.ChangeAbandoned;
+import com.sonymobile.tools.gerrit.gerritevents.workers.Coordinator;
+import com.sonymobile.tools.gerrit.gerritevents.workers.Work;
+import org.junit.Test;
+import org.powermock.reflect.Whitebox;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToIntFunction;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+//CS IGNORE MagicNumber FOR NEXT 260 LINES. REASON: Test data.
+
+/**
+ * Tests for {@link PriorityWorkQueue}.
+ */
+public class PriorityWorkQueueTest {
+
+    private static final ToIntFunction<Work> PRIORITIES = new ToIntFunction<Work>() {
+        @Override
+        public int applyAsInt(Work work) {
+            return ((TestWork)work).priority;
+        }
+    };
+
+    /**
+     * Tests that the queue is first in, first out until prioritized.
+     */
+    @Test
+    public void testFifoUntilPrioritized() {
+        PriorityWorkQueue queue = new PriorityWorkQueue(PRIORITIES, 0);
+        TestTask low = new TestTask(0);
+        TestTask high = new TestTask(5);
+        queue.offer(low);
+        queue.offer(high);
+        assertSame(low, queue.poll());
+        assertSame(high, queue.poll());
+        assertNull(queue.poll());
+        assertEquals(2, queue.getWaitStats().get(0).getCount());
+        assertEquals(0, ((Collection<?>)Whitebox.getInternalState(queue, "byArrival")).size());
+
+        queue.offer(low);
+        queue.setPrioritized(true);
+        queue.offer(high);
+        assertEquals(2, queue.size());
+        assertSame(low, queue.poll());
+        assertSame(high, queue.poll());
+    }
+
+    /**
+     * Tests that work taken or removed out of order does not pile up in the other structure.
+     */
+    @Test
+    public void testNoGarbageLeft() {
+        PriorityWorkQueue queue = new PriorityWorkQueue(PRIORITIES, 0);
+        queue.setPrioritized(true);
+        TestTask low = new TestTask(-1);
+        queue.offer(low);
+        for (int i = 0; i < 100; i++) {
+            TestTask high = new TestTask(5);
+            queue.offer(high);
+            assertSame(high, queue.poll());
+        }
+        assertTrue(((Collection<?>)Whitebox.getInternalState(queue, "byArrival")).size() <= 2);
+        TestTask other = new TestTask(0);
+        queue.offer(other);
+        assertTrue(queue.remove(other));
+        assertEquals(1, queue.size());
+        assertTrue(((Collection<?>)Whitebox.getInternalState(queue, "byPriority")).size() <= 2);
+        assertSame(low, queue.poll());
+        assertNull(queue.poll());
+    }
+
+    /**
+     * Tests that the highest priority goes first, and the same priority in the order queued.
+     *
+     * @throws Exception if so.
+     */
+    @Test
+    public void testPriorityOrder() throws Exception {
+        PriorityWorkQueue queue = new PriorityWorkQueue(PRIORITIES, 0);
+        queue.setPrioritized(true);
+        TestTask low1 = new TestTask(-1);
+        TestTask normal = new TestTask(0);
+        TestTask high1 = new TestTask(5);
+        TestTask low2 = new TestTask(-1);
+        TestTask high2 = new TestTask(5);
+        Runnable plain = new Runnable() {
+            @Override
+            public void run() {
+            }
+        };
+        queue.offer(low1);
+        queue.offer(normal);
+        queue.offer(high1);
+        queue.offer(low2);
+        queue.offer(plain);
+        queue.offer(high2);
+        assertEquals(6, queue.size());
+        assertSame(high1, queue.take());
+        assertSame(high2, queue.poll(1, TimeUnit.SECONDS));
+        assertSame(normal, queue.peek());
+        assertSame(normal, queue.poll());
+        assertSame(plain, queue.poll());
+        assertSame(low1, queue.poll());
+        assertSame(low2, queue.poll());
+        assertNull(queue.poll(1, TimeUnit.MILLISECONDS));
+        assertEquals(2, queue.getWaitStats().get(5).getCount());
+        assertEquals(2, queue.getWaitStats().get(-1).getCount());
+    }
+
+    /**
+     * Tests that work that waited too long goes ahead of higher priorities.
+     *
+     * @throws Exception if so.
+     */
+    @Test
+    public void testStarvationProtection() throws Exception {
+        PriorityWorkQueue queue = new PriorityWorkQueue(PRIORITIES, TimeUnit.MILLISECONDS.toNanos(50));
+        queue.setPrioritized(true);
+        TestTask low = new TestTask(-1);
+        queue.offer(low);
+        Thread.sleep(100);
+        TestTask high = new TestTask(5);
+        queue.offer(high);
+        assertSame(low, queue.poll());
+        assertSame(high, queue.poll());
+        QueueWaitStats stats = queue.getWaitStats().get(-1);
+        assertEquals(1, stats.getStarved());
+        assertTrue(stats.getMaxWaitNanos() >= TimeUnit.MILLISECONDS.toNanos(100));
+    }
+
+    /**
+     * Tests ordering with a comparator, with the work that is not known last.
+     */
+    @Test
+    public void testComparator() {
+        PriorityWorkQueue queue = new PriorityWorkQueue(PRIORITIES, 0);
+        queue.setPrioritized(true);
+        TestTask first = new TestTask(1);
+        TestTask second = new TestTask(2);
+        TestTask third = new TestTask(-1);
+        Runnable plain = new Runnable() {
+            @Override
+            public void run() {
+            }
+        };
+        queue.offer(third);
+        queue.offer(plain);
+        queue.offer(second);
+        queue.offer(first);
+        queue.setComparator(new Comparator<Work>() {
+            @Override
+            public int compare(Work a, Work b) {
+                return Integer.compare(Math.abs(((TestWork)a).priority), Math.abs(((TestWork)b).priority));
+            }
+        });
+        assertSame(third, queue.poll());
+        assertSame(first, queue.poll());
+        assertSame(second, queue.poll());
+        assertSame(plain, queue.poll());
+    }
+
+    /**
+     * Tests removing and draining, that the executor uses.
+     */
+    @Test
+    public void testRemoveAndDrain() {
+        PriorityWorkQueue queue = new PriorityWorkQueue(PRIORITIES, 0);
+        TestTask first = new TestTask(0);
+        TestTask second = new TestTask(0);
+        TestTask third = new TestTask(0);
+        queue.offer(first);
+        queue.offer(second);
+        queue.offer(third);
+        assertTrue(queue.remove(second));
+        Iterator<Runnable> iterator = queue.iterator();
+        assertSame(first, iterator.next());
+        iterator.remove();
+        assertEquals(1, queue.size());
+        List<Runnable> drained = new ArrayList<Runnable>();
+        assertEquals(1, queue.drainTo(drained));
+        assertSame(third, drained.get(0));
+        assertTrue(queue.isEmpty());
+    }
+
+    /**
+     * Work of a priority.
+     */
+    private static final class TestWork implements Work {
+        private final int priority;
+
+        /**
+         * Standard constructor.
+         *
+         * @param priority the priority.
+         */
+        TestWork(int priority) {
+            this.priority = priority;
+        }
+
+        @Override
+        public void perform(Coordinator coordinator) {
+            coordinator.notifyListeners(new ChangeAbandoned());
+        }
+    }
+
+    /**
+     * A task doing work of a priority.
+     */
+    private static final class TestTask implements Runnable, PriorityWorkQueue.Task {
+        private final TestWork work;
+        private long queuedNanos;
+
+        /**
+         * Standard constructor.
+         *
+         * @param priority the priority.
+         */
+        TestTask(int priority) {
+            this.work = new TestWork(priority);
+        }
+
+        @Override
+        public Work getWork() {
+            return work;
+        }
+
+        @Override
+        public long getQueuedNanos() {
+            return queuedNanos;
+        }
+
+        @Override
+        public void setQueuedNanos(long nanos) {
+            queuedNanos = nanos;
+        }
+
+        @Override
+        public void run() {
+        }
+    }
+}
@@ -0,0 +1,155 @@
+/*
+ *  The MIT License
+ *
+ *  Copyright 2026 Sony Mobile Communications Inc. All rights reserved.
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+package com.sonymobile.tools.gerrit.gerritevents;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for {@link ProjectFilter}.
+ */
+public class ProjectFilterTest {
+
+    /**
+     * A temporary folder for rule files.
+     */
+    //CS IGNORE VisibilityModifier FOR NEXT 2 LINES. REASON: JUnit rule.
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * Tests that a filter without rules lets everything through.
+     */
+    @Test
+    public void testEmpty() {
+        ProjectFilter filter = ProjectFilter.compile(Arrays.asList("", "  ", "# a comment"));
+        assertTrue(filter.isEmpty());
+        assertTrue(filter.matches("anything"));
+        assertTrue(filter.matches(null));
+        assertTrue(ProjectFilter.ACCEPT_ALL.matches("anything"));
+    }
+
+    /**
+     * Tests that a project name matches the project and the projects below it.
+     */
+    @Test
+    public void testNames() {
+        ProjectFilter filter = ProjectFilter.compile(Arrays.asList("Foo", "platform/build"));
+        assertTrue(filter.matches("Foo"));
+        assertTrue(filter.matches("Foo/Bar"));
+        assertTrue(filter.matches("platform/build"));
+        assertTrue(filter.matches("platform/build/soong"));
+        assertFalse(filter.matches("Foobar"));
+        assertFalse(filter.matches("Fo"));
+        assertFalse(filter.matches("platform"));
+        assertFalse(filter.matches("platform/art"));
+        assertFalse(filter.matches("platform/buildtools"));
+        assertFalse(filter.matches(""));
+        assertFalse(filter.matches(null));
+    }
+
+    /**
+     * Tests the wildcards of globs.
+     */
+    @Test
+    public void testGlobs() {
+        ProjectFilter filter = ProjectFilter.compile(Arrays.asList("platform/*", "device/**", "kernel/v?.x",
+                "tools/*-test", "a*b*c"));
+        assertTrue(filter.matches("platform/build"));
+        assertTrue(filter.matches("platform/"));
+        assertFalse(filter.matches("platform/build/soong"));
+        assertFalse(filter.matches("platform"));
+        assertTrue(filter.matches("device/sony/yoshino"));
+        assertTrue(filter.matches("device/"));
+        assertTrue(filter.matches("kernel/v5.x"));
+        assertFalse(filter.matches("kernel/v10.x"));
+        assertFalse(filter.matches("kernel/v/.x"));
+        assertTrue(filter.matches("tools/repo-test"));
+        assertTrue(filter.matches("tools/-test"));
+        assertFalse(filter.matches("tools/repo-test/x"));
+        assertFalse(filter.matches("tools/repo-tests"));
+        assertTrue(filter.matches("abc"));
+        assertTrue(filter.matches("aXbYbZc"));
+        assertFalse(filter.matches("aXbYbZ"));
+        assertFalse(filter.matches("a/bc"));
+    }
+
+    /**
+     * Tests that names and globs sharing prefixes do not get in the way of each other.
+     */
+    @Test
+    public void testSharedPrefixes() {
+        ProjectFilter filter = ProjectFilter.compile(Arrays.asList("plat*/art", "platform/build", "platform/*/x"));
+        assertTrue(filter.matches("platform/art"));
+        assertTrue(filter.matches("plat/art"));
+        assertTrue(filter.matches("platform/build/y"));
+        assertTrue(filter.matches("platform/build/x"));
+        assertTrue(filter.matches("platform/foo/x"));
+        assertFalse(filter.matches("platform/foo"));
+    }
+
+    /**
+     * Tests regular expression rules.
+     */
+    @Test
+    public void testRegex() {
+        ProjectFilter filter = ProjectFilter.compile(Collections.singletonList("regex:platform/(build|art)"));
+        assertTrue(filter.matches("platform/art"));
+        assertFalse(filter.matches("platform/art/x"));
+        assertFalse(filter.matches("platform/bionic"));
+    }
+
+    /**
+     * Tests that a bad regular expression is refused.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testBadRegex() {
+        ProjectFilter.compile(Collections.singletonList("regex:platform/(build"));
+    }
+
+    /**
+     * Tests reading the rules from a file, blank lines do not end the rules.
+     *
+     * @throws Exception if so.
+     */
+    @Test
+    public void testRead() throws Exception {
+        File file = folder.newFile("filter");
+        Files.write(file.toPath(), Arrays.asList("# Projects", "Foo", "", "platform/*"), StandardCharsets.UTF_8);
+        ProjectFilter filter = ProjectFilter.read(file.toPath());
+        assertEquals(Arrays.asList("Foo", "platform/*"), filter.getRules());
+        assertTrue(filter.matches("platform/build"));
+    }
+}
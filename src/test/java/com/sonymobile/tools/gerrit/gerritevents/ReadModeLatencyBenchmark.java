@@ -0,0 +1,193 @@
+/*
+ *  The MIT License
+ *
+ *  Copyright 2026 Sony Mobile Communications Inc. All rights reserved.
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+package com.sonymobile.tools.gerrit.gerritevents;
+
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyBoolean;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Matchers.isA;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.OutputStream;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.powermock.api.mockito.PowerMockito;
+import org.powermock.core.classloader.annotations.PowerMockIgnore;
+import org.powermock.core.classloader.annotations.PrepareForTest;
+import org.powermock.modules.junit4.PowerMockRunner;
+
+import com.jcraft.jsch.ChannelExec;
+import com.sonymobile.tools.gerrit.gerritevents.dto.GerritEvent;
+import com.sonymobile.tools.gerrit.gerritevents.dto.events.PatchsetCreated;
+import com.sonymobile.tools.gerrit.gerritevents.ssh.Authentication;
+import com.sonymobile.tools.gerrit.gerritevents.ssh.SshConnection;
+import com.sonymobile.tools.gerrit.gerritevents.ssh.SshConnectionFactory;
+
+//CS IGNORE MagicNumber FOR NEXT 200 LINES. REASON: Benchmark data.
+
+/**
+ * Compares the event-to-listener latency of the default and the low latency read mode of {@link GerritConnection}.
+ * <p>
+ * Not part of the normal test run, start it with {@code mvn test -Dtest=ReadModeLatencyBenchmark}.
+ */
+@RunWith(PowerMockRunner.class)
+@PrepareForTest(SshConnectionFactory.class)
+@PowerMockIgnore("org.slf4j.*")
+public class ReadModeLatencyBenchmark {
+
+    private static final int EVENTS = 200;
+    private static final long EVENT_INTERVAL_MILLIS = 20;
+
+    //CS IGNORE LineLength FOR NEXT 4 LINES. REASON: Test data.
+    private static final String EVENT_TEMPLATE = "{\"type\":\"patchset-created\",\"eventCreatedOn\":1527883364,"
+            + "\"uploader\":{\"name\":\"Foo Bar\",\"email\":\"foo@bar.com\",\"username\":\"foobar\"},"
+            + "\"patchSet\":{\"number\":\"1\",\"revision\":\"8bd741fd301701b1a70b4cfb4d33dac3349b6796\",\"ref\":\"refs/changes/87/%1$d/1\",\"createdOn\":1527883364},"
+            + "\"change\":{\"project\":\"foo/bar\",\"branch\":\"master\",\"id\":\"I4a0ca0ddbbe86258c162f1528f89632113758a9d\",\"number\":\"%1$d\",\"subject\":\"Foo\",\"url\":\"https://gerrit/%1$d\",\"status\":\"NEW\"}}";
+
+    /**
+     * Runs the same paced stream of events through both read modes and prints the latency distribution.
+     *
+     * @throws Exception if so.
+     */
+    @Test
+    public void benchmarkReadModes() throws Exception {
+        long[] fixed = measure(false);
+        long[] lowLatency = measure(true);
+        print("default (fixed 100 ms sleep)", fixed);
+        print("low latency", lowLatency);
+        assertTrue(percentile(lowLatency, 50) <= percentile(fixed, 50));
+    }
+
+    /**
+     * Streams {@link #EVENTS} events through a connection and measures the time until the listener gets each one.
+     *
+     * @param lowLatencyRead the read mode to use.
+     * @return the latencies in nanoseconds.
+     * @throws Exception if so.
+     */
+    private long[] measure(boolean lowLatencyRead) throws Exception {
+        PipedOutputStream out = new PipedOutputStream();
+        PipedInputStream in = new PipedInputStream(out, 1024 * 1024);
+        SshConnection ssh = mock(SshConnection.class);
+        when(ssh.isConnected()).thenReturn(true);
+        when(ssh.isAuthenticated()).thenReturn(true);
+        when(ssh.executeCommand(eq("gerrit version"))).thenReturn("gerrit version 3.9.0");
+        ChannelExec channel = mock(ChannelExec.class);
+        when(channel.isConnected()).thenReturn(true);
+        when(channel.getInputStream()).thenReturn(in);
+        when(ssh.executeCommandChannel(eq(GerritConnection.CMD_STREAM_EVENTS), anyBoolean())).thenReturn(channel);
+        PowerMockito.mockStatic(SshConnectionFactory.class);
+        PowerMockito.doReturn(ssh).when(SshConnectionFactory.class, "getConnection",
+                isA(String.class), isA(Integer.class), isA(String.class), isA(Authentication.class), any());
+
+        final long[] sent = new long[EVENTS];
+        final long[] latencies = new long[EVENTS];
+        final CountDownLatch received = new CountDownLatch(EVENTS);
+        GerritHandler handler = new GerritHandler(1);
+        handler.addListener(new GerritEventListener() {
+            @Override
+            public void gerritEvent(GerritEvent event) {
+                if (event instanceof PatchsetCreated) {
+                    int i = Integer.parseInt(((PatchsetCreated)event).getChange().getNumber());
+                    latencies[i] = System.nanoTime() - sent[i];
+                    received.countDown();
+                }
+            }
+        });
+        GerritConnection connection = new GerritConnection("", "localhost", 29418, new Authentication(null, ""));
+        connection.setLowLatencyRead(lowLatencyRead);
+        connection.setHandler(handler);
+        connection.start();
+        try {
+            for (int i = 0; i < EVENTS; i++) {
+                byte[] line = (String.format(EVENT_TEMPLATE, i) + "\n").getBytes(StandardCharsets.UTF_8);
+                sent[i] = System.nanoTime();
+                write(out, line);
+                Thread.sleep(EVENT_INTERVAL_MILLIS);
+            }
+            assertTrue(received.await(1, TimeUnit.MINUTES));
+        } finally {
+            connection.shutdown(false);
+            write(out, "\n".getBytes(StandardCharsets.UTF_8));
+            connection.join(TimeUnit.SECONDS.toMillis(10));
+            out.close();
+            handler.shutdown(true);
+        }
+        return latencies;
+    }
+
+    /**
+     * Writes and flushes.
+     *
+     * @param out the stream.
+     * @param data what to write.
+     * @throws Exception if so.
+     */
+    private void write(OutputStream out, byte[] data) throws Exception {
+        out.write(data);
+        out.flush();
+    }
+
+    /**
+     * Gives the percentile of the measured latencies.
+     *
+     * @param latencies the latencies in nanoseconds.
+     * @param percentile the percentile, 0 to 100.
+     * @return the latency in nanoseconds.
+     */
+    private long percentile(long[] latencies, int percentile) {
+        long[] sorted = Arrays.copyOf(latencies, latencies.length);
+        Arrays.sort(sorted);
+        int index = Math.min(sorted.length - 1, (sorted.length * percentile) / 100);
+        return sorted[index];
+    }
+
+    /**
+     * Prints the latency distribution.
+     *
+     * @param mode the name of the read mode.
+     * @param latencies the latencies in nanoseconds.
+     */
+    private void print(String mode, long[] latencies) {
+        long sum = 0;
+        for (long latency : latencies) {
+            sum += latency;
+        }
+        System.out.printf("%-30s events: %d  mean: %7.2f ms  p50: %7.2f ms  p99: %7.2f ms  max: %7.2f ms%n",
+                mode, latencies.length,
+                sum / (double)latencies.length / TimeUnit.MILLISECONDS.toNanos(1),
+                percentile(latencies, 50) / (double)TimeUnit.MILLISECONDS.toNanos(1),
+                percentile(latencies, 99) / (double)TimeUnit.MILLISECONDS.toNanos(1),
+                percentile(latencies, 100) / (double)TimeUnit.MILLISECONDS.toNanos(1));
+    }
+}
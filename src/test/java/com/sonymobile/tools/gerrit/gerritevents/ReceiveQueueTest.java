@@ -0,0 +1,277 @@
+/*
+ *  The MIT License
+ *
+ *  Copyright 2026 Sony Mobile Communications Inc. All rights reserved.
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+package com.sonymobile.tools.gerrit.gerritevents;
+
+import com.sonymobile.tools.gerrit.gerritevents.dto.attr.Provider;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+//CS IGNORE MagicNumber FOR NEXT 200 LINES. REASON: Test data.
+
+/**
+ * Tests for {@link ReceiveQueue} and {@link SpillQueue}.
+ */
+public class ReceiveQueueTest {
+
+    /**
+     * Where the spill segments go.
+     */
+    //CS IGNORE VisibilityModifier FOR NEXT 2 LINES. REASON: JUnit rule.
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * Tests that the oldest events are dropped to make room, by count and by bytes.
+     */
+    @Test
+    public void testDropOldest() {
+        ReceiveQueue queue = new ReceiveQueue(3, 100, ReceiveQueue.OverflowPolicy.DROP_OLDEST, null);
+        TestEntry first = new TestEntry(10, 0);
+        TestEntry second = new TestEntry(10, 0);
+        TestEntry third = new TestEntry(10, 0);
+        assertTrue(queue.admit(first, true, null, null));
+        assertTrue(queue.admit(second, true, null, null));
+        assertTrue(queue.admit(third, true, null, null));
+        assertTrue(queue.admit(new TestEntry(10, 0), true, null, null));
+        assertTrue(first.cancelled);
+        assertFalse(second.cancelled);
+        assertEquals(3, queue.getItems());
+        assertEquals(30, queue.getBytes());
+        assertTrue(queue.admit(new TestEntry(80, 0), true, null, null));
+        assertTrue(second.cancelled);
+        assertFalse(third.cancelled);
+        assertEquals(3, queue.getItems());
+        assertEquals(100, queue.getBytes());
+        assertTrue(queue.admit(new TestEntry(20, 0), true, null, null));
+        assertTrue(third.cancelled);
+        assertEquals(4, queue.getDropped());
+    }
+
+    /**
+     * Tests that the lowest priority events are dropped first, and new events of a lower priority are dropped.
+     */
+    @Test
+    public void testDropByPriority() {
+        ReceiveQueue queue = new ReceiveQueue(2, 0, ReceiveQueue.OverflowPolicy.DROP_BY_PRIORITY, null);
+        TestEntry high = new TestEntry(0, 2);
+        TestEntry low = new TestEntry(0, 1);
+        assertTrue(queue.admit(high, true, null, null));
+        assertTrue(queue.admit(low, true, null, null));
+        assertFalse(queue.admit(new TestEntry(0, 0), true, null, null));
+        assertEquals(1, queue.getDropped());
+        assertTrue(queue.admit(new TestEntry(0, 2), true, null, null));
+        assertTrue(low.cancelled);
+        assertFalse(high.cancelled);
+        assertEquals(2, queue.getItems());
+    }
+
+    /**
+     * Tests that a poster waits until a worker thread starts on an event, but events from inside do not wait.
+     *
+     * @throws Exception if so.
+     */
+    @Test
+    public void testBlock() throws Exception {
+        final ReceiveQueue queue = new ReceiveQueue(1, 0, ReceiveQueue.OverflowPolicy.BLOCK, null);
+        TestEntry first = new TestEntry(0, 0);
+        assertTrue(queue.admit(first, true, null, null));
+        assertTrue(queue.admit(new TestEntry(0, 0), false, null, null));
+        final CountDownLatch admitted = new CountDownLatch(1);
+        Thread poster = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                queue.admit(new TestEntry(0, 0), true, null, null);
+                admitted.countDown();
+            }
+        });
+        poster.start();
+        assertFalse(admitted.await(200, TimeUnit.MILLISECONDS));
+        queue.started(first);
+        assertFalse(admitted.await(200, TimeUnit.MILLISECONDS));
+        queue.close();
+        assertTrue(admitted.await(10, TimeUnit.SECONDS));
+        assertEquals(0, queue.getDropped());
+    }
+
+    /**
+     * Tests that lines are spilled once the queue is full, and read back in order when it is down to half.
+     *
+     * @throws Exception if so.
+     */
+    @Test
+    public void testSpillToDisk() throws Exception {
+        File directory = folder.newFolder();
+        ReceiveQueue queue = new ReceiveQueue(4, 0, ReceiveQueue.OverflowPolicy.SPILL_TO_DISK, directory);
+        Provider provider = new Provider("gerrit", "gerrit.example.com", "29418", "ssh", null, null);
+        TestEntry[] inMemory = new TestEntry[4];
+        for (int i = 0; i < 4; i++) {
+            inMemory[i] = new TestEntry(1, 0);
+            assertTrue(queue.admit(inMemory[i], true, line(i), provider));
+        }
+        for (int i = 4; i < 10; i++) {
+            assertFalse(queue.admit(new TestEntry(1, 0), true, line(i), provider));
+        }
+        assertEquals(6, queue.getSpilledItems());
+        assertEquals(6, queue.getSpilled());
+        //Events that are not lines are let in over the budget.
+        TestEntry event = new TestEntry(0, 0);
+        assertTrue(queue.admit(event, false, null, null));
+        queue.started(event);
+        queue.started(inMemory[0]);
+        assertTrue(queue.refill().isEmpty());
+        queue.started(inMemory[1]);
+        queue.started(inMemory[2]);
+        List<SpillQueue.SpilledLine> lines = queue.refill();
+        assertEquals(1, lines.size());
+        assertEquals("4", new String(lines.get(0).getLine(), StandardCharsets.UTF_8));
+        assertEquals(provider, lines.get(0).getProvider());
+        //New lines keep going to disk until the spilled ones are back.
+        assertFalse(queue.admit(new TestEntry(1, 0), true, line(10), null));
+        queue.admitRefilled(new TestEntry(1, 0));
+        queue.started(inMemory[3]);
+        int next = 5;
+        while (queue.getSpilledItems() > 0) {
+            lines = queue.refill();
+            for (SpillQueue.SpilledLine spilledLine : lines) {
+                assertEquals(String.valueOf(next++), new String(spilledLine.getLine(), StandardCharsets.UTF_8));
+                TestEntry entry = new TestEntry(1, 0);
+                queue.admitRefilled(entry);
+                queue.started(entry);
+            }
+        }
+        assertEquals(11, next);
+        assertNull(lines.get(lines.size() - 1).getProvider());
+        queue.close();
+        assertEquals(0, directory.list().length);
+    }
+
+    /**
+     * Tests that the lines on disk are still read back after the queue is closed, until they are discarded.
+     *
+     * @throws Exception if so.
+     */
+    @Test
+    public void testCloseKeepsSpilled() throws Exception {
+        File directory = folder.newFolder();
+        ReceiveQueue queue = new ReceiveQueue(2, 0, ReceiveQueue.OverflowPolicy.SPILL_TO_DISK, directory);
+        TestEntry first = new TestEntry(1, 0);
+        assertTrue(queue.admit(first, true, line(0), null));
+        assertTrue(queue.admit(new TestEntry(1, 0), true, line(1), null));
+        for (int i = 2; i < 6; i++) {
+            assertFalse(queue.admit(new TestEntry(1, 0), true, line(i), null));
+        }
+        queue.close();
+        //New events are let in over the budget once closed.
+        assertTrue(queue.admit(new TestEntry(1, 0), true, line(6), null));
+        assertEquals(4, queue.getSpilledItems());
+        queue.started(first);
+        assertTrue(queue.refill().isEmpty());
+        assertTrue(queue.awaitRoomToRefill());
+        assertEquals(4, queue.discardSpilled());
+        assertEquals(4, queue.getDiscarded());
+        assertEquals(0, queue.getSpilledItems());
+        assertEquals(0, queue.getDropped());
+        assertEquals(0, directory.list().length);
+        assertEquals(0, queue.discardSpilled());
+    }
+
+    /**
+     * Tests that the spill queue can be filled and emptied more than once.
+     *
+     * @throws Exception if so.
+     */
+    @Test
+    public void testSpillQueueReuse() throws Exception {
+        SpillQueue spillQueue = new SpillQueue(folder.newFolder());
+        for (int round = 0; round < 3; round++) {
+            spillQueue.add(line(round), null);
+            spillQueue.add(line(round + 1), null);
+            assertEquals(2, spillQueue.size());
+            assertEquals(String.valueOf(round), new String(spillQueue.poll().getLine(), StandardCharsets.UTF_8));
+            assertEquals(String.valueOf(round + 1),
+                    new String(spillQueue.poll().getLine(), StandardCharsets.UTF_8));
+            assertTrue(spillQueue.isEmpty());
+            assertNull(spillQueue.poll());
+        }
+        spillQueue.clear();
+    }
+
+    /**
+     * A line.
+     *
+     * @param number what is on the line.
+     * @return the UTF-8 encoded line.
+     */
+    private static byte[] line(int number) {
+        return String.valueOf(number).getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * An event in the queue.
+     */
+    private static final class TestEntry implements ReceiveQueue.Entry {
+        private final long bytes;
+        private final int priority;
+        private boolean cancelled = false;
+
+        /**
+         * Standard constructor.
+         *
+         * @param bytes the size.
+         * @param priority the priority.
+         */
+        TestEntry(long bytes, int priority) {
+            this.bytes = bytes;
+            this.priority = priority;
+        }
+
+        @Override
+        public long getBytes() {
+            return bytes;
+        }
+
+        @Override
+        public int getPriority() {
+            return priority;
+        }
+
+        @Override
+        public boolean cancel() {
+            cancelled = true;
+            return true;
+        }
+    }
+}
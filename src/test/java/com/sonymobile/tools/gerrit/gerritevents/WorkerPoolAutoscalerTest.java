@@ -0,0 +1,153 @@
+/*
+ *  The MIT License
+ *
+ *  Copyright 2026 Sony Mobile Communications Inc. All rights reserved.
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+package com.sonymobile.tools.gerrit.gerritevents;
+
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+//CS IGNORE MagicNumber FOR NEXT 200 LINES. REASON: Test data.
+
+/**
+ * Tests for {@link WorkerPoolAutoscaler}.
+ */
+public class WorkerPoolAutoscalerTest {
+
+    private static final long TARGET = TimeUnit.MILLISECONDS.toNanos(100);
+
+    /**
+     * Creates an autoscaler that is not started.
+     *
+     * @param min the least number of threads.
+     * @param max the most number of threads.
+     * @return the autoscaler.
+     */
+    private WorkerPoolAutoscaler newAutoscaler(int min, int max) {
+        return new WorkerPoolAutoscaler(null, min, max, TARGET, 1000);
+    }
+
+    /**
+     * Tests that the pool grows by half when events wait too long, up to the max.
+     */
+    @Test
+    public void testGrowOnQueueWait() {
+        WorkerPoolAutoscaler autoscaler = newAutoscaler(1, 10);
+        assertEquals(6, autoscaler.decide(4, TARGET * 2, 0.5, 10));
+        assertEquals(9, autoscaler.decide(6, TARGET * 2, 0.5, 10));
+        assertEquals(10, autoscaler.decide(9, TARGET * 2, 0.5, 10));
+        assertEquals(10, autoscaler.decide(10, TARGET * 2, 0.5, 10));
+        assertEquals(2, autoscaler.decide(1, TARGET * 2, 0.5, 10));
+        assertEquals(4, autoscaler.getDecisions().size());
+    }
+
+    /**
+     * Tests that the pool grows when the threads are saturated and events are waiting, even with a short wait.
+     */
+    @Test
+    public void testGrowOnUtilization() {
+        WorkerPoolAutoscaler autoscaler = newAutoscaler(1, 10);
+        assertEquals(3, autoscaler.decide(2, 0, 0.9, 1));
+        assertEquals(3, autoscaler.decide(3, 0, 0.9, 0));
+        assertEquals(3, autoscaler.decide(3, TARGET, 0.6, 5));
+    }
+
+    /**
+     * Tests that the pool only shrinks after being idle for the configured number of intervals in a row.
+     */
+    @Test
+    public void testShrinkHysteresis() {
+        WorkerPoolAutoscaler autoscaler = newAutoscaler(2, 16);
+        autoscaler.setScaleDownIntervals(3);
+        assertEquals(16, autoscaler.decide(16, 0, 0.1, 0));
+        assertEquals(16, autoscaler.decide(16, 0, 0.1, 0));
+        //A busier interval starts the count over.
+        assertEquals(16, autoscaler.decide(16, 0, 0.5, 0));
+        assertEquals(16, autoscaler.decide(16, 0, 0.1, 0));
+        assertEquals(16, autoscaler.decide(16, 0, 0.1, 0));
+        assertEquals(12, autoscaler.decide(16, 0, 0.1, 0));
+        for (int i = 0; i < 20; i++) {
+            autoscaler.decide(2, 0, 0, 0);
+        }
+        assertEquals(2, autoscaler.decide(2, 0, 0, 0));
+        List<WorkerPoolAutoscaler.Decision> decisions = autoscaler.getDecisions();
+        assertEquals(1, decisions.size());
+        assertEquals(16, decisions.get(0).getFrom());
+        assertEquals(12, decisions.get(0).getTo());
+        assertTrue(decisions.get(0).getReason().contains("idle"));
+    }
+
+    /**
+     * Tests that a shrinking pool keeps enough threads for the work it has.
+     */
+    @Test
+    public void testShrinkKeepsNeededThreads() {
+        WorkerPoolAutoscaler autoscaler = newAutoscaler(1, 100);
+        autoscaler.setScaleDownIntervals(1);
+        autoscaler.setUtilizationBounds(0.3, 0.5);
+        //At most a quarter at a time.
+        assertEquals(15, autoscaler.decide(20, 0, 0.3, 0));
+        assertEquals(12, autoscaler.decide(15, 0, 0.2, 0));
+        //20 threads 30% busy need 18 threads to stay below 35%.
+        autoscaler.setUtilizationBounds(0.3, 0.35);
+        assertEquals(18, autoscaler.decide(20, 0, 0.3, 0));
+    }
+
+    /**
+     * Tests that a pool outside the bounds is brought back inside.
+     */
+    @Test
+    public void testBounds() {
+        WorkerPoolAutoscaler autoscaler = newAutoscaler(4, 8);
+        assertEquals(4, autoscaler.decide(1, 0, 0, 0));
+        assertEquals(8, autoscaler.decide(20, TARGET * 2, 1, 100));
+    }
+
+    /**
+     * Tests that a min below one is refused.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testBadMin() {
+        newAutoscaler(0, 4);
+    }
+
+    /**
+     * Tests that a max below the min is refused.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testBadMax() {
+        newAutoscaler(4, 2);
+    }
+
+    /**
+     * Tests that a low utilization above the high one is refused.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testBadUtilizationBounds() {
+        newAutoscaler(1, 2).setUtilizationBounds(0.9, 0.5);
+    }
+}
@@ -0,0 +1,169 @@
+/*
+ *  The MIT License
+ *
+ *  Copyright 2026 Sony Mobile Communications Inc. All rights reserved.
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+package com.sonymobile.tools.gerrit.gerritevents.dto.attr;
+
+import com.sonymobile.tools.gerrit.gerritevents.GerritJsonEventDecoder;
+import com.sonymobile.tools.gerrit.gerritevents.dto.events.PatchsetCreated;
+import net.sf.json.JSONObject;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests for {@link Canonicalizer} and {@link CanonicalCache}.
+ */
+public class CanonicalizerTest {
+
+    //CS IGNORE LineLength FOR NEXT 4 LINES. REASON: Test data.
+    private static final String ACCOUNT = "{\"name\":\"Foo Bar\",\"email\":\"foo@bar.com\",\"username\":\"foobar\"}";
+    private static final String EVENT = "{\"type\":\"patchset-created\",\"uploader\":" + ACCOUNT + ",\"patchSet\":{\"number\":\"1\",\"uploader\":" + ACCOUNT
+            + ",\"author\":" + ACCOUNT + "},\"change\":{\"project\":\"foo/bar\",\"branch\":\"master\",\"number\":\"1\",\"owner\":" + ACCOUNT + "},"
+            + "\"provider\":{\"name\":\"gerrit\",\"host\":\"gerrit.example.com\",\"port\":\"29418\",\"scheme\":\"ssh\"}}";
+
+    /**
+     * Turns sharing on.
+     */
+    @Before
+    public void setUp() {
+        Canonicalizer.setSharing(true);
+    }
+
+    /**
+     * Turns sharing back off.
+     */
+    @After
+    public void tearDown() {
+        Canonicalizer.setSharing(false);
+    }
+
+    /**
+     * Tests that accounts and providers are not shared unless turned on, and can be changed.
+     */
+    @Test
+    public void testNotSharingByDefault() {
+        tearDown();
+        PatchsetCreated first = (PatchsetCreated)GerritJsonEventDecoder.decode(EVENT);
+        PatchsetCreated second = (PatchsetCreated)GerritJsonEventDecoder.decode(EVENT);
+        assertNotSame(first.getAccount(), second.getAccount());
+        assertNotSame(first.getProvider(), second.getProvider());
+        assertFalse(first.getAccount().isShared());
+        first.getAccount().setEmail("other@bar.com");
+        first.getProvider().setHost("other");
+        assertEquals("foo@bar.com", second.getAccount().getEmail());
+        assertEquals("gerrit.example.com", second.getProvider().getHost());
+        assertSame(first.getChange().getProject(), second.getChange().getProject());
+    }
+
+    /**
+     * Tests that the accounts, provider and strings of two events are the same instances.
+     */
+    @Test
+    public void testEventsShareInstances() {
+        PatchsetCreated first = (PatchsetCreated)GerritJsonEventDecoder.decode(EVENT);
+        PatchsetCreated second = (PatchsetCreated)GerritJsonEventDecoder.decode(EVENT);
+        assertNotSame(first, second);
+        assertSame(first.getAccount(), second.getAccount());
+        assertSame(first.getAccount(), first.getPatchSet().getAuthor());
+        assertSame(first.getAccount(), second.getChange().getOwner());
+        assertSame(first.getProvider(), second.getProvider());
+        assertSame(first.getChange().getProject(), second.getChange().getProject());
+        assertTrue(first.getAccount().isShared());
+        assertTrue(first.getProvider().isShared());
+    }
+
+    /**
+     * Tests that shared accounts and providers can not be changed, but other ones can.
+     */
+    @Test
+    public void testSharedCanNotChange() {
+        Account account = Canonicalizer.account(new Account(JSONObject.fromObject(ACCOUNT)));
+        try {
+            account.setEmail("other@bar.com");
+            fail("A shared account was changed");
+        } catch (UnsupportedOperationException e) {
+            assertEquals("foo@bar.com", account.getEmail());
+        }
+        Provider provider = Canonicalizer.provider(new Provider("gerrit", "host", "29418", "ssh", null, null));
+        try {
+            provider.setHost("other");
+            fail("A shared provider was changed");
+        } catch (UnsupportedOperationException e) {
+            assertEquals("host", provider.getHost());
+        }
+        Account own = new Account("Foo Bar", "foo@bar.com");
+        own.setUsername("foobar");
+        assertFalse(own.isShared());
+    }
+
+    /**
+     * Tests that accounts that are equal but have different usernames are not shared.
+     */
+    @Test
+    public void testUsernameMatters() {
+        Account first = new Account("Same", "same@bar.com");
+        first.setUsername("first");
+        Account second = new Account("Same", "same@bar.com");
+        second.setUsername("second");
+        assertSame(first, Canonicalizer.account(first));
+        assertSame(second, Canonicalizer.account(second));
+        assertNull(Canonicalizer.account(null));
+    }
+
+    /**
+     * Tests the statistics and that the cache keeps at most two generations.
+     */
+    @Test
+    public void testCacheBoundsAndStatistics() {
+        CanonicalCache<String, String> cache = new CanonicalCache<String, String>("test", 2);
+        String a = new String("a");
+        assertSame(a, cache.canonicalize("a", a));
+        assertSame(a, cache.canonicalize("a", new String("a")));
+        assertEquals(1, cache.getHits());
+        assertEquals(1, cache.getMisses());
+        assertEquals(1.0 / 2, cache.getHitRatio(), 0);
+
+        cache.canonicalize("b", "b");
+        assertEquals(1, cache.getRotations());
+        cache.canonicalize("c", "c");
+        cache.canonicalize("d", "d");
+        assertEquals(2, cache.getRotations());
+        assertTrue(cache.size() <= 2 * cache.getCapacity());
+        String newA = new String("a");
+        assertSame(newA, cache.canonicalize("a", newA));
+        assertSame(newA, cache.canonicalize(null, newA));
+
+        cache.clear();
+        assertEquals(0, cache.size());
+        assertEquals(0, cache.getHits());
+        assertEquals(0, cache.getMisses());
+    }
+}
@@ -0,0 +1,191 @@
+/*
+ *  The MIT License
+ *
+ *  Copyright 2026 Sony Mobile Communications Inc. All rights reserved.
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+package com.sonymobile.tools.gerrit.gerritevents.dto.attr;
+
+import com.thoughtworks.xstream.XStream;
+import net.sf.json.JSONObject;
+import org.junit.Test;
+import org.powermock.reflect.Whitebox;
+
+import java.util.Date;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+//CS IGNORE MagicNumber FOR NEXT 180 LINES. REASON: Test data.
+
+/**
+ * Tests for {@link CompactValues} and the DTOs keeping their values in compact form.
+ */
+public class CompactValuesTest {
+
+    /**
+     * Tests that only numbers that read back the same are made compact.
+     */
+    @Test
+    public void testNumbers() {
+        assertEquals(1234, CompactValues.toNumber("1234"));
+        assertEquals(Integer.MAX_VALUE, CompactValues.toNumber(String.valueOf(Integer.MAX_VALUE)));
+        assertEquals(CompactValues.NO_NUMBER, CompactValues.toNumber(null));
+        assertEquals(CompactValues.NO_NUMBER, CompactValues.toNumber(""));
+        assertEquals(CompactValues.NO_NUMBER, CompactValues.toNumber("0"));
+        assertEquals(CompactValues.NO_NUMBER, CompactValues.toNumber("-1"));
+        assertEquals(CompactValues.NO_NUMBER, CompactValues.toNumber("01"));
+        assertEquals(CompactValues.NO_NUMBER, CompactValues.toNumber("+1"));
+        assertEquals(CompactValues.NO_NUMBER, CompactValues.toNumber("12345678901"));
+        assertEquals(CompactValues.NO_NUMBER, CompactValues.toNumber("abc"));
+        assertEquals("1234", CompactValues.fromNumber(1234));
+        assertNull(CompactValues.fromNumber(CompactValues.NO_NUMBER));
+    }
+
+    /**
+     * Tests that votes survive the trip to a byte and back, and that zero is a vote.
+     */
+    @Test
+    public void testVotes() {
+        for (int vote = Byte.MIN_VALUE + 1; vote <= Byte.MAX_VALUE; vote++) {
+            String value = String.valueOf(vote);
+            byte compact = CompactValues.toVote(value);
+            assertTrue(value, compact != CompactValues.NO_VOTE);
+            assertEquals(value, CompactValues.fromVote(compact));
+        }
+        assertSame(CompactValues.fromVote(CompactValues.toVote("0")), CompactValues.fromVote(CompactValues.toVote("0")));
+        assertNull(CompactValues.fromVote(CompactValues.NO_VOTE));
+        assertEquals(-2, CompactValues.toVote("-2"));
+        assertEquals(0, CompactValues.toVote("0"));
+        assertEquals(CompactValues.NO_VOTE, CompactValues.toVote(null));
+        assertEquals(CompactValues.NO_VOTE, CompactValues.toVote("-128"));
+        assertEquals(CompactValues.NO_VOTE, CompactValues.toVote("+1"));
+        assertEquals(CompactValues.NO_VOTE, CompactValues.toVote("-0"));
+        assertEquals(CompactValues.NO_VOTE, CompactValues.toVote("bar"));
+    }
+
+    /**
+     * Tests that dates are kept as epoch milliseconds.
+     */
+    @Test
+    public void testTimes() {
+        Date date = new Date(1527883364000L);
+        assertEquals(date, CompactValues.fromTime(CompactValues.toTime(date)));
+        assertEquals(1527883364000L, CompactValues.toTime(date));
+        assertEquals(CompactValues.NO_TIME, CompactValues.toTime(null));
+        assertNull(CompactValues.fromTime(CompactValues.NO_TIME));
+        assertEquals(new Date(0), CompactValues.fromTime(CompactValues.toTime(new Date(0))));
+    }
+
+    /**
+     * Tests that the epoch is kept as a date on a change and a patch set, and that unset dates stay null.
+     */
+    @Test
+    public void testEpochDates() {
+        Change change = new Change();
+        assertNull(change.getCreatedOn());
+        assertNull(change.getLastUpdated());
+        change.setCreatedOn(new Date(0));
+        change.setLastUpdated(new Date(0));
+        assertEquals(new Date(0), change.getCreatedOn());
+        assertEquals(new Date(0), change.getLastUpdated());
+        PatchSet patchSet = new PatchSet();
+        assertNull(patchSet.getCreatedOn());
+        patchSet.setCreatedOn(new Date(0));
+        assertEquals(new Date(0), patchSet.getCreatedOn());
+    }
+
+    /**
+     * Tests that the compact values are serialized as they are, and that the fields missing from
+     * data serialized before they existed read as no value.
+     */
+    @Test
+    public void testSerializedForm() {
+        XStream x = new XStream();
+        x.allowTypesByWildcard(new String[]{"com.sonymobile.tools.gerrit.gerritevents.dto.**"});
+
+        Approval approval = new Approval(JSONObject.fromObject("{\"type\":\"Code-Review\",\"value\":\"-2\"}"));
+        String xml = x.toXML(approval);
+        assertTrue(xml, xml.contains("<vote>-2</vote>"));
+        Approval read = (Approval)x.fromXML(xml);
+        assertEquals("-2", read.getValue());
+        assertNull(read.getOldValue());
+        Approval legacy = (Approval)x.fromXML("<com.sonymobile.tools.gerrit.gerritevents.dto.attr.Approval>"
+                + "<type>Code-Review</type></com.sonymobile.tools.gerrit.gerritevents.dto.attr.Approval>");
+        assertNull(legacy.getValue());
+        assertNull(legacy.getOldValue());
+        assertFalse(legacy.isUpdated());
+
+        Change change = new Change();
+        change.setCreatedOn(new Date(0));
+        xml = x.toXML(change);
+        assertTrue(xml, xml.contains("<createdOnTime>0</createdOnTime>"));
+        Change readChange = (Change)x.fromXML(xml);
+        assertEquals(new Date(0), readChange.getCreatedOn());
+        assertNull(readChange.getLastUpdated());
+        Change legacyChange = (Change)x.fromXML("<com.sonymobile.tools.gerrit.gerritevents.dto.attr.Change>"
+                + "<createdOn>2018-06-01 20:02:44.0 UTC</createdOn>"
+                + "</com.sonymobile.tools.gerrit.gerritevents.dto.attr.Change>");
+        assertEquals(1527883364000L, legacyChange.getCreatedOn().getTime());
+        assertNull(legacyChange.getLastUpdated());
+
+        PatchSet patchSet = (PatchSet)x.fromXML("<com.sonymobile.tools.gerrit.gerritevents.dto.attr.PatchSet>"
+                + "<number>1</number></com.sonymobile.tools.gerrit.gerritevents.dto.attr.PatchSet>");
+        assertEquals("1", patchSet.getNumber());
+        assertNull(patchSet.getCreatedOn());
+    }
+
+    /**
+     * Tests that the getters of the DTOs return what was read, whether it could be kept compact or not.
+     */
+    @Test
+    public void testDtoGetters() {
+        Approval approval = new Approval(JSONObject.fromObject(
+                "{\"type\":\"Code-Review\",\"value\":\"0\",\"oldValue\":\"-2\"}"));
+        assertEquals("0", approval.getValue());
+        assertEquals("-2", approval.getOldValue());
+        assertTrue(approval.isUpdated());
+        assertNull(Whitebox.getInternalState(approval, "value"));
+        assertSame(Canonicalizer.string("Code-Review"), approval.getType());
+
+        Approval other = new Approval(JSONObject.fromObject("{\"type\":\"Code-Review\",\"value\":\"+1\"}"));
+        assertEquals("+1", other.getValue());
+        assertNull(other.getOldValue());
+        assertFalse(other.isUpdated());
+
+        Change change = new Change(JSONObject.fromObject(
+                "{\"project\":\"foo/bar\",\"number\":\"01\",\"createdOn\":1527883364}"));
+        assertEquals("01", change.getNumber());
+        assertSame(change.getCreatedOn(), change.getCreatedOn());
+        assertEquals(1527883364000L, change.getCreatedOn().getTime());
+        assertNull(change.getLastUpdated());
+        change.setNumber("42");
+        assertEquals("42", change.getNumber());
+        assertSame(change.getNumber(), change.getNumber());
+        assertNull(Whitebox.getInternalState(change, "number"));
+
+        Account first = new Account(JSONObject.fromObject("{\"email\":\"foo@bar.com\"}"));
+        Account second = new Account(JSONObject.fromObject("{\"email\":\"foo@bar.com\"}"));
+        assertSame(first.getEmail(), second.getEmail());
+    }
+}
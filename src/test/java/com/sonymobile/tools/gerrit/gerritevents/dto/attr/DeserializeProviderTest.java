@@ -63,5 +63,32 @@ public class DeserializeProviderTest {
         assertNull(Whitebox.getInternalState(provider, "proto"));
     }
 
+    /**
+     * Tests that numbers read from an XStream file written before the DTOs were made compact are kept compact.
+     *
+     * @throws IOException if so.
+     */
+    @Test
+    public void testNumbersToCompact() throws IOException {
+        XStream x = new XStream();
+        x.aliasPackage("com.sonyericsson.hudson.plugins.gerrit.gerritevents",
+                "com.sonymobile.tools.gerrit.gerritevents");
+        x.allowTypesByWildcard(new String[]{"com.sonymobile.tools.gerrit.gerritevents.dto.**"});
+        PatchsetCreated event = (PatchsetCreated)x.fromXML(getClass()
+                .getResourceAsStream("DeserializeProviderTest.xml"));
+        assertEquals("29418", event.getProvider().getPort());
+        assertEquals("12345", event.getChange().getNumber());
+        assertEquals("1", event.getPatchSet().getNumber());
+        assertNull(Whitebox.getInternalState(event.getProvider(), "port"));
+        assertNull(Whitebox.getInternalState(event.getChange(), "number"));
+        assertNull(Whitebox.getInternalState(event.getPatchSet(), "number"));
+        assertNull(event.getChange().getCreatedOn());
+
+        PatchsetCreated copy = (PatchsetCreated)x.fromXML(x.toXML(event));
+        assertEquals(event.getChange(), copy.getChange());
+        assertEquals(event.getPatchSet(), copy.getPatchSet());
+        assertEquals(event.getProvider(), copy.getProvider());
+    }
+
 
 }
@@ -48,6 +48,7 @@ import static com.sonymobile.tools.gerrit.gerritevents.dto.GerritEventKeys.SUBJE
 import static com.sonymobile.tools.gerrit.gerritevents.dto.GerritEventKeys.URL;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 import static org.mockito.Mockito.mock;
 
 /**
@@ -106,4 +107,41 @@ public class StreamEventsStringWorkTest {
         assertEquals("100", event.getChange().getNumber());
         assertEquals("2", event.getPatchSet().getNumber());
     }
+
+    /**
+     * Tests that {@link StreamEventsStringWork#perform(Coordinator)} does not create an event
+     * for a type the coordinator is not interested in.
+     * @throws Exception if so.
+     */
+    @Test
+    public void testPerformNotInterested() throws Exception {
+        JSONObject change = new JSONObject();
+        change.put(PROJECT, "project");
+        change.put(NUMBER, "100");
+        JSONObject jsonEvent = new JSONObject();
+        jsonEvent.put("type", GerritEventType.PATCHSET_CREATED.getTypeValue());
+        jsonEvent.put(CHANGE, change);
+
+        StreamEventsStringWork work = new StreamEventsStringWork(jsonEvent.toString());
+
+        final GerritEvent[] notifiedEvent = {null};
+        Coordinator coordinator = new Coordinator() {
+
+            @Override
+            public BlockingQueue<Work> getWorkQueue() {
+                return mock(BlockingQueue.class);
+            }
+            @Override
+            public void notifyListeners(GerritEvent event) {
+                notifiedEvent[0] = event;
+            }
+            @Override
+            public boolean isInterestedIn(GerritEventType type) {
+                return type != GerritEventType.PATCHSET_CREATED;
+            }
+        };
+        work.perform(coordinator);
+
+        assertNull(notifiedEvent[0]);
+    }
 }